@@ -1,15 +1,45 @@
 
 package aloui.bilal.userauthservice;
 
+import aloui.bilal.userauthservice.analytics.LoginAnalytics;
+import aloui.bilal.userauthservice.cluster.ClusterInvalidation;
+import aloui.bilal.userauthservice.dao.DataAccessException;
+import aloui.bilal.userauthservice.dao.LoginHistoryPartitionManager;
+import aloui.bilal.userauthservice.dao.OutboxRelay;
+import aloui.bilal.userauthservice.dao.TransparencyLogAppender;
+import aloui.bilal.userauthservice.dao.UserDeletionWorker;
+import aloui.bilal.userauthservice.dao.UserShards;
+import aloui.bilal.userauthservice.diagnostics.ContinuousRecording;
+import aloui.bilal.userauthservice.diagnostics.DiagnosticsService;
+import aloui.bilal.userauthservice.diagnostics.PinningMonitor;
+import aloui.bilal.userauthservice.ledger.LedgerVerifier;
+import aloui.bilal.userauthservice.limiter.ConcurrencyLimitFilter;
+import aloui.bilal.userauthservice.logging.AccessLogFilter;
+import aloui.bilal.userauthservice.media.CborSupport;
+import aloui.bilal.userauthservice.metrics.MetricsService;
+import aloui.bilal.userauthservice.security.BreachedPasswords;
+import aloui.bilal.userauthservice.security.PermissionRegistry;
 import aloui.bilal.userauthservice.service.auth.AuthService;
+import aloui.bilal.userauthservice.service.hashing.HashingService;
+import aloui.bilal.userauthservice.service.ledger.LedgerService;
+import aloui.bilal.userauthservice.service.signature.SignatureService;
+import aloui.bilal.userauthservice.tracing.TracingFilter;
+import aloui.bilal.userauthservice.tracing.TracingService;
 import io.helidon.config.Config;
+import io.helidon.http.HeaderNames;
+import io.helidon.http.Status;
+import io.helidon.http.media.MediaContext;
 import io.helidon.logging.common.LogConfig;
 import io.helidon.webserver.WebServer;
 import io.helidon.webserver.http.HttpRouting;
 import io.helidon.webserver.cors.CorsSupport;
+import jakarta.json.Json;
+
+import java.util.logging.Logger;
 
 public class Main {
 
+    private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
 
     private Main() {
     }
@@ -23,15 +53,64 @@ public class Main {
         // load logging configuration
         LogConfig.configureRuntime();
 
+        // keep caches coherent with the other replicas
+        ClusterInvalidation.start();
+
+        // load which shard holds each user bucket; fails on a map naming an unconfigured shard
+        UserShards.start();
+
+        // load the role permission snapshot used for authorization
+        PermissionRegistry.start();
+
+        // map the breached-password index and watch it for replacements
+        BreachedPasswords.start();
+
+        // create upcoming login_history partitions and retire expired ones
+        LoginHistoryPartitionManager.start();
+
+        // load checkpointed login analytics and keep checkpointing this replica's counts
+        LoginAnalytics.start();
+
+        // append login events to the Merkle transparency log and sign checkpoints
+        TransparencyLogAppender.start();
+
+        // remove the data of deleted users in small batches, users row last
+        UserDeletionWorker.start();
+
+        // publish user lifecycle events from the outbox table to the configured sink
+        OutboxRelay.start();
+
+        // verify the blockchain ledger forward from the last signed checkpoint
+        LedgerVerifier.start();
+
+        // optional JFR stream of virtual thread pinning, reported at /diagnostics/pinning
+        PinningMonitor.start();
+
+        // always-on JFR recording with a rolling buffer, dumped on demand by admins
+        ContinuousRecording.start();
+
         WebServer server = WebServer.builder()
                 .config(config.get("server"))
+                // CBOR for callers that ask for it; discovered JSON-P stays the default
+                .mediaContext(MediaContext.builder()
+                        .addMediaSupport(CborSupport.create())
+                        .build())
                 .routing(Main::routing)
+                // server.sockets.management: never published, so scrapes come from inside the network
+                .routing("management", Main::managementRouting)
                 .build()
                 .start();
 
 
-        System.out.println("WEB server is up! http://localhost:" + server.port());
+        LOGGER.info("WEB server is up! http://localhost:" + server.port());
+
+    }
 
+    static void managementRouting(HttpRouting.Builder routing) {
+        routing
+                .register("/metrics", new MetricsService())
+                .register("/traces", new TracingService())
+                .register("/diagnostics", new DiagnosticsService());
     }
 
     static void routing(HttpRouting.Builder routing) {
@@ -43,7 +122,21 @@ public class Main {
                 .build();
 
         routing
+                .addFilter(new TracingFilter())
+                .addFilter(new AccessLogFilter())
+                .addFilter(new ConcurrencyLimitFilter(Config.create().get("limiter")))
                 .register(cors)
-                .register("/auth", new AuthService());
+                .register("/auth", new AuthService())
+                .register("/signatures", new SignatureService())
+                .register("/hashing", new HashingService())
+                .register("/ledger", new LedgerService())
+                // Database outages, open circuit or full bulkhead: say so instead of a misleading 401/404
+                .error(DataAccessException.class, (req, res, e) -> res
+                        .status(Status.SERVICE_UNAVAILABLE_503)
+                        .header(HeaderNames.RETRY_AFTER, "1")
+                        .send(Json.createObjectBuilder()
+                                .add("status", "error")
+                                .add("message", "Service temporarily unavailable, retry shortly")
+                                .build()));
     }
 }
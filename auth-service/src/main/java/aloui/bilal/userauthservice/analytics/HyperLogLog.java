@@ -0,0 +1,147 @@
+package aloui.bilal.userauthservice.analytics;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog distinct counter: 2^precision one-byte registers, standard error about 1.04 / sqrt(2^precision).
+ * Sketches merge by taking register maxima, so per-replica counts combine without double counting.
+ * Not thread-safe; {@link LoginStats} guards its sketches.
+ */
+public final class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between " + MIN_PRECISION
+                    + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    private HyperLogLog(int precision, byte[] registers) {
+        this.precision = precision;
+        this.registers = registers;
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    /**
+     * Adds an already well-mixed 64-bit hash; see {@link #hash(String)} and {@link #hash(long)}.
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit caps the rank at 65 - precision when the remaining bits are all zero
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+        double estimate = alpha * m * m / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public HyperLogLog copy() {
+        return new HyperLogLog(precision, registers.clone());
+    }
+
+    /**
+     * Union of two sketches at the lower of their precisions; the finer one is folded down.
+     */
+    public static HyperLogLog union(HyperLogLog a, HyperLogLog b) {
+        HyperLogLog coarse = a.precision <= b.precision ? a : b;
+        HyperLogLog fine = coarse == a ? b : a;
+        HyperLogLog result = coarse.copy();
+        result.fold(fine);
+        return result;
+    }
+
+    private void fold(HyperLogLog other) {
+        int shift = other.precision - precision;
+        int droppedMask = (1 << shift) - 1;
+        for (int j = 0; j < other.registers.length; j++) {
+            int rank = other.registers[j];
+            if (rank == 0) {
+                continue;
+            }
+            // Index bits beyond this sketch's precision become the leading bits of the rank
+            int dropped = j & droppedMask;
+            int folded = dropped == 0 ? shift + rank : shift - (32 - Integer.numberOfLeadingZeros(dropped)) + 1;
+            int index = j >>> shift;
+            if (folded > registers[index]) {
+                registers[index] = (byte) folded;
+            }
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + registers.length);
+        buffer.put((byte) precision);
+        buffer.put(registers);
+        return buffer.array();
+    }
+
+    static HyperLogLog read(ByteBuffer buffer) {
+        int precision = buffer.get();
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Unsupported HyperLogLog precision " + precision);
+        }
+        byte[] registers = new byte[1 << precision];
+        buffer.get(registers);
+        return new HyperLogLog(precision, registers);
+    }
+
+    /**
+     * 64-bit FNV-1a over the string's chars, finished with the MurmurHash3 mixer so every bit is usable.
+     */
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * SplitMix64 of a number, e.g. an interned user-agent id.
+     */
+    public static long hash(long value) {
+        return mix(value + 0x9E3779B97F4A7C15L);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
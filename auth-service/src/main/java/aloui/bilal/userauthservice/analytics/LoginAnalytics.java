@@ -0,0 +1,283 @@
+package aloui.bilal.userauthservice.analytics;
+
+import aloui.bilal.userauthservice.dao.ILoginAnalyticsDao;
+import aloui.bilal.userauthservice.dao.LoginAnalyticsDaoImpl;
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.model.User;
+import io.helidon.config.Config;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-user and per-organization login statistics kept in memory and updated as logins are recorded, so
+ * dashboard reads cost the same however long the history is.
+ * <p>
+ * Each entry is the checkpointed state plus this replica's delta since the last checkpoint. A checkpoint adds
+ * the deltas to login_analytics_* under a lock and adopts the merged rows; rows other replicas changed are picked
+ * up by polling their updated_at.
+ */
+public class LoginAnalytics {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginAnalytics.class.getName());
+
+    // Overlap between refreshes: updated_at is stamped before commit, so a row can show up slightly late
+    private static final long REFRESH_OVERLAP_MS = 60_000;
+
+    private static final boolean ENABLED;
+    private static final int WINDOW_DAYS;
+    private static final int USER_PRECISION;
+    private static final int ORGANIZATION_PRECISION;
+    private static final int MAX_USERS;
+    private static final int MAX_ORGANIZATIONS;
+    private static final long CHECKPOINT_SECONDS;
+
+    private static final Map<Long, Entry> USERS = new ConcurrentHashMap<>();
+    private static final Map<String, Entry> ORGANIZATIONS = new ConcurrentHashMap<>();
+    private static final LongAdder UNTRACKED = Metrics.counter("auth_analytics_untracked_logins_total");
+    private static final LongAdder UNTRACKED_ORGANIZATIONS =
+            Metrics.counter("auth_analytics_untracked_organization_logins_total");
+
+    private static final ILoginAnalyticsDao DAO = new LoginAnalyticsDaoImpl();
+
+    private static ScheduledExecutorService scheduler;
+    private static Timestamp watermark;
+
+    static {
+        Config config = Config.create().get("analytics");
+        ENABLED = config.get("enabled").asBoolean().orElse(true);
+        WINDOW_DAYS = config.get("window-days").asInt().orElse(30);
+        USER_PRECISION = config.get("user-precision").asInt().orElse(8);
+        ORGANIZATION_PRECISION = config.get("organization-precision").asInt().orElse(12);
+        MAX_USERS = config.get("max-users").asInt().orElse(200_000);
+        MAX_ORGANIZATIONS = config.get("max-organizations").asInt().orElse(20_000);
+        CHECKPOINT_SECONDS = config.get("checkpoint-seconds").asLong().orElse(30L);
+        Metrics.gauge("auth_analytics_users", USERS::size);
+        Metrics.gauge("auth_analytics_organizations", ORGANIZATIONS::size);
+    }
+
+    private LoginAnalytics() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Serve live counts from this replica until a checkpoint round gets through
+            LOGGER.log(Level.WARNING, "Could not load login analytics checkpoint", e);
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("login-analytics-checkpoint")
+                .factory());
+        scheduler.scheduleWithFixedDelay(LoginAnalytics::runOnce, CHECKPOINT_SECONDS, CHECKPOINT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static int windowDays() {
+        return WINDOW_DAYS;
+    }
+
+    /**
+     * Counts a committed login. O(1): a few array writes and sketch register updates.
+     */
+    public static void record(User user, LoginHistory login) {
+        if (!ENABLED) {
+            return;
+        }
+        long atMs = login.getLoginAt() == null ? System.currentTimeMillis() : login.getLoginAt().getTime();
+        String ip = login.getIpAddress() == null ? "" : login.getIpAddress().split(",")[0].trim();
+        long ipHash = HyperLogLog.hash(ip);
+        long userAgentHash = HyperLogLog.hash(login.getUserAgentId());
+        long userHash = HyperLogLog.hash(user.getId());
+
+        Entry userEntry = USERS.get(user.getId());
+        if (userEntry == null) {
+            if (USERS.size() >= MAX_USERS) {
+                UNTRACKED.increment();
+            } else {
+                userEntry = USERS.computeIfAbsent(user.getId(), id -> new Entry(USER_PRECISION, false));
+            }
+        }
+        if (userEntry != null) {
+            userEntry.record(atMs, ipHash, userAgentHash, userHash);
+        }
+
+        String organization = user.getOrganizationName();
+        if (organization != null && !organization.isBlank()) {
+            Entry organizationEntry = ORGANIZATIONS.get(organization);
+            if (organizationEntry == null) {
+                if (ORGANIZATIONS.size() >= MAX_ORGANIZATIONS) {
+                    UNTRACKED_ORGANIZATIONS.increment();
+                } else {
+                    organizationEntry = ORGANIZATIONS.computeIfAbsent(organization,
+                            name -> new Entry(ORGANIZATION_PRECISION, true));
+                }
+            }
+            if (organizationEntry != null) {
+                organizationEntry.record(atMs, ipHash, userAgentHash, userHash);
+            }
+        }
+    }
+
+    /**
+     * Drops a deleted user's entry, along with any delta not yet checkpointed.
+     */
+    public static void forget(long userId) {
+        USERS.remove(userId);
+    }
+
+    public static Optional<LoginStats> forUser(long userId) {
+        Entry entry = USERS.get(userId);
+        return entry == null ? Optional.empty() : Optional.of(entry.view());
+    }
+
+    public static Optional<LoginStats> forOrganization(String organization) {
+        Entry entry = ORGANIZATIONS.get(organization);
+        return entry == null ? Optional.empty() : Optional.of(entry.view());
+    }
+
+    static void runOnce() {
+        try {
+            checkpoint();
+            refresh();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Login analytics checkpoint failed", e);
+        }
+    }
+
+    private static void checkpoint() {
+        Map<Long, LoginStats> userDeltas = new HashMap<>();
+        USERS.forEach((id, entry) -> entry.drain().ifPresent(delta -> userDeltas.put(id, delta)));
+        Map<String, LoginStats> organizationDeltas = new HashMap<>();
+        ORGANIZATIONS.forEach((name, entry) -> entry.drain().ifPresent(delta -> organizationDeltas.put(name, delta)));
+        if (userDeltas.isEmpty() && organizationDeltas.isEmpty()) {
+            return;
+        }
+
+        Optional<ILoginAnalyticsDao.Snapshot> merged;
+        try {
+            merged = DAO.merge(userDeltas, organizationDeltas);
+        } catch (RuntimeException e) {
+            restore(userDeltas, organizationDeltas);
+            throw e;
+        }
+        if (merged.isEmpty()) {
+            // Another replica holds the lock; try again next round
+            restore(userDeltas, organizationDeltas);
+            return;
+        }
+        merged.get().users().forEach((id, stats) -> {
+            Entry entry = USERS.get(id);
+            if (entry != null) {
+                entry.rebase(stats);
+            }
+        });
+        merged.get().organizations().forEach((name, stats) -> {
+            Entry entry = ORGANIZATIONS.get(name);
+            if (entry != null) {
+                entry.rebase(stats);
+            }
+        });
+    }
+
+    private static void restore(Map<Long, LoginStats> userDeltas, Map<String, LoginStats> organizationDeltas) {
+        // A user forgotten meanwhile stays forgotten
+        userDeltas.forEach((id, delta) -> {
+            Entry entry = USERS.get(id);
+            if (entry != null) {
+                entry.undrain(delta);
+            }
+        });
+        organizationDeltas.forEach((name, delta) -> ORGANIZATIONS.get(name).undrain(delta));
+    }
+
+    /**
+     * Adopts rows changed since the last refresh, including other replicas' checkpoints.
+     */
+    private static void refresh() {
+        Timestamp since = watermark == null ? null : new Timestamp(watermark.getTime() - REFRESH_OVERLAP_MS);
+        ILoginAnalyticsDao.Snapshot snapshot = DAO.loadSince(since);
+        snapshot.users().forEach((id, stats) -> {
+            Entry entry = USERS.get(id);
+            if (entry == null && USERS.size() < MAX_USERS) {
+                entry = USERS.computeIfAbsent(id, key -> new Entry(USER_PRECISION, false));
+            }
+            if (entry != null) {
+                entry.rebase(stats);
+            }
+        });
+        snapshot.organizations().forEach((name, stats) -> {
+            Entry entry = ORGANIZATIONS.get(name);
+            if (entry == null && ORGANIZATIONS.size() < MAX_ORGANIZATIONS) {
+                entry = ORGANIZATIONS.computeIfAbsent(name, key -> new Entry(ORGANIZATION_PRECISION, true));
+            }
+            if (entry != null) {
+                entry.rebase(stats);
+            }
+        });
+        watermark = snapshot.watermark();
+    }
+
+    /**
+     * Checkpointed state plus the logins this replica has seen since.
+     */
+    private static final class Entry {
+
+        private final int precision;
+        private final boolean trackUsers;
+        private LoginStats base;
+        private LoginStats delta;
+
+        Entry(int precision, boolean trackUsers) {
+            this.precision = precision;
+            this.trackUsers = trackUsers;
+            this.base = new LoginStats(WINDOW_DAYS, precision, trackUsers);
+            this.delta = new LoginStats(WINDOW_DAYS, precision, trackUsers);
+        }
+
+        synchronized void record(long atMs, long ipHash, long userAgentHash, long userHash) {
+            delta.record(atMs, ipHash, userAgentHash, userHash);
+        }
+
+        synchronized LoginStats view() {
+            LoginStats view = base.copy();
+            view.merge(delta);
+            return view;
+        }
+
+        synchronized Optional<LoginStats> drain() {
+            if (delta.isEmpty()) {
+                return Optional.empty();
+            }
+            LoginStats drained = delta;
+            delta = new LoginStats(WINDOW_DAYS, precision, trackUsers);
+            return Optional.of(drained);
+        }
+
+        synchronized void undrain(LoginStats drained) {
+            drained.merge(delta);
+            delta = drained;
+        }
+
+        synchronized void rebase(LoginStats stored) {
+            base = stored;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package aloui.bilal.userauthservice.analytics;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Login statistics for one user or organization: daily counts over a rolling window, a running total,
+ * the last login time and HyperLogLog sketches of distinct IPs, user agents and (for organizations) users.
+ * Every part merges associatively, so replicas keep deltas and add them to the checkpointed state.
+ */
+public class LoginStats {
+
+    private static final byte VERSION = 1;
+
+    // Slot i holds the count for epoch day days[i]; a slot is reused once its day leaves the window
+    private final long[] days;
+    private final int[] counts;
+    private long total;
+    private long lastSeenMs;
+    private HyperLogLog ips;
+    private HyperLogLog userAgents;
+    private HyperLogLog users;
+
+    public LoginStats(int windowDays, int precision, boolean trackUsers) {
+        this.days = new long[windowDays];
+        this.counts = new int[windowDays];
+        this.ips = new HyperLogLog(precision);
+        this.userAgents = new HyperLogLog(precision);
+        this.users = trackUsers ? new HyperLogLog(precision) : null;
+    }
+
+    private LoginStats(long[] days, int[] counts, long total, long lastSeenMs,
+                       HyperLogLog ips, HyperLogLog userAgents, HyperLogLog users) {
+        this.days = days;
+        this.counts = counts;
+        this.total = total;
+        this.lastSeenMs = lastSeenMs;
+        this.ips = ips;
+        this.userAgents = userAgents;
+        this.users = users;
+    }
+
+    public synchronized void record(long atMs, long ipHash, long userAgentHash, long userHash) {
+        addDay(Math.floorDiv(atMs, 86_400_000L), 1);
+        total++;
+        lastSeenMs = Math.max(lastSeenMs, atMs);
+        ips.add(ipHash);
+        userAgents.add(userAgentHash);
+        if (users != null) {
+            users.add(userHash);
+        }
+    }
+
+    /**
+     * Adds another state into this one. Days older than this window are dropped.
+     */
+    public void merge(LoginStats other) {
+        LoginStats source = other.copy();
+        synchronized (this) {
+            for (int i = 0; i < source.days.length; i++) {
+                if (source.counts[i] > 0) {
+                    addDay(source.days[i], source.counts[i]);
+                }
+            }
+            total += source.total;
+            lastSeenMs = Math.max(lastSeenMs, source.lastSeenMs);
+            ips = HyperLogLog.union(ips, source.ips);
+            userAgents = HyperLogLog.union(userAgents, source.userAgents);
+            if (users != null && source.users != null) {
+                users = HyperLogLog.union(users, source.users);
+            }
+        }
+    }
+
+    private void addDay(long day, int count) {
+        int slot = (int) Math.floorMod(day, (long) days.length);
+        if (days[slot] == day) {
+            counts[slot] += count;
+        } else if (day > days[slot] || counts[slot] == 0) {
+            days[slot] = day;
+            counts[slot] = count;
+        }
+    }
+
+    public synchronized LoginStats copy() {
+        return new LoginStats(days.clone(), counts.clone(), total, lastSeenMs, ips.copy(), userAgents.copy(),
+                users == null ? null : users.copy());
+    }
+
+    public synchronized boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Logins on each of the {@code n} days ending with {@code lastDay} (epoch days), oldest first.
+     */
+    public synchronized int[] perDay(long lastDay, int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i++) {
+            long day = lastDay - (n - 1 - i);
+            int slot = (int) Math.floorMod(day, (long) days.length);
+            result[i] = days[slot] == day ? counts[slot] : 0;
+        }
+        return result;
+    }
+
+    public int windowDays() {
+        return days.length;
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized long lastSeenMs() {
+        return lastSeenMs;
+    }
+
+    public synchronized long distinctIps() {
+        return ips.estimate();
+    }
+
+    public synchronized long distinctUserAgents() {
+        return userAgents.estimate();
+    }
+
+    /**
+     * Distinct users, or -1 for per-user stats.
+     */
+    public synchronized long distinctUsers() {
+        return users == null ? -1 : users.estimate();
+    }
+
+    public synchronized byte[] toBytes() {
+        int used = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                used++;
+            }
+        }
+        byte[] ipBytes = ips.toBytes();
+        byte[] userAgentBytes = userAgents.toBytes();
+        byte[] userBytes = users == null ? new byte[0] : users.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + 2 + used * 12 + 16 + 1
+                + ipBytes.length + userAgentBytes.length + userBytes.length);
+        buffer.put(VERSION);
+        buffer.putShort((short) days.length);
+        // Only days with logins are written, as (epoch day, count) pairs
+        buffer.putShort((short) used);
+        for (int i = 0; i < days.length; i++) {
+            if (counts[i] > 0) {
+                buffer.putLong(days[i]);
+                buffer.putInt(counts[i]);
+            }
+        }
+        buffer.putLong(total);
+        buffer.putLong(lastSeenMs);
+        buffer.put((byte) (users == null ? 0 : 1));
+        buffer.put(ipBytes);
+        buffer.put(userAgentBytes);
+        buffer.put(userBytes);
+        return buffer.array();
+    }
+
+    public static LoginStats fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 5 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported login stats encoding");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        int window = Short.toUnsignedInt(buffer.getShort());
+        int used = Short.toUnsignedInt(buffer.getShort());
+        if (window == 0 || used > window) {
+            throw new IllegalArgumentException("Corrupt login stats window");
+        }
+        LoginStats stats = new LoginStats(new long[window], new int[window], 0, 0, null, null, null);
+        for (int i = 0; i < used; i++) {
+            stats.addDay(buffer.getLong(), buffer.getInt());
+        }
+        stats.total = buffer.getLong();
+        stats.lastSeenMs = buffer.getLong();
+        boolean trackUsers = buffer.get() != 0;
+        stats.ips = HyperLogLog.read(buffer);
+        stats.userAgents = HyperLogLog.read(buffer);
+        stats.users = trackUsers ? HyperLogLog.read(buffer) : null;
+        return stats;
+    }
+}
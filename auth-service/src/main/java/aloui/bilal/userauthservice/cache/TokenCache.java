@@ -0,0 +1,54 @@
+package aloui.bilal.userauthservice.cache;
+
+import io.helidon.config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers tokens whose signature has already been verified so repeat checks skip the MAC.
+ * Only positive results are cached; revocation is still checked on every lookup by the caller.
+ */
+public class TokenCache {
+
+    private static final int MAX_SIZE;
+
+    private static final Map<String, VerifiedToken> VERIFIED = new ConcurrentHashMap<>();
+
+    static {
+        MAX_SIZE = Config.create().get("cache.token.max-size").asInt().orElse(100_000);
+    }
+
+    private TokenCache() {
+    }
+
+    public static VerifiedToken get(String token) {
+        VerifiedToken verified = VERIFIED.get(token);
+        if (verified != null && verified.expiresAtMs() <= System.currentTimeMillis()) {
+            VERIFIED.remove(token, verified);
+            return null;
+        }
+        return verified;
+    }
+
+    public static void put(String token, VerifiedToken verified) {
+        if (VERIFIED.size() >= MAX_SIZE) {
+            VERIFIED.entrySet().removeIf(e -> e.getValue().expiresAtMs() <= System.currentTimeMillis());
+            if (VERIFIED.size() >= MAX_SIZE) {
+                return;
+            }
+        }
+        VERIFIED.put(token, verified);
+    }
+
+    public static void invalidateUser(long userId) {
+        VERIFIED.values().removeIf(v -> v.userId() == userId);
+    }
+
+    public static void clear() {
+        VERIFIED.clear();
+    }
+
+    public record VerifiedToken(long userId, int role, long perms, long issuedAtMs, long expiresAtMs) {
+    }
+}
@@ -0,0 +1,136 @@
+package aloui.bilal.userauthservice.cache;
+
+import aloui.bilal.userauthservice.dao.UserShards;
+import aloui.bilal.userauthservice.model.User;
+import io.helidon.config.Config;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-local cache of user rows, keyed by id with a secondary email index.
+ * Entries are dropped on local writes and on invalidation events from other replicas.
+ * Expired entries linger for a stale window so reads can be served while the database is unavailable.
+ * Every invalidation bumps a generation; a read that started before one may not cache what it loaded.
+ */
+public class UserCache {
+
+    private static final long TTL_MS;
+    private static final long STALE_MS;
+    private static final int MAX_SIZE;
+
+    private static final Map<Long, Entry> BY_ID = new ConcurrentHashMap<>();
+    private static final Map<String, Long> BY_EMAIL = new ConcurrentHashMap<>();
+    private static final AtomicLong GENERATION = new AtomicLong();
+
+    static {
+        Config cacheConfig = Config.create().get("cache.user");
+        TTL_MS = cacheConfig.get("ttl-seconds").asLong().orElse(300L) * 1000;
+        STALE_MS = cacheConfig.get("stale-seconds").asLong().orElse(3600L) * 1000;
+        MAX_SIZE = cacheConfig.get("max-size").asInt().orElse(100_000);
+    }
+
+    private UserCache() {
+    }
+
+    public static Optional<User> getById(long id) {
+        Entry entry = BY_ID.get(id);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (entry.expiresAt < now) {
+            if (entry.expiresAt + STALE_MS < now) {
+                BY_ID.remove(id, entry);
+            }
+            return Optional.empty();
+        }
+        return Optional.of(entry.user);
+    }
+
+    /**
+     * Degraded-mode lookup: also returns expired entries still inside the stale window.
+     * Invalidated entries are gone, so this never resurrects a user that was changed or deleted.
+     */
+    public static Optional<User> getStaleById(long id) {
+        Entry entry = BY_ID.get(id);
+        if (entry == null || entry.expiresAt + STALE_MS < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.user);
+    }
+
+    public static Optional<User> getByEmail(String email) {
+        Long id = BY_EMAIL.get(UserShards.normalize(email));
+        return id == null ? Optional.empty() : getById(id);
+    }
+
+    /**
+     * Taken before reading a user from the database and handed back to {@link #put(User, long)}.
+     */
+    public static long stamp() {
+        return GENERATION.get();
+    }
+
+    /**
+     * Caches a user read after {@code stamp} was taken, unless an invalidation has happened since: the read may
+     * then have returned the row from before that change.
+     */
+    public static void put(User user, long stamp) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        if (BY_ID.size() >= MAX_SIZE && !BY_ID.containsKey(user.getId())) {
+            long now = System.currentTimeMillis();
+            BY_ID.forEach((id, entry) -> {
+                if (entry.expiresAt < now) {
+                    evict(id);
+                }
+            });
+            if (BY_ID.size() >= MAX_SIZE) {
+                return; // Full: serve from the database rather than grow unbounded
+            }
+        }
+        // Checked under the key's lock, which invalidate() also takes, so the two cannot interleave
+        BY_ID.compute(user.getId(), (id, previous) -> {
+            if (GENERATION.get() != stamp) {
+                return previous;
+            }
+            if (previous != null && previous.user.getEmail() != null) {
+                BY_EMAIL.remove(UserShards.normalize(previous.user.getEmail()), id);
+            }
+            if (user.getEmail() != null) {
+                BY_EMAIL.put(UserShards.normalize(user.getEmail()), id);
+            }
+            return new Entry(user, System.currentTimeMillis() + TTL_MS);
+        });
+    }
+
+    public static void invalidate(long id) {
+        BY_ID.compute(id, (key, previous) -> {
+            GENERATION.incrementAndGet();
+            if (previous != null && previous.user.getEmail() != null) {
+                BY_EMAIL.remove(UserShards.normalize(previous.user.getEmail()), key);
+            }
+            return null;
+        });
+    }
+
+    public static void clear() {
+        GENERATION.incrementAndGet();
+        BY_ID.clear();
+        BY_EMAIL.clear();
+    }
+
+    private static void evict(long id) {
+        Entry previous = BY_ID.remove(id);
+        if (previous != null && previous.user.getEmail() != null) {
+            BY_EMAIL.remove(UserShards.normalize(previous.user.getEmail()), id);
+        }
+    }
+
+    private record Entry(User user, long expiresAt) {
+    }
+}
@@ -0,0 +1,179 @@
+package aloui.bilal.userauthservice.cluster;
+
+import aloui.bilal.userauthservice.analytics.LoginAnalytics;
+import aloui.bilal.userauthservice.cache.TokenCache;
+import aloui.bilal.userauthservice.cache.UserCache;
+import aloui.bilal.userauthservice.dao.DBConnection;
+import aloui.bilal.userauthservice.dao.ReadYourWrites;
+import aloui.bilal.userauthservice.dao.UserShards;
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.security.PermissionRegistry;
+import aloui.bilal.userauthservice.security.RevocationRegistry;
+import io.helidon.config.Config;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps in-process caches coherent across auth-service replicas using Postgres LISTEN/NOTIFY.
+ * Writers apply an event locally and publish it; every other replica applies it on receipt.
+ */
+public class ClusterInvalidation {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterInvalidation.class.getName());
+
+    private static final String NODE_ID = UUID.randomUUID().toString().substring(0, 8);
+    private static final String CHANNEL;
+    private static final String URL;
+    private static final String USER;
+    private static final String PASSWORD;
+    private static final int POLL_TIMEOUT_MS = 500;
+
+    private static volatile Thread listener;
+
+    static {
+        Config config = Config.create();
+        CHANNEL = config.get("cluster.invalidation-channel").asString().orElse("auth_invalidation");
+        Config dbConfig = config.get("db");
+        URL = dbConfig.get("url").asString().orElse(null);
+        USER = dbConfig.get("user").asString().orElse(null);
+        PASSWORD = dbConfig.get("password").asString().orElse(null);
+    }
+
+    private ClusterInvalidation() {
+    }
+
+    public static String nodeId() {
+        return NODE_ID;
+    }
+
+    public static void userUpdated(long userId) {
+        publish(new InvalidationEvent(NODE_ID, InvalidationEvent.Type.USER_UPDATED, userId, System.currentTimeMillis()));
+    }
+
+    public static void passwordChanged(long userId) {
+        publish(new InvalidationEvent(NODE_ID, InvalidationEvent.Type.PASSWORD_CHANGED, userId, System.currentTimeMillis()));
+    }
+
+    public static void userDeleted(long userId) {
+        publish(new InvalidationEvent(NODE_ID, InvalidationEvent.Type.USER_DELETED, userId, System.currentTimeMillis()));
+    }
+
+    public static void shardMapChanged(int bucket) {
+        publish(new InvalidationEvent(NODE_ID, InvalidationEvent.Type.SHARD_MAP_CHANGED, bucket, System.currentTimeMillis()));
+    }
+
+    /**
+     * Applies the event locally, then notifies peers through the primary, where every replica listens.
+     * Call only once the write has committed, wherever its shard is: peers re-read as soon as they are told.
+     * A lost notification is caught up by cache TTLs and the durable token check in {@link RevocationRegistry}.
+     */
+    static void publish(InvalidationEvent event) {
+        apply(event);
+        try (Connection conn = DBConnection.primary().connection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            stmt.setString(1, CHANNEL);
+            stmt.setString(2, event.encode());
+            stmt.execute();
+        } catch (SQLException e) {
+            // Peers fall back to cache TTLs; the local node is already consistent
+            EventLog.error("ClusterInvalidation.publish", e);
+        }
+    }
+
+    static void apply(InvalidationEvent event) {
+        if (event.getType() == InvalidationEvent.Type.ROLES_CHANGED) {
+            PermissionRegistry.reload();
+            return;
+        }
+        if (event.getType() == InvalidationEvent.Type.SHARD_MAP_CHANGED) {
+            UserShards.reload();
+            return;
+        }
+        // Replicas may not have replayed the write yet, so re-reads go to the primary for a while
+        ReadYourWrites.pin(event.getUserId());
+        UserCache.invalidate(event.getUserId());
+        switch (event.getType()) {
+            case PASSWORD_CHANGED -> {
+                RevocationRegistry.revoke(event.getUserId(), event.getAtMs());
+                TokenCache.invalidateUser(event.getUserId());
+            }
+            case USER_DELETED -> {
+                RevocationRegistry.revoke(event.getUserId(), event.getAtMs());
+                TokenCache.invalidateUser(event.getUserId());
+                LoginAnalytics.forget(event.getUserId());
+            }
+            case USER_UPDATED, ROLES_CHANGED, SHARD_MAP_CHANGED -> {
+            }
+        }
+    }
+
+    /**
+     * Starts the background LISTEN loop on a dedicated connection. Safe to call more than once.
+     */
+    public static synchronized void start() {
+        if (listener != null) {
+            return;
+        }
+        listener = Thread.ofPlatform()
+                .daemon()
+                .name("cluster-invalidation")
+                .start(ClusterInvalidation::listenLoop);
+    }
+
+    private static void listenLoop() {
+        long backoffMs = 500;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD)) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                // Anything missed while disconnected can no longer be trusted
+                UserCache.clear();
+                TokenCache.clear();
+                RevocationRegistry.reset();
+                backoffMs = 500;
+                LOGGER.info("Listening for cache invalidations on channel " + CHANNEL + " as node " + NODE_ID);
+
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+                while (!Thread.currentThread().isInterrupted()) {
+                    PGNotification[] notifications = pgConn.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        handle(notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Invalidation listener disconnected, retrying in " + backoffMs + "ms", e);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            }
+        }
+    }
+
+    private static void handle(String payload) {
+        try {
+            InvalidationEvent event = InvalidationEvent.decode(payload);
+            if (!NODE_ID.equals(event.getOrigin())) {
+                apply(event);
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.warning("Ignoring invalidation: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package aloui.bilal.userauthservice.cluster;
+
+/**
+ * Compact invalidation message exchanged between replicas, encoded as {@code node|type|userId|atMs}.
+ */
+public class InvalidationEvent {
+
+    public enum Type {
+        USER_UPDATED('U'),
+        PASSWORD_CHANGED('P'),
+        USER_DELETED('D'),
+        // Sent by the database trigger on roles/role_permissions; userId is unused
+        ROLES_CHANGED('R'),
+        // A user bucket moved to another shard; userId carries the bucket
+        SHARD_MAP_CHANGED('S');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        static Type fromCode(char code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown invalidation type: " + code);
+        }
+    }
+
+    private final String origin;
+    private final Type type;
+    private final long userId;
+    private final long atMs;
+
+    public InvalidationEvent(String origin, Type type, long userId, long atMs) {
+        this.origin = origin;
+        this.type = type;
+        this.userId = userId;
+        this.atMs = atMs;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public long getAtMs() {
+        return atMs;
+    }
+
+    public String encode() {
+        return origin + '|' + type.code + '|' + userId + '|' + atMs;
+    }
+
+    public static InvalidationEvent decode(String payload) {
+        String[] parts = payload.split("\\|");
+        if (parts.length != 4 || parts[1].length() != 1) {
+            throw new IllegalArgumentException("Malformed invalidation payload: " + payload);
+        }
+        return new InvalidationEvent(parts[0], Type.fromCode(parts[1].charAt(0)),
+                Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+    }
+}
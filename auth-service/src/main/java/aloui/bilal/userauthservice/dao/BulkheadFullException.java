@@ -0,0 +1,11 @@
+package aloui.bilal.userauthservice.dao;
+
+/**
+ * Thrown by instrumented DAOs when {@link JdbcBulkhead} has no capacity left.
+ */
+public class BulkheadFullException extends DataAccessException {
+
+    public BulkheadFullException(String message) {
+        super("JdbcBulkhead", message);
+    }
+}
@@ -0,0 +1,106 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Stops sending work to the database after consecutive failures. While open, calls fail immediately;
+ * after the open period a single trial call is let through and its outcome closes or reopens the circuit.
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInFlight = new AtomicBoolean();
+    private final LongAdder rejected;
+    private volatile long openedAt;
+
+    public CircuitBreaker(String name, Config config) {
+        this.name = name;
+        this.failureThreshold = config.get("failure-threshold").asInt().orElse(5);
+        this.openMs = config.get("open-ms").asLong().orElse(10_000L);
+        this.rejected = Metrics.counter("auth_circuit_rejected_total{circuit=\"" + name + "\"}");
+        Metrics.gauge("auth_circuit_state{circuit=\"" + name + "\"}", () -> state.get().ordinal());
+    }
+
+    /**
+     * Returns false when the call must not run. A true result must be followed by onSuccess, onFailure or onIgnored.
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs || !state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                rejected.increment();
+                return false;
+            }
+        }
+        if (trialInFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() == State.HALF_OPEN && trialInFlight.compareAndSet(true, false)) {
+            state.set(State.CLOSED);
+            LOGGER.info("Circuit " + name + " closed");
+        }
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            if (trialInFlight.compareAndSet(true, false)) {
+                open();
+            }
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && state.get() == State.CLOSED) {
+            // Stamp first so no reader sees OPEN with a stale opening time
+            openedAt = System.currentTimeMillis();
+            if (!state.compareAndSet(State.CLOSED, State.OPEN)) {
+                return;
+            }
+            LOGGER.warning("Circuit " + name + " opened after " + failureThreshold + " consecutive failures");
+        }
+    }
+
+    /**
+     * The call never reached the database; frees the trial slot without changing state.
+     */
+    public void onIgnored() {
+        if (state.get() == State.HALF_OPEN) {
+            trialInFlight.set(false);
+        }
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        state.set(State.OPEN);
+        LOGGER.warning("Circuit " + name + " reopened, trial call failed");
+    }
+
+    public State getState() {
+        return state.get();
+    }
+}
@@ -3,57 +3,139 @@ package aloui.bilal.userauthservice.dao;
 import io.helidon.config.Config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
 
 public class DBConnection {
 
-    private static Connection connection = null;
-    private static final String URL;
-    private static final String USER;
-    private static final String PASSWORD;
+    private static final Logger LOGGER = Logger.getLogger(DBConnection.class.getName());
+
+    static final long READ_YOUR_WRITES_MS;
+    static final long MAX_REPLICA_LAG_MS;
+    static final long REPLICA_QUARANTINE_MS;
+    static final long STATEMENT_TIMEOUT_MS;
+    static final int CONNECT_TIMEOUT_SECONDS;
+    static final int SOCKET_TIMEOUT_SECONDS;
+    private static final long HEALTH_CHECK_INTERVAL_MS;
+
+    private static final DbNode PRIMARY;
+    private static final List<DbNode> REPLICAS = new ArrayList<>();
+    // User shards by index; shard 0 is the primary, the others hold users only and have no replicas
+    private static final List<DbNode> SHARDS = new ArrayList<>();
 
     static {
 
         Config dbConfig = Config.create().get("db");
-        URL = dbConfig.get("url").asString().orElse(null);
-        USER = dbConfig.get("user").asString().orElse(null);
-        PASSWORD = dbConfig.get("password").asString().orElse(null);
+        String url = dbConfig.get("url").asString().orElse(null);
+        String user = dbConfig.get("user").asString().orElse(null);
+        String password = dbConfig.get("password").asString().orElse(null);
+
+        STATEMENT_TIMEOUT_MS = dbConfig.get("statement-timeout-ms").asLong().orElse(2000L);
+        CONNECT_TIMEOUT_SECONDS = dbConfig.get("connect-timeout-seconds").asInt().orElse(5);
+        SOCKET_TIMEOUT_SECONDS = dbConfig.get("socket-timeout-seconds").asInt().orElse(10);
+
+        PRIMARY = new DbNode("primary", url, user, password, true);
+        List<String> replicaUrls = dbConfig.get("replicas").asList(String.class).orElse(List.of());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            REPLICAS.add(new DbNode("replica-" + i, replicaUrls.get(i), user, password, false));
+        }
+        SHARDS.add(PRIMARY);
+        List<Config> shardConfigs = dbConfig.get("shards").asNodeList().orElse(List.of());
+        for (Config shard : shardConfigs) {
+            SHARDS.add(new DbNode("shard-" + SHARDS.size(), shard.get("url").asString().get(),
+                    shard.get("user").asString().orElse(user), shard.get("password").asString().orElse(password), true));
+        }
+
+        READ_YOUR_WRITES_MS = dbConfig.get("read-your-writes-ms").asLong().orElse(5000L);
+        MAX_REPLICA_LAG_MS = dbConfig.get("max-replica-lag-ms").asLong().orElse(2000L);
+        REPLICA_QUARANTINE_MS = dbConfig.get("replica-quarantine-ms").asLong().orElse(10_000L);
+        HEALTH_CHECK_INTERVAL_MS = dbConfig.get("replica-check-interval-ms").asLong().orElse(2000L);
 
+        if (!REPLICAS.isEmpty()) {
+            Thread.ofPlatform().daemon().name("replica-health").start(DBConnection::healthLoop);
+        }
     }
 
     // Private constructor to prevent instantiation
     private DBConnection() {
     }
 
-    // Get the single instance of the database connection
+    // Borrow a connection to the primary, used for writes and transactions; close it to hand it back
     public static Connection getConnection() throws SQLException {
-        if (connection == null) {
-            synchronized (DBConnection.class) {
-                if (connection == null) {
-                    try {
-                        // Establish the connection
-                        connection = DriverManager.getConnection(URL, USER, PASSWORD);
-                        System.out.println("Database connection established.");
-                    } catch (SQLException e) {
-                        throw new SQLException("Failed to create database connection.", e);
-                    }
+        return PRIMARY.connection();
+    }
+
+    public static DbNode primary() {
+        return PRIMARY;
+    }
+
+    public static int shardCount() {
+        return SHARDS.size();
+    }
+
+    /**
+     * Primary of a user shard; see {@link UserShards} for which shard holds a user.
+     */
+    public static DbNode shard(int index) {
+        return SHARDS.get(index);
+    }
+
+    /**
+     * Picks a node for a read-only query on a user shard. Only shard 0 has replicas.
+     */
+    public static DbNode forRead(int shard, Long userId) {
+        return shard == 0 ? forRead(userId) : SHARDS.get(shard);
+    }
+
+    /**
+     * Picks a node for a read-only query. Reads for a user that was just written stay on the primary.
+     */
+    public static DbNode forRead(Long userId) {
+        if (REPLICAS.isEmpty() || (userId != null && ReadYourWrites.isPinned(userId))) {
+            return PRIMARY;
+        }
+
+        // Power of two choices on observed latency among healthy replicas
+        long now = System.currentTimeMillis();
+        DbNode best = null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            DbNode candidate = REPLICAS.get(random.nextInt(REPLICAS.size()));
+            if (candidate.isHealthy(now) && (best == null || candidate.latencyMs() < best.latencyMs())) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            for (DbNode replica : REPLICAS) {
+                if (replica.isHealthy(now)) {
+                    return replica;
                 }
             }
+            return PRIMARY;
         }
-        return connection;
+        return best;
     }
 
-    // Method to close the connection (if necessary)
-    public static void closeConnection() {
-        if (connection != null) {
+    private static void healthLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            for (DbNode replica : REPLICAS) {
+                replica.probe();
+            }
             try {
-                connection.close();
-                connection = null;
-                System.out.println("Database connection closed.");
-            } catch (SQLException e) {
-                e.printStackTrace();
+                Thread.sleep(HEALTH_CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
     }
+
+    // Method to close the connection pools (if necessary)
+    public static void closeConnection() {
+        SHARDS.forEach(DbNode::close);
+        REPLICAS.forEach(DbNode::close);
+        LOGGER.info("Database connection closed.");
+    }
 }
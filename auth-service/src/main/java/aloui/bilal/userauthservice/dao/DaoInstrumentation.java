@@ -0,0 +1,79 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.diagnostics.DaoCallEvent;
+import aloui.bilal.userauthservice.logging.RequestContext;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
+import io.helidon.config.Config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps a DAO behind its interface so every call is measured, guarded by the database circuit breaker
+ * and bounded by {@link JdbcBulkhead}, without touching the implementation.
+ */
+public class DaoInstrumentation implements InvocationHandler {
+
+    // One circuit for the database as a whole, shared by every instrumented DAO
+    private static final CircuitBreaker BREAKER = new CircuitBreaker("db", Config.create().get("db.circuit-breaker"));
+
+    private final Object target;
+    private final String spanPrefix;
+
+    private DaoInstrumentation(Object target) {
+        this.target = target;
+        this.spanPrefix = "dao." + target.getClass().getSimpleName() + ".";
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T instrument(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new DaoInstrumentation(target));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        long start = System.nanoTime();
+        DaoCallEvent event = new DaoCallEvent();
+        event.begin();
+        try (Span span = Tracer.start(spanPrefix + method.getName())) {
+            if (!BREAKER.tryAcquire()) {
+                throw new DataAccessException("CircuitBreaker", "Database circuit open");
+            }
+            try {
+                JdbcBulkhead.acquire();
+            } catch (RuntimeException | InterruptedException e) {
+                // Not the database's fault, so it neither trips nor closes the circuit
+                BREAKER.onIgnored();
+                throw e;
+            }
+            try {
+                Object result = method.invoke(target, args);
+                BREAKER.onSuccess();
+                return result;
+            } catch (InvocationTargetException e) {
+                event.failed = true;
+                if (e.getCause() instanceof DataAccessException) {
+                    BREAKER.onFailure();
+                } else {
+                    BREAKER.onSuccess();
+                }
+                span.error(e.getCause());
+                throw e.getCause();
+            } finally {
+                JdbcBulkhead.release();
+            }
+        } finally {
+            RequestContext.recordDao(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.operation = spanPrefix.substring("dao.".length()) + method.getName();
+                event.commit();
+            }
+        }
+    }
+}
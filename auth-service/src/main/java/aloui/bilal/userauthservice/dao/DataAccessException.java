@@ -0,0 +1,33 @@
+package aloui.bilal.userauthservice.dao;
+
+import java.sql.SQLException;
+
+/**
+ * The database could not answer: a failed or timed-out statement, an open circuit or a full bulkhead.
+ * Lets callers tell an outage apart from "not found"; unhandled ones are answered with 503.
+ */
+public class DataAccessException extends RuntimeException {
+
+    private final String source;
+
+    public DataAccessException(String source, String message) {
+        super(message);
+        this.source = source;
+    }
+
+    public DataAccessException(String source, SQLException cause) {
+        super(cause.getMessage(), cause);
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Integrity violations (SQLState class 23, e.g. a duplicate email) are answers, not outages.
+     */
+    public static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+}
@@ -0,0 +1,179 @@
+package aloui.bilal.userauthservice.dao;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One Postgres endpoint (the primary, a read replica or a user shard) with its connection pool and health state.
+ */
+public class DbNode {
+
+    private static final Logger LOGGER = Logger.getLogger(DbNode.class.getName());
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final String name;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final boolean primary;
+
+    // Not synchronized: creating the pool blocks on I/O, which would pin a virtual thread's carrier
+    private final ReentrantLock poolLock = new ReentrantLock();
+
+    private volatile HikariDataSource pool;
+    private volatile long unhealthyUntil;
+    private volatile double latencyEwmaMs;
+    private volatile long lagMs;
+
+    DbNode(String name, String url, String user, String password, boolean primary) {
+        this.name = name;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.primary = primary;
+    }
+
+    /**
+     * Borrows a connection from this node's pool; closing it hands it back. Hold it for one DAO call at most.
+     */
+    public Connection connection() throws SQLException {
+        try {
+            return pool().getConnection();
+        } catch (SQLException e) {
+            throw new SQLException("Failed to get a database connection to " + name + ".", e);
+        }
+    }
+
+    private HikariDataSource pool() {
+        HikariDataSource current = pool;
+        if (current == null) {
+            poolLock.lock();
+            try {
+                current = pool;
+                if (current == null) {
+                    current = new HikariDataSource(poolConfig());
+                    pool = current;
+                    LOGGER.info("Database pool created for " + name + ".");
+                }
+            } finally {
+                poolLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private HikariConfig poolConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("db-" + name);
+        config.setJdbcUrl(url);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setDataSourceProperties(connectionProperties());
+        // As many connections as the bulkhead lets DAO calls run, so a permit means a free connection
+        config.setMaximumPoolSize(JdbcBulkhead.maxConcurrent());
+        config.setConnectionTimeout(DBConnection.CONNECT_TIMEOUT_SECONDS * 1000L);
+        // Connect on first use rather than fail at startup, as before
+        config.setInitializationFailTimeout(-1);
+        return config;
+    }
+
+    /**
+     * A connection outside the pool, for session state such as advisory locks or long transactions of background
+     * jobs; the caller closes it.
+     */
+    public Connection openSession() throws SQLException {
+        Properties props = connectionProperties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        return DriverManager.getConnection(url, props);
+    }
+
+    private Properties connectionProperties() {
+        Properties props = new Properties();
+        // Server-side cap per statement, plus client-side timeouts so a dead server cannot hang a caller
+        props.setProperty("options", "-c statement_timeout=" + DBConnection.STATEMENT_TIMEOUT_MS);
+        props.setProperty("connectTimeout", String.valueOf(DBConnection.CONNECT_TIMEOUT_SECONDS));
+        props.setProperty("socketTimeout", String.valueOf(DBConnection.SOCKET_TIMEOUT_SECONDS));
+        return props;
+    }
+
+    /**
+     * Called by DAOs when a statement on this node fails; replicas are taken out of rotation for a while.
+     */
+    public void markFailed() {
+        if (primary) {
+            return;
+        }
+        unhealthyUntil = System.currentTimeMillis() + DBConnection.REPLICA_QUARANTINE_MS;
+        reset();
+    }
+
+    boolean isHealthy(long now) {
+        return primary || (now >= unhealthyUntil && lagMs <= DBConnection.MAX_REPLICA_LAG_MS);
+    }
+
+    double latencyMs() {
+        return latencyEwmaMs;
+    }
+
+    /**
+     * Probes round-trip latency and replication lag; used by the background health checker.
+     */
+    void probe() {
+        long start = System.nanoTime();
+        try (Connection conn = connection();
+             PreparedStatement stmt = conn.prepareStatement(LAG_QUERY);
+             ResultSet rs = stmt.executeQuery()) {
+            lagMs = rs.next() ? rs.getLong(1) : 0;
+            double sampleMs = (System.nanoTime() - start) / 1_000_000.0;
+            latencyEwmaMs = latencyEwmaMs == 0 ? sampleMs : latencyEwmaMs + EWMA_ALPHA * (sampleMs - latencyEwmaMs);
+            if (lagMs > DBConnection.MAX_REPLICA_LAG_MS) {
+                LOGGER.fine("Replica " + name + " lagging by " + lagMs + "ms");
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Health probe failed for " + name, e);
+            markFailed();
+        }
+    }
+
+    /**
+     * Retires the pooled connections; idle ones now and borrowed ones when they are handed back.
+     */
+    void reset() {
+        HikariDataSource current = pool;
+        if (current != null && current.getHikariPoolMXBean() != null) {
+            current.getHikariPoolMXBean().softEvictConnections();
+        }
+    }
+
+    void close() {
+        HikariDataSource current = pool;
+        pool = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isPrimary() {
+        return primary;
+    }
+}
@@ -0,0 +1,46 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.model.DeletionJob;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Job progress is written by {@link UserDeletionWorker} on the primary of the user's shard and read from there,
+ * so it is never stale.
+ */
+public class DeletionJobDaoImpl implements IDeletionJobDao {
+
+    @Override
+    public Optional<DeletionJob> findByUserId(long userId) {
+        String sql = "SELECT user_id, state, step, step_index, rows_deleted, requested_at, updated_at, finished_at, "
+                + "last_error FROM user_deletion_jobs WHERE user_id = ?";
+        try (Connection conn = UserShards.primaryFor(userId).connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new DeletionJob.Builder()
+                        .userId(rs.getLong("user_id"))
+                        .state(rs.getString("state"))
+                        .step(rs.getString("step"))
+                        .stepIndex(rs.getInt("step_index"))
+                        .rowsDeleted(rs.getLong("rows_deleted"))
+                        .requestedAt(rs.getTimestamp("requested_at"))
+                        .updatedAt(rs.getTimestamp("updated_at"))
+                        .finishedAt(rs.getTimestamp("finished_at"))
+                        .lastError(rs.getString("last_error"))
+                        .build());
+            }
+        } catch (SQLException e) {
+            EventLog.error("DeletionJobDaoImpl.findByUserId", e);
+            throw new DataAccessException("DeletionJobDaoImpl.findByUserId", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.security.DeviceFingerprint;
+import aloui.bilal.userauthservice.security.DeviceSketch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class DeviceSketchDaoImpl implements IDeviceSketchDao {
+
+    @Override
+    public Optional<DeviceSketch> findByUserId(long userId) {
+        String sql = "SELECT sketch FROM device_sketches WHERE user_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(DeviceSketch.fromBytes(rs.getBytes("sketch")));
+                }
+            }
+        } catch (SQLException e) {
+            EventLog.error("DeviceSketchDaoImpl.findByUserId", e);
+            throw new DataAccessException("DeviceSketchDaoImpl.findByUserId", e);
+        } catch (IllegalArgumentException e) {
+            // An encoding this build cannot read is rebuilt from history and replaced on save
+            EventLog.error("DeviceSketchDaoImpl.findByUserId", e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public DeviceSketch rebuildFromHistory(long userId) {
+        String sql = "SELECT DISTINCT ip_address, user_agent_id FROM login_history WHERE user_id = ?";
+        List<String> ipAddresses = new ArrayList<>();
+        List<Integer> userAgentIds = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ipAddresses.add(rs.getString("ip_address"));
+                    userAgentIds.add(rs.getInt("user_agent_id"));
+                }
+            }
+        } catch (SQLException e) {
+            EventLog.error("DeviceSketchDaoImpl.rebuildFromHistory", e);
+            throw new DataAccessException("DeviceSketchDaoImpl.rebuildFromHistory", e);
+        }
+
+        // Resolved after the connection is handed back, so the lookup never needs a second one at the same time
+        Map<Integer, String> userAgents = UserAgentDictionary.resolveAll(userAgentIds);
+        DeviceSketch sketch = new DeviceSketch();
+        for (int i = 0; i < ipAddresses.size(); i++) {
+            sketch.add(DeviceFingerprint.of(ipAddresses.get(i), userAgents.get(userAgentIds.get(i))));
+        }
+        return sketch;
+    }
+
+    @Override
+    public boolean save(long userId, DeviceSketch sketch) {
+        String sql = "INSERT INTO device_sketches (user_id, sketch) VALUES (?, ?) "
+                + "ON CONFLICT (user_id) DO UPDATE SET sketch = merge_device_sketch(device_sketches.sketch, EXCLUDED.sketch), "
+                + "updated_at = CURRENT_TIMESTAMP";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            stmt.setBytes(2, sketch.toBytes());
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            EventLog.error("DeviceSketchDaoImpl.save", e);
+            throw new DataAccessException("DeviceSketchDaoImpl.save", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.model.DeletionJob;
+
+import java.util.Optional;
+
+public interface IDeletionJobDao {
+
+    Optional<DeletionJob> findByUserId(long userId);
+}
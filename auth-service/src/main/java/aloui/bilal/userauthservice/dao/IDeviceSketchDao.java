@@ -0,0 +1,14 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.security.DeviceSketch;
+
+import java.util.Optional;
+
+public interface IDeviceSketchDao {
+
+    Optional<DeviceSketch> findByUserId(long userId);
+
+    DeviceSketch rebuildFromHistory(long userId);
+
+    boolean save(long userId, DeviceSketch sketch);
+}
@@ -0,0 +1,18 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.ledger.LedgerCheckpoint;
+
+import java.util.Optional;
+
+public interface ILedgerCheckpointDao {
+
+    /**
+     * Newest checkpoint signed under {@code keyId}; ones from another key cannot be trusted anyway.
+     */
+    Optional<LedgerCheckpoint> latest(String keyId);
+
+    /**
+     * Records a checkpoint; a concurrent replica having stored the same height is not an error.
+     */
+    void save(LedgerCheckpoint checkpoint);
+}
@@ -0,0 +1,27 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.analytics.LoginStats;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ILoginAnalyticsDao {
+
+    /**
+     * Checkpointed stats per user and per organization, with the newest {@code updated_at} among them.
+     */
+    record Snapshot(Map<Long, LoginStats> users, Map<String, LoginStats> organizations, Timestamp watermark) {
+    }
+
+    /**
+     * Rows updated after {@code since}; everything when it is null.
+     */
+    Snapshot loadSince(Timestamp since);
+
+    /**
+     * Adds the deltas to the stored stats and returns the merged rows, or empty when another replica is
+     * checkpointing right now and the deltas should be kept for the next round.
+     */
+    Optional<Snapshot> merge(Map<Long, LoginStats> users, Map<String, LoginStats> organizations);
+}
@@ -2,9 +2,14 @@ package aloui.bilal.userauthservice.dao;
 
 import aloui.bilal.userauthservice.model.LoginHistory;
 
+import java.sql.Timestamp;
 import java.util.List;
 
 public interface ILoginHistoryDao extends IDao<Long, LoginHistory> {
 
-    List<LoginHistory> findByUserId(long userId);
+    /**
+     * One page of a user's logins, newest first. {@code beforeLoginAt}/{@code beforeId} are the last row of the
+     * previous page, or null for the first; the login_at bound lets the planner skip older partitions.
+     */
+    List<LoginHistory> findByUserId(long userId, Timestamp beforeLoginAt, Long beforeId, int limit);
 }
@@ -1,27 +1,47 @@
 package aloui.bilal.userauthservice.dao;
 
+import aloui.bilal.userauthservice.logging.EventLog;
 import aloui.bilal.userauthservice.model.LoginHistory;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 public class ILoginHistoryDaoImpl implements ILoginHistoryDao {
 
-    private final Connection conn;
+    // findAll is for operators eyeballing recent activity, not for exporting the table
+    private static final int FIND_ALL_DAYS = 1;
+    private static final int FIND_ALL_LIMIT = 1000;
 
     public ILoginHistoryDaoImpl() throws SQLException {
-        this.conn = DBConnection.getConnection();
+        // Fail fast when the primary is unreachable
+        DBConnection.getConnection().close();
     }
 
     @Override
-    public List<LoginHistory> findByUserId(long userId) {
+    public List<LoginHistory> findByUserId(long userId, Timestamp beforeLoginAt, Long beforeId, int limit) {
         List<LoginHistory> loginHistoryList = new ArrayList<>();
-        String query = "SELECT * FROM login_history WHERE user_id = ? ORDER BY login_at DESC";
-
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        // Keyset on (login_at, id): rows sharing the last login_at are not skipped
+        String query = beforeLoginAt == null
+                ? "SELECT * FROM login_history WHERE user_id = ? ORDER BY login_at DESC, id DESC LIMIT ?"
+                : "SELECT * FROM login_history WHERE user_id = ? AND login_at <= ? AND (login_at < ? OR id < ?) "
+                + "ORDER BY login_at DESC, id DESC LIMIT ?";
+
+        DbNode node = DBConnection.forRead(userId);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setLong(1, userId);
+            if (beforeLoginAt == null) {
+                stmt.setInt(2, limit);
+            } else {
+                stmt.setTimestamp(2, beforeLoginAt);
+                stmt.setTimestamp(3, beforeLoginAt);
+                stmt.setLong(4, beforeId);
+                stmt.setInt(5, limit);
+            }
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
 
@@ -29,26 +49,34 @@ public class ILoginHistoryDaoImpl implements ILoginHistoryDao {
                             .id(rs.getLong("id"))
                             .userId(rs.getLong("user_id"))
                             .loginAt(rs.getTimestamp("login_at"))
-                            .userAgent(rs.getString("user_agent"))
+                            .userAgentId(rs.getInt("user_agent_id"))
                             .ipAddress(rs.getString("ip_address"))
+                            .newDevice(rs.getBoolean("new_device"))
                             .build();
 
                     loginHistoryList.add(loginHistory);
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            node.markFailed();
+            EventLog.error("ILoginHistoryDaoImpl.findByUserId", e);
+            throw new DataAccessException("ILoginHistoryDaoImpl.findByUserId", e);
         }
-        return loginHistoryList;
+        return withUserAgents(loginHistoryList);
     }
 
     @Override
     public List<LoginHistory> findAll() {
         List<LoginHistory> loginHistoryList = new ArrayList<>();
-        String query = "SELECT * FROM login_history ORDER BY login_at DESC";
+        String query = "SELECT * FROM login_history WHERE login_at > now() - make_interval(days => ?) "
+                + "ORDER BY login_at DESC LIMIT ?";
 
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+        DbNode node = DBConnection.forRead(null);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, FIND_ALL_DAYS);
+            stmt.setInt(2, FIND_ALL_LIMIT);
+            ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
 
@@ -56,22 +84,28 @@ public class ILoginHistoryDaoImpl implements ILoginHistoryDao {
                         .id(rs.getLong("id"))
                         .userId(rs.getLong("user_id"))
                         .loginAt(rs.getTimestamp("login_at"))
-                        .userAgent(rs.getString("user_agent"))
+                        .userAgentId(rs.getInt("user_agent_id"))
                         .ipAddress(rs.getString("ip_address"))
+                        .newDevice(rs.getBoolean("new_device"))
                         .build();
 
                 loginHistoryList.add(loginHistory);
             }
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            node.markFailed();
+            EventLog.error("ILoginHistoryDaoImpl.findAll", e);
+            throw new DataAccessException("ILoginHistoryDaoImpl.findAll", e);
         }
-        return loginHistoryList;
+        return withUserAgents(loginHistoryList);
     }
 
     @Override
     public Optional<LoginHistory> findById(Long id) {
         String query = "SELECT * FROM login_history WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        LoginHistory found = null;
+        DbNode node = DBConnection.forRead(null);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setLong(1, id);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -80,45 +114,57 @@ public class ILoginHistoryDaoImpl implements ILoginHistoryDao {
                             .id(rs.getLong("id"))
                             .userId(rs.getLong("user_id"))
                             .loginAt(rs.getTimestamp("login_at"))
-                            .userAgent(rs.getString("user_agent"))
+                            .userAgentId(rs.getInt("user_agent_id"))
                             .ipAddress(rs.getString("ip_address"))
+                            .newDevice(rs.getBoolean("new_device"))
                             .build();
 
-                    return Optional.of(loginHistory);
+                    found = loginHistory;
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            node.markFailed();
+            EventLog.error("ILoginHistoryDaoImpl.findById", e);
+            throw new DataAccessException("ILoginHistoryDaoImpl.findById", e);
         }
-        return Optional.empty();
+        return found == null ? Optional.empty() : Optional.of(withUserAgents(List.of(found)).get(0));
     }
 
     @Override
     public boolean save(LoginHistory value) {
-        String query = "INSERT INTO login_history (user_id, user_agent, ip_address) VALUES (?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        String query = "INSERT INTO login_history (user_id, user_agent_id, ip_address, new_device) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setLong(1, value.getUserId());
-            stmt.setString(2, value.getUserAgent());
+            stmt.setInt(2, UserAgentDictionary.intern(value.getUserAgent()));
             stmt.setString(3, value.getIpAddress());
+            stmt.setBoolean(4, value.isNewDevice());
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            EventLog.error("ILoginHistoryDaoImpl.save", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("ILoginHistoryDaoImpl.save", e);
+            }
         }
         return false;
     }
 
     @Override
     public boolean update(Long id, LoginHistory value) {
-        String query = "UPDATE login_history SET user_agent = ?, ip_address = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
-            stmt.setString(1, value.getUserAgent());
+        String query = "UPDATE login_history SET user_agent_id = ?, ip_address = ? WHERE id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
+            stmt.setInt(1, UserAgentDictionary.intern(value.getUserAgent()));
             stmt.setString(2, value.getIpAddress());
             stmt.setLong(3, id);
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            EventLog.error("ILoginHistoryDaoImpl.update", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("ILoginHistoryDaoImpl.update", e);
+            }
         }
         return false;
     }
@@ -126,13 +172,31 @@ public class ILoginHistoryDaoImpl implements ILoginHistoryDao {
     @Override
     public boolean delete(Long id) {
         String query = "DELETE FROM login_history WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query)) {
             stmt.setLong(1, id);
             int rowsAffected = stmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace(); // Log the error appropriately
+            EventLog.error("ILoginHistoryDaoImpl.delete", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("ILoginHistoryDaoImpl.delete", e);
+            }
         }
         return false;
     }
-}
\ No newline at end of file
+
+    /**
+     * Fills in the User-Agent strings once the rows are read and their connection is back in the pool, so a
+     * lookup never waits for a second connection while holding one.
+     */
+    private static List<LoginHistory> withUserAgents(List<LoginHistory> rows) {
+        Map<Integer, String> userAgents = UserAgentDictionary.resolveAll(
+                rows.stream().map(LoginHistory::getUserAgentId).collect(Collectors.toSet()));
+        List<LoginHistory> resolved = new ArrayList<>(rows.size());
+        for (LoginHistory row : rows) {
+            resolved.add(new LoginHistory.Builder(row).userAgent(userAgents.get(row.getUserAgentId())).build());
+        }
+        return resolved;
+    }
+}
@@ -0,0 +1,10 @@
+package aloui.bilal.userauthservice.dao;
+
+public interface IRevocationDao {
+
+    /**
+     * Epoch millis before which the user's tokens are invalid: 0 when none are, {@link Long#MAX_VALUE} once the
+     * user is deleted or gone.
+     */
+    long tokensValidAfter(long userId);
+}
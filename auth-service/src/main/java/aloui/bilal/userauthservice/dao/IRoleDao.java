@@ -2,8 +2,6 @@ package aloui.bilal.userauthservice.dao;
 
 import aloui.bilal.userauthservice.model.Role;
 
-import java.util.List;
-
-public interface IRoleDao<K> extends IDao<Long, Role> {
+public interface IRoleDao extends IDao<Long, Role> {
 
 }
@@ -0,0 +1,26 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.model.DocumentSignature;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ISignatureDao {
+
+    /**
+     * Signatures with a cryptographic signature, ascending by id after {@code afterId}. A null organization
+     * scans every document.
+     */
+    List<DocumentSignature> findPage(String organizationName, long afterId, int limit);
+
+    /**
+     * PEM public keys by {@code user_keys.id}; ids without a stored key are absent.
+     */
+    Map<Long, String> findPublicKeys(Collection<Long> keyIds);
+
+    /**
+     * Writes definite verification outcomes back to {@code document_signatures.verified}.
+     */
+    void recordVerified(Map<Long, Boolean> results);
+}
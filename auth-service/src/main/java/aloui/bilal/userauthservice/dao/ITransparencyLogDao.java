@@ -0,0 +1,22 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+public interface ITransparencyLogDao {
+
+    Optional<Checkpoint> latestCheckpoint();
+
+    Optional<Checkpoint> findCheckpoint(long treeSize);
+
+    OptionalLong findLeafIndex(long loginId);
+
+    /**
+     * Stored Merkle nodes keyed by {@code MerkleTree.key(level, index)}.
+     */
+    Map<String, byte[]> findNodes(List<long[]> wanted);
+}
@@ -1,9 +1,13 @@
 package aloui.bilal.userauthservice.dao;
 
+import aloui.bilal.userauthservice.model.Account;
 import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.model.LoginResult;
 import aloui.bilal.userauthservice.model.User;
+import aloui.bilal.userauthservice.model.UserQuery;
 
-import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface IUserDao extends IDao<Long, User> {
@@ -14,8 +18,31 @@ public interface IUserDao extends IDao<Long, User> {
 
     boolean emailExists(String email);
 
-    Optional<User> login(String email, String password, LoginHistory loginHistory);
-    boolean register(User user, String password);
+    // Passwords are hashed and checked by the caller: bcrypt must not hold a bulkhead permit
+
+    /**
+     * The account with its password hash, read from the primary of its shard; deleted users are left out.
+     */
+    Optional<Account> findAccount(String email);
+
+    /**
+     * Records a login whose password the caller has already verified.
+     */
+    LoginResult recordLogin(User user, LoginHistory loginHistory);
+
+    boolean register(User user, String hashedPassword);
 
     Optional<String> getHashedPassword(long userId);
+
+    List<User> search(UserQuery query);
+
+    /**
+     * Users with any of the given ids, in no particular order; unknown ids are left out.
+     */
+    List<User> findByIds(Collection<Long> ids);
+
+    /**
+     * Users with any of the given emails, in no particular order; unknown emails are left out.
+     */
+    List<User> findByEmails(Collection<String> emails);
 }
@@ -0,0 +1,74 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps how many DAO calls run JDBC at once. Virtual threads over the cap park here instead of piling
+ * onto the driver, and give up after the configured wait so a slow database surfaces as 503s.
+ * Each node's connection pool has as many connections as there are permits, so a call holding a permit
+ * gets its own connection rather than queueing behind another call's statements.
+ */
+public class JdbcBulkhead {
+
+    private static final int MAX_CONCURRENT;
+    private static final long ACQUIRE_TIMEOUT_MS;
+
+    private static final Semaphore PERMITS;
+    private static final LongAdder REJECTED = Metrics.counter("auth_jdbc_bulkhead_rejected_total");
+    // Permits held by this thread; a DAO called from inside another DAO call reuses the outer permit
+    private static final ThreadLocal<int[]> HELD = ThreadLocal.withInitial(() -> new int[1]);
+
+    static {
+        Config config = Config.create().get("db.bulkhead");
+        MAX_CONCURRENT = config.get("max-concurrent-calls").asInt().orElse(16);
+        ACQUIRE_TIMEOUT_MS = config.get("acquire-timeout-ms").asLong().orElse(1000L);
+        PERMITS = new Semaphore(MAX_CONCURRENT, true);
+
+        Metrics.gauge("auth_jdbc_bulkhead_inflight", JdbcBulkhead::inflight);
+        Metrics.gauge("auth_jdbc_bulkhead_waiting", JdbcBulkhead::waiting);
+    }
+
+    private JdbcBulkhead() {
+    }
+
+    static void acquire() throws InterruptedException {
+        int[] held = HELD.get();
+        if (held[0] > 0) {
+            held[0]++;
+            return;
+        }
+        if (!PERMITS.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            REJECTED.increment();
+            throw new BulkheadFullException("No JDBC capacity after " + ACQUIRE_TIMEOUT_MS + "ms");
+        }
+        held[0] = 1;
+    }
+
+    static void release() {
+        int[] held = HELD.get();
+        if (--held[0] == 0) {
+            PERMITS.release();
+        }
+    }
+
+    public static int maxConcurrent() {
+        return MAX_CONCURRENT;
+    }
+
+    public static int inflight() {
+        return MAX_CONCURRENT - PERMITS.availablePermits();
+    }
+
+    public static int waiting() {
+        return PERMITS.getQueueLength();
+    }
+
+    public static long rejected() {
+        return REJECTED.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.ledger.LedgerCheckpoint;
+import aloui.bilal.userauthservice.logging.EventLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Checkpoints live on the primary, next to the transparency log ones.
+ */
+public class LedgerCheckpointDaoImpl implements ILedgerCheckpointDao {
+
+    @Override
+    public Optional<LedgerCheckpoint> latest(String keyId) {
+        String sql = "SELECT height, block_hash, verified_at_ms, key_id, signature FROM ledger_checkpoints "
+                + "WHERE key_id = ? ORDER BY height DESC LIMIT 1";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, keyId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new LedgerCheckpoint(rs.getLong("height"), rs.getString("block_hash"),
+                        rs.getLong("verified_at_ms"), rs.getString("key_id"), rs.getBytes("signature")));
+            }
+        } catch (SQLException e) {
+            EventLog.error("LedgerCheckpointDaoImpl.latest", e);
+            throw new DataAccessException("LedgerCheckpointDaoImpl.latest", e);
+        }
+    }
+
+    @Override
+    public void save(LedgerCheckpoint checkpoint) {
+        String sql = "INSERT INTO ledger_checkpoints (height, block_hash, verified_at_ms, key_id, signature) "
+                + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (key_id, height) DO NOTHING";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, checkpoint.height());
+            stmt.setString(2, checkpoint.blockHash());
+            stmt.setLong(3, checkpoint.verifiedAtMs());
+            stmt.setString(4, checkpoint.keyId());
+            stmt.setBytes(5, checkpoint.signature());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            EventLog.error("LedgerCheckpointDaoImpl.save", e);
+            throw new DataAccessException("LedgerCheckpointDaoImpl.save", e);
+        }
+    }
+}
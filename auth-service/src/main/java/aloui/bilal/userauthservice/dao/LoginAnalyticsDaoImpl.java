@@ -0,0 +1,166 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.analytics.LoginStats;
+import aloui.bilal.userauthservice.logging.EventLog;
+
+import java.nio.BufferUnderflowException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+/**
+ * Checkpoints of {@link LoginStats} on the primary. Merges run one replica at a time, so the read-merge-write
+ * of a row never races another replica's.
+ */
+public class LoginAnalyticsDaoImpl implements ILoginAnalyticsDao {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginAnalyticsDaoImpl.class.getName());
+
+    // Any constant works as long as every replica uses the same one
+    private static final long ADVISORY_LOCK_KEY = 0x4C47_4E53_5453L;
+
+    @Override
+    public Snapshot loadSince(Timestamp since) {
+        Timestamp from = since == null ? new Timestamp(0) : since;
+        try (Connection conn = DBConnection.getConnection()) {
+            Map<Long, LoginStats> users = new HashMap<>();
+            Map<String, LoginStats> organizations = new HashMap<>();
+            Timestamp userMark = load(conn, "SELECT user_id, stats, updated_at FROM login_analytics_users "
+                    + "WHERE updated_at > ?", from, (rs, stats) -> users.put(rs.getLong(1), stats));
+            Timestamp orgMark = load(conn, "SELECT organization_name, stats, updated_at FROM login_analytics_organizations "
+                    + "WHERE updated_at > ?", from, (rs, stats) -> organizations.put(rs.getString(1), stats));
+            return new Snapshot(users, organizations, latest(latest(userMark, orgMark), since));
+        } catch (SQLException e) {
+            EventLog.error("LoginAnalyticsDaoImpl.loadSince", e);
+            throw new DataAccessException("LoginAnalyticsDaoImpl.loadSince", e);
+        }
+    }
+
+    @Override
+    public Optional<Snapshot> merge(Map<Long, LoginStats> users, Map<String, LoginStats> organizations) {
+        Connection conn;
+        try {
+            // A session of its own: the transaction and its advisory lock must not share a connection with requests
+            conn = DBConnection.primary().openSession();
+        } catch (SQLException e) {
+            EventLog.error("LoginAnalyticsDaoImpl.merge", e);
+            throw new DataAccessException("LoginAnalyticsDaoImpl.merge", e);
+        }
+
+        try {
+            conn.setAutoCommit(false);
+            if (!tryLock(conn)) {
+                conn.rollback();
+                return Optional.empty();
+            }
+
+            Map<Long, LoginStats> mergedUsers = new HashMap<>();
+            if (!users.isEmpty()) {
+                load(conn, "SELECT user_id, stats, updated_at FROM login_analytics_users WHERE user_id = ANY(?)",
+                        conn.createArrayOf("bigint", users.keySet().toArray()),
+                        (rs, stats) -> mergedUsers.put(rs.getLong(1), stats));
+                users.forEach((userId, delta) -> mergedUsers.merge(userId, delta.copy(), LoginAnalyticsDaoImpl::add));
+                // Users may live on other shards, so rows of deleted users are removed by UserDeletionWorker
+                try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO login_analytics_users "
+                        + "(user_id, stats, updated_at) VALUES (?, ?, clock_timestamp()) "
+                        + "ON CONFLICT (user_id) DO UPDATE SET stats = EXCLUDED.stats, updated_at = EXCLUDED.updated_at")) {
+                    for (Map.Entry<Long, LoginStats> entry : mergedUsers.entrySet()) {
+                        stmt.setLong(1, entry.getKey());
+                        stmt.setBytes(2, entry.getValue().toBytes());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            }
+
+            Map<String, LoginStats> mergedOrganizations = new HashMap<>();
+            if (!organizations.isEmpty()) {
+                load(conn, "SELECT organization_name, stats, updated_at FROM login_analytics_organizations "
+                                + "WHERE organization_name = ANY(?)",
+                        conn.createArrayOf("varchar", organizations.keySet().toArray()),
+                        (rs, stats) -> mergedOrganizations.put(rs.getString(1), stats));
+                organizations.forEach((name, delta) -> mergedOrganizations.merge(name, delta.copy(), LoginAnalyticsDaoImpl::add));
+                try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO login_analytics_organizations "
+                        + "(organization_name, stats, updated_at) VALUES (?, ?, clock_timestamp()) "
+                        + "ON CONFLICT (organization_name) DO UPDATE SET stats = EXCLUDED.stats, updated_at = EXCLUDED.updated_at")) {
+                    for (Map.Entry<String, LoginStats> entry : mergedOrganizations.entrySet()) {
+                        stmt.setString(1, entry.getKey());
+                        stmt.setBytes(2, entry.getValue().toBytes());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+            }
+
+            conn.commit();
+            return Optional.of(new Snapshot(mergedUsers, mergedOrganizations, null));
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                EventLog.error("LoginAnalyticsDaoImpl.merge", ex);
+            }
+            EventLog.error("LoginAnalyticsDaoImpl.merge", e);
+            throw new DataAccessException("LoginAnalyticsDaoImpl.merge", e);
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException ex) {
+                EventLog.error("LoginAnalyticsDaoImpl.merge", ex);
+            }
+        }
+    }
+
+    private static LoginStats add(LoginStats stored, LoginStats delta) {
+        stored.merge(delta);
+        return stored;
+    }
+
+    @FunctionalInterface
+    private interface RowSink {
+        void accept(ResultSet rs, LoginStats stats) throws SQLException;
+    }
+
+    /**
+     * Feeds decodable rows to the sink and returns the newest updated_at; undecodable rows are skipped.
+     */
+    private static Timestamp load(Connection conn, String sql, Object param, RowSink sink) throws SQLException {
+        Timestamp watermark = null;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, param);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    watermark = latest(watermark, rs.getTimestamp(3));
+                    try {
+                        sink.accept(rs, LoginStats.fromBytes(rs.getBytes(2)));
+                    } catch (IllegalArgumentException | BufferUnderflowException e) {
+                        LOGGER.warning("Skipping unreadable login stats for " + rs.getString(1) + ": " + e);
+                    }
+                }
+            }
+        }
+        return watermark;
+    }
+
+    private static Timestamp latest(Timestamp a, Timestamp b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.after(b) ? a : b;
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            stmt.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package aloui.bilal.userauthservice.dao;
+
+import io.helidon.config.Config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Maintains the monthly partitions of login_history: creates upcoming months ahead of time and,
+ * once a month falls out of retention, compacts it into login_daily_rollups and drops it.
+ */
+public class LoginHistoryPartitionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginHistoryPartitionManager.class.getName());
+
+    private static final String PARTITION_PREFIX = "login_history_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    // Any constant works as long as every replica uses the same one
+    private static final long ADVISORY_LOCK_KEY = 0x4C48_5041_5254L;
+
+    private static final int RETENTION_MONTHS;
+    private static final int PARTITIONS_AHEAD;
+    private static final long INTERVAL_HOURS;
+    private static final long LOCK_TIMEOUT_MS;
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config config = Config.create().get("login-history");
+        RETENTION_MONTHS = config.get("retention-months").asInt().orElse(12);
+        PARTITIONS_AHEAD = config.get("partitions-ahead").asInt().orElse(2);
+        INTERVAL_HOURS = config.get("maintenance-interval-hours").asLong().orElse(6L);
+        LOCK_TIMEOUT_MS = config.get("lock-timeout-ms").asLong().orElse(2000L);
+    }
+
+    private LoginHistoryPartitionManager() {
+    }
+
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("login-history-maintenance")
+                .factory());
+        scheduler.scheduleWithFixedDelay(LoginHistoryPartitionManager::runOnce, 0, INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Runs on a session of its own rather than a pooled connection: it lifts the statement timeout and holds a
+     * session advisory lock, and none of that may leak into request traffic. Every step is its own short
+     * transaction, so a rolled-up month is kept even if its detach has to wait for the next round.
+     */
+    static void runOnce() {
+        try (Connection conn = DBConnection.primary().openSession()) {
+            try (Statement stmt = conn.createStatement()) {
+                // Rollups can outlast the per-statement cap meant for request traffic
+                stmt.execute("SET statement_timeout = 0");
+                // DDL waits behind running queries and blocks logins while it waits; give up and retry next round
+                stmt.execute("SET lock_timeout = " + LOCK_TIMEOUT_MS);
+            }
+
+            // Only one replica maintains partitions at a time; the others skip this round
+            if (!tryLock(conn)) {
+                return;
+            }
+            try {
+                LocalDate currentMonth = currentMonth(conn);
+                for (int i = 0; i <= PARTITIONS_AHEAD; i++) {
+                    ensurePartition(conn, currentMonth.plusMonths(i));
+                }
+
+                LocalDate oldestKept = currentMonth.minusMonths(RETENTION_MONTHS);
+                boolean concurrently = !hasDefaultPartition(conn);
+                List<String> dropped = new ArrayList<>();
+                for (Partition partition : listPartitions(conn)) {
+                    LocalDate month = monthOf(partition.name());
+                    if (month != null && month.isBefore(oldestKept)) {
+                        rollup(conn, partition.name());
+                        detach(conn, partition, concurrently);
+                        drop(conn, partition.name());
+                        dropped.add(partition.name());
+                    }
+                }
+                if (!dropped.isEmpty()) {
+                    LOGGER.info("Rolled up and dropped " + dropped);
+                }
+            } finally {
+                unlock(conn);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "login_history maintenance failed", e);
+        }
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            stmt.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            stmt.setLong(1, ADVISORY_LOCK_KEY);
+            stmt.execute();
+        }
+    }
+
+    private static LocalDate currentMonth(Connection conn) throws SQLException {
+        // Use the database clock, since login_at defaults to it
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT date_trunc('month', LOCALTIMESTAMP)::date")) {
+            rs.next();
+            return rs.getDate(1).toLocalDate();
+        }
+    }
+
+    private static void ensurePartition(Connection conn, LocalDate month) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + month.format(SUFFIX)
+                + " PARTITION OF login_history FOR VALUES FROM ('" + month + "') TO ('" + month.plusMonths(1) + "')";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Monthly tables of login_history, including ones a previous round left half detached or detached but
+     * not yet dropped.
+     */
+    private static List<Partition> listPartitions(Connection conn) throws SQLException {
+        List<Partition> partitions = new ArrayList<>();
+        String sql = "SELECT c.relname, i.inhrelid IS NOT NULL AS attached, COALESCE(i.inhdetachpending, false) AS pending "
+                + "FROM pg_class c "
+                + "LEFT JOIN pg_inherits i ON i.inhrelid = c.oid AND i.inhparent = 'login_history'::regclass "
+                + "WHERE c.relkind = 'r' AND c.relname LIKE 'login\\_history\\_%' "
+                + "AND c.relnamespace = (SELECT relnamespace FROM pg_class WHERE oid = 'login_history'::regclass) "
+                + "ORDER BY c.relname";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                partitions.add(new Partition(rs.getString(1), rs.getBoolean(2), rs.getBoolean(3)));
+            }
+        }
+        return partitions;
+    }
+
+    private static boolean hasDefaultPartition(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT partdefid <> 0 FROM pg_partitioned_table WHERE partrelid = 'login_history'::regclass")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static LocalDate monthOf(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()) + "_01",
+                    DateTimeFormatter.ofPattern("yyyy_MM_dd"));
+        } catch (RuntimeException e) {
+            return null; // e.g. login_history_default
+        }
+    }
+
+    /**
+     * Compacts one month into per-user daily aggregates. Every day lives in exactly one partition, so the upsert
+     * simply overwrites a previous partial attempt.
+     */
+    private static void rollup(Connection conn, String partition) throws SQLException {
+        String rollup = "INSERT INTO login_daily_rollups (user_id, day, login_count, distinct_ips, distinct_user_agents, new_devices) "
+                + "SELECT user_id, login_at::date, COUNT(*), COUNT(DISTINCT ip_address), COUNT(DISTINCT user_agent_id), "
+                + "COUNT(*) FILTER (WHERE new_device) "
+                + "FROM " + partition + " GROUP BY user_id, login_at::date "
+                + "ON CONFLICT (user_id, day) DO UPDATE SET login_count = EXCLUDED.login_count, "
+                + "distinct_ips = EXCLUDED.distinct_ips, distinct_user_agents = EXCLUDED.distinct_user_agents, "
+                + "new_devices = EXCLUDED.new_devices";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(rollup);
+        }
+    }
+
+    /**
+     * Takes the month out of login_history. CONCURRENTLY only needs a brief lock but Postgres refuses it while a
+     * default partition exists; the plain form is bounded by the lock timeout instead.
+     */
+    private static void detach(Connection conn, Partition partition, boolean concurrently) throws SQLException {
+        if (!partition.attached()) {
+            return;
+        }
+        String sql = "ALTER TABLE login_history DETACH PARTITION " + partition.name();
+        if (partition.detachPending()) {
+            sql += " FINALIZE";
+        } else if (concurrently) {
+            sql += " CONCURRENTLY";
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static void drop(Connection conn, String partition) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE " + partition);
+        }
+    }
+
+    private record Partition(String name, boolean attached, boolean detachPending) {
+    }
+}
@@ -0,0 +1,211 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.outbox.OutboxEvent;
+import aloui.bilal.userauthservice.outbox.OutboxSink;
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes user_outbox rows to the configured sink in id order, one batch at a time, and marks them published.
+ * Delivery is at least once: a batch that fails or is not marked in time is offered again.
+ * <p>
+ * Ids are taken before commit, so a row can become visible after a higher id was already published; it goes out
+ * in the next batch. Writes to one user serialize on its row lock, so that user's events stay in order.
+ * <p>
+ * Every user shard has its own user_outbox, next to the rows it describes, and is relayed independently.
+ */
+public class OutboxRelay {
+
+    private static final Logger LOGGER = Logger.getLogger(OutboxRelay.class.getName());
+
+    // Any constant works as long as every replica uses the same one
+    private static final long ADVISORY_LOCK_KEY = 0x4F55_5442_4F58L;
+    private static final long PURGE_INTERVAL_MS = 10 * 60 * 1000L;
+
+    private static final boolean ENABLED;
+    private static final long INTERVAL_MS;
+    private static final int BATCH_SIZE;
+    private static final long RETENTION_HOURS;
+    private static final OutboxSink SINK;
+
+    private static final LongAdder PUBLISHED = Metrics.counter("auth_outbox_published_total");
+    private static final LongAdder FAILURES = Metrics.counter("auth_outbox_publish_failures_total");
+
+    // One per user shard, used only by the relay thread
+    private static final List<ShardRelay> RELAYS = new ArrayList<>();
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config config = Config.create();
+        Config outbox = config.get("outbox");
+        ENABLED = outbox.get("enabled").asBoolean().orElse(true);
+        INTERVAL_MS = outbox.get("poll-interval-ms").asLong().orElse(500L);
+        BATCH_SIZE = outbox.get("batch-size").asInt().orElse(500);
+        RETENTION_HOURS = outbox.get("retention-hours").asLong().orElse(72L);
+        for (int shard = 0; shard < DBConnection.shardCount(); shard++) {
+            RELAYS.add(new ShardRelay(DBConnection.shard(shard)));
+        }
+        SINK = ENABLED ? OutboxSink.fromConfig(outbox) : null;
+    }
+
+    private OutboxRelay() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("outbox-relay")
+                .factory());
+        scheduler.scheduleWithFixedDelay(OutboxRelay::runOnce, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    static void runOnce() {
+        for (ShardRelay relay : RELAYS) {
+            relay.runOnce();
+        }
+    }
+
+    private static int relayBatch(Connection conn) throws SQLException, IOException {
+        String sql = "SELECT id, event_type, user_id, occurred_at, payload::text FROM user_outbox "
+                + "WHERE published_at IS NULL ORDER BY id LIMIT ?";
+        List<OutboxEvent> batch = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, BATCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.add(new OutboxEvent(
+                            rs.getLong("id"),
+                            rs.getString("event_type"),
+                            rs.getLong("user_id"),
+                            rs.getTimestamp("occurred_at").toInstant(),
+                            rs.getString("payload")));
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        SINK.publish(batch);
+
+        Long[] ids = new Long[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = batch.get(i).id();
+        }
+        Array array = conn.createArrayOf("bigint", ids);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE user_outbox SET published_at = now() WHERE id = ANY(?)")) {
+            stmt.setArray(1, array);
+            stmt.executeUpdate();
+        } finally {
+            array.free();
+        }
+        PUBLISHED.add(batch.size());
+        return batch.size();
+    }
+
+    private static void purge(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM user_outbox WHERE published_at < now() - make_interval(hours => ?)")) {
+            stmt.setLong(1, RETENTION_HOURS);
+            int purged = stmt.executeUpdate();
+            if (purged > 0) {
+                LOGGER.fine("Purged " + purged + " published outbox events");
+            }
+        }
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            stmt.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Relay state for one shard. The session advisory lock lives as long as the connection.
+     */
+    private static final class ShardRelay {
+
+        private final DbNode shard;
+        private Connection connection;
+        private boolean leader;
+        private long lastPurgeMs;
+
+        ShardRelay(DbNode shard) {
+            this.shard = shard;
+        }
+
+        void runOnce() {
+            try {
+                Connection conn = connection();
+                // One relay per shard at a time across replicas keeps batches in order; the others stand by
+                if (!leader) {
+                    leader = tryLock(conn);
+                    if (!leader) {
+                        return;
+                    }
+                    LOGGER.info("Relaying user_outbox on " + shard.getName() + " to " + SINK.getClass().getSimpleName());
+                }
+
+                int relayed;
+                do {
+                    relayed = relayBatch(conn);
+                } while (relayed == BATCH_SIZE);
+
+                long now = System.currentTimeMillis();
+                if (now - lastPurgeMs >= PURGE_INTERVAL_MS) {
+                    purge(conn);
+                    lastPurgeMs = now;
+                }
+            } catch (IOException e) {
+                FAILURES.increment();
+                LOGGER.log(Level.WARNING, "Outbox sink unavailable, retrying", e);
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Outbox relay failed on " + shard.getName(), e);
+                close();
+            }
+        }
+
+        private Connection connection() throws SQLException {
+            if (connection == null || connection.isClosed()) {
+                connection = shard.openSession();
+                leader = false;
+            }
+            return connection;
+        }
+
+        private void close() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Closing outbox relay connection", e);
+                }
+            }
+            connection = null;
+            leader = false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package aloui.bilal.userauthservice.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pins a user's reads to the primary for a short window after one of their rows is written,
+ * so a replica that has not replayed the write yet is never consulted.
+ */
+public class ReadYourWrites {
+
+    private static final Map<Long, Long> PINNED_UNTIL = new ConcurrentHashMap<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void pin(long userId) {
+        long until = System.currentTimeMillis() + DBConnection.READ_YOUR_WRITES_MS;
+        PINNED_UNTIL.merge(userId, until, Math::max);
+    }
+
+    public static boolean isPinned(long userId) {
+        Long until = PINNED_UNTIL.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            PINNED_UNTIL.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Read from the primary of the user's shard: a replica that has not replayed a password change or deletion would
+ * keep accepting the old tokens.
+ */
+public class RevocationDaoImpl implements IRevocationDao {
+
+    @Override
+    public long tokensValidAfter(long userId) {
+        String sql = "SELECT tokens_valid_after, deleted_at FROM users WHERE id = ?";
+        try (Connection conn = UserShards.primaryFor(userId).connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                // The row itself goes at the end of a deletion job
+                if (!rs.next() || rs.getTimestamp("deleted_at") != null) {
+                    return Long.MAX_VALUE;
+                }
+                Timestamp validAfter = rs.getTimestamp("tokens_valid_after");
+                return validAfter == null ? 0L : validAfter.getTime();
+            }
+        } catch (SQLException e) {
+            EventLog.error("RevocationDaoImpl.tokensValidAfter", e);
+            throw new DataAccessException("RevocationDaoImpl.tokensValidAfter", e);
+        }
+    }
+}
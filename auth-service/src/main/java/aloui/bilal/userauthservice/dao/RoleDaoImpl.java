@@ -0,0 +1,164 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.model.Role;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+public class RoleDaoImpl implements IRoleDao {
+
+    private static final String SELECT_ROLES = "SELECT r.id, r.role, rp.permission FROM roles r "
+            + "LEFT JOIN role_permissions rp ON rp.role_id = r.id";
+
+    @Override
+    public List<Role> findAll() {
+        String sql = SELECT_ROLES + " ORDER BY r.id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return mapRoles(stmt);
+        } catch (SQLException e) {
+            EventLog.error("RoleDaoImpl.findAll", e);
+            throw new DataAccessException("RoleDaoImpl.findAll", e);
+        }
+    }
+
+    @Override
+    public Optional<Role> findById(Long id) {
+        String sql = SELECT_ROLES + " WHERE r.id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, id);
+            return mapRoles(stmt).stream().findFirst();
+        } catch (SQLException e) {
+            EventLog.error("RoleDaoImpl.findById", e);
+            throw new DataAccessException("RoleDaoImpl.findById", e);
+        }
+    }
+
+    @Override
+    public boolean save(Role value) {
+        String sql = "INSERT INTO roles (role) VALUES (?) RETURNING id";
+        return inTransaction("RoleDaoImpl.save", conn -> {
+            long id;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, value.getRole());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    id = rs.getLong(1);
+                }
+            }
+            insertPermissions(conn, id, value.getPermissions());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean update(Long id, Role value) {
+        return inTransaction("RoleDaoImpl.update", conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE roles SET role = ? WHERE id = ?")) {
+                stmt.setString(1, value.getRole());
+                stmt.setLong(2, id);
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM role_permissions WHERE role_id = ?")) {
+                stmt.setLong(1, id);
+                stmt.executeUpdate();
+            }
+            insertPermissions(conn, id, value.getPermissions());
+            return true;
+        });
+    }
+
+    @Override
+    public boolean delete(Long id) {
+        String sql = "DELETE FROM roles WHERE id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, id);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            EventLog.error("RoleDaoImpl.delete", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("RoleDaoImpl.delete", e);
+            }
+        }
+        return false;
+    }
+
+    private static List<Role> mapRoles(PreparedStatement stmt) throws SQLException {
+        Map<Long, String> names = new LinkedHashMap<>();
+        Map<Long, Set<String>> permissions = new LinkedHashMap<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                long id = rs.getLong("id");
+                names.put(id, rs.getString("role"));
+                Set<String> granted = permissions.computeIfAbsent(id, k -> new HashSet<>());
+                String permission = rs.getString("permission");
+                if (permission != null) {
+                    granted.add(permission);
+                }
+            }
+        }
+        List<Role> roles = new ArrayList<>(names.size());
+        names.forEach((id, name) -> roles.add(new Role.Builder()
+                .id(id)
+                .role(name)
+                .permissions(permissions.get(id))
+                .build()));
+        return roles;
+    }
+
+    private static void insertPermissions(Connection conn, long roleId, Set<String> permissions) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO role_permissions (role_id, permission) VALUES (?, ?)")) {
+            for (String permission : permissions) {
+                stmt.setLong(1, roleId);
+                stmt.setString(2, permission);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Runs the work as one transaction on a session of its own, so no request ever shares its connection.
+     */
+    private static boolean inTransaction(String source, SqlWork work) {
+        try (Connection conn = DBConnection.primary().openSession()) {
+            conn.setAutoCommit(false);
+            try {
+                boolean result = work.run(conn);
+                if (result) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            EventLog.error(source, e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException(source, e);
+            }
+        }
+        return false;
+    }
+
+    private interface SqlWork {
+        boolean run(Connection conn) throws SQLException;
+    }
+}
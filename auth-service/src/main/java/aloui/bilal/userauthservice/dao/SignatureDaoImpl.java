@@ -0,0 +1,151 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.model.DocumentSignature;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads signature pages and keys from a replica; only the verified flag is written to the primary.
+ */
+public class SignatureDaoImpl implements ISignatureDao {
+
+    // Rows without key_id fall back to the signer's key (user_keys.user_id is unique)
+    private static final String SELECT_PAGE = "SELECT s.id, s.document_id, s.user_id, s.algorithm, s.crypto_signature, "
+            + "s.signed_digest, COALESCE(s.key_id, uk.id) AS key_id, k.status AS key_status "
+            + "FROM document_signatures s "
+            + "JOIN documents d ON d.id = s.document_id "
+            + "LEFT JOIN user_keys uk ON uk.user_id = s.user_id "
+            + "LEFT JOIN user_keys k ON k.id = COALESCE(s.key_id, uk.id) ";
+
+    @Override
+    public List<DocumentSignature> findPage(String organizationName, long afterId, int limit) {
+        // Uploaders can be on any user shard; with a single shard the users table is right here to join
+        Long[] members = organizationName != null && UserShards.count() > 1 ? organizationMembers(organizationName) : null;
+        StringBuilder sql = new StringBuilder(SELECT_PAGE);
+        if (organizationName != null && members == null) {
+            sql.append("JOIN users u ON u.id = d.uploaded_by AND u.organization_name = ? ");
+        }
+        sql.append("WHERE s.id > ? AND s.crypto_signature IS NOT NULL ");
+        if (members != null) {
+            sql.append("AND d.uploaded_by = ANY(?) ");
+        }
+        sql.append("ORDER BY s.id LIMIT ?");
+
+        DbNode node = DBConnection.forRead(null);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            if (organizationName != null && members == null) {
+                stmt.setString(i++, organizationName);
+            }
+            stmt.setLong(i++, afterId);
+            if (members != null) {
+                stmt.setArray(i++, conn.createArrayOf("bigint", members));
+            }
+            stmt.setInt(i, limit);
+            List<DocumentSignature> page = new ArrayList<>(limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    long keyId = rs.getLong("key_id");
+                    page.add(new DocumentSignature.Builder()
+                            .id(rs.getLong("id"))
+                            .documentId(rs.getLong("document_id"))
+                            .userId(rs.getLong("user_id"))
+                            .keyId(rs.wasNull() ? null : keyId)
+                            .keyStatus(rs.getString("key_status"))
+                            .algorithm(rs.getString("algorithm"))
+                            .signature(rs.getString("crypto_signature"))
+                            .signedDigest(rs.getString("signed_digest"))
+                            .build());
+                }
+            }
+            return page;
+        } catch (SQLException e) {
+            node.markFailed();
+            EventLog.error("SignatureDaoImpl.findPage", e);
+            throw new DataAccessException("SignatureDaoImpl.findPage", e);
+        }
+    }
+
+    private static Long[] organizationMembers(String organizationName) {
+        return UserShards.scatter(shard -> {
+            List<Long> ids = new ArrayList<>();
+            DbNode node = DBConnection.forRead(shard, null);
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT id FROM users WHERE organization_name = ?")) {
+                stmt.setString(1, organizationName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong("id"));
+                    }
+                }
+            } catch (SQLException e) {
+                node.markFailed();
+                EventLog.error("SignatureDaoImpl.organizationMembers", e);
+                throw new DataAccessException("SignatureDaoImpl.organizationMembers", e);
+            }
+            return ids;
+        }).toArray(new Long[0]);
+    }
+
+    @Override
+    public Map<Long, String> findPublicKeys(Collection<Long> keyIds) {
+        Map<Long, String> keys = new HashMap<>();
+        if (keyIds.isEmpty()) {
+            return keys;
+        }
+        String sql = "SELECT id, public_key FROM user_keys WHERE id = ANY(?) AND public_key IS NOT NULL";
+        DbNode node = DBConnection.forRead(null);
+        try (Connection conn = node.connection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setArray(1, conn.createArrayOf("bigint", keyIds.toArray()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        keys.put(rs.getLong(1), rs.getString(2));
+                    }
+                }
+            }
+            return keys;
+        } catch (SQLException e) {
+            node.markFailed();
+            EventLog.error("SignatureDaoImpl.findPublicKeys", e);
+            throw new DataAccessException("SignatureDaoImpl.findPublicKeys", e);
+        }
+    }
+
+    @Override
+    public void recordVerified(Map<Long, Boolean> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        String sql = "UPDATE document_signatures s SET verified = r.verified "
+                + "FROM unnest(?::bigint[], ?::boolean[]) AS r(id, verified) "
+                + "WHERE s.id = r.id AND s.verified IS DISTINCT FROM r.verified";
+        Long[] ids = new Long[results.size()];
+        Boolean[] verified = new Boolean[results.size()];
+        int i = 0;
+        for (Map.Entry<Long, Boolean> result : results.entrySet()) {
+            ids[i] = result.getKey();
+            verified[i++] = result.getValue();
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setArray(1, conn.createArrayOf("bigint", ids));
+                stmt.setArray(2, conn.createArrayOf("boolean", verified));
+                stmt.executeUpdate();
+            }
+        } catch (SQLException e) {
+            EventLog.error("SignatureDaoImpl.recordVerified", e);
+            throw new DataAccessException("SignatureDaoImpl.recordVerified", e);
+        }
+    }
+}
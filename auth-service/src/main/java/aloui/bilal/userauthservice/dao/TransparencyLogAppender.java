@@ -0,0 +1,235 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+import aloui.bilal.userauthservice.transparency.CheckpointSigner;
+import aloui.bilal.userauthservice.transparency.LoginLeaf;
+import aloui.bilal.userauthservice.transparency.MerkleTree;
+import io.helidon.config.Config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tails login_history into the append-only Merkle log and signs a checkpoint after each batch.
+ * Appends are incremental: only the right edge of the tree (one node per level) is needed to add leaves.
+ */
+public class TransparencyLogAppender {
+
+    private static final Logger LOGGER = Logger.getLogger(TransparencyLogAppender.class.getName());
+
+    // Any constant works as long as every replica uses the same one
+    private static final long ADVISORY_LOCK_KEY = 0x4D45_524B_4C4FL;
+
+    private static final boolean ENABLED;
+    private static final long INTERVAL_SECONDS;
+    private static final int BATCH_SIZE;
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config config = Config.create().get("transparency");
+        ENABLED = config.get("enabled").asBoolean().orElse(true);
+        INTERVAL_SECONDS = config.get("append-interval-seconds").asLong().orElse(30L);
+        BATCH_SIZE = config.get("batch-size").asInt().orElse(10_000);
+    }
+
+    private TransparencyLogAppender() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        // Checkpoints signed by a per-replica key could not be verified, so refuse to run without one
+        CheckpointSigner.requireKey("transparency");
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("transparency-log-appender")
+                .factory());
+        scheduler.scheduleWithFixedDelay(TransparencyLogAppender::runOnce, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs on a session of its own so the transaction and its advisory lock never share a connection with
+     * request traffic.
+     */
+    static void runOnce() {
+        try (Connection conn = DBConnection.primary().openSession()) {
+            conn.setAutoCommit(false);
+            try {
+                // One appender at a time across replicas; the lock is held until commit
+                if (!tryLock(conn)) {
+                    conn.rollback();
+                    return;
+                }
+
+                long size = 0;
+                long lastTxid = 0;
+                long lastLoginId = 0;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT leaf_index, login_txid::text, login_id FROM transparency_leaves "
+                             + "ORDER BY leaf_index DESC LIMIT 1")) {
+                    if (rs.next()) {
+                        size = rs.getLong(1) + 1;
+                        lastTxid = Long.parseLong(rs.getString(2));
+                        lastLoginId = rs.getLong(3);
+                    }
+                }
+
+                List<PendingLogin> pending = pendingLogins(conn, lastTxid, lastLoginId);
+                if (pending.isEmpty()) {
+                    conn.rollback();
+                    return;
+                }
+
+                Deque<Node> frontier = loadFrontier(conn, size);
+                List<Node> created = new ArrayList<>();
+                try (PreparedStatement leaves = conn.prepareStatement(
+                        "INSERT INTO transparency_leaves (leaf_index, login_id, login_txid) VALUES (?, ?, ?::xid8)")) {
+                    for (PendingLogin pendingLogin : pending) {
+                        LoginHistory login = pendingLogin.login();
+                        leaves.setLong(1, size);
+                        leaves.setLong(2, login.getId());
+                        leaves.setString(3, Long.toString(pendingLogin.txid()));
+                        leaves.addBatch();
+                        append(frontier, new Node(0, size, LoginLeaf.hash(login)), created);
+                        size++;
+                    }
+                    leaves.executeBatch();
+                }
+                try (PreparedStatement nodes = conn.prepareStatement(
+                        "INSERT INTO transparency_nodes (level, idx, hash) VALUES (?, ?, ?)")) {
+                    for (Node node : created) {
+                        nodes.setInt(1, node.level);
+                        nodes.setLong(2, node.index);
+                        nodes.setBytes(3, node.hash);
+                        nodes.addBatch();
+                    }
+                    nodes.executeBatch();
+                }
+
+                Checkpoint checkpoint = CheckpointSigner.sign(size, rootOf(frontier), System.currentTimeMillis());
+                try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO transparency_checkpoints "
+                        + "(tree_size, root_hash, signed_at_ms, key_id, signature) VALUES (?, ?, ?, ?, ?)")) {
+                    stmt.setLong(1, checkpoint.treeSize());
+                    stmt.setBytes(2, checkpoint.rootHash());
+                    stmt.setLong(3, checkpoint.timestampMs());
+                    stmt.setString(4, checkpoint.keyId());
+                    stmt.setBytes(5, checkpoint.signature());
+                    stmt.executeUpdate();
+                }
+                conn.commit();
+                LOGGER.fine("Appended " + pending.size() + " login events, tree size " + size);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Transparency log append failed", e);
+        }
+    }
+
+    /**
+     * Logins in the order of the transactions that wrote them. Ids are allocated before commit, so a smaller id
+     * can become visible after a larger one; instead only rows from transactions older than the snapshot's xmin
+     * are taken. Every one of those has finished, and anything committing later gets a larger txid, so the log
+     * never has to go back for a row it passed over.
+     */
+    private static List<PendingLogin> pendingLogins(Connection conn, long afterTxid, long afterId) throws SQLException {
+        String sql = "SELECT id, user_id, login_at, user_agent_id, ip_address, new_device, txid::text FROM login_history "
+                + "WHERE (txid, id) > (?::xid8, ?) AND txid < pg_snapshot_xmin(pg_current_snapshot()) "
+                + "ORDER BY txid, id LIMIT ?";
+        List<PendingLogin> logins = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, Long.toString(afterTxid));
+            stmt.setLong(2, afterId);
+            stmt.setInt(3, BATCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LoginHistory login = new LoginHistory.Builder()
+                            .id(rs.getLong("id"))
+                            .userId(rs.getLong("user_id"))
+                            .loginAt(rs.getTimestamp("login_at"))
+                            .userAgentId(rs.getInt("user_agent_id"))
+                            .ipAddress(rs.getString("ip_address"))
+                            .newDevice(rs.getBoolean("new_device"))
+                            .build();
+                    logins.add(new PendingLogin(login, Long.parseLong(rs.getString("txid"))));
+                }
+            }
+        }
+        return logins;
+    }
+
+    private static Deque<Node> loadFrontier(Connection conn, long size) throws SQLException {
+        List<long[]> wanted = MerkleTree.frontierOf(size);
+        Map<String, byte[]> stored = TransparencyLogDaoImpl.loadNodes(conn, wanted);
+        Deque<Node> frontier = new ArrayDeque<>();
+        for (long[] position : wanted) {
+            byte[] hash = stored.get(MerkleTree.key(position[0], position[1]));
+            if (hash == null) {
+                throw new IllegalStateException("Transparency log is missing node " + MerkleTree.key(position[0], position[1]));
+            }
+            frontier.addLast(new Node((int) position[0], position[1], hash));
+        }
+        return frontier;
+    }
+
+    /**
+     * Adds a leaf and merges equal-height subtrees on the right edge, recording every node it completes.
+     */
+    private static void append(Deque<Node> frontier, Node leaf, List<Node> created) {
+        created.add(leaf);
+        Node current = leaf;
+        while (!frontier.isEmpty() && frontier.peekLast().level == current.level) {
+            Node left = frontier.pollLast();
+            current = new Node(current.level + 1, left.index >> 1, MerkleTree.nodeHash(left.hash, current.hash));
+            created.add(current);
+        }
+        frontier.addLast(current);
+    }
+
+    private static byte[] rootOf(Deque<Node> frontier) {
+        if (frontier.isEmpty()) {
+            return MerkleTree.emptyRoot();
+        }
+        Iterator<Node> it = frontier.descendingIterator();
+        byte[] root = it.next().hash;
+        while (it.hasNext()) {
+            root = MerkleTree.nodeHash(it.next().hash, root);
+        }
+        return root;
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT pg_try_advisory_xact_lock(?)")) {
+            stmt.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private record Node(int level, long index, byte[] hash) {
+    }
+
+    private record PendingLogin(LoginHistory login, long txid) {
+    }
+}
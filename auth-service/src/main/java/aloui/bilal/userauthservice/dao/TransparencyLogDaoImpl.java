@@ -0,0 +1,108 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+import aloui.bilal.userauthservice.transparency.MerkleTree;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Read side of the login transparency log. Everything is read from the primary: a checkpoint and the
+ * nodes behind its proofs must come from the same, fully caught-up copy of the log.
+ */
+public class TransparencyLogDaoImpl implements ITransparencyLogDao {
+
+    private static final String SELECT_CHECKPOINT = "SELECT tree_size, root_hash, signed_at_ms, key_id, signature "
+            + "FROM transparency_checkpoints";
+
+    @Override
+    public Optional<Checkpoint> latestCheckpoint() {
+        String sql = SELECT_CHECKPOINT + " ORDER BY tree_size DESC LIMIT 1";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? Optional.of(mapCheckpoint(rs)) : Optional.empty();
+        } catch (SQLException e) {
+            EventLog.error("TransparencyLogDaoImpl.latestCheckpoint", e);
+            throw new DataAccessException("TransparencyLogDaoImpl.latestCheckpoint", e);
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> findCheckpoint(long treeSize) {
+        String sql = SELECT_CHECKPOINT + " WHERE tree_size = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, treeSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapCheckpoint(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            EventLog.error("TransparencyLogDaoImpl.findCheckpoint", e);
+            throw new DataAccessException("TransparencyLogDaoImpl.findCheckpoint", e);
+        }
+    }
+
+    @Override
+    public OptionalLong findLeafIndex(long loginId) {
+        String sql = "SELECT leaf_index FROM transparency_leaves WHERE login_id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, loginId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? OptionalLong.of(rs.getLong(1)) : OptionalLong.empty();
+            }
+        } catch (SQLException e) {
+            EventLog.error("TransparencyLogDaoImpl.findLeafIndex", e);
+            throw new DataAccessException("TransparencyLogDaoImpl.findLeafIndex", e);
+        }
+    }
+
+    @Override
+    public Map<String, byte[]> findNodes(List<long[]> wanted) {
+        try (Connection conn = DBConnection.getConnection()) {
+            return loadNodes(conn, wanted);
+        } catch (SQLException e) {
+            EventLog.error("TransparencyLogDaoImpl.findNodes", e);
+            throw new DataAccessException("TransparencyLogDaoImpl.findNodes", e);
+        }
+    }
+
+    static Map<String, byte[]> loadNodes(Connection conn, List<long[]> wanted) throws SQLException {
+        Map<String, byte[]> nodes = new HashMap<>();
+        if (wanted.isEmpty()) {
+            return nodes;
+        }
+        Long[] levels = new Long[wanted.size()];
+        Long[] indexes = new Long[wanted.size()];
+        for (int i = 0; i < wanted.size(); i++) {
+            levels[i] = wanted.get(i)[0];
+            indexes[i] = wanted.get(i)[1];
+        }
+        String sql = "SELECT n.level, n.idx, n.hash FROM transparency_nodes n "
+                + "JOIN unnest(?::bigint[], ?::bigint[]) AS w(level, idx) ON n.level = w.level AND n.idx = w.idx";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("bigint", levels));
+            stmt.setArray(2, conn.createArrayOf("bigint", indexes));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    nodes.put(MerkleTree.key(rs.getInt(1), rs.getLong(2)), rs.getBytes(3));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private static Checkpoint mapCheckpoint(ResultSet rs) throws SQLException {
+        return new Checkpoint(rs.getLong("tree_size"), rs.getBytes("root_hash"), rs.getLong("signed_at_ms"),
+                rs.getString("key_id"), rs.getBytes("signature"));
+    }
+}
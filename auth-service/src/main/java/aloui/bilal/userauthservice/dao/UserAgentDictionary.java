@@ -0,0 +1,117 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import io.helidon.config.Config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns User-Agent strings into the user_agents table so login_history only stores a small id.
+ * Both directions are cached in-process; the working set is a few hundred distinct strings.
+ */
+public class UserAgentDictionary {
+
+    // Longer strings are truncated; nothing legitimate comes close
+    private static final int MAX_LENGTH = 512;
+    private static final int MAX_CACHED;
+
+    private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final Map<Integer, String> AGENTS = new ConcurrentHashMap<>();
+
+    static {
+        MAX_CACHED = Config.create().get("cache.user-agents.max-size").asInt().orElse(50_000);
+    }
+
+    private UserAgentDictionary() {
+    }
+
+    /**
+     * Returns the id for the string, inserting it on a miss. Call outside of a transaction: a
+     * rolled-back insert would leave a dangling id in the cache.
+     */
+    public static int intern(String userAgent) throws SQLException {
+        String normalized = normalize(userAgent);
+        Integer cached = IDS.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+
+        // DO UPDATE rather than DO NOTHING so RETURNING also yields the id of an existing row
+        String sql = "INSERT INTO user_agents (user_agent) VALUES (?) "
+                + "ON CONFLICT (md5(user_agent)) DO UPDATE SET user_agent = EXCLUDED.user_agent RETURNING id";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, normalized);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                int id = rs.getInt(1);
+                remember(id, normalized);
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Strings for the given ids, misses fetched in one query. Call with no other connection held: the lookup
+     * borrows one of its own.
+     */
+    public static Map<Integer, String> resolveAll(Collection<Integer> ids) {
+        Map<Integer, String> resolved = new HashMap<>();
+        Set<Integer> misses = new HashSet<>();
+        for (Integer id : ids) {
+            String cached = AGENTS.get(id);
+            if (cached != null) {
+                resolved.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (misses.isEmpty()) {
+            return resolved;
+        }
+
+        String sql = "SELECT id, user_agent FROM user_agents WHERE id = ANY(?)";
+        DbNode node = DBConnection.forRead(null);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("integer", misses.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    String userAgent = rs.getString(2);
+                    remember(id, userAgent);
+                    resolved.put(id, userAgent);
+                }
+            }
+        } catch (SQLException e) {
+            node.markFailed();
+            EventLog.error("UserAgentDictionary.resolveAll", e);
+            throw new DataAccessException("UserAgentDictionary.resolveAll", e);
+        }
+        return resolved;
+    }
+
+    private static void remember(int id, String userAgent) {
+        if (AGENTS.size() < MAX_CACHED) {
+            AGENTS.put(id, userAgent);
+            IDS.put(userAgent, id);
+        }
+    }
+
+    private static String normalize(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return "Unknown";
+        }
+        String trimmed = userAgent.trim();
+        return trimmed.length() > MAX_LENGTH ? trimmed.substring(0, MAX_LENGTH) : trimmed;
+    }
+}
@@ -1,146 +1,221 @@
 package aloui.bilal.userauthservice.dao;
 
+import aloui.bilal.userauthservice.analytics.LoginAnalytics;
+import aloui.bilal.userauthservice.cache.UserCache;
+import aloui.bilal.userauthservice.cluster.ClusterInvalidation;
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.model.Account;
 import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.model.LoginResult;
 import aloui.bilal.userauthservice.model.User;
-import aloui.bilal.userauthservice.security.PasswordUtil;
+import aloui.bilal.userauthservice.model.UserQuery;
+import aloui.bilal.userauthservice.outbox.OutboxEvent;
+import aloui.bilal.userauthservice.security.NewDeviceDetector;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Users are spread over the shards of {@link UserShards}. An id leads straight to its shard; an email goes
+ * through user_emails on the email's shard, which also makes it unique across shards.
+ */
 public class UserDaoImpl implements IUserDao {
 
-    private final Connection conn;
+    // Columns consumers need for their own copy of a user; callers close the object
+    private static final String USER_JSON = "jsonb_build_object('id', id, 'fullName', full_name, 'email', email, "
+            + "'role', role_id, 'organizationName', organization_name";
+
+    // The user comes with its directory entry unless it lives on another shard, after an email change
+    private static final String BY_EMAILS = "SELECT e.email AS claimed_email, e.user_id AS claimed_id, u.* "
+            + "FROM user_emails e LEFT JOIN users u ON u.id = e.user_id WHERE e.email = ANY(?)";
+
+    // An entry this young may belong to an email change that has not updated the users row yet
+    private static final String STALE_CLAIM_AGE = "interval '1 minute'";
+
+    private final NewDeviceDetector deviceDetector;
 
     public UserDaoImpl() throws SQLException {
-        this.conn = DBConnection.getConnection();
+        // Fail fast when the primary is unreachable
+        DBConnection.getConnection().close();
+        this.deviceDetector = new NewDeviceDetector(
+                DaoInstrumentation.instrument(IDeviceSketchDao.class, new DeviceSketchDaoImpl()));
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, email);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapResultSetToUser(rs));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        Optional<User> cached = UserCache.getByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
         }
-        return Optional.empty();
+
+        long stamp = UserCache.stamp();
+        List<Account> accounts = findAccounts(List.of(email), false, "UserDaoImpl.findByEmail");
+        if (accounts.isEmpty()) {
+            return Optional.empty();
+        }
+        User user = accounts.get(0).getUser();
+        UserCache.put(user, stamp);
+        return Optional.of(user);
     }
 
     @Override
     public boolean updatePassword(Long userId, String hashedPassword) {
-        String sql = "UPDATE users SET hashed_password = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        // The hash never leaves the users table
+        String sql = withOutbox("UPDATE users SET hashed_password = ?, tokens_valid_after = now() WHERE id = ? AND deleted_at IS NULL RETURNING id",
+                "jsonb_build_object('id', id)");
+        try (Connection conn = UserShards.primaryFor(userId).connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, hashedPassword);
             stmt.setLong(2, userId);
-            return stmt.executeUpdate() > 0;
+            stmt.setString(3, OutboxEvent.PASSWORD_CHANGED);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            EventLog.error("UserDaoImpl.updatePassword", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("UserDaoImpl.updatePassword", e);
+            }
+            return false;
         }
-        return false;
+        // Replicas listen on the primary, whichever shard was written
+        ClusterInvalidation.passwordChanged(userId);
+        return true;
     }
 
     @Override
     public boolean emailExists(String email) {
-        String sql = "SELECT 1 FROM users WHERE email = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, email);
+        String sql = "SELECT 1 FROM user_emails WHERE email = ?";
+        DbNode node = DBConnection.forRead(UserShards.shardOfEmail(email), null);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, UserShards.normalize(email));
             ResultSet rs = stmt.executeQuery();
             return rs.next();
         } catch (SQLException e) {
-            e.printStackTrace();
+            node.markFailed();
+            EventLog.error("UserDaoImpl.emailExists", e);
+            throw new DataAccessException("UserDaoImpl.emailExists", e);
         }
-        return false;
     }
 
     @Override
-    public Optional<User> login(String email, String password, LoginHistory loginHistory) {
-        String findUserSql = "SELECT * FROM users WHERE email = ?";
-        String insertLoginHistorySql = "INSERT INTO login_history (user_id, user_agent, ip_address) VALUES (?, ?, ?)";
-
-        try {
-            conn.setAutoCommit(false); // Start transaction
-
-            User user = null;
-
-            // Step 1: Find user by email
-            try (PreparedStatement stmt = conn.prepareStatement(findUserSql)) {
-                stmt.setString(1, email);
-                ResultSet rs = stmt.executeQuery();
-
-                if (rs.next()) {
-                    String hashedPassword = rs.getString("hashed_password");
+    public Optional<Account> findAccount(String email) {
+        List<Account> accounts;
+        try (Span span = Tracer.start("db.select_user")) {
+            accounts = findAccounts(List.of(email), true, "UserDaoImpl.findAccount");
+        }
+        return accounts.stream().findFirst();
+    }
 
-                    // Verify password (using bcrypt or your own logic)
-                    if (!PasswordUtil.verifyPassword(password, hashedPassword)) {
-                        conn.rollback();
-                        return Optional.empty();
-                    }
+    @Override
+    public LoginResult recordLogin(User user, LoginHistory loginHistory) {
+        // The sketch is only written for a new device, in the same statement so it commits with the login
+        String insertLoginHistorySql = "WITH sketch AS (INSERT INTO device_sketches (user_id, sketch) SELECT ?, ? WHERE ? "
+                + "ON CONFLICT (user_id) DO UPDATE SET sketch = merge_device_sketch(device_sketches.sketch, EXCLUDED.sketch), "
+                + "updated_at = CURRENT_TIMESTAMP) "
+                + "INSERT INTO login_history (user_id, user_agent_id, ip_address, new_device) VALUES (?, ?, ?, ?) "
+                + "RETURNING id, login_at";
 
-                    // Construct user
-                    user = new User.Builder().
-                            id( rs.getLong("id"))
-                            .fullName(rs.getString("full_name"))
-                            .email(rs.getString("email"))
-                            .role(rs.getInt("role_id"))
-                            .organizationName(rs.getString("organization_name"))
-                            .build();
+        try {
+            // Only authenticated callers may add to the dictionary, or failed logins could grow it at will
+            int userAgentId = UserAgentDictionary.intern(loginHistory.getUserAgent());
 
-                } else {
-                    conn.rollback();
-                    return Optional.empty(); // Email not found
-                }
+            // Step 1: Check the device against what this user has used before
+            NewDeviceDetector.Observation device;
+            try (Span span = Tracer.start("device.observe")) {
+                device = deviceDetector.observe(user.getId(), loginHistory.getIpAddress(), loginHistory.getUserAgent());
             }
+            boolean newDevice = device.newDevice();
 
-            // Step 2: Insert login history
-            try (PreparedStatement stmt = conn.prepareStatement(insertLoginHistorySql)) {
+            // Step 2: Insert login history and the device sketch, which stay on the primary whatever shard the
+            // user is on. The account itself is only read, so this one statement is all the login writes.
+            LoginHistory recorded;
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(insertLoginHistorySql)) {
                 stmt.setLong(1, user.getId());
-                stmt.setString(2, loginHistory.getUserAgent());
-                stmt.setString(3, loginHistory.getIpAddress());
-                stmt.executeUpdate();
+                stmt.setBytes(2, newDevice ? device.sketch().toBytes() : null);
+                stmt.setBoolean(3, newDevice);
+                stmt.setLong(4, user.getId());
+                stmt.setInt(5, userAgentId);
+                stmt.setString(6, loginHistory.getIpAddress());
+                stmt.setBoolean(7, newDevice);
+                try (Span span = Tracer.start("db.insert_login_history");
+                     ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    recorded = new LoginHistory.Builder(loginHistory)
+                            .id(rs.getLong("id"))
+                            .userId(user.getId())
+                            .userAgentId(userAgentId)
+                            .loginAt(rs.getTimestamp("login_at"))
+                            .newDevice(newDevice)
+                            .build();
+                }
+            } catch (SQLException e) {
+                // The in-memory sketch already has the device; drop it so it is not taken as seen next time
+                deviceDetector.forget(user.getId());
+                throw e;
             }
 
-            conn.commit(); // All good
-            return Optional.of(user);
+            ReadYourWrites.pin(user.getId());
+            LoginAnalytics.record(user, recorded);
+            return new LoginResult(user, recorded);
 
         } catch (SQLException e) {
-            try {
-                conn.rollback();
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
-            e.printStackTrace();
-            return Optional.empty();
-        } finally {
-            try {
-                conn.setAutoCommit(true);
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
+            EventLog.error("UserDaoImpl.recordLogin", e);
+            throw new DataAccessException("UserDaoImpl.recordLogin", e);
         }
     }
 
     @Override
-    public boolean register(User user, String password) {
-
-        String sql = "INSERT INTO users (full_name, email, hashed_password, role_id, organization_name) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, user.getFullName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, PasswordUtil.hashPassword(password));
-            stmt.setInt(4, user.getRole());
-            stmt.setString(5, user.getOrganizationName());
-            return stmt.executeUpdate() > 0;
+    public boolean register(User user, String hashedPassword) {
+        String email = UserShards.normalize(user.getEmail());
+        int bucket = UserShards.bucketOf(email);
+        // The id carries the bucket, so the user row and its directory entry start out on the same shard
+        String sql = "WITH new_id AS (SELECT nextval('users_id_seq') * " + UserShards.BUCKETS + " + ? AS id), "
+                + "claim AS (INSERT INTO user_emails (email, bucket, user_id) SELECT ?, ?, id FROM new_id), "
+                + "u AS (INSERT INTO users (id, full_name, email, hashed_password, role_id, organization_name) "
+                + "SELECT id, ?, ?, ?, ?, ? FROM new_id "
+                + "RETURNING id, full_name, email, role_id, organization_name, created_at) "
+                + "INSERT INTO user_outbox (event_type, user_id, payload) SELECT ?, id, "
+                + USER_JSON + ", 'createdAt', created_at) FROM u";
+        DbNode node = DBConnection.shard(UserShards.shardOfBucket(bucket));
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try (Connection conn = node.connection();
+                     PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, bucket);
+                    stmt.setString(2, email);
+                    stmt.setInt(3, bucket);
+                    stmt.setString(4, user.getFullName());
+                    stmt.setString(5, user.getEmail());
+                    stmt.setString(6, hashedPassword);
+                    stmt.setInt(7, user.getRole());
+                    stmt.setString(8, user.getOrganizationName());
+                    stmt.setString(9, OutboxEvent.REGISTERED);
+                    return stmt.executeUpdate() > 0;
+                } catch (SQLException e) {
+                    if (attempt > 0 || !DataAccessException.isConstraintViolation(e) || !releaseStaleClaim(email)) {
+                        throw e;
+                    }
+                }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            EventLog.error("UserDaoImpl.register", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("UserDaoImpl.register", e);
+            }
         }
 
         return false;
@@ -149,44 +224,265 @@ public class UserDaoImpl implements IUserDao {
     @Override
     public Optional<String> getHashedPassword(long userId) {
         String sql = "SELECT hashed_password FROM users WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        DbNode node = UserShards.forRead(userId);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, userId);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 return Optional.of(rs.getString("hashed_password"));
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            node.markFailed();
+            EventLog.error("UserDaoImpl.getHashedPassword", e);
+            throw new DataAccessException("UserDaoImpl.getHashedPassword", e);
         }
         return Optional.empty();
     }
 
     @Override
-    public List<User> findAll() {
-        List<User> users = new ArrayList<>();
-        String sql = "SELECT * FROM users";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                users.add(mapResultSetToUser(rs));
+    public List<User> search(UserQuery query) {
+        // Only the filters that are set make it into the SQL, so each page is a single index range scan
+        StringBuilder sql = new StringBuilder(
+                "SELECT id, full_name, email, role_id, organization_name, created_at FROM users WHERE deleted_at IS NULL");
+        List<Object> params = new ArrayList<>();
+        if (query.getBeforeId() != null) {
+            sql.append(" AND id < ?");
+            params.add(query.getBeforeId());
+        }
+        if (query.getOrganizationName() != null) {
+            sql.append(" AND organization_name = ?");
+            params.add(query.getOrganizationName());
+        }
+        if (query.getRoleId() != null) {
+            sql.append(" AND role_id = ?");
+            params.add(query.getRoleId());
+        }
+        if (query.getEmailPrefix() != null) {
+            sql.append(" AND lower(email) LIKE ?");
+            params.add(escapeLike(query.getEmailPrefix().toLowerCase()) + "%");
+        }
+        if (query.getSearch() != null) {
+            sql.append(" AND (lower(email) LIKE ? OR lower(full_name) LIKE ?)");
+            String pattern = "%" + escapeLike(query.getSearch().toLowerCase()) + "%";
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (query.getCreatedAfter() != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(query.getCreatedAfter());
+        }
+        if (query.getCreatedBefore() != null) {
+            sql.append(" AND created_at < ?");
+            params.add(query.getCreatedBefore());
+        }
+        sql.append(" ORDER BY id DESC LIMIT ?");
+        params.add(query.getLimit());
+
+        // Every shard returns its own first page; the global page is the top of their merge, and the
+        // id cursor works the same on every shard
+        List<User> users = UserShards.scatter(shard -> {
+            List<User> page = new ArrayList<>();
+            DbNode node = DBConnection.forRead(shard, null);
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        page.add(mapResultSetToUser(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                node.markFailed();
+                EventLog.error("UserDaoImpl.search", e);
+                throw new DataAccessException("UserDaoImpl.search", e);
+            }
+            return page;
+        });
+        users.sort(Comparator.comparingLong(User::getId).reversed());
+        return users.size() > query.getLimit() ? new ArrayList<>(users.subList(0, query.getLimit())) : users;
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        long stamp = UserCache.stamp();
+        List<User> users = new ArrayList<>(ids.size());
+        Map<Integer, List<Long>> misses = new HashMap<>();
+        for (Long id : ids) {
+            Optional<User> cached = UserCache.getById(id);
+            if (cached.isPresent()) {
+                users.add(cached.get());
+            } else {
+                misses.computeIfAbsent(UserShards.shardOf(id), shard -> new ArrayList<>()).add(id);
+            }
+        }
+        misses.forEach((shard, shardIds) -> {
+            // One recently written user is enough to send the shard's lookup to its primary
+            boolean pinned = shardIds.stream().anyMatch(ReadYourWrites::isPinned);
+            DbNode node = pinned ? DBConnection.shard(shard) : DBConnection.forRead(shard, null);
+            users.addAll(findMany(node, "id = ANY(?)", "bigint", shardIds.toArray(), stamp, "UserDaoImpl.findByIds"));
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        List<User> users = new ArrayList<>(emails.size());
+        long stamp = UserCache.stamp();
+        List<String> misses = new ArrayList<>();
+        for (String email : emails) {
+            Optional<User> cached = UserCache.getByEmail(email);
+            if (cached.isPresent()) {
+                users.add(cached.get());
+            } else {
+                misses.add(email);
+            }
+        }
+        for (Account account : findAccounts(misses, false, "UserDaoImpl.findByEmails")) {
+            UserCache.put(account.getUser(), stamp);
+            users.add(account.getUser());
+        }
+        return users;
+    }
+
+    /**
+     * Looks emails up in the directory on their shards. Users living elsewhere are read from their own shard in a
+     * second round; entries for deleted users or emails a user no longer has are skipped.
+     */
+    private List<Account> findAccounts(Collection<String> emails, boolean primary, String source) {
+        Map<Integer, List<String>> byShard = new HashMap<>();
+        for (String email : emails) {
+            String normalized = UserShards.normalize(email);
+            byShard.computeIfAbsent(UserShards.shardOfEmail(normalized), shard -> new ArrayList<>()).add(normalized);
+        }
+
+        List<Account> accounts = new ArrayList<>(emails.size());
+        Map<Long, String> elsewhere = new HashMap<>();
+        byShard.forEach((shard, keys) -> {
+            DbNode node = primary ? DBConnection.shard(shard) : DBConnection.forRead(shard, null);
+            try (Connection conn = node.connection()) {
+                try (PreparedStatement stmt = conn.prepareStatement(BY_EMAILS)) {
+                    stmt.setArray(1, conn.createArrayOf("varchar", keys.toArray()));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            String claimed = rs.getString("claimed_email");
+                            rs.getLong("id");
+                            if (rs.wasNull()) {
+                                elsewhere.put(rs.getLong("claimed_id"), claimed);
+                            } else {
+                                addIfCurrent(accounts, rs, claimed);
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                node.markFailed();
+                EventLog.error(source, e);
+                throw new DataAccessException(source, e);
+            }
+        });
+
+        Map<Integer, List<Long>> elsewhereByShard = new HashMap<>();
+        elsewhere.keySet().forEach(id -> elsewhereByShard.computeIfAbsent(UserShards.shardOf(id), shard -> new ArrayList<>()).add(id));
+        elsewhereByShard.forEach((shard, ids) -> {
+            DbNode node = primary ? DBConnection.shard(shard) : DBConnection.forRead(shard, null);
+            try (Connection conn = node.connection()) {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM users WHERE id = ANY(?)")) {
+                    stmt.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            addIfCurrent(accounts, rs, elsewhere.get(rs.getLong("id")));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                node.markFailed();
+                EventLog.error(source, e);
+                throw new DataAccessException(source, e);
+            }
+        });
+        return accounts;
+    }
+
+    private void addIfCurrent(List<Account> accounts, ResultSet rs, String claimedEmail) throws SQLException {
+        if (rs.getTimestamp("deleted_at") == null && claimedEmail.equals(UserShards.normalize(rs.getString("email")))) {
+            accounts.add(new Account(mapResultSetToUser(rs), rs.getString("hashed_password")));
+        }
+    }
+
+    /**
+     * Cache misses of a bulk lookup in one array-bound query, so the plan is the same for 1 key or 5000.
+     */
+    private List<User> findMany(DbNode node, String predicate, String elementType, Object[] keys, long stamp,
+                                String source) {
+        String sql = "SELECT id, full_name, email, role_id, organization_name, created_at FROM users "
+                + "WHERE deleted_at IS NULL AND " + predicate;
+        List<User> users = new ArrayList<>(keys.length);
+        try (Connection conn = node.connection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setArray(1, conn.createArrayOf(elementType, keys));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        User user = mapResultSetToUser(rs);
+                        UserCache.put(user, stamp);
+                        users.add(user);
+                    }
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            node.markFailed();
+            EventLog.error(source, e);
+            throw new DataAccessException(source, e);
         }
         return users;
     }
 
+    @Override
+    public List<User> findAll() {
+        String sql = "SELECT * FROM users WHERE deleted_at IS NULL";
+        return UserShards.scatter(shard -> {
+            List<User> users = new ArrayList<>();
+            DbNode node = DBConnection.forRead(shard, null);
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    users.add(mapResultSetToUser(rs));
+                }
+            } catch (SQLException e) {
+                node.markFailed();
+                EventLog.error("UserDaoImpl.findAll", e);
+                throw new DataAccessException("UserDaoImpl.findAll", e);
+            }
+            return users;
+        });
+    }
+
     @Override
     public Optional<User> findById(Long id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        Optional<User> cached = UserCache.getById(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
+        long stamp = UserCache.stamp();
+        String sql = "SELECT * FROM users WHERE id = ? AND deleted_at IS NULL";
+        DbNode node = UserShards.forRead(id);
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                return Optional.of(mapResultSetToUser(rs));
+                User user = mapResultSetToUser(rs);
+                UserCache.put(user, stamp);
+                return Optional.of(user);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            node.markFailed();
+            EventLog.error("UserDaoImpl.findById", e);
+            throw new DataAccessException("UserDaoImpl.findById", e);
         }
         return Optional.empty();
     }
@@ -198,29 +494,164 @@ public class UserDaoImpl implements IUserDao {
 
     @Override
     public boolean update(Long id, User user) {
-        String sql = "UPDATE users SET full_name = ?, email = ?, organization_name = ? WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, user.getFullName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getOrganizationName());
-            stmt.setLong(4, id);
-            return stmt.executeUpdate() > 0;
+        String sql = withOutbox("UPDATE users SET full_name = ?, email = ?, organization_name = ? WHERE id = ? AND deleted_at IS NULL "
+                        + "RETURNING id, full_name, email, role_id, organization_name",
+                USER_JSON + ")");
+        String email = UserShards.normalize(user.getEmail());
+        DbNode node = UserShards.primaryFor(id);
+        try {
+            String previous;
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT email FROM users WHERE id = ? AND deleted_at IS NULL")) {
+                stmt.setLong(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    previous = UserShards.normalize(rs.getString("email"));
+                }
+            }
+
+            // A new email is claimed first, possibly on another shard, so two users can never end up sharing it
+            boolean changed = !previous.equals(email);
+            if (changed && !claimEmail(email, id)) {
+                return false;
+            }
+            boolean updated = false;
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, user.getFullName());
+                stmt.setString(2, user.getEmail());
+                stmt.setString(3, user.getOrganizationName());
+                stmt.setLong(4, id);
+                stmt.setString(5, OutboxEvent.UPDATED);
+                updated = stmt.executeUpdate() > 0;
+            } finally {
+                if (changed) {
+                    releaseClaim(updated ? previous : email, id);
+                }
+            }
+            if (updated) {
+                ClusterInvalidation.userUpdated(id);
+                return true;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            EventLog.error("UserDaoImpl.update", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("UserDaoImpl.update", e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Points the email's directory entry at the user; false when another user holds it.
+     */
+    private boolean claimEmail(String email, long userId) throws SQLException {
+        String sql = "INSERT INTO user_emails (email, bucket, user_id) VALUES (?, ?, ?) "
+                + "ON CONFLICT (email) DO UPDATE SET user_id = EXCLUDED.user_id WHERE user_emails.user_id = EXCLUDED.user_id";
+        DbNode node = DBConnection.shard(UserShards.shardOfEmail(email));
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try (Connection conn = node.connection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, email);
+                stmt.setInt(2, UserShards.bucketOf(email));
+                stmt.setLong(3, userId);
+                if (stmt.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+            if (!releaseStaleClaim(email)) {
+                return false;
+            }
         }
         return false;
     }
 
+    private void releaseClaim(String email, long userId) throws SQLException {
+        try (Connection conn = DBConnection.shard(UserShards.shardOfEmail(email)).connection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM user_emails WHERE email = ? AND user_id = ?")) {
+            stmt.setString(1, email);
+            stmt.setLong(2, userId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Drops a directory entry whose user is gone or no longer has the email, as an email change that failed
+     * halfway leaves behind; true when one was dropped.
+     */
+    private boolean releaseStaleClaim(String email) throws SQLException {
+        DbNode node = DBConnection.shard(UserShards.shardOfEmail(email));
+        long owner;
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT user_id FROM user_emails WHERE email = ? AND created_at < now() - " + STALE_CLAIM_AGE)) {
+            stmt.setString(1, email);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                owner = rs.getLong("user_id");
+            }
+        }
+        try (Connection conn = UserShards.primaryFor(owner).connection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT email FROM users WHERE id = ?")) {
+            stmt.setLong(1, owner);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && UserShards.normalize(rs.getString("email")).equals(email)) {
+                    return false;
+                }
+            }
+        }
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM user_emails WHERE email = ? AND user_id = ?")) {
+            stmt.setString(1, email);
+            stmt.setLong(2, owner);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
     @Override
     public boolean delete(Long id) {
-        String sql = "DELETE FROM users WHERE id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        // Marks the user deleted and queues the job that removes the rows; UserDeletionWorker does the rest
+        String sql = "WITH u AS (UPDATE users SET deleted_at = CURRENT_TIMESTAMP WHERE id = ? AND deleted_at IS NULL "
+                + "RETURNING id, email), "
+                + "job AS (INSERT INTO user_deletion_jobs (user_id) SELECT id FROM u) "
+                + "INSERT INTO user_outbox (event_type, user_id, payload) "
+                + "SELECT ?, id, jsonb_build_object('id', id, 'email', email) FROM u";
+        try (Connection conn = UserShards.primaryFor(id).connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, id);
-            return stmt.executeUpdate() > 0;
+            stmt.setString(2, OutboxEvent.DELETED);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            EventLog.error("UserDaoImpl.delete", e);
+            if (!DataAccessException.isConstraintViolation(e)) {
+                throw new DataAccessException("UserDaoImpl.delete", e);
+            }
+            return false;
         }
-        return false;
+        deviceDetector.forget(id);
+        ClusterInvalidation.userDeleted(id);
+        return true;
+    }
+
+    /**
+     * Wraps a write returning the affected rows so the same statement records one outbox event per row.
+     * The event commits or rolls back with the write; the event type is the parameter after the write's own.
+     */
+    private static String withOutbox(String write, String data) {
+        return "WITH u AS (" + write + ") INSERT INTO user_outbox (event_type, user_id, payload) SELECT ?, id, "
+                + data + " FROM u";
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     private User mapResultSetToUser(ResultSet rs) throws SQLException {
@@ -230,8 +661,10 @@ public class UserDaoImpl implements IUserDao {
                 .email(rs.getString("email"))
                 .role(rs.getInt("role_id"))
                 .organizationName(rs.getString("organization_name"))
+                .createdAt(rs.getTimestamp("created_at"))
                 .build();
         return user;
     }
+
 }
 
@@ -0,0 +1,282 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.cluster.ClusterInvalidation;
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.model.DeletionJob;
+import io.helidon.config.Config;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Works through user_deletion_jobs. Instead of letting one DELETE cascade over every dependent row, each step
+ * removes a dependent table's rows in small batches walked in index order, pausing between batches, and the
+ * users row goes last when nothing references it any more. Every batch is its own short transaction, so
+ * concurrent traffic only ever waits on a few hundred row locks.
+ * <p>
+ * A job is leased to one replica at a time and resumes at its first unfinished step after a crash.
+ * <p>
+ * Jobs and the users row live on the user's shard; the dependent tables are all on the primary.
+ */
+public class UserDeletionWorker {
+
+    private static final Logger LOGGER = Logger.getLogger(UserDeletionWorker.class.getName());
+
+    private static final Timestamp LATEST = Timestamp.valueOf("9999-12-31 00:00:00");
+    private static final Date LATEST_DAY = Date.valueOf("9999-12-31");
+    private static final String OWN_DOCUMENTS = "document_id IN (SELECT id FROM documents WHERE uploaded_by = ?)";
+
+    // Children before parents: a user's documents are emptied before they are deleted
+    private static final List<Step> STEPS = List.of(
+            new Step("login_history", "login_history", "user_id = ?", "login_at", true, LATEST, null),
+            new Step("login_daily_rollups", "login_daily_rollups", "user_id = ?", "day", true, LATEST_DAY, null),
+            new Step("device_sketches", "device_sketches", "user_id = ?", "user_id", false, 0L, null),
+            new Step("login_analytics_users", "login_analytics_users", "user_id = ?", "user_id", false, 0L, null),
+            new Step("document_actions", "document_actions", "user_id = ?", "id", false, 0L, null),
+            new Step("document_signatures", "document_signatures", "user_id = ?", "id", false, 0L, null),
+            new Step("document_shares", "document_shares", "shared_by = ?", "id", false, 0L, null),
+            new Step("document_actions.documents", "document_actions", OWN_DOCUMENTS, "id", false, 0L, null),
+            new Step("document_signatures.documents", "document_signatures", OWN_DOCUMENTS, "id", false, 0L, null),
+            new Step("document_shares.documents", "document_shares", OWN_DOCUMENTS, "id", false, 0L, null),
+            new Step("document_verification.documents", "document_verification", OWN_DOCUMENTS, "id", false, 0L, null),
+            new Step("documents", "documents", "uploaded_by = ?", "id", false, 0L, null),
+            new Step("document_shares.shared_with_user", "document_shares", "shared_with_user = ?", "id", false, 0L,
+                    "shared_with_user"),
+            new Step("document_verification.verified_by", "document_verification", "verified_by = ?", "id", false, 0L,
+                    "verified_by"),
+            new Step("user_keys", "user_keys", "user_id = ?", "id", false, 0L, null));
+
+    /**
+     * Steps reported by the job status, including the final removal of the users row.
+     */
+    public static final int STEP_COUNT = STEPS.size() + 1;
+
+    private static final boolean ENABLED;
+    private static final long INTERVAL_SECONDS;
+    private static final int BATCH_SIZE;
+    private static final long THROTTLE_MS;
+    private static final long LEASE_SECONDS;
+
+    private static final LongAdder ROWS = Metrics.counter("auth_user_deletion_rows_total");
+    private static final LongAdder COMPLETED = Metrics.counter("auth_user_deletion_jobs_completed_total");
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config deletion = Config.create().get("user-deletion");
+        ENABLED = deletion.get("enabled").asBoolean().orElse(true);
+        INTERVAL_SECONDS = deletion.get("poll-interval-seconds").asLong().orElse(5L);
+        BATCH_SIZE = deletion.get("batch-size").asInt().orElse(500);
+        THROTTLE_MS = deletion.get("throttle-ms").asLong().orElse(100L);
+        LEASE_SECONDS = deletion.get("lease-seconds").asLong().orElse(60L);
+    }
+
+    private UserDeletionWorker() {
+    }
+
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        if (!ENABLED) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("user-deletion-worker")
+                .factory());
+        scheduler.scheduleWithFixedDelay(UserDeletionWorker::runOnce, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    static void runOnce() {
+        for (int shard = 0; shard < DBConnection.shardCount(); shard++) {
+            try {
+                DbNode node = DBConnection.shard(shard);
+                long[] job;
+                while ((job = claim(node)) != null) {
+                    run(node, job[0], (int) job[1]);
+                }
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "User deletion round failed on shard " + shard, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs a job claimed on {@code node}, the user's shard. Connections are borrowed per batch, never held across
+     * the throttle pause.
+     */
+    private static void run(DbNode node, long userId, int firstStep) throws SQLException, InterruptedException {
+        try {
+            for (int i = firstStep; i < STEPS.size(); i++) {
+                Step step = STEPS.get(i);
+                String sql = step.sql();
+                Object cursor = step.start();
+                boolean stepDone;
+                do {
+                    long changed;
+                    try (Connection data = DBConnection.getConnection();
+                         PreparedStatement stmt = data.prepareStatement(sql)) {
+                        stmt.setLong(1, userId);
+                        stmt.setObject(2, cursor);
+                        stmt.setInt(3, BATCH_SIZE);
+                        stmt.setLong(4, userId);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            rs.next();
+                            changed = rs.getLong(1);
+                            cursor = rs.getObject(2);
+                        }
+                    }
+                    ROWS.add(changed);
+                    // A short batch means nothing is left past the cursor
+                    stepDone = changed < BATCH_SIZE;
+                    if (!progress(node, userId, step.name(), stepDone ? i + 1 : i, changed)) {
+                        LOGGER.info("Lost the lease on deletion of user " + userId + ", leaving it to the new owner");
+                        return;
+                    }
+                    if (!stepDone) {
+                        Thread.sleep(THROTTLE_MS);
+                    }
+                } while (!stepDone);
+            }
+            finish(node, userId);
+            // login_analytics_users is gone now; have every replica drop what it still holds in memory
+            ClusterInvalidation.userDeleted(userId);
+            COMPLETED.increment();
+            LOGGER.info("Deleted user " + userId);
+        } catch (SQLException e) {
+            recordError(node, userId, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Leases the oldest open job that nobody else holds, returning {user id, first unfinished step}.
+     */
+    private static long[] claim(DbNode node) throws SQLException {
+        String sql = "UPDATE user_deletion_jobs SET state = ?, lease_owner = ?, "
+                + "lease_until = now() + make_interval(secs => ?), updated_at = now() "
+                + "WHERE user_id = (SELECT user_id FROM user_deletion_jobs WHERE state <> ? "
+                + "AND (lease_until IS NULL OR lease_until < now() OR lease_owner = ?) "
+                + "ORDER BY requested_at LIMIT 1 FOR UPDATE SKIP LOCKED) "
+                + "RETURNING user_id, step_index";
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, DeletionJob.RUNNING);
+            stmt.setString(2, ClusterInvalidation.nodeId());
+            stmt.setLong(3, LEASE_SECONDS);
+            stmt.setString(4, DeletionJob.DONE);
+            stmt.setString(5, ClusterInvalidation.nodeId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? new long[]{rs.getLong("user_id"), rs.getInt("step_index")} : null;
+            }
+        }
+    }
+
+    /**
+     * Records a batch and renews the lease; false when another replica has taken the job over.
+     */
+    private static boolean progress(DbNode node, long userId, String step, int stepIndex, long changed)
+            throws SQLException {
+        String sql = "UPDATE user_deletion_jobs SET step = ?, step_index = ?, rows_deleted = rows_deleted + ?, "
+                + "lease_until = now() + make_interval(secs => ?), updated_at = now() "
+                + "WHERE user_id = ? AND lease_owner = ?";
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, step);
+            stmt.setInt(2, stepIndex);
+            stmt.setLong(3, changed);
+            stmt.setLong(4, LEASE_SECONDS);
+            stmt.setLong(5, userId);
+            stmt.setString(6, ClusterInvalidation.nodeId());
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Removes the users row, now unreferenced, and closes the job in the same statement; then frees the email,
+     * whose directory entry may be on another shard.
+     */
+    private static void finish(DbNode node, long userId) throws SQLException {
+        String email = null;
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT email FROM users WHERE id = ?")) {
+            stmt.setLong(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    email = UserShards.normalize(rs.getString("email"));
+                }
+            }
+        }
+        String sql = "WITH gone AS (DELETE FROM users WHERE id = ? AND deleted_at IS NOT NULL RETURNING id) "
+                + "UPDATE user_deletion_jobs SET state = ?, step = 'users', step_index = ?, "
+                + "rows_deleted = rows_deleted + (SELECT count(*) FROM gone), finished_at = now(), updated_at = now(), "
+                + "lease_owner = NULL, lease_until = NULL WHERE user_id = ? AND lease_owner = ?";
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, userId);
+            stmt.setString(2, DeletionJob.DONE);
+            stmt.setInt(3, STEP_COUNT);
+            stmt.setLong(4, userId);
+            stmt.setString(5, ClusterInvalidation.nodeId());
+            stmt.executeUpdate();
+        }
+        if (email != null) {
+            try (Connection directory = DBConnection.shard(UserShards.shardOfEmail(email)).connection();
+                 PreparedStatement stmt = directory.prepareStatement("DELETE FROM user_emails WHERE email = ? AND user_id = ?")) {
+                stmt.setString(1, email);
+                stmt.setLong(2, userId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void recordError(DbNode node, long userId, SQLException error) {
+        try (Connection conn = node.connection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE user_deletion_jobs SET last_error = ?, updated_at = now() WHERE user_id = ?")) {
+            stmt.setString(1, error.getMessage());
+            stmt.setLong(2, userId);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Could not record deletion error for user " + userId, e);
+        }
+    }
+
+    /**
+     * One dependent table, filtered to the user and walked along {@code key}. With {@code detachColumn} set the
+     * rows are kept and only their reference to the user is cleared, as ON DELETE SET NULL would.
+     */
+    private record Step(String name, String table, String filter, String key, boolean descending, Object start,
+                        String detachColumn) {
+
+        /**
+         * One batch: parameters are user id, cursor, batch size, user id; returns the rows changed and the
+         * cursor for the next batch. The cursor is inclusive, which is safe because changed rows stop matching.
+         */
+        String sql() {
+            String batch = "SELECT " + key + " FROM " + table + " WHERE " + filter + " AND " + key
+                    + (descending ? " <= ?" : " >= ?") + " ORDER BY " + key + (descending ? " DESC" : "") + " LIMIT ?";
+            String change = detachColumn == null
+                    ? "DELETE FROM " + table
+                    : "UPDATE " + table + " SET " + detachColumn + " = NULL";
+            return "WITH batch AS (" + batch + "), done AS (" + change + " WHERE " + filter + " AND " + key
+                    + " IN (SELECT " + key + " FROM batch) RETURNING " + key + ") "
+                    + "SELECT count(*), " + (descending ? "min(" : "max(") + key + ") FROM done";
+        }
+    }
+}
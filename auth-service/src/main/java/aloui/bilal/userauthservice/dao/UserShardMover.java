@@ -0,0 +1,508 @@
+package aloui.bilal.userauthservice.dao;
+
+import aloui.bilal.userauthservice.cluster.ClusterInvalidation;
+import io.helidon.config.Config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves user buckets between shards while the service keeps running.
+ * <p>
+ * Usage: {@code UserShardMover status | prepare <shard> | move <bucket> <shard> | rebalance}
+ * <p>
+ * A move copies the bucket's users, directory entries and deletion jobs to the target in batches, then fences
+ * the bucket on the source: a trigger there rejects writes to it from then on, after waiting out the ones in
+ * flight. The bucket is copied again to catch what changed meanwhile, its pending outbox events are carried
+ * over, and user_shard_buckets is switched, which every replica hears about through LISTEN/NOTIFY. Once the
+ * grace period for stragglers is over the source rows are deleted; the fence stays and keeps rejecting writes
+ * from a replica with an old map. Reads are served throughout; writes to the bucket fail for the length of
+ * the second copy, about 1/{@value UserShards#BUCKETS} of the source's users.
+ */
+public final class UserShardMover {
+
+    // Must match the class key taken in user_bucket_fence() in the schema
+    private static final int FENCE_LOCK = 0x5553_4844;
+
+    private static final String USER_COLUMNS = "id, full_name, email, hashed_password, role_id, organization_name, "
+            + "created_at, updated_at, deleted_at, tokens_valid_after";
+    private static final String JOB_COLUMNS = "user_id, state, step, step_index, rows_deleted, requested_at, "
+            + "updated_at, finished_at, lease_owner, lease_until, last_error";
+    private static final String IN_BUCKET = "id % " + UserShards.BUCKETS + " = ?";
+
+    private static final int BATCH_SIZE;
+    private static final long GRACE_SECONDS;
+
+    static {
+        Config config = Config.create().get("db");
+        BATCH_SIZE = config.get("shard-mover.batch-size").asInt().orElse(500);
+        // Long enough for replicas that missed the notification to reload the map on their timer
+        GRACE_SECONDS = config.get("shard-mover.grace-seconds")
+                .asLong().orElse(config.get("shard-map-refresh-seconds").asLong().orElse(30L) + 5);
+    }
+
+    private UserShardMover() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        UserShards.start();
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "status" -> status();
+            case "prepare" -> {
+                requireArgs(args, 2);
+                prepare(shardArg(args[1]));
+            }
+            case "move" -> {
+                requireArgs(args, 3);
+                int bucket = Integer.parseInt(args[1]);
+                if (bucket < 0 || bucket >= UserShards.BUCKETS) {
+                    throw new IllegalArgumentException("Bucket must be between 0 and " + (UserShards.BUCKETS - 1));
+                }
+                move(bucket, shardArg(args[2]));
+            }
+            case "rebalance" -> rebalance();
+            default -> usage();
+        }
+        System.exit(0);
+    }
+
+    private static void requireArgs(String[] args, int count) {
+        if (args.length != count) {
+            usage();
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: UserShardMover status | prepare <shard> | move <bucket> <shard> | rebalance");
+        System.exit(2);
+    }
+
+    private static int shardArg(String value) {
+        int shard = Integer.parseInt(value);
+        if (shard < 0 || shard >= UserShards.count()) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + (UserShards.count() - 1));
+        }
+        return shard;
+    }
+
+    private static void status() throws SQLException {
+        int[] buckets = new int[UserShards.count()];
+        for (int bucket = 0; bucket < UserShards.BUCKETS; bucket++) {
+            buckets[UserShards.shardOfBucket(bucket)]++;
+        }
+        for (int shard = 0; shard < UserShards.count(); shard++) {
+            try (Connection conn = DBConnection.shard(shard).connection()) {
+                System.out.printf("%-10s buckets=%-5d users=%-10d emails=%-10d fenced=%d%n",
+                        DBConnection.shard(shard).getName(), buckets[shard],
+                        count(conn, "SELECT count(*) FROM users"),
+                        count(conn, "SELECT count(*) FROM user_emails"),
+                        count(conn, "SELECT count(*) FROM user_bucket_fences"));
+            }
+        }
+    }
+
+    /**
+     * Readies a shard: drops the foreign keys that point at users, interleaves its outbox ids with the other
+     * shards' and adds directory entries for users that predate the directory. Safe to run again.
+     */
+    static void prepare(int shard) throws SQLException {
+        try (Connection conn = DBConnection.shard(shard).openSession()) {
+            prepare(conn, shard);
+        }
+    }
+
+    private static void prepare(Connection conn, int shard) throws SQLException {
+        // Users will live on other shards too; the deletion job removes rows that used to cascade
+        List<String> constraints = UserShards.foreignKeysToUsers(conn);
+        try (Statement stmt = conn.createStatement()) {
+            for (String constraint : constraints) {
+                int dot = constraint.lastIndexOf('.');
+                stmt.execute("ALTER TABLE " + constraint.substring(0, dot) + " DROP CONSTRAINT " + constraint.substring(dot + 1));
+            }
+            stmt.execute("ALTER SEQUENCE user_outbox_id_seq INCREMENT BY " + UserShards.MAX_SHARDS);
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT setval('user_outbox_id_seq', "
+                + "(GREATEST((SELECT last_value FROM user_outbox_id_seq), (SELECT COALESCE(max(id), 0) FROM user_outbox)) "
+                + "/ ? + 1) * ? + ?, false)")) {
+            stmt.setInt(1, UserShards.MAX_SHARDS);
+            stmt.setInt(2, UserShards.MAX_SHARDS);
+            stmt.setInt(3, shard);
+            stmt.execute();
+        }
+
+        long added = 0;
+        long after = Long.MIN_VALUE;
+        while (true) {
+            List<Long> ids = new ArrayList<>();
+            List<String> emails = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, email FROM users WHERE id > ? ORDER BY id LIMIT ?")) {
+                stmt.setLong(1, after);
+                stmt.setInt(2, BATCH_SIZE);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong("id"));
+                        emails.add(UserShards.normalize(rs.getString("email")));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                String email = emails.get(i);
+                try (Connection directory = DBConnection.shard(UserShards.shardOfEmail(email)).connection();
+                     PreparedStatement stmt = directory.prepareStatement(
+                             "INSERT INTO user_emails (email, bucket, user_id) VALUES (?, ?, ?) ON CONFLICT (email) DO NOTHING")) {
+                    stmt.setString(1, email);
+                    stmt.setInt(2, UserShards.bucketOf(email));
+                    stmt.setLong(3, ids.get(i));
+                    added += stmt.executeUpdate();
+                }
+            }
+            after = ids.get(ids.size() - 1);
+        }
+        System.out.printf("Prepared %s: %d foreign keys to users dropped, %d directory entries added%n",
+                DBConnection.shard(shard).getName(), constraints.size(), added);
+    }
+
+    /**
+     * Moves buckets off the fullest shards until every shard holds its share.
+     */
+    static void rebalance() throws SQLException, InterruptedException {
+        int shards = UserShards.count();
+        List<List<Integer>> owned = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            owned.add(new ArrayList<>());
+        }
+        for (int bucket = 0; bucket < UserShards.BUCKETS; bucket++) {
+            owned.get(UserShards.shardOfBucket(bucket)).add(bucket);
+        }
+        for (int target = 0; target < shards; target++) {
+            int share = UserShards.BUCKETS / shards + (target < UserShards.BUCKETS % shards ? 1 : 0);
+            while (owned.get(target).size() < share) {
+                int source = fullest(owned, shards);
+                int bucket = owned.get(source).remove(owned.get(source).size() - 1);
+                move(bucket, target);
+                owned.get(target).add(bucket);
+            }
+        }
+    }
+
+    private static int fullest(List<List<Integer>> owned, int shards) {
+        int fullest = 0;
+        for (int shard = 1; shard < shards; shard++) {
+            if (owned.get(shard).size() > owned.get(fullest).size()) {
+                fullest = shard;
+            }
+        }
+        return fullest;
+    }
+
+    static void move(int bucket, int target) throws SQLException, InterruptedException {
+        int source = UserShards.shardOfBucket(bucket);
+        if (source == target) {
+            System.out.printf("Bucket %d is already on shard %d%n", bucket, target);
+            return;
+        }
+        requireDetachedForeignKeys();
+        long started = System.nanoTime();
+        try (Connection src = DBConnection.shard(source).openSession();
+             Connection dst = DBConnection.shard(target).openSession()) {
+            disableTimeout(src);
+            disableTimeout(dst);
+            // Left behind when the bucket last moved away from the target
+            try (PreparedStatement stmt = dst.prepareStatement("DELETE FROM user_bucket_fences WHERE bucket = ?")) {
+                stmt.setInt(1, bucket);
+                stmt.executeUpdate();
+            }
+
+            copy(src, dst, bucket);
+            long fencedAt = System.nanoTime();
+            fence(src, bucket, target);
+
+            // Nothing changes on the source any more; bring the target up to date
+            List<Long> ids = copy(src, dst, bucket);
+            pruneUsers(dst, bucket, ids);
+            pruneEmails(src, dst, bucket);
+            copyDeletionJobs(src, dst, bucket);
+            moveOutbox(src, dst, bucket);
+            advanceIds(src, dst);
+
+            try (Connection conn = DBConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "INSERT INTO user_shard_buckets (bucket, shard, moved_at) VALUES (?, ?, now()) "
+                                 + "ON CONFLICT (bucket) DO UPDATE SET shard = EXCLUDED.shard, moved_at = EXCLUDED.moved_at")) {
+                stmt.setInt(1, bucket);
+                stmt.setInt(2, target);
+                stmt.executeUpdate();
+            }
+            ClusterInvalidation.shardMapChanged(bucket);
+            long fencedMs = (System.nanoTime() - fencedAt) / 1_000_000;
+
+            Thread.sleep(GRACE_SECONDS * 1000);
+            purge(src, bucket);
+            System.out.printf("Moved bucket %d (%d users) from shard %d to shard %d in %d ms, writes fenced for %d ms%n",
+                    bucket, ids.size(), source, target, (System.nanoTime() - started) / 1_000_000, fencedMs);
+        }
+    }
+
+    /**
+     * Tables on the primary that reference users would cascade deletes of moved rows into history that stays put,
+     * and reject rows for users on other shards; {@link #prepare(int)} drops their foreign keys.
+     */
+    private static void requireDetachedForeignKeys() throws SQLException {
+        List<String> constraints;
+        try (Connection conn = DBConnection.getConnection()) {
+            constraints = UserShards.foreignKeysToUsers(conn);
+        }
+        if (!constraints.isEmpty()) {
+            throw new IllegalStateException("Run prepare 0 before moving buckets; foreign keys still reference users: "
+                    + String.join(", ", constraints));
+        }
+    }
+
+    /**
+     * Upserts the bucket's users and directory entries on the target; returns the ids of the users copied.
+     */
+    private static List<Long> copy(Connection src, Connection dst, int bucket) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        String upsertUser = "INSERT INTO users (" + USER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT (id) DO UPDATE SET full_name = EXCLUDED.full_name, email = EXCLUDED.email, "
+                + "hashed_password = EXCLUDED.hashed_password, role_id = EXCLUDED.role_id, "
+                + "organization_name = EXCLUDED.organization_name, created_at = EXCLUDED.created_at, "
+                + "updated_at = EXCLUDED.updated_at, deleted_at = EXCLUDED.deleted_at, "
+                + "tokens_valid_after = EXCLUDED.tokens_valid_after";
+        long after = Long.MIN_VALUE;
+        int read;
+        do {
+            read = 0;
+            try (PreparedStatement select = src.prepareStatement("SELECT " + USER_COLUMNS + " FROM users WHERE "
+                    + IN_BUCKET + " AND id > ? ORDER BY id LIMIT ?");
+                 PreparedStatement upsert = dst.prepareStatement(upsertUser)) {
+                select.setInt(1, bucket);
+                select.setLong(2, after);
+                select.setInt(3, BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= 10; i++) {
+                            upsert.setObject(i, rs.getObject(i));
+                        }
+                        upsert.addBatch();
+                        after = rs.getLong("id");
+                        ids.add(after);
+                        read++;
+                    }
+                }
+                if (read > 0) {
+                    upsert.executeBatch();
+                }
+            }
+        } while (read == BATCH_SIZE);
+
+        String lastEmail = "";
+        do {
+            read = 0;
+            try (PreparedStatement select = src.prepareStatement("SELECT email, bucket, user_id, created_at "
+                    + "FROM user_emails WHERE bucket = ? AND email > ? ORDER BY email LIMIT ?");
+                 PreparedStatement upsert = dst.prepareStatement("INSERT INTO user_emails (email, bucket, user_id, created_at) "
+                         + "VALUES (?, ?, ?, ?) ON CONFLICT (email) DO UPDATE SET user_id = EXCLUDED.user_id, "
+                         + "created_at = EXCLUDED.created_at")) {
+                select.setInt(1, bucket);
+                select.setString(2, lastEmail);
+                select.setInt(3, BATCH_SIZE);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= 4; i++) {
+                            upsert.setObject(i, rs.getObject(i));
+                        }
+                        upsert.addBatch();
+                        lastEmail = rs.getString("email");
+                        read++;
+                    }
+                }
+                if (read > 0) {
+                    upsert.executeBatch();
+                }
+            }
+        } while (read == BATCH_SIZE);
+        return ids;
+    }
+
+    /**
+     * Waits for writes to the bucket in flight on the source, then makes its trigger reject new ones.
+     */
+    private static void fence(Connection src, int bucket, int target) throws SQLException {
+        lock(src, "pg_advisory_lock", bucket);
+        try (PreparedStatement stmt = src.prepareStatement("INSERT INTO user_bucket_fences (bucket, moving_to) "
+                + "VALUES (?, ?) ON CONFLICT (bucket) DO UPDATE SET moving_to = EXCLUDED.moving_to, created_at = now()")) {
+            stmt.setInt(1, bucket);
+            stmt.setInt(2, target);
+            stmt.executeUpdate();
+        } finally {
+            lock(src, "pg_advisory_unlock", bucket);
+        }
+    }
+
+    private static void lock(Connection conn, String function, int bucket) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT " + function + "(?, ?)")) {
+            stmt.setInt(1, FENCE_LOCK);
+            stmt.setInt(2, bucket);
+            stmt.execute();
+        }
+    }
+
+    // Users deleted on the source after the first copy
+    private static void pruneUsers(Connection dst, int bucket, List<Long> ids) throws SQLException {
+        try (PreparedStatement stmt = dst.prepareStatement(
+                "DELETE FROM users WHERE " + IN_BUCKET + " AND NOT (id = ANY(?))")) {
+            stmt.setInt(1, bucket);
+            stmt.setArray(2, dst.createArrayOf("bigint", ids.toArray()));
+            stmt.executeUpdate();
+        }
+    }
+
+    // Directory entries released on the source after the first copy
+    private static void pruneEmails(Connection src, Connection dst, int bucket) throws SQLException {
+        List<String> emails = new ArrayList<>();
+        try (PreparedStatement stmt = src.prepareStatement("SELECT email FROM user_emails WHERE bucket = ?")) {
+            stmt.setInt(1, bucket);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    emails.add(rs.getString("email"));
+                }
+            }
+        }
+        try (PreparedStatement stmt = dst.prepareStatement(
+                "DELETE FROM user_emails WHERE bucket = ? AND NOT (email = ANY(?))")) {
+            stmt.setInt(1, bucket);
+            stmt.setArray(2, dst.createArrayOf("varchar", emails.toArray()));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Jobs keep their progress; a worker still running one on the source loses its lease once the row is gone
+     * there, and the job resumes on the target.
+     */
+    private static void copyDeletionJobs(Connection src, Connection dst, int bucket) throws SQLException {
+        String placeholders = "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?";
+        try (PreparedStatement select = src.prepareStatement("SELECT " + JOB_COLUMNS + " FROM user_deletion_jobs "
+                + "WHERE user_id % " + UserShards.BUCKETS + " = ?");
+             PreparedStatement upsert = dst.prepareStatement("INSERT INTO user_deletion_jobs (" + JOB_COLUMNS
+                     + ") VALUES (" + placeholders + ") ON CONFLICT (user_id) DO NOTHING")) {
+            select.setInt(1, bucket);
+            int read = 0;
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    for (int i = 1; i <= 11; i++) {
+                        upsert.setObject(i, rs.getObject(i));
+                    }
+                    upsert.addBatch();
+                    read++;
+                }
+            }
+            if (read > 0) {
+                upsert.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Hands unpublished events over to the target's relay, in their original order. One relayed on the source
+     * while this runs is published twice, which consumers of an at-least-once outbox already tolerate.
+     */
+    private static void moveOutbox(Connection src, Connection dst, int bucket) throws SQLException {
+        src.setAutoCommit(false);
+        try {
+            try (PreparedStatement delete = src.prepareStatement("WITH moved AS (DELETE FROM user_outbox "
+                    + "WHERE published_at IS NULL AND user_id % " + UserShards.BUCKETS + " = ? "
+                    + "RETURNING id, event_type, user_id, payload, occurred_at) "
+                    + "SELECT event_type, user_id, payload::text, occurred_at FROM moved ORDER BY id");
+                 PreparedStatement insert = dst.prepareStatement("INSERT INTO user_outbox "
+                         + "(event_type, user_id, payload, occurred_at) VALUES (?, ?, ?::jsonb, ?)")) {
+                delete.setInt(1, bucket);
+                int moved = 0;
+                try (ResultSet rs = delete.executeQuery()) {
+                    while (rs.next()) {
+                        insert.setString(1, rs.getString(1));
+                        insert.setLong(2, rs.getLong(2));
+                        insert.setString(3, rs.getString(3));
+                        insert.setTimestamp(4, rs.getTimestamp(4));
+                        insert.addBatch();
+                        moved++;
+                    }
+                }
+                if (moved > 0) {
+                    insert.executeBatch();
+                }
+            }
+            src.commit();
+        } catch (SQLException e) {
+            src.rollback();
+            throw e;
+        } finally {
+            src.setAutoCommit(true);
+        }
+    }
+
+    // Ids carry a sequence value; the target must never hand out one the source already used in this bucket
+    private static void advanceIds(Connection src, Connection dst) throws SQLException {
+        long sourceLast = count(src, "SELECT last_value FROM users_id_seq");
+        try (PreparedStatement stmt = dst.prepareStatement(
+                "SELECT setval('users_id_seq', GREATEST((SELECT last_value FROM users_id_seq), ?))")) {
+            stmt.setLong(1, sourceLast);
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Deletes the bucket from the source in batches, past the fence, which stays.
+     */
+    private static void purge(Connection src, int bucket) throws SQLException {
+        String[] statements = {
+                "DELETE FROM users WHERE id IN (SELECT id FROM users WHERE " + IN_BUCKET + " LIMIT ?)",
+                "DELETE FROM user_emails WHERE email IN (SELECT email FROM user_emails WHERE bucket = ? LIMIT ?)",
+                "DELETE FROM user_deletion_jobs WHERE user_id IN (SELECT user_id FROM user_deletion_jobs "
+                        + "WHERE user_id % " + UserShards.BUCKETS + " = ? LIMIT ?)"};
+        for (String sql : statements) {
+            int deleted;
+            do {
+                src.setAutoCommit(false);
+                try (Statement bypass = src.createStatement();
+                     PreparedStatement stmt = src.prepareStatement(sql)) {
+                    bypass.execute("SET LOCAL auth.user_fence_bypass = 'on'");
+                    stmt.setInt(1, bucket);
+                    stmt.setInt(2, BATCH_SIZE);
+                    deleted = stmt.executeUpdate();
+                    src.commit();
+                } catch (SQLException e) {
+                    src.rollback();
+                    throw e;
+                } finally {
+                    src.setAutoCommit(true);
+                }
+            } while (deleted == BATCH_SIZE);
+        }
+    }
+
+    private static void disableTimeout(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET statement_timeout = 0");
+        }
+    }
+
+    private static long count(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package aloui.bilal.userauthservice.dao;
+
+import io.helidon.config.Config;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Says which shard holds a user. A user belongs to one of {@link #BUCKETS} buckets: a new user's bucket is a
+ * hash of the normalized email, and the id carries it in its low bits ({@code id % BUCKETS}), so an id alone
+ * is enough to find the row. Buckets are assigned to shards in user_shard_buckets on the primary; buckets
+ * without a row live on shard 0, which is where every user of an unsharded database already is.
+ * <p>
+ * The map is reloaded when {@link UserShardMover} announces a move and on a timer as a fallback.
+ */
+public class UserShards {
+
+    private static final Logger LOGGER = Logger.getLogger(UserShards.class.getName());
+
+    // Fixed for the life of the data: ids and the email directory are laid out by bucket
+    public static final int BUCKETS = 1024;
+    // Outbox ids are interleaved across shards with this stride
+    public static final int MAX_SHARDS = 64;
+
+    private static final long REFRESH_SECONDS = Config.create().get("db.shard-map-refresh-seconds").asLong().orElse(30L);
+
+    private static final ExecutorService FANOUT = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("user-shard-", 0).factory());
+
+    private static volatile int[] owners = new int[BUCKETS];
+    private static ScheduledExecutorService scheduler;
+
+    private UserShards() {
+    }
+
+    /**
+     * Loads the bucket map and keeps it fresh; fails when it names a shard that is not configured.
+     */
+    public static synchronized void start() throws SQLException {
+        if (scheduler != null) {
+            return;
+        }
+        owners = load();
+        if (DBConnection.shardCount() == 1) {
+            return;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            List<String> constraints = foreignKeysToUsers(conn);
+            if (!constraints.isEmpty()) {
+                // Rows for users on other shards would be rejected, e.g. the login_history entry of every login
+                throw new IllegalStateException("Run UserShardMover prepare 0 before configuring more shards; "
+                        + "foreign keys still reference users: " + String.join(", ", constraints));
+            }
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("user-shard-map")
+                .factory());
+        scheduler.scheduleWithFixedDelay(UserShards::reload, REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static void reload() {
+        try {
+            owners = load();
+        } catch (SQLException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Could not reload the user shard map, keeping the previous one", e);
+        }
+    }
+
+    private static int[] load() throws SQLException {
+        int[] loaded = new int[BUCKETS];
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT bucket, shard FROM user_shard_buckets");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int bucket = rs.getInt("bucket");
+                int shard = rs.getInt("shard");
+                if (shard >= DBConnection.shardCount()) {
+                    throw new IllegalStateException("Bucket " + bucket + " is on shard " + shard + " but only "
+                            + DBConnection.shardCount() + " shards are configured");
+                }
+                loaded[bucket] = shard;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Foreign keys pointing at users on the database behind {@code conn}, as table.constraint.
+     */
+    static List<String> foreignKeysToUsers(Connection conn) throws SQLException {
+        List<String> constraints = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT conrelid::regclass || '.' || quote_ident(conname) "
+                + "FROM pg_constraint WHERE contype = 'f' AND confrelid = 'users'::regclass ORDER BY 1");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                constraints.add(rs.getString(1));
+            }
+        }
+        return constraints;
+    }
+
+    public static int count() {
+        return DBConnection.shardCount();
+    }
+
+    /**
+     * The form emails are hashed and looked up in: trimmed and lower-cased, as the user cache does.
+     */
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Bucket a new account with this email goes to. FNV-1a with a final mix; changing it moves every user.
+     */
+    public static int bucketOf(String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : normalize(email).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) BUCKETS);
+    }
+
+    public static int bucketOf(long userId) {
+        return (int) Math.floorMod(userId, (long) BUCKETS);
+    }
+
+    public static int shardOfBucket(int bucket) {
+        return owners[bucket];
+    }
+
+    public static int shardOf(long userId) {
+        return owners[bucketOf(userId)];
+    }
+
+    /**
+     * Shard holding the email's directory entry, which points at the user wherever the user lives.
+     */
+    public static int shardOfEmail(String email) {
+        return owners[bucketOf(email)];
+    }
+
+    /**
+     * Primary of the shard holding the user, for writes and reads that must not lag.
+     */
+    public static DbNode primaryFor(long userId) {
+        return DBConnection.shard(shardOf(userId));
+    }
+
+    public static DbNode forRead(long userId) {
+        return DBConnection.forRead(shardOf(userId), userId);
+    }
+
+    /**
+     * Runs the query on every shard in parallel and concatenates the results in shard order.
+     */
+    static <T> List<T> scatter(IntFunction<List<T>> query) {
+        int shards = DBConnection.shardCount();
+        if (shards == 1) {
+            return query.apply(0);
+        }
+        List<Future<List<T>>> futures = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = i;
+            futures.add(FANOUT.submit(() -> query.apply(shard)));
+        }
+        List<T> merged = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                merged.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("UserShards.scatter", "Interrupted while querying shards");
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,20 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("auth.Bcrypt")
+@Label("Bcrypt")
+@Description("A bcrypt hash or verify call")
+@Category("Auth Service")
+@StackTrace(false)
+public class BcryptEvent extends Event {
+
+    @Label("Operation")
+    @Description("hash or verify")
+    public String operation;
+}
@@ -0,0 +1,187 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import io.helidon.config.Config;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Always-on JFR recording with a rolling on-disk buffer. Recent history can be cut out as a .jfr file
+ * or summarised in-process (hot methods, allocation sites, auth service events) without restarting.
+ */
+public class ContinuousRecording {
+
+    private static final Logger LOGGER = Logger.getLogger(ContinuousRecording.class.getName());
+
+    private static final String NAME = "auth-continuous";
+    private static final int TOP_N = 20;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    private static final boolean ENABLED;
+    private static final Duration MAX_AGE;
+    private static final long MAX_SIZE_BYTES;
+    private static final Path DUMP_DIR;
+
+    private static volatile Recording recording;
+
+    static {
+        Config config = Config.create().get("diagnostics.jfr");
+        ENABLED = config.get("enabled").asBoolean().orElse(true);
+        MAX_AGE = Duration.ofMinutes(config.get("max-age-minutes").asLong().orElse(30L));
+        MAX_SIZE_BYTES = config.get("max-size-mb").asLong().orElse(250L) * 1024 * 1024;
+        DUMP_DIR = Path.of(config.get("dump-dir").asString().orElse(System.getProperty("java.io.tmpdir")));
+    }
+
+    private ContinuousRecording() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || recording != null) {
+            return;
+        }
+        try {
+            Recording r = new Recording(Configuration.getConfiguration("default"));
+            r.setName(NAME);
+            r.setToDisk(true);
+            r.setMaxAge(MAX_AGE);
+            r.setMaxSize(MAX_SIZE_BYTES);
+            // The default profile leaves allocation sampling low; raise it so the summary has something to rank
+            r.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+            r.start();
+            recording = r;
+            LOGGER.info("Continuous JFR recording started, keeping " + MAX_AGE.toMinutes() + " minutes");
+        } catch (IOException | ParseException | RuntimeException e) {
+            // e.g. a native image built without --enable-monitoring=jfr
+            LOGGER.log(Level.WARNING, "Continuous JFR recording unavailable", e);
+        }
+    }
+
+    public static boolean isRunning() {
+        return recording != null;
+    }
+
+    public static Duration maxAge() {
+        return MAX_AGE;
+    }
+
+    /**
+     * Writes the last {@code window} of the recording to a new file in the dump directory.
+     */
+    public static Path dump(Duration window) throws IOException {
+        Files.createDirectories(DUMP_DIR);
+        Path dest = DUMP_DIR.resolve("auth-" + FILE_TIME.format(Instant.now()) + "-" + window.toMinutes() + "m.jfr");
+        write(window, dest);
+        return dest;
+    }
+
+    private static void write(Duration window, Path dest) throws IOException {
+        Recording r = recording;
+        if (r == null) {
+            throw new IllegalStateException("Continuous recording is not running");
+        }
+        Instant cutoff = Instant.now().minus(window);
+        Path full = Files.createTempFile(NAME, ".jfr");
+        try (Recording copy = r.copy(true)) {
+            copy.dump(full);
+            // Chunks are coarse, so trim events older than the window
+            try (RecordingFile in = new RecordingFile(full)) {
+                in.write(dest, e -> !e.getEndTime().isBefore(cutoff));
+            }
+        } finally {
+            Files.deleteIfExists(full);
+        }
+    }
+
+    /**
+     * Top sampled methods, allocation sites and per-event totals for the last {@code window}.
+     */
+    public static JsonObject summary(Duration window) throws IOException {
+        Path file = Files.createTempFile(NAME + "-summary", ".jfr");
+        write(window, file);
+        Map<String, long[]> hotMethods = new HashMap<>();
+        Map<String, long[]> allocations = new HashMap<>();
+        Map<String, long[]> authEvents = new HashMap<>();
+        long samples = 0;
+        try (RecordingFile in = new RecordingFile(file)) {
+            while (in.hasMoreEvents()) {
+                RecordedEvent event = in.readEvent();
+                String type = event.getEventType().getName();
+                switch (type) {
+                    case "jdk.ExecutionSample" -> {
+                        samples++;
+                        add(hotMethods, topFrame(event.getStackTrace()), 1);
+                    }
+                    case "jdk.ObjectAllocationSample" ->
+                            add(allocations, topFrame(event.getStackTrace()), event.getLong("weight"));
+                    default -> {
+                        if (type.startsWith("auth.")) {
+                            long[] stats = authEvents.computeIfAbsent(type, k -> new long[3]);
+                            long nanos = event.getDuration().toNanos();
+                            stats[0]++;
+                            stats[1] += nanos;
+                            stats[2] = Math.max(stats[2], nanos);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        JsonObjectBuilder events = Json.createObjectBuilder();
+        authEvents.forEach((type, s) -> events.add(type, Json.createObjectBuilder()
+                .add("count", s[0])
+                .add("totalMs", s[1] / 1_000_000)
+                .add("maxMs", s[2] / 1_000_000)));
+        return Json.createObjectBuilder()
+                .add("windowMinutes", window.toMinutes())
+                .add("executionSamples", samples)
+                .add("hotMethods", top(hotMethods, "samples"))
+                .add("allocationSites", top(allocations, "bytes"))
+                .add("events", events)
+                .build();
+    }
+
+    private static void add(Map<String, long[]> counts, String key, long amount) {
+        counts.computeIfAbsent(key, k -> new long[1])[0] += amount;
+    }
+
+    private static JsonArrayBuilder top(Map<String, long[]> counts, String field) {
+        JsonArrayBuilder out = Json.createArrayBuilder();
+        counts.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]))
+                .limit(TOP_N)
+                .forEach(e -> out.add(Json.createObjectBuilder()
+                        .add("frame", e.getKey())
+                        .add(field, e.getValue()[0])));
+        return out;
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame frame = stackTrace.getFrames().get(0);
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
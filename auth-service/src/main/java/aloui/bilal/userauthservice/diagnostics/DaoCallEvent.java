@@ -0,0 +1,23 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("auth.DaoCall")
+@Label("DAO Call")
+@Description("One call through an instrumented DAO")
+@Category("Auth Service")
+@StackTrace(false)
+public class DaoCallEvent extends Event {
+
+    @Label("Operation")
+    @Description("DAO implementation and method")
+    public String operation;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,24 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import aloui.bilal.userauthservice.dao.JdbcBulkhead;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+import jakarta.json.Json;
+
+/**
+ * Runtime diagnostics. Served only on the unpublished management socket.
+ */
+public class DiagnosticsService implements HttpService {
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules.get("/pinning", (req, res) -> res.send(Json.createObjectBuilder()
+                .add("pinning", PinningMonitor.report())
+                .add("jdbcBulkhead", Json.createObjectBuilder()
+                        .add("maxConcurrent", JdbcBulkhead.maxConcurrent())
+                        .add("inflight", JdbcBulkhead.inflight())
+                        .add("waiting", JdbcBulkhead.waiting())
+                        .add("rejected", JdbcBulkhead.rejected()))
+                .build()));
+    }
+}
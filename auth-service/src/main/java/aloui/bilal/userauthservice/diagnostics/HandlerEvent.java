@@ -0,0 +1,26 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("auth.Handler")
+@Label("Handler")
+@Description("Time spent handling one HTTP request")
+@Category("Auth Service")
+@StackTrace(false)
+public class HandlerEvent extends Event {
+
+    @Label("Route")
+    @Description("HTTP method and path")
+    public String route;
+
+    @Label("Status")
+    public int status;
+
+    @Label("DAO Calls")
+    public int daoCalls;
+}
@@ -0,0 +1,23 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("auth.JwtVerify")
+@Label("JWT Verify")
+@Description("Token verification, including cache hits")
+@Category("Auth Service")
+@StackTrace(false)
+public class JwtVerifyEvent extends Event {
+
+    @Label("Cache Hit")
+    @Description("Answered from the verification cache without checking the MAC")
+    public boolean cacheHit;
+
+    @Label("Valid")
+    public boolean valid;
+}
@@ -0,0 +1,142 @@
+package aloui.bilal.userauthservice.diagnostics;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams JFR {@code jdk.VirtualThreadPinned} events in-process and aggregates them by the frame that pinned,
+ * so carrier starvation shows up at /diagnostics/pinning without pulling a recording off the box.
+ */
+public class PinningMonitor {
+
+    private static final Logger LOGGER = Logger.getLogger(PinningMonitor.class.getName());
+
+    private static final String APP_PACKAGE = "aloui.bilal.";
+    private static final int MAX_SITES = 256;
+
+    private static final boolean ENABLED;
+    private static final Duration THRESHOLD;
+
+    private static final Map<String, Site> SITES = new ConcurrentHashMap<>();
+    private static final LongAdder PINNED = Metrics.counter("auth_vthread_pinned_total");
+
+    private static volatile RecordingStream stream;
+
+    static {
+        Config config = Config.create().get("diagnostics.pinning");
+        ENABLED = config.get("enabled").asBoolean().orElse(false);
+        THRESHOLD = Duration.ofMillis(config.get("threshold-ms").asLong().orElse(20L));
+    }
+
+    private PinningMonitor() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || stream != null) {
+            return;
+        }
+        try {
+            RecordingStream rs = new RecordingStream();
+            rs.enable("jdk.VirtualThreadPinned").withThreshold(THRESHOLD).withStackTrace();
+            rs.onEvent("jdk.VirtualThreadPinned", PinningMonitor::record);
+            rs.startAsync();
+            stream = rs;
+            LOGGER.info("Recording virtual thread pinning longer than " + THRESHOLD.toMillis() + "ms");
+        } catch (RuntimeException e) {
+            // e.g. a native image built without JFR support
+            LOGGER.log(Level.WARNING, "JFR pinning diagnostics unavailable", e);
+        }
+    }
+
+    public static boolean isRunning() {
+        return stream != null;
+    }
+
+    private static void record(RecordedEvent event) {
+        PINNED.increment();
+        String site = siteOf(event.getStackTrace());
+        Site stats = SITES.get(site);
+        if (stats == null) {
+            if (SITES.size() >= MAX_SITES) {
+                site = "other";
+            }
+            stats = SITES.computeIfAbsent(site, Site::new);
+        }
+        stats.add(event.getDuration().toNanos());
+    }
+
+    /**
+     * First application frame, falling back to the top frame when pinning happens entirely in library code.
+     */
+    private static String siteOf(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return format(frame);
+            }
+        }
+        return format(stackTrace.getFrames().get(0));
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    public static JsonObject report() {
+        JsonArrayBuilder sites = Json.createArrayBuilder();
+        SITES.values().stream()
+                .sorted(Comparator.comparingLong(Site::totalNanos).reversed())
+                .forEach(s -> sites.add(Json.createObjectBuilder()
+                        .add("site", s.name)
+                        .add("count", s.count.sum())
+                        .add("totalMs", s.totalNanos() / 1_000_000)
+                        .add("maxMs", s.maxNanos / 1_000_000)));
+        return Json.createObjectBuilder()
+                .add("enabled", isRunning())
+                .add("thresholdMs", THRESHOLD.toMillis())
+                .add("pinnedTotal", PINNED.sum())
+                .add("sites", sites)
+                .build();
+    }
+
+    private static final class Site {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private volatile long maxNanos;
+
+        private Site(String name) {
+            this.name = name;
+        }
+
+        // Called from the single JFR stream thread, so the max update needs no CAS
+        private void add(long nanos) {
+            count.increment();
+            total.add(nanos);
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+        }
+
+        private long totalNanos() {
+            return total.sum();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package aloui.bilal.userauthservice.hashing;
+
+import aloui.bilal.userauthservice.transparency.MerkleTree;
+
+import java.util.List;
+
+/**
+ * RFC 6962 Merkle tree over fixed-size chunks of one file, kept in memory as its perfect subtrees
+ * (32 bytes per chunk and per inner node). Lets a client re-check a single region of a large file against
+ * the root without reading the rest.
+ */
+public final class ChunkTree implements MerkleTree.NodeSource {
+
+    private final long size;
+    private final int chunkBytes;
+    private final byte[][][] levels;
+
+    ChunkTree(long size, int chunkBytes, byte[][] leaves) {
+        this.size = size;
+        this.chunkBytes = chunkBytes;
+        int height = 64 - Long.numberOfLeadingZeros(leaves.length);
+        this.levels = new byte[height][][];
+        levels[0] = leaves;
+        for (int level = 1; level < height; level++) {
+            byte[][] below = levels[level - 1];
+            byte[][] nodes = new byte[below.length / 2][];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = MerkleTree.nodeHash(below[2 * i], below[2 * i + 1]);
+            }
+            levels[level] = nodes;
+        }
+    }
+
+    @Override
+    public byte[] node(int level, long index) {
+        return levels[level][(int) index];
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int chunkBytes() {
+        return chunkBytes;
+    }
+
+    public int chunks() {
+        return levels[0].length;
+    }
+
+    public byte[] root() {
+        return MerkleTree.root(this, chunks());
+    }
+
+    public byte[] leaf(int chunk) {
+        return levels[0][chunk];
+    }
+
+    public List<byte[]> proof(int chunk) {
+        return MerkleTree.inclusionProof(this, chunk, chunks());
+    }
+}
@@ -0,0 +1,195 @@
+package aloui.bilal.userauthservice.hashing;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SHA-256 over uploads and stored documents without pulling them onto the heap: request bodies are digested
+ * through one fixed buffer, files on disk through memory-mapped regions of the page cache.
+ */
+public class FileHasher {
+
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    private static final long REGION_BYTES = 256L * 1024 * 1024;
+    private static final int MIN_CHUNK_BYTES = 4 * 1024;
+
+    private static final Path ROOT;
+    private static final int DEFAULT_CHUNK_BYTES;
+    private static final int MAX_CHUNKS;
+    private static final int PARALLELISM;
+    private static final ExecutorService POOL;
+
+    private static final LongAdder HASHED_BYTES = Metrics.counter("auth_hashed_bytes_total");
+
+    static {
+        Config config = Config.create().get("hashing");
+        ROOT = Path.of(config.get("root-dir").asString().orElse("/data/documents")).toAbsolutePath().normalize();
+        DEFAULT_CHUNK_BYTES = config.get("chunk-size-kb").asInt().orElse(1024) * 1024;
+        MAX_CHUNKS = config.get("max-chunks").asInt().orElse(1 << 20);
+        PARALLELISM = config.get("parallelism").asInt().orElse(Runtime.getRuntime().availableProcessors());
+        POOL = Executors.newFixedThreadPool(PARALLELISM, Thread.ofPlatform().daemon().name("file-hash-", 1).factory());
+    }
+
+    public record Digest(String sha256, long size) {
+    }
+
+    /**
+     * One file of a batch: either its digest or why it could not be read.
+     */
+    public record Result(Digest digest, Throwable error) {
+    }
+
+    private FileHasher() {
+    }
+
+    public static int defaultChunkBytes() {
+        return DEFAULT_CHUNK_BYTES;
+    }
+
+    /**
+     * Resolves a path as stored in {@code documents.file_path}, refusing anything outside the document root.
+     * Both sides are compared as real paths, so a symlink under the root cannot point the hasher elsewhere.
+     */
+    public static Path resolve(String relative) {
+        Path path;
+        try {
+            path = ROOT.resolve(relative).toRealPath();
+            if (!path.startsWith(ROOT.toRealPath()) || !Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                throw new IllegalArgumentException("No such document file: " + relative);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("No such document file: " + relative, e);
+        }
+        return path;
+    }
+
+    public static Digest hashStream(InputStream in) throws IOException {
+        try (Span span = Tracer.start("hash.stream")) {
+            MessageDigest sha = sha256();
+            byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+            long size = 0;
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                sha.update(buffer, 0, n);
+                size += n;
+            }
+            HASHED_BYTES.add(size);
+            return new Digest(HexFormat.of().formatHex(sha.digest()), size);
+        }
+    }
+
+    public static Digest hashFile(Path path) throws IOException {
+        try (Span span = Tracer.start("hash.file");
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS)) {
+            MessageDigest sha = sha256();
+            long size = channel.size();
+            for (long position = 0; position < size; position += REGION_BYTES) {
+                sha.update(map(channel, position, Math.min(REGION_BYTES, size - position)));
+            }
+            HASHED_BYTES.add(size);
+            return new Digest(HexFormat.of().formatHex(sha.digest()), size);
+        }
+    }
+
+    /**
+     * Hashes each file on the worker pool; a failed file is reported in its slot instead of failing the batch.
+     */
+    public static List<Result> hashFiles(List<Path> paths) throws InterruptedException {
+        List<Callable<Digest>> tasks = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            tasks.add(() -> hashFile(path));
+        }
+        List<Result> results = new ArrayList<>(paths.size());
+        for (Future<Digest> future : POOL.invokeAll(tasks)) {
+            try {
+                results.add(new Result(future.get(), null));
+            } catch (ExecutionException e) {
+                results.add(new Result(null, e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Merkle tree over {@code chunkBytes}-sized chunks. Chunk leaves are independent, so the file is split
+     * into one contiguous run of chunks per worker, each mapped once.
+     */
+    public static ChunkTree chunkTree(Path path, int chunkBytes) throws IOException, InterruptedException {
+        if (chunkBytes < MIN_CHUNK_BYTES || chunkBytes > REGION_BYTES) {
+            throw new IllegalArgumentException("chunkSize must be between " + MIN_CHUNK_BYTES + " and " + REGION_BYTES);
+        }
+        try (Span span = Tracer.start("hash.chunk_tree");
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, LinkOption.NOFOLLOW_LINKS)) {
+            long size = channel.size();
+            long chunkCount = Math.max(1, (size + chunkBytes - 1) / chunkBytes);
+            if (chunkCount > MAX_CHUNKS) {
+                throw new IllegalArgumentException("chunkSize too small for a file of " + size + " bytes");
+            }
+            byte[][] leaves = new byte[(int) chunkCount][];
+            // Runs of whole chunks, capped at the region size so no single mapping gets huge
+            int chunksPerRun = (int) Math.max(1, Math.min(REGION_BYTES / chunkBytes, (chunkCount + PARALLELISM - 1) / PARALLELISM));
+
+            List<Callable<Void>> runs = new ArrayList<>();
+            for (int first = 0; first < chunkCount; first += chunksPerRun) {
+                int from = first;
+                int to = (int) Math.min(chunkCount, first + chunksPerRun);
+                runs.add(() -> {
+                    long start = (long) from * chunkBytes;
+                    long end = Math.min(size, (long) to * chunkBytes);
+                    MappedByteBuffer region = map(channel, start, end - start);
+                    MessageDigest sha = sha256();
+                    for (int chunk = from; chunk < to; chunk++) {
+                        int offset = (int) ((long) (chunk - from) * chunkBytes);
+                        int length = (int) Math.min(chunkBytes, end - start - offset);
+                        sha.update((byte) 0x00);
+                        sha.update(region.slice(offset, length));
+                        leaves[chunk] = sha.digest();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> run : POOL.invokeAll(runs)) {
+                try {
+                    run.get();
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            }
+            HASHED_BYTES.add(size);
+            return new ChunkTree(size, chunkBytes, leaves);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
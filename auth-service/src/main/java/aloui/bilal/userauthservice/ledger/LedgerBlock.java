@@ -0,0 +1,7 @@
+package aloui.bilal.userauthservice.ledger;
+
+/**
+ * One row of the blockchain service's {@code blocks} table, as stored.
+ */
+record LedgerBlock(long blockId, String previousHash, String data, String hash) {
+}
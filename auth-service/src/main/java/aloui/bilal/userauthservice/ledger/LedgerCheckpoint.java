@@ -0,0 +1,20 @@
+package aloui.bilal.userauthservice.ledger;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Signed statement that blocks 1..height were verified and block {@code height} has hash {@code blockHash}.
+ * Later passes trust everything up to here and only check newer blocks.
+ */
+public record LedgerCheckpoint(long height, String blockHash, long verifiedAtMs, String keyId, byte[] signature) {
+
+    public static final String ORIGIN = "blockchain-service/ledger";
+
+    public byte[] signedPayload() {
+        return payload(height, blockHash, verifiedAtMs);
+    }
+
+    static byte[] payload(long height, String blockHash, long verifiedAtMs) {
+        return (ORIGIN + "\n" + height + "\n" + blockHash + "\n" + verifiedAtMs + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+package aloui.bilal.userauthservice.ledger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Read-only access to the blockchain service's SQLite ledger. Every call opens its own connection, which is
+ * cheap for SQLite and lets segments of a full pass read concurrently.
+ */
+class LedgerReader {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final Path database;
+
+    LedgerReader(Path database) {
+        this.database = database;
+    }
+
+    boolean exists() {
+        return Files.isRegularFile(database);
+    }
+
+    /**
+     * {min block_id, max block_id, count}, all zero for an empty ledger.
+     */
+    long[] bounds() throws SQLException {
+        try (Connection conn = open();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MIN(block_id), 0), COALESCE(MAX(block_id), 0), COUNT(*) FROM blocks")) {
+            rs.next();
+            return new long[]{rs.getLong(1), rs.getLong(2), rs.getLong(3)};
+        }
+    }
+
+    Optional<String> hashAt(long blockId) throws SQLException {
+        try (Connection conn = open();
+             PreparedStatement stmt = conn.prepareStatement("SELECT hash FROM blocks WHERE block_id = ?")) {
+            stmt.setLong(1, blockId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.ofNullable(rs.getString(1)) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * Streams blocks with {@code fromId <= block_id <= toId} in order until {@code visitor} returns false.
+     */
+    void scan(long fromId, long toId, Predicate<LedgerBlock> visitor) throws SQLException {
+        try (Connection conn = open();
+             PreparedStatement stmt = conn.prepareStatement("SELECT block_id, previous_hash, data, hash FROM blocks "
+                     + "WHERE block_id BETWEEN ? AND ? ORDER BY block_id")) {
+            stmt.setLong(1, fromId);
+            stmt.setLong(2, toId);
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    LedgerBlock block = new LedgerBlock(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4));
+                    if (!visitor.test(block)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:file:" + database + "?mode=ro");
+    }
+}
@@ -0,0 +1,29 @@
+package aloui.bilal.userauthservice.ledger;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+/**
+ * Outcome of one verification pass. {@code failedBlock} is the first block that did not check out.
+ */
+public record LedgerReport(String mode, boolean valid, long fromHeight, long toHeight, long blocksChecked,
+                           Long failedBlock, String message, long elapsedMs) {
+
+    public JsonObject toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("mode", mode)
+                .add("valid", valid)
+                .add("fromHeight", fromHeight)
+                .add("toHeight", toHeight)
+                .add("blocksChecked", blocksChecked)
+                .add("message", message)
+                .add("elapsedMs", elapsedMs);
+        if (failedBlock == null) {
+            json.addNull("failedBlock");
+        } else {
+            json.add("failedBlock", failedBlock);
+        }
+        return json.build();
+    }
+}
@@ -0,0 +1,311 @@
+package aloui.bilal.userauthservice.ledger;
+
+import aloui.bilal.userauthservice.dao.DaoInstrumentation;
+import aloui.bilal.userauthservice.dao.ILedgerCheckpointDao;
+import aloui.bilal.userauthservice.dao.LedgerCheckpointDaoImpl;
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
+import aloui.bilal.userauthservice.transparency.CheckpointSigner;
+import io.helidon.config.Config;
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.JsonReader;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verifies the blockchain service's hash chain ({@code hash = sha256(previous_hash + json.dumps(data, sort_keys=True))})
+ * from the last signed checkpoint forward, so a routine check costs O(new blocks). A full pass, used when there
+ * is no trusted checkpoint or on request, splits the chain into segments verified in parallel and stitched
+ * together at their boundaries.
+ */
+public class LedgerVerifier {
+
+    private static final Logger LOGGER = Logger.getLogger(LedgerVerifier.class.getName());
+
+    private static final String GENESIS_PREVIOUS_HASH = "0";
+
+    private static final boolean ENABLED;
+    private static final long INTERVAL_SECONDS;
+    private static final long SEGMENT_BLOCKS;
+    private static final int PARALLELISM;
+
+    private static final LedgerReader READER;
+    private static final ILedgerCheckpointDao CHECKPOINTS =
+            DaoInstrumentation.instrument(ILedgerCheckpointDao.class, new LedgerCheckpointDaoImpl());
+    private static final ExecutorService POOL;
+
+    private static final AtomicLong VERIFIED_HEIGHT = new AtomicLong();
+    private static final AtomicReference<LedgerReport> LAST_REPORT = new AtomicReference<>();
+    private static final LongAdder BLOCKS_VERIFIED = Metrics.counter("auth_ledger_blocks_verified_total");
+    private static final LongAdder FAILURES = Metrics.counter("auth_ledger_verification_failures_total");
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config config = Config.create().get("ledger");
+        ENABLED = config.get("enabled").asBoolean().orElse(true);
+        INTERVAL_SECONDS = config.get("verify-interval-seconds").asLong().orElse(60L);
+        SEGMENT_BLOCKS = config.get("segment-blocks").asLong().orElse(50_000L);
+        PARALLELISM = config.get("parallelism").asInt().orElse(Runtime.getRuntime().availableProcessors());
+        READER = new LedgerReader(Path.of(config.get("database").asString().orElse("/data/ledger/blockchain.db")));
+        // SQLite reads are native calls, so segments run on platform threads
+        POOL = Executors.newFixedThreadPool(PARALLELISM, Thread.ofPlatform().daemon().name("ledger-verify-", 1).factory());
+        Metrics.gauge("auth_ledger_verified_height", VERIFIED_HEIGHT::get);
+    }
+
+    private LedgerVerifier() {
+    }
+
+    public static synchronized void start() {
+        if (!ENABLED || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("ledger-verifier")
+                .factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                LedgerReport report = verifyIncremental();
+                if (!report.valid()) {
+                    LOGGER.warning("Ledger verification failed: " + report.message());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Ledger verification pass failed", e);
+            }
+        }, INTERVAL_SECONDS, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static Optional<LedgerReport> lastReport() {
+        return Optional.ofNullable(LAST_REPORT.get());
+    }
+
+    public static Optional<LedgerCheckpoint> latestCheckpoint() {
+        return CHECKPOINTS.latest(CheckpointSigner.keyId());
+    }
+
+    /**
+     * Checks the blocks appended since the last trusted checkpoint; falls back to a full pass without one.
+     */
+    public static synchronized LedgerReport verifyIncremental() {
+        long started = System.currentTimeMillis();
+        Optional<LedgerCheckpoint> checkpoint = latestCheckpoint()
+                .filter(c -> CheckpointSigner.verify(c.signedPayload(), c.keyId(), c.signature()));
+        if (checkpoint.isEmpty()) {
+            return verifyFull();
+        }
+        long height = checkpoint.get().height();
+        try (Span span = Tracer.start("ledger.verify_incremental")) {
+            if (!READER.exists()) {
+                return finish(new LedgerReport("incremental", false, height, height, 0, null,
+                        "Ledger database not found", elapsed(started)));
+            }
+            // Blocks up to the checkpoint are trusted, but the anchor itself must still be there unchanged
+            Optional<String> anchor = READER.hashAt(height);
+            if (anchor.isEmpty() || !anchor.get().equals(checkpoint.get().blockHash())) {
+                return finish(new LedgerReport("incremental", false, height, height, 0, height,
+                        "Block " + height + " no longer matches the signed checkpoint", elapsed(started)));
+            }
+
+            Segment segment = verifySegment(height + 1, Long.MAX_VALUE, checkpoint.get().blockHash());
+            if (segment.failedBlock != null) {
+                return finish(new LedgerReport("incremental", false, height, segment.lastId, segment.checked,
+                        segment.failedBlock, segment.message, elapsed(started)));
+            }
+            long to = segment.checked == 0 ? height : segment.lastId;
+            if (segment.checked > 0) {
+                saveCheckpoint(to, segment.lastHash);
+            }
+            return finish(new LedgerReport("incremental", true, height, to, segment.checked, null,
+                    segment.checked == 0 ? "No new blocks" : "Verified " + segment.checked + " new blocks", elapsed(started)));
+        } catch (SQLException e) {
+            return finish(new LedgerReport("incremental", false, height, height, 0, null,
+                    "Ledger unreadable: " + e.getMessage(), elapsed(started)));
+        }
+    }
+
+    /**
+     * Re-verifies the whole chain: segments in parallel, then each segment's first link against the
+     * previous segment's last hash.
+     */
+    public static synchronized LedgerReport verifyFull() {
+        long started = System.currentTimeMillis();
+        try (Span span = Tracer.start("ledger.verify_full")) {
+            if (!READER.exists()) {
+                return finish(new LedgerReport("full", false, 0, 0, 0, null, "Ledger database not found", elapsed(started)));
+            }
+            long[] bounds = READER.bounds();
+            long max = bounds[1];
+            if (bounds[2] == 0) {
+                return finish(new LedgerReport("full", true, 0, 0, 0, null, "Empty ledger", elapsed(started)));
+            }
+            if (bounds[0] != 1 || bounds[2] != max) {
+                return finish(new LedgerReport("full", false, 0, max, 0, null,
+                        "Block ids are not contiguous from 1 (" + bounds[2] + " blocks up to " + max + ")", elapsed(started)));
+            }
+
+            long segmentSize = Math.max(SEGMENT_BLOCKS, (max + PARALLELISM - 1) / PARALLELISM);
+            List<Callable<Segment>> tasks = new ArrayList<>();
+            for (long from = 1; from <= max; from += segmentSize) {
+                long first = from;
+                long last = Math.min(max, from + segmentSize - 1);
+                // The first link of each segment is checked when stitching
+                tasks.add(() -> verifySegment(first, last, null));
+            }
+
+            List<Segment> segments = new ArrayList<>(tasks.size());
+            for (Future<Segment> future : POOL.invokeAll(tasks)) {
+                segments.add(future.get());
+            }
+
+            long checked = 0;
+            String previousHash = GENESIS_PREVIOUS_HASH;
+            for (Segment segment : segments) {
+                if (segment.firstPreviousHash != null && !previousHash.equals(segment.firstPreviousHash)) {
+                    return finish(new LedgerReport("full", false, 0, max, checked, segment.firstId,
+                            "Invalid previous hash at block " + segment.firstId, elapsed(started)));
+                }
+                if (segment.failedBlock != null || segment.checked == 0) {
+                    return finish(new LedgerReport("full", false, 0, max, checked + segment.checked,
+                            segment.failedBlock == null ? segment.firstId : segment.failedBlock,
+                            segment.message == null ? "Missing block " + segment.firstId : segment.message, elapsed(started)));
+                }
+                checked += segment.checked;
+                previousHash = segment.lastHash;
+            }
+            saveCheckpoint(max, previousHash);
+            return finish(new LedgerReport("full", true, 0, max, checked, null,
+                    "Blockchain is valid", elapsed(started)));
+        } catch (SQLException | ExecutionException e) {
+            return finish(new LedgerReport("full", false, 0, 0, 0, null,
+                    "Ledger unreadable: " + e.getMessage(), elapsed(started)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return finish(new LedgerReport("full", false, 0, 0, 0, null, "Interrupted", elapsed(started)));
+        }
+    }
+
+    /**
+     * Streams blocks {@code firstId..lastId}, checking ids are contiguous, each hash, and each link. With a null
+     * {@code previousHash} the first block's link is recorded rather than checked.
+     */
+    private static Segment verifySegment(long firstId, long lastId, String previousHash) throws SQLException {
+        Segment segment = new Segment(firstId, previousHash);
+        MessageDigest sha = sha256();
+        READER.scan(firstId, lastId, block -> {
+            long expectedId = segment.firstId + segment.checked;
+            String failure = null;
+            if (block.blockId() != expectedId) {
+                failure = "Missing block " + expectedId;
+            } else if (segment.checked == 0 && segment.lastHash == null) {
+                segment.firstPreviousHash = block.previousHash();
+            } else if (!String.valueOf(segment.lastHash).equals(block.previousHash())) {
+                failure = "Invalid previous hash at block " + block.blockId();
+            }
+            if (failure == null && !computeHash(sha, block).equals(block.hash())) {
+                failure = "Invalid hash at block " + block.blockId();
+            }
+            if (failure != null) {
+                segment.failedBlock = Math.min(expectedId, block.blockId());
+                segment.message = failure;
+                return false;
+            }
+            segment.checked++;
+            segment.lastId = block.blockId();
+            segment.lastHash = block.hash();
+            return true;
+        });
+        BLOCKS_VERIFIED.add(segment.checked);
+        return segment;
+    }
+
+    static String computeHash(MessageDigest sha, LedgerBlock block) {
+        if (block.data() == null || block.previousHash() == null) {
+            return "";
+        }
+        String canonical;
+        try (JsonReader reader = Json.createReader(new StringReader(block.data()))) {
+            canonical = PythonJson.dumpsSorted(reader.readValue());
+        } catch (JsonException e) {
+            return "";
+        }
+        sha.reset();
+        sha.update((block.previousHash() + canonical).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(sha.digest());
+    }
+
+    private static void saveCheckpoint(long height, String blockHash) {
+        if (!CheckpointSigner.isConfigured()) {
+            // Without a shared key every pass is a full one
+            return;
+        }
+        long now = System.currentTimeMillis();
+        CHECKPOINTS.save(new LedgerCheckpoint(height, blockHash, now, CheckpointSigner.keyId(),
+                CheckpointSigner.signBytes(LedgerCheckpoint.payload(height, blockHash, now))));
+    }
+
+    private static LedgerReport finish(LedgerReport report) {
+        if (report.valid()) {
+            VERIFIED_HEIGHT.set(report.toHeight());
+        } else {
+            FAILURES.increment();
+        }
+        LAST_REPORT.set(report);
+        return report;
+    }
+
+    private static long elapsed(long started) {
+        return System.currentTimeMillis() - started;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Running state of one scan; only touched by the thread scanning it.
+     */
+    private static final class Segment {
+        private final long firstId;
+        private String firstPreviousHash;
+        private long lastId;
+        private String lastHash;
+        private long checked;
+        private Long failedBlock;
+        private String message;
+
+        private Segment(long firstId, String previousHash) {
+            this.firstId = firstId;
+            this.lastId = firstId - 1;
+            this.lastHash = previousHash;
+            this.firstPreviousHash = previousHash;
+        }
+    }
+}
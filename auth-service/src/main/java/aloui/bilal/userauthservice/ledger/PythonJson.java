@@ -0,0 +1,152 @@
+package aloui.bilal.userauthservice.ledger;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Byte-exact port of Python's {@code json.dumps(value, sort_keys=True)} with default settings: ", " and ": "
+ * separators, ASCII-only output and {@code repr}-style floats. Block hashes in the ledger are computed over this
+ * text, so any difference here shows up as a false tamper report.
+ */
+final class PythonJson {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Python compares str by code point, String.compareTo by UTF-16 unit; they differ above U+FFFF
+    private static final Comparator<String> CODE_POINT_ORDER = (a, b) -> {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    };
+
+    private PythonJson() {
+    }
+
+    static String dumpsSorted(JsonValue value) {
+        StringBuilder out = new StringBuilder(256);
+        write(value, out);
+        return out.toString();
+    }
+
+    private static void write(JsonValue value, StringBuilder out) {
+        switch (value.getValueType()) {
+            case OBJECT -> {
+                JsonObject object = (JsonObject) value;
+                List<String> keys = new ArrayList<>(object.keySet());
+                keys.sort(CODE_POINT_ORDER);
+                out.append('{');
+                for (int i = 0; i < keys.size(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    string(keys.get(i), out);
+                    out.append(": ");
+                    write(object.get(keys.get(i)), out);
+                }
+                out.append('}');
+            }
+            case ARRAY -> {
+                JsonArray array = (JsonArray) value;
+                out.append('[');
+                for (int i = 0; i < array.size(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    write(array.get(i), out);
+                }
+                out.append(']');
+            }
+            case STRING -> string(((JsonString) value).getString(), out);
+            case NUMBER -> number((JsonNumber) value, out);
+            case TRUE -> out.append("true");
+            case FALSE -> out.append("false");
+            case NULL -> out.append("null");
+        }
+    }
+
+    private static void string(String s, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c >= ' ' && c <= '~') {
+                        out.append(c);
+                    } else {
+                        // Non-ASCII is escaped per UTF-16 unit, so astral characters become surrogate pairs
+                        out.append("\\u").append(HEX[c >> 12 & 0xF]).append(HEX[c >> 8 & 0xF])
+                                .append(HEX[c >> 4 & 0xF]).append(HEX[c & 0xF]);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void number(JsonNumber number, StringBuilder out) {
+        String text = number.toString();
+        // json.loads makes anything with a fraction or exponent a float
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            out.append(number.bigIntegerValue());
+            return;
+        }
+        out.append(floatRepr(number.bigDecimalValue().doubleValue()));
+    }
+
+    /**
+     * Python's {@code float.__repr__}: shortest round-trip digits, positional for exponents in [-4, 16).
+     */
+    static String floatRepr(double d) {
+        if (Double.isNaN(d)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(d)) {
+            return d > 0 ? "Infinity" : "-Infinity";
+        }
+        if (d == 0) {
+            return (1 / d < 0) ? "-0.0" : "0.0";
+        }
+        BigDecimal shortest = new BigDecimal(Double.toString(d)).stripTrailingZeros();
+        String digits = shortest.unscaledValue().abs().toString();
+        int exponent = digits.length() - 1 - shortest.scale();
+        String sign = d < 0 ? "-" : "";
+        if (exponent >= -4 && exponent < 16) {
+            String plain = shortest.abs().toPlainString();
+            return sign + (plain.indexOf('.') < 0 ? plain + ".0" : plain);
+        }
+        StringBuilder repr = new StringBuilder(sign).append(digits.charAt(0));
+        if (digits.length() > 1) {
+            repr.append('.').append(digits, 1, digits.length());
+        }
+        repr.append('e').append(exponent < 0 ? '-' : '+');
+        int abs = Math.abs(exponent);
+        if (abs < 10) {
+            repr.append('0');
+        }
+        return repr.append(abs).toString();
+    }
+}
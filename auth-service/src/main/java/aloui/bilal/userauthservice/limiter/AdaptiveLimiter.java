@@ -0,0 +1,102 @@
+package aloui.bilal.userauthservice.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gradient concurrency limit. The limit follows the ratio between the long-term average latency
+ * (the no-load baseline) and the latency of the latest window: when queueing inflates latency the
+ * ratio drops below one and the limit shrinks; when latency is at baseline the limit grows by a
+ * small queue allowance. Only windows where the limit was actually exercised can grow it.
+ */
+public class AdaptiveLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW_ALPHA = 0.02;
+    private static final double MIN_GRADIENT = 0.5;
+    // Latency may rise this much over baseline before the limit starts shrinking
+    private static final double RTT_TOLERANCE = 1.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+    private long windowRttSum;
+    private int windowCount;
+    private int windowMaxInflight;
+    private volatile double lastShortRttNanos;
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int windowSize) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Takes a slot if the priority's share of the limit allows it.
+     */
+    public boolean tryAcquire(Priority priority) {
+        double ceiling = Math.max(1, limit * priority.getShare());
+        while (true) {
+            int current = inflight.get();
+            if (current >= ceiling) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        onSample(rttNanos, current);
+    }
+
+    private synchronized void onSample(long rttNanos, int inflightAtCompletion) {
+        windowRttSum += rttNanos;
+        windowCount++;
+        windowMaxInflight = Math.max(windowMaxInflight, inflightAtCompletion);
+        if (windowCount < windowSize) {
+            return;
+        }
+
+        double shortRtt = (double) windowRttSum / windowCount;
+        longRttNanos = longRttNanos == 0 ? shortRtt : longRttNanos + LONG_WINDOW_ALPHA * (shortRtt - longRttNanos);
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRttNanos / shortRtt));
+        double queueAllowance = Math.sqrt(limit);
+        double target = limit * gradient + queueAllowance;
+        boolean appLimited = windowMaxInflight < limit / 2;
+        if (!(appLimited && target > limit)) {
+            double next = limit * (1 - SMOOTHING) + target * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        }
+
+        // After an overload ends the baseline is inflated; pull it back toward current latency
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        lastShortRttNanos = shortRtt;
+        windowRttSum = 0;
+        windowCount = 0;
+        windowMaxInflight = 0;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public double getLastRttMillis() {
+        return lastShortRttNanos / 1_000_000;
+    }
+}
@@ -0,0 +1,83 @@
+package aloui.bilal.userauthservice.limiter;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+import io.helidon.http.HeaderNames;
+import io.helidon.http.Method;
+import io.helidon.http.Status;
+import io.helidon.webserver.http.Filter;
+import io.helidon.webserver.http.FilterChain;
+import io.helidon.webserver.http.RoutingRequest;
+import io.helidon.webserver.http.RoutingResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sheds API requests with 503 once the adaptive concurrency limit for their priority is reached.
+ */
+public class ConcurrencyLimitFilter implements Filter {
+
+    private static final List<String> LIMITED_PREFIXES = List.of("/auth", "/signatures", "/hashing", "/ledger");
+
+    private static final JsonObject OVERLOADED = Json.createObjectBuilder()
+            .add("status", "error")
+            .add("message", "Service overloaded, please retry")
+            .build();
+
+    private final AdaptiveLimiter limiter;
+    private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+
+    public ConcurrencyLimitFilter(Config config) {
+        this.limiter = new AdaptiveLimiter(
+                config.get("initial-limit").asInt().orElse(50),
+                config.get("min-limit").asInt().orElse(8),
+                config.get("max-limit").asInt().orElse(1000),
+                config.get("window-size").asInt().orElse(100));
+
+        Metrics.gauge("auth_limiter_limit", limiter::getLimit);
+        Metrics.gauge("auth_limiter_inflight", limiter::getInflight);
+        Metrics.gauge("auth_limiter_rtt_ms", limiter::getLastRttMillis);
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, Metrics.counter("auth_limiter_rejected_total{priority=\"" + priority.name().toLowerCase() + "\"}"));
+        }
+    }
+
+    @Override
+    public void filter(FilterChain chain, RoutingRequest req, RoutingResponse res) {
+        String path = req.path().path();
+        if (!isLimited(path) || req.prologue().method() == Method.OPTIONS) {
+            chain.proceed();
+            return;
+        }
+
+        Priority priority = Priority.of(req.prologue().method().text(), path);
+        if (!limiter.tryAcquire(priority)) {
+            rejected.get(priority).increment();
+            res.status(Status.SERVICE_UNAVAILABLE_503)
+                    .header(HeaderNames.RETRY_AFTER, "1")
+                    .send(OVERLOADED);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.proceed();
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean isLimited(String path) {
+        for (String prefix : LIMITED_PREFIXES) {
+            if (path.equals(prefix) || path.startsWith(prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+package aloui.bilal.userauthservice.limiter;
+
+/**
+ * Request classes and the share of the concurrency limit each may use. Lower classes hit their
+ * ceiling first, so under pressure admin and batch work is shed before profile traffic, that before
+ * login, and token verification keeps the whole limit.
+ */
+public enum Priority {
+    CRITICAL(1.0),
+    HIGH(0.9),
+    NORMAL(0.8),
+    LOW(0.6);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    public double getShare() {
+        return share;
+    }
+
+    /**
+     * Classifies by route, so a cheap GET of batch or admin work is not mistaken for user traffic.
+     */
+    public static Priority of(String method, String path) {
+        if (path.equals("/auth/check-token") || path.equals("/auth/verify")) {
+            return CRITICAL;
+        }
+        if (path.equals("/auth/login")) {
+            return HIGH;
+        }
+        if (!path.startsWith("/auth/") || path.startsWith("/auth/admin/")
+                || path.startsWith("/auth/analytics") || path.startsWith("/auth/transparency/")) {
+            // /signatures, /hashing and /ledger: batch verification, file hashing, ledger walks
+            return LOW;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,36 @@
+package aloui.bilal.userauthservice.logging;
+
+import aloui.bilal.userauthservice.diagnostics.HandlerEvent;
+import io.helidon.webserver.http.Filter;
+import io.helidon.webserver.http.FilterChain;
+import io.helidon.webserver.http.RoutingRequest;
+import io.helidon.webserver.http.RoutingResponse;
+
+/**
+ * Emits one sampled access event per request with route, status, latency, user id and DAO time,
+ * plus a JFR handler event for the continuous recording.
+ */
+public class AccessLogFilter implements Filter {
+
+    @Override
+    public void filter(FilterChain chain, RoutingRequest req, RoutingResponse res) {
+        RequestContext context = RequestContext.begin();
+        HandlerEvent event = new HandlerEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            chain.proceed();
+        } finally {
+            long latencyMicros = (System.nanoTime() - start) / 1000;
+            String route = req.prologue().method().text() + " " + req.path().path();
+            EventLog.access(route, res.status().code(), latencyMicros, context);
+            if (event.shouldCommit()) {
+                event.route = route;
+                event.status = res.status().code();
+                event.daoCalls = context.getDaoCalls();
+                event.commit();
+            }
+            RequestContext.end();
+        }
+    }
+}
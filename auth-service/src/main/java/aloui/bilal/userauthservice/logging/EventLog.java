@@ -0,0 +1,110 @@
+package aloui.bilal.userauthservice.logging;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous JSON-lines event log. Request threads publish into a bounded lock-free ring
+ * (multi-producer, single-consumer) and never touch console I/O; a daemon thread drains it.
+ * When the ring is full, events are dropped and counted rather than blocking the caller.
+ */
+public class EventLog {
+
+    private static final int CAPACITY;
+    private static final int MASK;
+    private static final double SUCCESS_SAMPLE_RATE;
+    private static final long SLOW_REQUEST_MICROS;
+
+    private static final AtomicReferenceArray<LogEvent> RING;
+    private static final AtomicLong PRODUCER = new AtomicLong();
+    private static volatile long consumer;
+
+    private static final LongAdder DROPPED = Metrics.counter("auth_log_events_dropped_total");
+
+    static {
+        Config config = Config.create().get("logging");
+        // Round up to a power of two so the slot index is a mask
+        CAPACITY = Integer.highestOneBit(Math.max(2, config.get("ring-size").asInt().orElse(8192) - 1)) << 1;
+        MASK = CAPACITY - 1;
+        SUCCESS_SAMPLE_RATE = config.get("success-sample-rate").asDouble().orElse(0.1);
+        SLOW_REQUEST_MICROS = config.get("slow-request-ms").asLong().orElse(500L) * 1000;
+        RING = new AtomicReferenceArray<>(CAPACITY);
+
+        Thread.ofPlatform().daemon().name("event-log-writer").start(EventLog::drain);
+    }
+
+    private EventLog() {
+    }
+
+    /**
+     * Counts the failure per source and logs a one-line summary without the stack trace.
+     */
+    public static void error(String source, Throwable error) {
+        Metrics.increment("auth_errors_total{source=\"" + source + "\"}");
+        publish(LogEvent.error(source, error));
+    }
+
+    static void access(String route, int status, long latencyMicros, RequestContext context) {
+        boolean interesting = status >= 400 || latencyMicros >= SLOW_REQUEST_MICROS;
+        if (!interesting && ThreadLocalRandom.current().nextDouble() >= SUCCESS_SAMPLE_RATE) {
+            return;
+        }
+        publish(LogEvent.access(route, status, latencyMicros, context.getUserId(),
+                context.getDaoNanos() / 1000, context.getDaoCalls()));
+    }
+
+    private static void publish(LogEvent event) {
+        while (true) {
+            long seq = PRODUCER.get();
+            if (seq - consumer >= CAPACITY) {
+                DROPPED.increment();
+                return;
+            }
+            if (PRODUCER.compareAndSet(seq, seq + 1)) {
+                RING.set((int) (seq & MASK), event);
+                return;
+            }
+        }
+    }
+
+    private static void drain() {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024);
+        StringBuilder line = new StringBuilder(256);
+        long next = 0;
+        while (true) {
+            int slot = (int) (next & MASK);
+            LogEvent event = RING.get(slot);
+            if (event == null) {
+                // Either the ring is empty or a producer claimed the slot but has not stored yet
+                try {
+                    out.flush();
+                } catch (IOException ignored) {
+                }
+                LockSupport.parkNanos(PRODUCER.get() > next ? 1_000 : 1_000_000);
+                continue;
+            }
+            RING.set(slot, null);
+            consumer = ++next;
+
+            line.setLength(0);
+            event.appendJson(line);
+            line.append('\n');
+            try {
+                out.append(line);
+            } catch (IOException ignored) {
+                DROPPED.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package aloui.bilal.userauthservice.logging;
+
+/**
+ * One structured log line. Built on the request thread, serialized to JSON on the writer thread.
+ */
+public class LogEvent {
+
+    private final long timestampMs;
+    private final String kind;
+    private final String name;
+    private final int status;
+    private final long latencyMicros;
+    private final Long userId;
+    private final long daoMicros;
+    private final int daoCalls;
+    private final String error;
+
+    private LogEvent(long timestampMs, String kind, String name, int status, long latencyMicros,
+                     Long userId, long daoMicros, int daoCalls, String error) {
+        this.timestampMs = timestampMs;
+        this.kind = kind;
+        this.name = name;
+        this.status = status;
+        this.latencyMicros = latencyMicros;
+        this.userId = userId;
+        this.daoMicros = daoMicros;
+        this.daoCalls = daoCalls;
+        this.error = error;
+    }
+
+    static LogEvent access(String route, int status, long latencyMicros, Long userId, long daoMicros, int daoCalls) {
+        return new LogEvent(System.currentTimeMillis(), "access", route, status, latencyMicros,
+                userId, daoMicros, daoCalls, null);
+    }
+
+    static LogEvent error(String source, Throwable error) {
+        String message = error.getClass().getSimpleName()
+                + (error.getMessage() == null ? "" : ": " + error.getMessage());
+        return new LogEvent(System.currentTimeMillis(), "error", source, 0, 0, null, 0, 0, message);
+    }
+
+    void appendJson(StringBuilder out) {
+        out.append("{\"ts\":").append(timestampMs)
+                .append(",\"kind\":\"").append(kind).append('"');
+        appendString(out, kind.equals("access") ? "route" : "source", name);
+        if (status != 0) {
+            out.append(",\"status\":").append(status)
+                    .append(",\"latencyUs\":").append(latencyMicros)
+                    .append(",\"daoUs\":").append(daoMicros)
+                    .append(",\"daoCalls\":").append(daoCalls);
+        }
+        if (userId != null) {
+            out.append(",\"userId\":").append(userId);
+        }
+        if (error != null) {
+            appendString(out, "error", error);
+        }
+        out.append('}');
+    }
+
+    private static void appendString(StringBuilder out, String key, String value) {
+        out.append(",\"").append(key).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
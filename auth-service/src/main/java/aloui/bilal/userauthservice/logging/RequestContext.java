@@ -0,0 +1,53 @@
+package aloui.bilal.userauthservice.logging;
+
+/**
+ * Mutable per-request state collected while a request runs on its (virtual) thread.
+ */
+public class RequestContext {
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private Long userId;
+    private long daoNanos;
+    private int daoCalls;
+
+    private RequestContext() {
+    }
+
+    static RequestContext begin() {
+        RequestContext context = new RequestContext();
+        CURRENT.set(context);
+        return context;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    public static void userId(long userId) {
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.userId = userId;
+        }
+    }
+
+    public static void recordDao(long nanos) {
+        RequestContext context = CURRENT.get();
+        if (context != null) {
+            context.daoNanos += nanos;
+            context.daoCalls++;
+        }
+    }
+
+    Long getUserId() {
+        return userId;
+    }
+
+    long getDaoNanos() {
+        return daoNanos;
+    }
+
+    int getDaoCalls() {
+        return daoCalls;
+    }
+}
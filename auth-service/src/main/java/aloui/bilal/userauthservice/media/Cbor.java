@@ -0,0 +1,312 @@
+package aloui.bilal.userauthservice.media;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonBuilderFactory;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * CBOR (RFC 8949) for JSON-P trees, so handlers keep building {@link JsonObject}s whatever the wire format.
+ * Integers that fit a long are written as CBOR integers and other numbers as float64. On decode, byte strings
+ * become base64url text and tags are skipped.
+ */
+public final class Cbor {
+
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_STRING_BYTES = 1 << 20;
+    private static final JsonBuilderFactory BUILDERS = Json.createBuilderFactory(Map.of());
+
+    private Cbor() {
+    }
+
+    public static byte[] encode(JsonValue value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try {
+            write(value, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static void write(JsonValue value, OutputStream out) throws IOException {
+        switch (value.getValueType()) {
+            case OBJECT -> {
+                JsonObject object = (JsonObject) value;
+                header(out, 5, object.size());
+                for (Map.Entry<String, JsonValue> field : object.entrySet()) {
+                    byte[] key = CborKeys.lookup(field.getKey());
+                    if (key != null) {
+                        out.write(key);
+                    } else {
+                        text(out, field.getKey());
+                    }
+                    write(field.getValue(), out);
+                }
+            }
+            case ARRAY -> {
+                JsonArray array = (JsonArray) value;
+                header(out, 4, array.size());
+                for (JsonValue item : array) {
+                    write(item, out);
+                }
+            }
+            case STRING -> text(out, ((JsonString) value).getString());
+            case NUMBER -> number(out, (JsonNumber) value);
+            case TRUE -> out.write(0xf5);
+            case FALSE -> out.write(0xf4);
+            case NULL -> out.write(0xf6);
+        }
+    }
+
+    public static JsonValue decode(byte[] bytes) throws IOException {
+        return read(new ByteArrayInputStream(bytes));
+    }
+
+    public static JsonValue read(InputStream in) throws IOException {
+        return read(in, next(in), 0);
+    }
+
+    private static void number(OutputStream out, JsonNumber number) throws IOException {
+        if (number.isIntegral()) {
+            BigInteger value = number.bigIntegerValue();
+            if (value.bitLength() < 64) {
+                long v = value.longValue();
+                if (v >= 0) {
+                    header(out, 0, v);
+                } else {
+                    header(out, 1, -1 - v);
+                }
+                return;
+            }
+        }
+        long bits = Double.doubleToLongBits(number.doubleValue());
+        out.write(0xfb);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    private static void text(OutputStream out, String s) throws IOException {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        header(out, 3, utf8.length);
+        out.write(utf8);
+    }
+
+    private static void header(OutputStream out, int major, long length) throws IOException {
+        int type = major << 5;
+        if (length < 24) {
+            out.write(type | (int) length);
+        } else if (length < 0x100) {
+            out.write(type | 24);
+            out.write((int) length);
+        } else if (length < 0x10000) {
+            out.write(type | 25);
+            out.write((int) (length >>> 8));
+            out.write((int) length);
+        } else if (length < 0x1_0000_0000L) {
+            out.write(type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                out.write((int) (length >>> shift));
+            }
+        } else {
+            out.write(type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (length >>> shift));
+            }
+        }
+    }
+
+    private static JsonValue read(InputStream in, int initial, int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw new IOException("CBOR nested too deeply");
+        }
+        int major = initial >>> 5;
+        int info = initial & 0x1f;
+        switch (major) {
+            case 0 -> {
+                return Json.createValue(unsigned(in, info));
+            }
+            case 1 -> {
+                return Json.createValue(BigInteger.valueOf(-1).subtract(unsigned(in, info)));
+            }
+            case 2 -> {
+                return Json.createValue(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes(in, info, 2)));
+            }
+            case 3 -> {
+                return Json.createValue(new String(bytes(in, info, 3), StandardCharsets.UTF_8));
+            }
+            case 4 -> {
+                JsonArrayBuilder array = BUILDERS.createArrayBuilder();
+                if (info == 31) {
+                    for (JsonValue item; (item = readOrBreak(in, depth)) != null; ) {
+                        array.add(item);
+                    }
+                } else {
+                    for (long i = length(in, info); i > 0; i--) {
+                        array.add(read(in, next(in), depth + 1));
+                    }
+                }
+                return array.build();
+            }
+            case 5 -> {
+                JsonObjectBuilder object = BUILDERS.createObjectBuilder();
+                if (info == 31) {
+                    for (JsonValue key; (key = readOrBreak(in, depth)) != null; ) {
+                        object.add(keyOf(key), read(in, next(in), depth + 1));
+                    }
+                } else {
+                    for (long i = length(in, info); i > 0; i--) {
+                        object.add(keyOf(read(in, next(in), depth + 1)), read(in, next(in), depth + 1));
+                    }
+                }
+                return object.build();
+            }
+            case 6 -> {
+                // Tags (dates, bignums...) carry no meaning in a JSON tree; keep the tagged value
+                unsigned(in, info);
+                return read(in, next(in), depth + 1);
+            }
+            default -> {
+                return simple(in, info);
+            }
+        }
+    }
+
+    private static JsonValue readOrBreak(InputStream in, int depth) throws IOException {
+        int initial = next(in);
+        return initial == 0xff ? null : read(in, initial, depth + 1);
+    }
+
+    private static String keyOf(JsonValue key) throws IOException {
+        if (key instanceof JsonString s) {
+            return s.getString();
+        }
+        if (key instanceof JsonNumber n) {
+            return n.toString();
+        }
+        throw new IOException("Unsupported CBOR map key " + key.getValueType());
+    }
+
+    private static JsonValue simple(InputStream in, int info) throws IOException {
+        double value;
+        switch (info) {
+            case 20:
+                return JsonValue.FALSE;
+            case 21:
+                return JsonValue.TRUE;
+            case 22, 23:
+                return JsonValue.NULL;
+            case 25:
+                value = halfToDouble((int) readUnsigned(in, 2));
+                break;
+            case 26:
+                value = Float.intBitsToFloat((int) readUnsigned(in, 4));
+                break;
+            case 27:
+                value = Double.longBitsToDouble(readUnsigned(in, 8));
+                break;
+            default:
+                throw new IOException("Unsupported CBOR simple value " + info);
+        }
+        if (!Double.isFinite(value)) {
+            throw new IOException("Non-finite numbers have no JSON form");
+        }
+        return Json.createValue(value);
+    }
+
+    private static double halfToDouble(int half) {
+        int exponent = (half >>> 10) & 0x1f;
+        int mantissa = half & 0x3ff;
+        double value;
+        if (exponent == 0) {
+            value = mantissa * Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN;
+        } else {
+            value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) != 0 ? -value : value;
+    }
+
+    private static byte[] bytes(InputStream in, int info, int major) throws IOException {
+        if (info != 31) {
+            long length = length(in, info);
+            if (length > MAX_STRING_BYTES) {
+                throw new IOException("CBOR string too long");
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            if (bytes.length != length) {
+                throw new EOFException("Truncated CBOR string");
+            }
+            return bytes;
+        }
+        // Indefinite length: definite chunks of the same major type until a break
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+        for (int initial; (initial = next(in)) != 0xff; ) {
+            if (initial >>> 5 != major || (initial & 0x1f) == 31) {
+                throw new IOException("Malformed indefinite-length CBOR string");
+            }
+            chunks.write(bytes(in, initial & 0x1f, major));
+            if (chunks.size() > MAX_STRING_BYTES) {
+                throw new IOException("CBOR string too long");
+            }
+        }
+        return chunks.toByteArray();
+    }
+
+    private static long length(InputStream in, int info) throws IOException {
+        BigInteger length = unsigned(in, info);
+        if (length.bitLength() > 31) {
+            throw new IOException("CBOR length out of range");
+        }
+        return length.longValue();
+    }
+
+    private static BigInteger unsigned(InputStream in, int info) throws IOException {
+        if (info < 24) {
+            return BigInteger.valueOf(info);
+        }
+        long value = switch (info) {
+            case 24 -> readUnsigned(in, 1);
+            case 25 -> readUnsigned(in, 2);
+            case 26 -> readUnsigned(in, 4);
+            case 27 -> readUnsigned(in, 8);
+            default -> throw new IOException("Unsupported CBOR additional info " + info);
+        };
+        // 8-byte arguments are unsigned
+        return value >= 0 ? BigInteger.valueOf(value) : new BigInteger(Long.toUnsignedString(value));
+    }
+
+    private static long readUnsigned(InputStream in, int bytes) throws IOException {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << 8) | next(in);
+        }
+        return value;
+    }
+
+    private static int next(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated CBOR");
+        }
+        return b;
+    }
+}
@@ -0,0 +1,56 @@
+package aloui.bilal.userauthservice.media;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pre-encoded CBOR text headers for the field names the auth responses use. Encoding a known key is one hash
+ * probe (String caches its hash) and one array copy instead of a UTF-8 conversion per field.
+ */
+final class CborKeys {
+
+    private static final String[] SCHEMA = {
+            "status", "message", "valid", "token", "userInfo", "id", "email", "fullName", "organization", "role",
+            "createdAt", "users", "nextCursor", "history", "loginAt", "userAgent", "ipAddress", "newDevice",
+            "permissions", "userId", "error", "checkpoint", "publicKey", "keyId", "signature", "timestamp",
+    };
+
+    private static final int MASK = Integer.highestOneBit(SCHEMA.length * 4) - 1;
+    private static final String[] KEYS = new String[MASK + 1];
+    private static final byte[][] ENCODED = new byte[MASK + 1][];
+
+    static {
+        for (String key : SCHEMA) {
+            int slot = key.hashCode() & MASK;
+            while (KEYS[slot] != null) {
+                slot = (slot + 1) & MASK;
+            }
+            KEYS[slot] = key;
+            ENCODED[slot] = encode(key);
+        }
+    }
+
+    private CborKeys() {
+    }
+
+    /**
+     * The encoded key, or null when it is not part of the schema.
+     */
+    static byte[] lookup(String key) {
+        for (int slot = key.hashCode() & MASK; KEYS[slot] != null; slot = (slot + 1) & MASK) {
+            // Keys are usually the same interned literals the handlers were written with
+            if (KEYS[slot] == key || KEYS[slot].equals(key)) {
+                return ENCODED[slot];
+            }
+        }
+        return null;
+    }
+
+    private static byte[] encode(String key) {
+        byte[] utf8 = key.getBytes(StandardCharsets.UTF_8);
+        // All schema keys are shorter than 24 bytes, so the length fits in the initial byte
+        byte[] encoded = new byte[utf8.length + 1];
+        encoded[0] = (byte) (0x60 | utf8.length);
+        System.arraycopy(utf8, 0, encoded, 1, utf8.length);
+        return encoded;
+    }
+}
@@ -0,0 +1,144 @@
+package aloui.bilal.userauthservice.media;
+
+import io.helidon.common.GenericType;
+import io.helidon.common.media.type.MediaType;
+import io.helidon.common.media.type.MediaTypes;
+import io.helidon.http.HeaderNames;
+import io.helidon.http.Headers;
+import io.helidon.http.HttpMediaType;
+import io.helidon.http.WritableHeaders;
+import io.helidon.http.media.EntityReader;
+import io.helidon.http.media.EntityWriter;
+import io.helidon.http.media.MediaSupport;
+import jakarta.json.JsonValue;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Content negotiation between JSON and CBOR for every handler that sends or reads JSON-P values. CBOR is used
+ * only when the caller asks for it: {@code Accept} ranking {@code application/cbor} above JSON, or a request body
+ * with {@code Content-Type: application/cbor}. Everything else falls through to JSON-P.
+ */
+public class CborSupport implements MediaSupport {
+
+    public static final MediaType APPLICATION_CBOR = MediaTypes.create("application", "cbor");
+
+    private static final HttpMediaType CBOR_CONTENT_TYPE = HttpMediaType.create(APPLICATION_CBOR);
+
+    private final EntityReader<JsonValue> reader = new Reader();
+    private final EntityWriter<JsonValue> writer = new Writer();
+
+    public static CborSupport create() {
+        return new CborSupport();
+    }
+
+    @Override
+    public String name() {
+        return "cbor";
+    }
+
+    @Override
+    public String type() {
+        return "cbor";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ReaderResponse<T> reader(GenericType<T> type, Headers requestHeaders) {
+        if (!JsonValue.class.isAssignableFrom(type.rawType())
+                || requestHeaders.contentType().filter(ct -> ct.test(APPLICATION_CBOR)).isEmpty()) {
+            return ReaderResponse.unsupported();
+        }
+        return new ReaderResponse<>(SupportLevel.SUPPORTED, () -> (EntityReader<T>) reader);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> WriterResponse<T> writer(GenericType<T> type, Headers requestHeaders, WritableHeaders<?> responseHeaders) {
+        if (!JsonValue.class.isAssignableFrom(type.rawType())) {
+            return WriterResponse.unsupported();
+        }
+        Optional<HttpMediaType> contentType = responseHeaders.contentType();
+        if (contentType.isEmpty()) {
+            // Negotiated from Accept, whichever way it goes, so shared caches must key on it
+            varyOnAccept(responseHeaders);
+        }
+        boolean cbor = contentType.isPresent()
+                ? contentType.get().test(APPLICATION_CBOR)
+                : prefersCbor(requestHeaders);
+        return cbor
+                ? new WriterResponse<>(SupportLevel.SUPPORTED, () -> (EntityWriter<T>) writer)
+                : WriterResponse.unsupported();
+    }
+
+    private static void varyOnAccept(WritableHeaders<?> responseHeaders) {
+        if (!responseHeaders.contains(HeaderNames.VARY)) {
+            responseHeaders.set(HeaderNames.VARY, "Accept");
+        } else if (responseHeaders.get(HeaderNames.VARY).allValues().stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .noneMatch(value -> value.trim().equalsIgnoreCase("Accept"))) {
+            responseHeaders.add(HeaderNames.VARY, "Accept");
+        }
+    }
+
+    /**
+     * Accepted types arrive ordered by quality; the first one naming CBOR or JSON decides, and wildcards mean JSON.
+     */
+    private static boolean prefersCbor(Headers requestHeaders) {
+        for (HttpMediaType accepted : requestHeaders.acceptedTypes()) {
+            if (accepted.test(MediaTypes.APPLICATION_JSON)) {
+                return false;
+            }
+            if (accepted.test(APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Reader implements EntityReader<JsonValue> {
+
+        @Override
+        public JsonValue read(GenericType<JsonValue> type, InputStream stream, Headers headers) {
+            try (InputStream in = new BufferedInputStream(stream)) {
+                return Cbor.read(in);
+            } catch (IOException e) {
+                // Surfaces to the handler like a malformed JSON body would
+                throw new IllegalArgumentException("Invalid CBOR body: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public JsonValue read(GenericType<JsonValue> type, InputStream stream, Headers requestHeaders, Headers responseHeaders) {
+            return read(type, stream, responseHeaders);
+        }
+    }
+
+    private static final class Writer implements EntityWriter<JsonValue> {
+
+        @Override
+        public void write(GenericType<JsonValue> type, JsonValue object, OutputStream outputStream,
+                          Headers requestHeaders, WritableHeaders<?> responseHeaders) {
+            write(type, object, outputStream, responseHeaders);
+        }
+
+        @Override
+        public void write(GenericType<JsonValue> type, JsonValue object, OutputStream outputStream, WritableHeaders<?> headers) {
+            if (!headers.contains(HeaderNames.CONTENT_TYPE)) {
+                headers.contentType(CBOR_CONTENT_TYPE);
+            }
+            try (OutputStream out = new BufferedOutputStream(outputStream, 512)) {
+                Cbor.write(object, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package aloui.bilal.userauthservice.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Minimal process-wide metric registry rendered in Prometheus text format by {@link MetricsService}.
+ * Names may carry labels inline, e.g. {@code auth_errors_total{source="UserDaoImpl.login"}}.
+ */
+public class Metrics {
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<? extends Number>> GAUGES = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    public static void gauge(String name, Supplier<? extends Number> value) {
+        GAUGES.put(name, value);
+    }
+
+    public static String scrape() {
+        Map<String, Number> sorted = new TreeMap<>();
+        COUNTERS.forEach((name, adder) -> sorted.put(name, adder.sum()));
+        GAUGES.forEach((name, supplier) -> sorted.put(name, supplier.get()));
+
+        StringBuilder out = new StringBuilder(sorted.size() * 48);
+        sorted.forEach((name, value) -> out.append(name).append(' ').append(value).append('\n'));
+        return out.toString();
+    }
+}
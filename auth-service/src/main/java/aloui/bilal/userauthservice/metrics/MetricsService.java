@@ -0,0 +1,15 @@
+package aloui.bilal.userauthservice.metrics;
+
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+
+public class MetricsService implements HttpService {
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules.get("/", (req, res) -> res
+                .header(HeaderNames.CONTENT_TYPE, "text/plain; version=0.0.4; charset=utf-8")
+                .send(Metrics.scrape()));
+    }
+}
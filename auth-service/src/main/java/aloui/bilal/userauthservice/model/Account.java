@@ -0,0 +1,20 @@
+package aloui.bilal.userauthservice.model;
+
+public class Account {
+
+    private final User user;
+    private final String hashedPassword;
+
+    public Account(User user, String hashedPassword) {
+        this.user = user;
+        this.hashedPassword = hashedPassword;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getHashedPassword() {
+        return hashedPassword;
+    }
+}
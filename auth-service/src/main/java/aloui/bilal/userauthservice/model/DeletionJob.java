@@ -0,0 +1,144 @@
+package aloui.bilal.userauthservice.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Progress of one account deletion, as stored in {@code user_deletion_jobs}.
+ */
+public class DeletionJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    private final long userId;
+    private final String state;
+    private final String step;
+    private final int stepIndex;
+    private final long rowsDeleted;
+    private final Timestamp requestedAt;
+    private final Timestamp updatedAt;
+    private final Timestamp finishedAt;
+    private final String lastError;
+
+    private DeletionJob(Builder builder) {
+        this.userId = builder.userId;
+        this.state = builder.state;
+        this.step = builder.step;
+        this.stepIndex = builder.stepIndex;
+        this.rowsDeleted = builder.rowsDeleted;
+        this.requestedAt = builder.requestedAt;
+        this.updatedAt = builder.updatedAt;
+        this.finishedAt = builder.finishedAt;
+        this.lastError = builder.lastError;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Name of the step being worked on, or null before the first batch.
+     */
+    public String getStep() {
+        return step;
+    }
+
+    /**
+     * Number of steps already finished.
+     */
+    public int getStepIndex() {
+        return stepIndex;
+    }
+
+    /**
+     * Rows deleted or detached so far, across all steps.
+     */
+    public long getRowsDeleted() {
+        return rowsDeleted;
+    }
+
+    public Timestamp getRequestedAt() {
+        return requestedAt;
+    }
+
+    public Timestamp getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public Timestamp getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Error of the latest failed batch; the job is retried, so this can be set on a job that later finishes.
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    public static class Builder {
+        private long userId;
+        private String state;
+        private String step;
+        private int stepIndex;
+        private long rowsDeleted;
+        private Timestamp requestedAt;
+        private Timestamp updatedAt;
+        private Timestamp finishedAt;
+        private String lastError;
+
+        public Builder userId(long userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public Builder state(String state) {
+            this.state = state;
+            return this;
+        }
+
+        public Builder step(String step) {
+            this.step = step;
+            return this;
+        }
+
+        public Builder stepIndex(int stepIndex) {
+            this.stepIndex = stepIndex;
+            return this;
+        }
+
+        public Builder rowsDeleted(long rowsDeleted) {
+            this.rowsDeleted = rowsDeleted;
+            return this;
+        }
+
+        public Builder requestedAt(Timestamp requestedAt) {
+            this.requestedAt = requestedAt;
+            return this;
+        }
+
+        public Builder updatedAt(Timestamp updatedAt) {
+            this.updatedAt = updatedAt;
+            return this;
+        }
+
+        public Builder finishedAt(Timestamp finishedAt) {
+            this.finishedAt = finishedAt;
+            return this;
+        }
+
+        public Builder lastError(String lastError) {
+            this.lastError = lastError;
+            return this;
+        }
+
+        public DeletionJob build() {
+            return new DeletionJob(this);
+        }
+    }
+}
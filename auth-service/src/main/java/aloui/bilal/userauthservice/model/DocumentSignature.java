@@ -0,0 +1,121 @@
+package aloui.bilal.userauthservice.model;
+
+/**
+ * One {@code document_signatures} row together with what is needed to check it: the digest the signer signed
+ * ({@code signed_digest}) and the id and status of the signing key.
+ */
+public class DocumentSignature {
+
+    private final long id;
+    private final long documentId;
+    private final long userId;
+    private final Long keyId;
+    private final String keyStatus;
+    private final String algorithm;
+    private final String signature;
+    private final String signedDigest;
+
+    private DocumentSignature(Builder builder) {
+        this.id = builder.id;
+        this.documentId = builder.documentId;
+        this.userId = builder.userId;
+        this.keyId = builder.keyId;
+        this.keyStatus = builder.keyStatus;
+        this.algorithm = builder.algorithm;
+        this.signature = builder.signature;
+        this.signedDigest = builder.signedDigest;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getDocumentId() {
+        return documentId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getKeyId() {
+        return keyId;
+    }
+
+    public String getKeyStatus() {
+        return keyStatus;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Base64 signature as stored in {@code crypto_signature}.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Hex SHA-256 of the document content; its 32 raw bytes are the signed message.
+     */
+    public String getSignedDigest() {
+        return signedDigest;
+    }
+
+    public static class Builder {
+        private long id;
+        private long documentId;
+        private long userId;
+        private Long keyId;
+        private String keyStatus;
+        private String algorithm;
+        private String signature;
+        private String signedDigest;
+
+        public Builder id(long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder documentId(long documentId) {
+            this.documentId = documentId;
+            return this;
+        }
+
+        public Builder userId(long userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        public Builder keyId(Long keyId) {
+            this.keyId = keyId;
+            return this;
+        }
+
+        public Builder keyStatus(String keyStatus) {
+            this.keyStatus = keyStatus;
+            return this;
+        }
+
+        public Builder algorithm(String algorithm) {
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        public Builder signature(String signature) {
+            this.signature = signature;
+            return this;
+        }
+
+        public Builder signedDigest(String signedDigest) {
+            this.signedDigest = signedDigest;
+            return this;
+        }
+
+        public DocumentSignature build() {
+            return new DocumentSignature(this);
+        }
+    }
+}
@@ -8,15 +8,19 @@ public class LoginHistory {
     private final long id;
     private final long userId;
     private final Timestamp loginAt;
+    private final int userAgentId;
     private final String userAgent;
     private final String ipAddress;
+    private final boolean newDevice;
 
     private LoginHistory(Builder builder) {
         this.id = builder.id;
         this.userId = builder.userId;
         this.loginAt = builder.loginAt;
+        this.userAgentId = builder.userAgentId;
         this.userAgent = builder.userAgent;
         this.ipAddress = builder.ipAddress;
+        this.newDevice = builder.newDevice;
     }
 
     public long getId() {
@@ -31,6 +35,10 @@ public class LoginHistory {
         return loginAt;
     }
 
+    public int getUserAgentId() {
+        return userAgentId;
+    }
+
     public String getUserAgent() {
         return userAgent;
     }
@@ -39,12 +47,30 @@ public class LoginHistory {
         return ipAddress;
     }
 
+    public boolean isNewDevice() {
+        return newDevice;
+    }
+
     public static class Builder {
         private long id;
         private long userId;
         private Timestamp loginAt;
+        private int userAgentId;
         private String userAgent;
         private String ipAddress;
+        private boolean newDevice;
+
+        public Builder() {}
+
+        public Builder(LoginHistory loginHistory) {
+            this.id = loginHistory.id;
+            this.userId = loginHistory.userId;
+            this.loginAt = loginHistory.loginAt;
+            this.userAgentId = loginHistory.userAgentId;
+            this.userAgent = loginHistory.userAgent;
+            this.ipAddress = loginHistory.ipAddress;
+            this.newDevice = loginHistory.newDevice;
+        }
 
         public Builder id(long id) {
             this.id = id;
@@ -61,6 +87,11 @@ public class LoginHistory {
             return this;
         }
 
+        public Builder userAgentId(int userAgentId) {
+            this.userAgentId = userAgentId;
+            return this;
+        }
+
         public Builder userAgent(String userAgent) {
             this.userAgent = userAgent;
             return this;
@@ -71,6 +102,11 @@ public class LoginHistory {
             return this;
         }
 
+        public Builder newDevice(boolean newDevice) {
+            this.newDevice = newDevice;
+            return this;
+        }
+
         public LoginHistory build() {
             return new LoginHistory(this);
         }
@@ -0,0 +1,21 @@
+package aloui.bilal.userauthservice.model;
+
+public class LoginResult {
+
+    private final User user;
+    private final LoginHistory loginHistory;
+
+    public LoginResult(User user, LoginHistory loginHistory) {
+        this.user = user;
+        this.loginHistory = loginHistory;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    // The login_history entry recorded for this login
+    public LoginHistory getLoginHistory() {
+        return loginHistory;
+    }
+}
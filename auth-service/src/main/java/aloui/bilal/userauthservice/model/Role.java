@@ -1,8 +1,54 @@
 package aloui.bilal.userauthservice.model;
 
+import java.util.Collections;
+import java.util.Set;
+
 public class Role {
 
-    private Long id;
-    private String role;
+    private final Long id;
+    private final String role;
+    private final Set<String> permissions;
+
+    private Role(Builder builder) {
+        this.id = builder.id;
+        this.role = builder.role;
+        this.permissions = builder.permissions;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Set<String> getPermissions() {
+        return permissions;
+    }
+
+    public static class Builder {
+        private Long id;
+        private String role;
+        private Set<String> permissions = Collections.emptySet();
+
+        public Builder id(Long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder role(String role) {
+            this.role = role;
+            return this;
+        }
+
+        public Builder permissions(Set<String> permissions) {
+            this.permissions = Set.copyOf(permissions);
+            return this;
+        }
 
+        public Role build() {
+            return new Role(this);
+        }
+    }
 }
@@ -9,6 +9,7 @@ public class User {
     private String email;
     private int role;
     private String organizationName;
+    private Timestamp createdAt;
 
     // Private constructor
     private User(Builder builder) {
@@ -17,6 +18,7 @@ public class User {
         this.email = builder.email;
         this.role = builder.role;
         this.organizationName = builder.organizationName;
+        this.createdAt = builder.createdAt;
     }
 
     // Getters
@@ -40,6 +42,10 @@ public class User {
         return organizationName;
     }
 
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
 
     // Builder Class
     public static class Builder {
@@ -48,6 +54,7 @@ public class User {
         private String email;
         private int role;
         private String organizationName;
+        private Timestamp createdAt;
 
         public Builder() {}
 
@@ -57,6 +64,7 @@ public class User {
             this.email = user.email;
             this.role = user.role;
             this.organizationName = user.organizationName;
+            this.createdAt = user.createdAt;
         }
 
         public Builder id(Long id) {
@@ -85,6 +93,11 @@ public class User {
         }
 
 
+        public Builder createdAt(Timestamp createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
         public User build() {
             return new User(this);
         }
@@ -0,0 +1,118 @@
+package aloui.bilal.userauthservice.model;
+
+import java.sql.Timestamp;
+
+/**
+ * Filters and keyset position for one page of the admin user directory. Pages are ordered by
+ * descending id; {@code beforeId} is the last id of the previous page.
+ */
+public class UserQuery {
+
+    private final String organizationName;
+    private final Integer roleId;
+    private final String emailPrefix;
+    private final String search;
+    private final Timestamp createdAfter;
+    private final Timestamp createdBefore;
+    private final Long beforeId;
+    private final int limit;
+
+    private UserQuery(Builder builder) {
+        this.organizationName = builder.organizationName;
+        this.roleId = builder.roleId;
+        this.emailPrefix = builder.emailPrefix;
+        this.search = builder.search;
+        this.createdAfter = builder.createdAfter;
+        this.createdBefore = builder.createdBefore;
+        this.beforeId = builder.beforeId;
+        this.limit = builder.limit;
+    }
+
+    public String getOrganizationName() {
+        return organizationName;
+    }
+
+    public Integer getRoleId() {
+        return roleId;
+    }
+
+    public String getEmailPrefix() {
+        return emailPrefix;
+    }
+
+    // Case-insensitive substring of email or full name
+    public String getSearch() {
+        return search;
+    }
+
+    public Timestamp getCreatedAfter() {
+        return createdAfter;
+    }
+
+    public Timestamp getCreatedBefore() {
+        return createdBefore;
+    }
+
+    public Long getBeforeId() {
+        return beforeId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public static class Builder {
+        private String organizationName;
+        private Integer roleId;
+        private String emailPrefix;
+        private String search;
+        private Timestamp createdAfter;
+        private Timestamp createdBefore;
+        private Long beforeId;
+        private int limit = 50;
+
+        public Builder organizationName(String organizationName) {
+            this.organizationName = organizationName;
+            return this;
+        }
+
+        public Builder roleId(Integer roleId) {
+            this.roleId = roleId;
+            return this;
+        }
+
+        public Builder emailPrefix(String emailPrefix) {
+            this.emailPrefix = emailPrefix;
+            return this;
+        }
+
+        public Builder search(String search) {
+            this.search = search;
+            return this;
+        }
+
+        public Builder createdAfter(Timestamp createdAfter) {
+            this.createdAfter = createdAfter;
+            return this;
+        }
+
+        public Builder createdBefore(Timestamp createdBefore) {
+            this.createdBefore = createdBefore;
+            return this;
+        }
+
+        public Builder beforeId(Long beforeId) {
+            this.beforeId = beforeId;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public UserQuery build() {
+            return new UserQuery(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package aloui.bilal.userauthservice.outbox;
+
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a local file as JSON lines, synced before the batch counts as published.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path path;
+
+    FileOutboxSink(Config config) {
+        this.path = Path.of(config.get("path").asString().orElse("/tmp/auth-outbox/user-events.ndjson"));
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> batch) throws IOException {
+        StringBuilder lines = new StringBuilder(batch.size() * 160);
+        for (OutboxEvent event : batch) {
+            lines.append(event.toJson()).append('\n');
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+    }
+}
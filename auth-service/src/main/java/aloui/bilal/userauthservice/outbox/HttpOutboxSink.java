@@ -0,0 +1,58 @@
+package aloui.bilal.userauthservice.outbox;
+
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch to a consumer as {@code application/x-ndjson}; any 2xx acknowledges the whole batch.
+ */
+public class HttpOutboxSink implements OutboxSink {
+
+    private final URI url;
+    private final String token;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    HttpOutboxSink(Config config) {
+        this.url = URI.create(config.get("url").asString().filter(u -> !u.isBlank())
+                .orElseThrow(() -> new IllegalArgumentException("outbox.http.url is required for the http sink")));
+        this.token = config.get("token").asString().filter(t -> !t.isBlank()).orElse(null);
+        this.timeout = Duration.ofMillis(config.get("timeout-ms").asLong().orElse(5000L));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> batch) throws IOException {
+        StringBuilder body = new StringBuilder(batch.size() * 160);
+        for (OutboxEvent event : batch) {
+            body.append(event.toJson()).append('\n');
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(url)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while publishing to " + url, e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Outbox consumer " + url + " answered " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package aloui.bilal.userauthservice.outbox;
+
+import io.helidon.config.Config;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent events in memory. Stands in for a real consumer in local setups.
+ */
+public class MemoryOutboxSink implements OutboxSink {
+
+    private final int capacity;
+    private final Deque<OutboxEvent> events = new ArrayDeque<>();
+
+    MemoryOutboxSink(Config config) {
+        this.capacity = config.get("capacity").asInt().orElse(10_000);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> batch) {
+        for (OutboxEvent event : batch) {
+            if (events.size() == capacity) {
+                events.pollFirst();
+            }
+            events.addLast(event);
+        }
+    }
+
+    /**
+     * Retained events, oldest first.
+     */
+    public synchronized List<OutboxEvent> recent() {
+        return new ArrayList<>(events);
+    }
+}
@@ -0,0 +1,25 @@
+package aloui.bilal.userauthservice.outbox;
+
+import java.time.Instant;
+
+/**
+ * One row of user_outbox. {@code data} is the JSON object stored with the event.
+ */
+public record OutboxEvent(long id, String type, long userId, Instant occurredAt, String data) {
+
+    public static final String REGISTERED = "user.registered";
+    public static final String UPDATED = "user.updated";
+    public static final String PASSWORD_CHANGED = "user.password_changed";
+    public static final String DELETED = "user.deleted";
+
+    /**
+     * The event as a single JSON line; consumers dedupe on {@code id}.
+     */
+    public String toJson() {
+        return "{\"id\":" + id
+                + ",\"type\":\"" + type
+                + "\",\"userId\":" + userId
+                + ",\"occurredAt\":\"" + occurredAt
+                + "\",\"data\":" + data + "}";
+    }
+}
@@ -0,0 +1,31 @@
+package aloui.bilal.userauthservice.outbox;
+
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for relayed outbox events.
+ */
+public interface OutboxSink {
+
+    /**
+     * Delivers a batch in id order. Throwing leaves the whole batch unpublished, so it is offered again later
+     * and a sink may see an event more than once.
+     */
+    void publish(List<OutboxEvent> batch) throws IOException;
+
+    /**
+     * The sink named by {@code outbox.sink}: {@code file}, {@code http} or {@code memory}.
+     */
+    static OutboxSink fromConfig(Config config) {
+        String type = config.get("sink").asString().orElse("file");
+        return switch (type) {
+            case "file" -> new FileOutboxSink(config.get("file"));
+            case "http" -> new HttpOutboxSink(config.get("http"));
+            case "memory" -> new MemoryOutboxSink(config.get("memory"));
+            default -> throw new IllegalArgumentException("Unknown outbox sink: " + type);
+        };
+    }
+}
@@ -0,0 +1,130 @@
+package aloui.bilal.userauthservice.security;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Read-only view of a breached-password index file, memory-mapped so lookups cost a few page reads
+ * and no heap. Entries are the first 64 bits of SHA-1(password), sorted as unsigned values, with a
+ * 16-bit fan-out table narrowing each binary search to one bucket.
+ * <pre>
+ * int  magic       "BPI1"
+ * int  fanoutBits  16
+ * long count
+ * long fanout[65537]   index of the first entry of each bucket, fanout[65536] = count
+ * long entries[count]  big-endian
+ * </pre>
+ * Written by {@link BreachedPasswordIndexBuilder}.
+ */
+public final class BreachedPasswordIndex {
+
+    static final int MAGIC = 0x42504931;
+    static final int FANOUT_BITS = 16;
+    static final int FANOUT_SIZE = (1 << FANOUT_BITS) + 1;
+    static final int HEADER_BYTES = 16 + FANOUT_SIZE * Long.BYTES;
+
+    // A single MappedByteBuffer is limited to 2 GiB, so entries are mapped in 1 GiB segments
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final Path path;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long count;
+
+    private BreachedPasswordIndex(Path path, MappedByteBuffer header, MappedByteBuffer[] segments, long count) {
+        this.path = path;
+        this.header = header;
+        this.segments = segments;
+        this.count = count;
+    }
+
+    public static BreachedPasswordIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Breached-password index too small: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FANOUT_BITS) {
+                throw new IOException("Not a breached-password index: " + path);
+            }
+            long count = header.getLong(8);
+            if (size != HEADER_BYTES + count * Long.BYTES || header.getLong(16 + (FANOUT_SIZE - 1) * Long.BYTES) != count) {
+                throw new IOException("Truncated breached-password index: " + path);
+            }
+
+            int segmentCount = (int) ((count + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long entries = Math.min(count - first, 1L << SEGMENT_SHIFT);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * Long.BYTES, entries * Long.BYTES);
+            }
+            // The mappings stay valid after the channel is closed
+            return new BreachedPasswordIndex(path, header, segments, count);
+        }
+    }
+
+    public boolean contains(String password) {
+        return containsPrefix(prefixOf(password));
+    }
+
+    boolean containsPrefix(long prefix) {
+        int bucket = (int) (prefix >>> (Long.SIZE - FANOUT_BITS));
+        long lo = fanout(bucket);
+        long hi = fanout(bucket + 1) - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int cmp = Long.compareUnsigned(entry(mid), prefix);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long fanout(int bucket) {
+        return header.getLong(16 + bucket * Long.BYTES);
+    }
+
+    private long entry(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].getLong((int) (index & SEGMENT_MASK) * Long.BYTES);
+    }
+
+    /**
+     * First 64 bits of SHA-1, the same hash the public breach corpora are published under.
+     */
+    static long prefixOf(String password) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(password.getBytes(StandardCharsets.UTF_8));
+            long prefix = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                prefix = (prefix << 8) | (digest[i] & 0xFF);
+            }
+            return prefix;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,165 @@
+package aloui.bilal.userauthservice.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link BreachedPasswordIndex} file from a password corpus.
+ * <p>
+ * Usage: {@code BreachedPasswordIndexBuilder [--plain] <corpus> <index>}
+ * <p>
+ * By default each line is a SHA-1 hex digest, optionally followed by {@code :count} (the format of the
+ * public "ordered by hash" downloads, which are streamed without sorting). With {@code --plain} each line
+ * is a cleartext password. The index is written next to the target and moved into place atomically, so a
+ * running service hot-reloads it without ever seeing a partial file.
+ */
+public final class BreachedPasswordIndexBuilder {
+
+    private BreachedPasswordIndexBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean plain = args.length == 3 && "--plain".equals(args[0]);
+        if (args.length != (plain ? 3 : 2)) {
+            System.err.println("Usage: BreachedPasswordIndexBuilder [--plain] <corpus> <index>");
+            System.exit(2);
+        }
+        Path corpus = Path.of(args[plain ? 1 : 0]);
+        Path target = Path.of(args[plain ? 2 : 1]);
+
+        long started = System.nanoTime();
+        long count = build(corpus, target, plain);
+        System.out.printf("Wrote %d entries to %s in %d ms%n", count, target, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    static long build(Path corpus, Path target, boolean plain) throws IOException {
+        Path raw = Files.createTempFile(target.toAbsolutePath().getParent(), "breached", ".raw");
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            boolean sorted = true;
+            long total = 0;
+            long previous = 0;
+            try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(raw), 1 << 16))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    long prefix = plain ? BreachedPasswordIndex.prefixOf(line) : parseDigest(line);
+                    if (total > 0 && Long.compareUnsigned(prefix, previous) < 0) {
+                        sorted = false;
+                    }
+                    out.writeLong(prefix);
+                    previous = prefix;
+                    total++;
+                }
+            }
+
+            if (!sorted) {
+                sortInPlace(raw, total);
+            }
+            long count = writeIndex(raw, tmp);
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(raw);
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long parseDigest(String line) {
+        int end = line.indexOf(':');
+        String hex = (end < 0 ? line : line.substring(0, end)).trim();
+        if (hex.length() != 40) {
+            throw new IllegalArgumentException("Expected a SHA-1 hex digest, got: " + hex);
+        }
+        return Long.parseUnsignedLong(hex.substring(0, 16), 16);
+    }
+
+    /**
+     * Unsorted corpora must fit in memory once; flipping the sign bit lets a signed sort order them unsigned.
+     */
+    private static void sortInPlace(Path raw, long total) throws IOException {
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IOException("Unsorted corpus too large to sort in memory (" + total + " entries); sort it by hash first");
+        }
+        long[] values = new long[(int) total];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(raw), 1 << 16))) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readLong() ^ Long.MIN_VALUE;
+            }
+        }
+        Arrays.sort(values);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(raw), 1 << 16))) {
+            for (long value : values) {
+                out.writeLong(value ^ Long.MIN_VALUE);
+            }
+        }
+    }
+
+    private static long writeIndex(Path raw, Path tmp) throws IOException {
+        long[] fanout = new long[BreachedPasswordIndex.FANOUT_SIZE];
+        long count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(raw), 1 << 16));
+             FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(BreachedPasswordIndex.HEADER_BYTES);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), 1 << 16))) {
+                boolean first = true;
+                long previous = 0;
+                while (true) {
+                    long value;
+                    try {
+                        value = in.readLong();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    if (!first && value == previous) {
+                        continue; // Duplicates add nothing to a membership test
+                    }
+                    out.writeLong(value);
+                    fanout[(int) (value >>> (Long.SIZE - BreachedPasswordIndex.FANOUT_BITS)) + 1]++;
+                    previous = value;
+                    first = false;
+                    count++;
+                }
+                out.flush();
+
+                // Bucket sizes become start offsets
+                for (int i = 1; i < fanout.length; i++) {
+                    fanout[i] += fanout[i - 1];
+                }
+                ByteBuffer header = ByteBuffer.allocate(BreachedPasswordIndex.HEADER_BYTES);
+                header.putInt(BreachedPasswordIndex.MAGIC)
+                        .putInt(BreachedPasswordIndex.FANOUT_BITS)
+                        .putLong(count);
+                for (long offset : fanout) {
+                    header.putLong(offset);
+                }
+                header.flip();
+                channel.position(0);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+package aloui.bilal.userauthservice.security;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
+import io.helidon.config.Config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Offline breached-password check backed by a memory-mapped {@link BreachedPasswordIndex}.
+ * The index file is polled and swapped in atomically when it changes; with no index configured
+ * (or none loadable yet) every password passes.
+ */
+public class BreachedPasswords {
+
+    private static final Logger LOGGER = Logger.getLogger(BreachedPasswords.class.getName());
+
+    private static final Path INDEX_FILE;
+    private static final long RELOAD_SECONDS;
+
+    private static final AtomicReference<BreachedPasswordIndex> INDEX = new AtomicReference<>();
+    private static final LongAdder REJECTED = Metrics.counter("auth_breached_password_rejected_total");
+
+    private static volatile Object loadedVersion;
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        Config config = Config.create().get("security.breached-passwords");
+        String file = config.get("index-file").asString().orElse("");
+        INDEX_FILE = file.isBlank() ? null : Path.of(file);
+        RELOAD_SECONDS = config.get("reload-seconds").asLong().orElse(60L);
+
+        Metrics.gauge("auth_breached_password_index_entries", () -> {
+            BreachedPasswordIndex index = INDEX.get();
+            return index == null ? 0 : index.getCount();
+        });
+    }
+
+    private BreachedPasswords() {
+    }
+
+    public static synchronized void start() {
+        if (INDEX_FILE == null || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("breached-password-reload")
+                .factory());
+        scheduler.scheduleWithFixedDelay(BreachedPasswords::reloadIfChanged, 0, RELOAD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static boolean isBreached(String password) {
+        BreachedPasswordIndex index = INDEX.get();
+        if (index == null) {
+            return false;
+        }
+        try (Span span = Tracer.start("password.breach_check")) {
+            if (index.contains(password)) {
+                REJECTED.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static void reloadIfChanged() {
+        try {
+            if (!Files.exists(INDEX_FILE)) {
+                return;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(INDEX_FILE, BasicFileAttributes.class);
+            // The builder replaces the file by rename, so a new file key (inode) or mtime means a new index
+            Object version = attributes.fileKey() != null
+                    ? attributes.fileKey().toString() + "@" + attributes.lastModifiedTime()
+                    : attributes.lastModifiedTime().toString() + "/" + attributes.size();
+            if (version.equals(loadedVersion)) {
+                return;
+            }
+            BreachedPasswordIndex index = BreachedPasswordIndex.open(INDEX_FILE);
+            // The previous mapping is released by the GC once no lookup holds it
+            INDEX.set(index);
+            loadedVersion = version;
+            LOGGER.info("Loaded breached-password index " + INDEX_FILE + " with " + index.getCount() + " entries");
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Keeping the current breached-password index", e);
+        }
+    }
+}
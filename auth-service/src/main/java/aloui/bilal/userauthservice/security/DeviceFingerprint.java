@@ -0,0 +1,69 @@
+package aloui.bilal.userauthservice.security;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reduces (IP address, User-Agent) to a 64-bit device fingerprint.
+ * The IP is cut to its network prefix and version numbers are stripped from the
+ * User-Agent so DHCP churn and browser updates do not look like a new device.
+ */
+public class DeviceFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private DeviceFingerprint() {
+    }
+
+    public static long of(String ipAddress, String userAgent) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, ipPrefix(ipAddress));
+        hash = (hash ^ '\n') * FNV_PRIME;
+        hash = mix(hash, userAgentFamily(userAgent));
+        // Final avalanche so both 32-bit halves are usable as independent probes
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    static String ipPrefix(String ipAddress) {
+        if (ipAddress == null || ipAddress.isBlank()) {
+            return "";
+        }
+        // X-Forwarded-For may carry a proxy chain; the first entry is the client
+        String ip = ipAddress.split(",")[0].trim();
+        if (ip.indexOf(':') >= 0) {
+            String[] groups = ip.split(":", -1);
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < Math.min(3, groups.length); i++) {
+                prefix.append(groups[i]).append(':');
+            }
+            return prefix.toString(); // /48
+        }
+        int lastDot = ip.lastIndexOf('.');
+        return lastDot > 0 ? ip.substring(0, lastDot) : ip; // /24
+    }
+
+    static String userAgentFamily(String userAgent) {
+        if (userAgent == null) {
+            return "";
+        }
+        StringBuilder family = new StringBuilder(userAgent.length());
+        for (int i = 0; i < userAgent.length(); i++) {
+            char c = userAgent.charAt(i);
+            if (!Character.isDigit(c) && c != '.' && c != '_') {
+                family.append(Character.toLowerCase(c));
+            }
+        }
+        return family.toString();
+    }
+
+    private static long mix(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
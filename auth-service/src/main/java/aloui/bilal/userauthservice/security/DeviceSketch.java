@@ -0,0 +1,89 @@
+package aloui.bilal.userauthservice.security;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size Bloom filter of the device fingerprints a user has logged in from.
+ * 512 bits with 4 probes keeps the false-positive rate around 1% for 50 devices.
+ */
+public class DeviceSketch {
+
+    private static final byte VERSION = 1;
+    private static final int BITS = 512;
+    private static final int PROBES = 4;
+    private static final int WORDS = BITS / 64;
+    private static final int SERIALIZED_SIZE = 1 + 2 + WORDS * Long.BYTES;
+
+    private final long[] words;
+    private int count;
+
+    public DeviceSketch() {
+        this.words = new long[WORDS];
+    }
+
+    private DeviceSketch(long[] words, int count) {
+        this.words = words;
+        this.count = count;
+    }
+
+    public synchronized boolean mightContain(long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < PROBES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, BITS);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the fingerprint and returns true when it was not already present.
+     */
+    public synchronized boolean add(long fingerprint) {
+        int h1 = (int) fingerprint;
+        int h2 = (int) (fingerprint >>> 32);
+        boolean changed = false;
+        for (int i = 0; i < PROBES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, BITS);
+            long mask = 1L << bit;
+            if ((words[bit >>> 6] & mask) == 0) {
+                words[bit >>> 6] |= mask;
+                changed = true;
+            }
+        }
+        if (changed && count < 0xFFFF) {
+            count++;
+        }
+        return changed;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_SIZE);
+        buffer.put(VERSION);
+        buffer.putShort((short) count);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    public static DeviceSketch fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != SERIALIZED_SIZE || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported device sketch encoding");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        int count = Short.toUnsignedInt(buffer.getShort());
+        long[] words = new long[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new DeviceSketch(words, count);
+    }
+}
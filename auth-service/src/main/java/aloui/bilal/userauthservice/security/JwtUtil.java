@@ -1,5 +1,9 @@
 package aloui.bilal.userauthservice.security;
 
+import aloui.bilal.userauthservice.cache.TokenCache;
+import aloui.bilal.userauthservice.diagnostics.JwtVerifyEvent;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
@@ -24,6 +28,7 @@ public class JwtUtil {
     private static final long expirationMs;
     private static final String issuer;
     private static final JWSAlgorithm jwsAlgorithm;
+    private static final String PERMS_CLAIM = "perms";
 
     static {
         Config jwtConfig = Config.create().get("jwt");
@@ -36,7 +41,9 @@ public class JwtUtil {
     }
 
     public static String generateToken(Long userId, int role) {
-        try {
+        // outside the try so a missing permission snapshot stays a DataAccessException
+        long perms = PermissionRegistry.maskFor(role);
+        try (Span span = Tracer.start("jwt.sign")) {
             JWSSigner signer = new MACSigner(key.getBytes(StandardCharsets.UTF_8));
 
             JWTClaimsSet claimsSet = new JWTClaimsSet.Builder()
@@ -45,6 +52,7 @@ public class JwtUtil {
                     .issueTime(new Date())
                     .expirationTime(new Date(System.currentTimeMillis() + expirationMs))
                     .claim("role", role)
+                    .claim(PERMS_CLAIM, perms)
                     .build();
 
             SignedJWT signedJWT = new SignedJWT(
@@ -61,21 +69,89 @@ public class JwtUtil {
     }
 
     public static boolean verifyToken(String token) {
-        try {
+        return verify(token).isPresent();
+    }
+
+    /**
+     * Verified, unrevoked token details, served from the verification cache when possible.
+     */
+    public static Optional<TokenCache.VerifiedToken> verify(String token) {
+        JwtVerifyEvent event = new JwtVerifyEvent();
+        event.begin();
+        TokenCache.VerifiedToken verified = TokenCache.get(token);
+        event.cacheHit = verified != null;
+        if (verified == null) {
+            verified = verifySignature(token);
+        }
+        boolean valid = verified != null && !RevocationRegistry.isRevoked(verified.userId(), verified.issuedAtMs());
+        event.valid = valid;
+        event.commit();
+        return valid ? Optional.of(verified) : Optional.empty();
+    }
+
+    private static TokenCache.VerifiedToken verifySignature(String token) {
+        try (Span span = Tracer.start("jwt.verify")) {
             SignedJWT signedJWT = SignedJWT.parse(token);
 
             JWSVerifier verifier = new MACVerifier(key.getBytes(StandardCharsets.UTF_8));
 
             boolean signatureValid = signedJWT.verify(verifier);
-            boolean notExpired = new Date().before(signedJWT.getJWTClaimsSet().getExpirationTime());
+            JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+            boolean notExpired = new Date().before(claims.getExpirationTime());
+
+            if (!signatureValid || !notExpired) {
+                return null;
+            }
+
+            long userId = Long.parseLong(claims.getSubject());
+            long issuedAtMs = claims.getIssueTime() == null ? 0 : claims.getIssueTime().getTime();
+            Integer role = claims.getIntegerClaim("role");
+            Long perms = claims.getLongClaim(PERMS_CLAIM);
+            TokenCache.VerifiedToken verified = new TokenCache.VerifiedToken(userId, role == null ? 0 : role,
+                    perms == null ? -1L : perms, issuedAtMs, claims.getExpirationTime().getTime());
+            TokenCache.put(token, verified);
+            return verified;
 
-            return signatureValid && notExpired;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Subject of an already verified token, served from the verification cache when possible.
+     */
+    public static long userIdOf(String token) {
+        TokenCache.VerifiedToken cached = TokenCache.get(token);
+        if (cached != null) {
+            return cached.userId();
+        }
+        return Long.parseLong(parseBody(token).getSubject());
+    }
 
+    /**
+     * Effective permission mask of an already verified token: the signed {@code perms} claim narrowed to what
+     * the role currently grants, so revoking a permission from a role applies to tokens already issued.
+     * Tokens issued before the claim existed get the role's current mask.
+     */
+    public static long permissionsOf(String token) {
+        TokenCache.VerifiedToken cached = TokenCache.get(token);
+        if (cached != null) {
+            return permissionsOf(cached);
+        }
+        try {
+            JWTClaimsSet claims = parseBody(token);
+            Integer role = claims.getIntegerClaim("role");
+            Long perms = claims.getLongClaim(PERMS_CLAIM);
+            return (perms == null ? -1L : perms) & PermissionRegistry.maskFor(role == null ? 0 : role);
         } catch (Exception e) {
-            return false;
+            return 0L;
         }
     }
 
+    public static long permissionsOf(TokenCache.VerifiedToken verified) {
+        return verified.perms() & PermissionRegistry.maskFor(verified.role());
+    }
+
     public static JWTClaimsSet parseBody(String token) {
         try {
             SignedJWT signedJWT = SignedJWT.parse(token);
@@ -0,0 +1,68 @@
+package aloui.bilal.userauthservice.security;
+
+import aloui.bilal.userauthservice.dao.IDeviceSketchDao;
+import io.helidon.config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "has this user logged in from this device before?" from an in-memory per-user sketch.
+ * Sketches are loaded lazily from device_sketches, or rebuilt from login_history the first time.
+ */
+public class NewDeviceDetector {
+
+    private static final int MAX_CACHED_USERS;
+
+    static {
+        MAX_CACHED_USERS = Config.create().get("security.device-sketch.max-cached-users").asInt().orElse(200_000);
+    }
+
+    private final IDeviceSketchDao sketchDao;
+    private final Map<Long, DeviceSketch> sketches = new ConcurrentHashMap<>();
+
+    public NewDeviceDetector(IDeviceSketchDao sketchDao) {
+        this.sketchDao = sketchDao;
+    }
+
+    /**
+     * Adds the device to the user's sketch and reports whether it had not been seen before. A new device leaves
+     * the sketch to be saved by the caller, in the same statement as the login it belongs to; when that fails the
+     * caller {@link #forget(long)}s the user so the sketch is reloaded from what was stored.
+     * Must be called before the current login is written to login_history.
+     */
+    public Observation observe(long userId, String ipAddress, String userAgent) {
+        DeviceSketch sketch = sketches.get(userId);
+        if (sketch == null) {
+            sketch = load(userId);
+            if (sketches.size() < MAX_CACHED_USERS) {
+                DeviceSketch raced = sketches.putIfAbsent(userId, sketch);
+                if (raced != null) {
+                    sketch = raced;
+                }
+            }
+        }
+
+        boolean isNew = sketch.add(DeviceFingerprint.of(ipAddress, userAgent));
+        return new Observation(isNew, sketch);
+    }
+
+    public void forget(long userId) {
+        sketches.remove(userId);
+    }
+
+    /**
+     * Throws DataAccessException when the stored sketch or the history cannot be read; nothing is saved then,
+     * so a partial rebuild never reaches device_sketches.
+     */
+    private DeviceSketch load(long userId) {
+        return sketchDao.findByUserId(userId).orElseGet(() -> {
+            DeviceSketch rebuilt = sketchDao.rebuildFromHistory(userId);
+            sketchDao.save(userId, rebuilt);
+            return rebuilt;
+        });
+    }
+
+    public record Observation(boolean newDevice, DeviceSketch sketch) {
+    }
+}
@@ -1,5 +1,8 @@
 package aloui.bilal.userauthservice.security;
 
+import aloui.bilal.userauthservice.diagnostics.BcryptEvent;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
 import org.mindrot.jbcrypt.BCrypt;
 
 public class PasswordUtil {
@@ -11,7 +14,14 @@ public class PasswordUtil {
      * Hash the password using BCrypt
      */
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(WORKLOAD));
+        BcryptEvent event = new BcryptEvent();
+        event.begin();
+        try (Span span = Tracer.start("bcrypt.hash")) {
+            return BCrypt.hashpw(plainPassword, BCrypt.gensalt(WORKLOAD));
+        } finally {
+            event.operation = "hash";
+            event.commit();
+        }
     }
 
     /**
@@ -21,7 +31,14 @@ public class PasswordUtil {
         if (hashedPassword == null || !hashedPassword.startsWith("$2a$")) {
             throw new IllegalArgumentException("Invalid hashed password");
         }
-        return BCrypt.checkpw(plainPassword, hashedPassword);
+        BcryptEvent event = new BcryptEvent();
+        event.begin();
+        try (Span span = Tracer.start("bcrypt.verify")) {
+            return BCrypt.checkpw(plainPassword, hashedPassword);
+        } finally {
+            event.operation = "verify";
+            event.commit();
+        }
     }
 
 }
@@ -0,0 +1,37 @@
+package aloui.bilal.userauthservice.security;
+
+/**
+ * Permissions granted through roles. Each has a fixed bit in the token's {@code perms} claim;
+ * never renumber an existing entry, only append.
+ */
+public enum Permission {
+    PROFILE_READ(0),
+    PROFILE_WRITE(1),
+    USERS_READ(2),
+    USERS_WRITE(3),
+    AUDIT_READ(4),
+    DIAGNOSTICS(5),
+    AUDIT_WRITE(6);
+
+    private final int bit;
+
+    Permission(int bit) {
+        this.bit = bit;
+    }
+
+    public long mask() {
+        return 1L << bit;
+    }
+
+    public static long maskOf(Iterable<String> names) {
+        long mask = 0;
+        for (String name : names) {
+            try {
+                mask |= valueOf(name.trim().toUpperCase()).mask();
+            } catch (IllegalArgumentException ignored) {
+                // Unknown names in the table are ignored rather than failing the whole snapshot
+            }
+        }
+        return mask;
+    }
+}
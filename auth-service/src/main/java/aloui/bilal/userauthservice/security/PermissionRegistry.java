@@ -0,0 +1,91 @@
+package aloui.bilal.userauthservice.security;
+
+import aloui.bilal.userauthservice.dao.DataAccessException;
+import aloui.bilal.userauthservice.dao.IRoleDao;
+import aloui.bilal.userauthservice.dao.RoleDaoImpl;
+import aloui.bilal.userauthservice.model.Role;
+import io.helidon.config.Config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Immutable role to permission-mask snapshot used to authorize requests without touching the database.
+ * Reloaded whenever roles change (see the notify trigger on roles/role_permissions) and on a slow timer.
+ */
+public class PermissionRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger(PermissionRegistry.class.getName());
+
+    private static final long REFRESH_SECONDS;
+
+    private static final IRoleDao roleDao = new RoleDaoImpl();
+    // null until the first load succeeds; nothing is authorized or minted from an empty snapshot
+    private static final AtomicReference<Map<Integer, Long>> SNAPSHOT = new AtomicReference<>();
+
+    private static ScheduledExecutorService scheduler;
+
+    static {
+        REFRESH_SECONDS = Config.create().get("security.permissions.refresh-seconds").asLong().orElse(300L);
+    }
+
+    private PermissionRegistry() {
+    }
+
+    /**
+     * Loads the first snapshot before returning; a database that cannot answer fails startup.
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        SNAPSHOT.set(load());
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .daemon()
+                .name("permission-registry")
+                .factory());
+        scheduler.scheduleWithFixedDelay(PermissionRegistry::reload, REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replaces the snapshot. When the database cannot answer, the previous snapshot is kept.
+     */
+    public static void reload() {
+        try {
+            SNAPSHOT.set(load());
+        } catch (DataAccessException e) {
+            LOGGER.log(Level.WARNING, "Keeping previous permissions, reload failed", e);
+        }
+    }
+
+    private static Map<Integer, Long> load() {
+        List<Role> roles = roleDao.findAll();
+        if (roles.isEmpty()) {
+            throw new DataAccessException("PermissionRegistry.load", "No roles found");
+        }
+        Map<Integer, Long> masks = new HashMap<>();
+        for (Role role : roles) {
+            masks.put(role.getId().intValue(), Permission.maskOf(role.getPermissions()));
+        }
+        LOGGER.fine("Loaded permissions for " + masks.size() + " roles");
+        return Map.copyOf(masks);
+    }
+
+    /**
+     * Throws DataAccessException (answered with 503) until a snapshot has been loaded.
+     */
+    public static long maskFor(int roleId) {
+        Map<Integer, Long> snapshot = SNAPSHOT.get();
+        if (snapshot == null) {
+            throw new DataAccessException("PermissionRegistry.maskFor", "Permissions not loaded");
+        }
+        return snapshot.getOrDefault(roleId, 0L);
+    }
+}
@@ -0,0 +1,87 @@
+package aloui.bilal.userauthservice.security;
+
+import aloui.bilal.userauthservice.dao.DaoInstrumentation;
+import aloui.bilal.userauthservice.dao.DataAccessException;
+import aloui.bilal.userauthservice.dao.IRevocationDao;
+import aloui.bilal.userauthservice.dao.RevocationDaoImpl;
+import io.helidon.config.Config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user "tokens issued before this instant are invalid" marks. The durable mark is users.tokens_valid_after,
+ * or every token once deleted_at is set, cached here for {@code security.revocation.refresh-seconds}.
+ * Invalidation events apply at once on top of it, so a replica that misses one, or was down when it was sent,
+ * still catches up within the refresh interval.
+ */
+public class RevocationRegistry {
+
+    private static final long REFRESH_MS;
+    private static final int MAX_SIZE;
+
+    private static final IRevocationDao revocationDao =
+            DaoInstrumentation.instrument(IRevocationDao.class, new RevocationDaoImpl());
+
+    // Seconds, from invalidation events
+    private static final Map<Long, Long> REVOKED_BEFORE = new ConcurrentHashMap<>();
+    // From the database
+    private static final Map<Long, Loaded> LOADED = new ConcurrentHashMap<>();
+
+    static {
+        Config config = Config.create().get("security.revocation");
+        REFRESH_MS = config.get("refresh-seconds").asLong().orElse(30L) * 1000;
+        MAX_SIZE = config.get("max-cached-users").asInt().orElse(100_000);
+    }
+
+    private RevocationRegistry() {
+    }
+
+    public static void revoke(long userId, long revokedAtMs) {
+        // JWT iat has second precision, so compare on whole seconds
+        long revokedAtSec = revokedAtMs / 1000;
+        REVOKED_BEFORE.merge(userId, revokedAtSec, Math::max);
+        LOADED.remove(userId);
+    }
+
+    public static boolean isRevoked(long userId, long issuedAtMs) {
+        long issuedAtSec = issuedAtMs / 1000;
+        Long revokedAtSec = REVOKED_BEFORE.get(userId);
+        if (revokedAtSec != null && issuedAtSec < revokedAtSec) {
+            return true;
+        }
+        return issuedAtSec < validAfterMs(userId) / 1000;
+    }
+
+    /**
+     * Drops everything loaded from the database, for when invalidation events may have been missed.
+     */
+    public static void reset() {
+        LOADED.clear();
+    }
+
+    private static long validAfterMs(long userId) {
+        long now = System.currentTimeMillis();
+        Loaded loaded = LOADED.get(userId);
+        if (loaded != null && loaded.loadedAtMs + REFRESH_MS > now) {
+            return loaded.validAfterMs;
+        }
+        long validAfterMs;
+        try {
+            validAfterMs = revocationDao.tokensValidAfter(userId);
+        } catch (DataAccessException e) {
+            // Token checks keep working through an outage on the last known mark and the events
+            return loaded == null ? 0L : loaded.validAfterMs;
+        }
+        if (LOADED.size() >= MAX_SIZE) {
+            LOADED.values().removeIf(l -> l.loadedAtMs + REFRESH_MS <= now);
+        }
+        if (LOADED.size() < MAX_SIZE) {
+            LOADED.put(userId, new Loaded(validAfterMs, now));
+        }
+        return validAfterMs;
+    }
+
+    private record Loaded(long validAfterMs, long loadedAtMs) {
+    }
+}
@@ -1,24 +1,36 @@
 package aloui.bilal.userauthservice.service.auth;
 
+import aloui.bilal.userauthservice.dao.DaoInstrumentation;
+import aloui.bilal.userauthservice.dao.DeletionJobDaoImpl;
+import aloui.bilal.userauthservice.dao.IDeletionJobDao;
 import aloui.bilal.userauthservice.dao.ILoginHistoryDao;
 import aloui.bilal.userauthservice.dao.ILoginHistoryDaoImpl;
+import aloui.bilal.userauthservice.dao.ITransparencyLogDao;
 import aloui.bilal.userauthservice.dao.IUserDao;
+import aloui.bilal.userauthservice.dao.TransparencyLogDaoImpl;
 import aloui.bilal.userauthservice.dao.UserDaoImpl;
+import aloui.bilal.userauthservice.security.Permission;
 import aloui.bilal.userauthservice.service.auth.handlers.*;
 import io.helidon.webserver.http.HttpRules;
 import io.helidon.webserver.http.HttpService;
 
 import java.sql.SQLException;
 
+import static aloui.bilal.userauthservice.service.auth.handlers.PermissionGuard.requires;
+
 public class AuthService implements HttpService {
 
     private IUserDao userDao;
     private ILoginHistoryDao loginHistoryDao;
+    private ITransparencyLogDao transparencyLogDao;
+    private IDeletionJobDao deletionJobDao;
 
     {
         try {
-            userDao = new UserDaoImpl();
-            loginHistoryDao = new ILoginHistoryDaoImpl();
+            userDao = DaoInstrumentation.instrument(IUserDao.class, new UserDaoImpl());
+            loginHistoryDao = DaoInstrumentation.instrument(ILoginHistoryDao.class, new ILoginHistoryDaoImpl());
+            transparencyLogDao = DaoInstrumentation.instrument(ITransparencyLogDao.class, new TransparencyLogDaoImpl());
+            deletionJobDao = DaoInstrumentation.instrument(IDeletionJobDao.class, new DeletionJobDaoImpl());
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -29,11 +41,27 @@ public class AuthService implements HttpService {
         rules
                 .post("/register", new RegisterHandler(userDao))
                 .post("/login", new LoginHandler(userDao))
-                .get("/me", new AuthMiddleware(), new UserInfoHandler(userDao))
-                .get("/login-history", new AuthMiddleware(), new LoginHistoryHandler(loginHistoryDao))
+                .get("/me", new AuthMiddleware(), requires(Permission.PROFILE_READ), new UserInfoHandler(userDao))
+                .get("/login-history", new AuthMiddleware(), requires(Permission.PROFILE_READ), new LoginHistoryHandler(loginHistoryDao))
                 .get("/check-token", new AuthMiddleware(), new CheckTokenHandler())
-                .put("/update", new AuthMiddleware(), new UpdateUserInfoHandler(userDao))
-                .put("/update-password", new AuthMiddleware(), new UpdatePasswordHandler(userDao));
+                .get("/verify", new VerifyHandler())
+                .put("/update", new AuthMiddleware(), requires(Permission.PROFILE_WRITE), new UpdateUserInfoHandler(userDao))
+                .put("/update-password", new AuthMiddleware(), requires(Permission.PROFILE_WRITE), new UpdatePasswordHandler(userDao))
+                .post("/users/resolve", new AuthMiddleware(), requires(Permission.PROFILE_READ), new ResolveUsersHandler(userDao))
+                .get("/admin/users", new AuthMiddleware(), requires(Permission.USERS_READ), new AdminUsersHandler(userDao))
+                .delete("/admin/users/{id}", new AuthMiddleware(), requires(Permission.USERS_WRITE),
+                        new DeleteUserHandler(userDao, deletionJobDao))
+                .get("/admin/users/{id}/deletion", new AuthMiddleware(), requires(Permission.USERS_READ),
+                        new DeletionJobHandler(deletionJobDao))
+                .post("/admin/diagnostics/jfr/dump", new AuthMiddleware(), requires(Permission.DIAGNOSTICS), new JfrDumpHandler())
+                .get("/admin/diagnostics/jfr/summary", new AuthMiddleware(), requires(Permission.DIAGNOSTICS), new JfrSummaryHandler())
+                .get("/analytics", new AuthMiddleware(), requires(Permission.AUDIT_READ), new LoginAnalyticsHandler())
+                .get("/transparency/checkpoint", new AuthMiddleware(), requires(Permission.AUDIT_READ),
+                        new TransparencyCheckpointHandler(transparencyLogDao))
+                .get("/transparency/proof/inclusion", new AuthMiddleware(), requires(Permission.AUDIT_READ),
+                        new InclusionProofHandler(transparencyLogDao, loginHistoryDao))
+                .get("/transparency/proof/consistency", new AuthMiddleware(), requires(Permission.AUDIT_READ),
+                        new ConsistencyProofHandler(transparencyLogDao));
     }
 
 }
@@ -0,0 +1,111 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.IUserDao;
+import aloui.bilal.userauthservice.model.User;
+import aloui.bilal.userauthservice.model.UserQuery;
+import io.helidon.common.parameters.Parameters;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+public class AdminUsersHandler implements Handler {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 200;
+    private static final String CURSOR_PREFIX = "v1:";
+
+    private final IUserDao userDao;
+
+    public AdminUsersHandler(IUserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        Parameters params = req.query();
+
+        UserQuery query;
+        try {
+            int limit = param(params, "limit").map(Integer::parseInt).orElse(DEFAULT_LIMIT);
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+            query = new UserQuery.Builder()
+                    .organizationName(param(params, "organization").orElse(null))
+                    .roleId(param(params, "role").map(Integer::valueOf).orElse(null))
+                    .emailPrefix(param(params, "emailPrefix").orElse(null))
+                    .search(param(params, "q").orElse(null))
+                    .createdAfter(param(params, "createdAfter").map(AdminUsersHandler::epochSeconds).orElse(null))
+                    .createdBefore(param(params, "createdBefore").map(AdminUsersHandler::epochSeconds).orElse(null))
+                    .beforeId(param(params, "cursor").map(AdminUsersHandler::decodeCursor).orElse(null))
+                    // One extra row tells whether there is a next page
+                    .limit(limit + 1)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid query: " + e.getMessage())
+                    .build());
+            return;
+        }
+
+        List<User> users = userDao.search(query);
+        int pageSize = query.getLimit() - 1;
+        boolean hasMore = users.size() > pageSize;
+        if (hasMore) {
+            users = users.subList(0, pageSize);
+        }
+
+        JsonArrayBuilder jsonUsers = Json.createArrayBuilder();
+        for (User user : users) {
+            jsonUsers.add(Json.createObjectBuilder()
+                    .add("id", user.getId())
+                    .add("email", user.getEmail())
+                    .add("fullName", user.getFullName())
+                    .add("organization", (user.getOrganizationName() == null) ? "" : user.getOrganizationName())
+                    .add("role", user.getRole())
+                    .add("createdAt", user.getCreatedAt() == null ? 0 : user.getCreatedAt().toInstant().getEpochSecond()));
+        }
+
+        JsonObjectBuilder responseJson = Json.createObjectBuilder()
+                .add("status", "success")
+                .add("users", jsonUsers);
+        if (hasMore) {
+            responseJson.add("nextCursor", encodeCursor(users.get(users.size() - 1).getId()));
+        } else {
+            responseJson.addNull("nextCursor");
+        }
+
+        res.send(responseJson.build());
+    }
+
+    private static Optional<String> param(Parameters params, String name) {
+        return params.first(name).asOptional().map(String::trim).filter(v -> !v.isEmpty());
+    }
+
+    private static Timestamp epochSeconds(String value) {
+        return new Timestamp(Long.parseLong(value) * 1000);
+    }
+
+    private static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(CURSOR_PREFIX)) {
+            throw new IllegalArgumentException("bad cursor");
+        }
+        return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+    }
+}
@@ -1,5 +1,6 @@
 package aloui.bilal.userauthservice.service.auth.handlers;
 
+import aloui.bilal.userauthservice.logging.RequestContext;
 import aloui.bilal.userauthservice.security.JwtUtil;
 import io.helidon.webserver.http.Handler;
 import io.helidon.webserver.http.ServerRequest;
@@ -37,6 +38,8 @@ public class AuthMiddleware implements Handler {
             return;
         }
 
+        RequestContext.userId(JwtUtil.userIdOf(token));
+
         res.next(); // Proceed to next handler
     }
 }
\ No newline at end of file
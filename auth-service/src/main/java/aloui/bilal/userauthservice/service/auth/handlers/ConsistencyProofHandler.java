@@ -0,0 +1,77 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.ITransparencyLogDao;
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+import aloui.bilal.userauthservice.transparency.MerkleTree;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Proves that an older checkpoint is a prefix of a newer one, i.e. nothing logged in between was rewritten.
+ */
+public class ConsistencyProofHandler implements Handler {
+
+    private final ITransparencyLogDao transparencyLogDao;
+
+    public ConsistencyProofHandler(ITransparencyLogDao transparencyLogDao) {
+        this.transparencyLogDao = transparencyLogDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        long first;
+        Optional<Long> second;
+        try {
+            first = Long.parseLong(req.query().first("first").asOptional().orElseThrow(() -> new NumberFormatException("missing")));
+            second = req.query().first("second").asOptional().map(Long::parseLong);
+        } catch (NumberFormatException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "first is required and must be a number")
+                    .build());
+            return;
+        }
+
+        Optional<Checkpoint> older = transparencyLogDao.findCheckpoint(first);
+        Optional<Checkpoint> newer = second.isPresent()
+                ? transparencyLogDao.findCheckpoint(second.get())
+                : transparencyLogDao.latestCheckpoint();
+        if (older.isEmpty() || newer.isEmpty()) {
+            res.status(404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "No checkpoint at that tree size")
+                    .build());
+            return;
+        }
+        if (older.get().treeSize() > newer.get().treeSize()) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "first must not be larger than second")
+                    .build());
+            return;
+        }
+
+        long m = older.get().treeSize();
+        long n = newer.get().treeSize();
+        List<byte[]> proof = MerkleTree.withPrefetch(transparencyLogDao::findNodes,
+                source -> MerkleTree.consistencyProof(source, m, n));
+
+        Base64.Encoder base64 = Base64.getEncoder();
+        JsonArrayBuilder hashes = Json.createArrayBuilder();
+        proof.forEach(hash -> hashes.add(base64.encodeToString(hash)));
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("first", TransparencyCheckpointHandler.toJson(older.get()))
+                .add("second", TransparencyCheckpointHandler.toJson(newer.get()))
+                .add("proof", hashes)
+                .build());
+    }
+}
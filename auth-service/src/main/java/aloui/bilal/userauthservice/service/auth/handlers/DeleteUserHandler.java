@@ -0,0 +1,53 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.IDeletionJobDao;
+import aloui.bilal.userauthservice.dao.IUserDao;
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+/**
+ * Marks the user deleted, which takes effect at once, and leaves removing their data to the deletion job.
+ */
+public class DeleteUserHandler implements Handler {
+
+    private final IUserDao userDao;
+    private final IDeletionJobDao deletionJobDao;
+
+    public DeleteUserHandler(IUserDao userDao, IDeletionJobDao deletionJobDao) {
+        this.userDao = userDao;
+        this.deletionJobDao = deletionJobDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        long userId;
+        try {
+            userId = Long.parseLong(req.path().pathParameters().get("id"));
+        } catch (NumberFormatException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid user id")
+                    .build());
+            return;
+        }
+
+        if (!userDao.delete(userId)) {
+            boolean pending = deletionJobDao.findByUserId(userId).isPresent();
+            res.status(pending ? 409 : 404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", pending ? "User deletion already requested" : "User not found")
+                    .build());
+            return;
+        }
+
+        res.status(202);
+        res.header(HeaderNames.LOCATION, "/auth/admin/users/" + userId + "/deletion");
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("message", "User deletion scheduled")
+                .build());
+    }
+}
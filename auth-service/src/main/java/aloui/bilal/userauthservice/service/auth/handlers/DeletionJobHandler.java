@@ -0,0 +1,79 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.IDeletionJobDao;
+import aloui.bilal.userauthservice.dao.UserDeletionWorker;
+import aloui.bilal.userauthservice.model.DeletionJob;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+public class DeletionJobHandler implements Handler {
+
+    private final IDeletionJobDao deletionJobDao;
+
+    public DeletionJobHandler(IDeletionJobDao deletionJobDao) {
+        this.deletionJobDao = deletionJobDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        long userId;
+        try {
+            userId = Long.parseLong(req.path().pathParameters().get("id"));
+        } catch (NumberFormatException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid user id")
+                    .build());
+            return;
+        }
+
+        Optional<DeletionJob> jobOpt = deletionJobDao.findByUserId(userId);
+        if (jobOpt.isEmpty()) {
+            res.status(404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "No deletion requested for this user")
+                    .build());
+            return;
+        }
+
+        DeletionJob job = jobOpt.get();
+        JsonObjectBuilder jobJson = Json.createObjectBuilder()
+                .add("userId", job.getUserId())
+                .add("state", job.getState())
+                .add("stepsDone", job.getStepIndex())
+                .add("steps", UserDeletionWorker.STEP_COUNT)
+                .add("rowsDeleted", job.getRowsDeleted())
+                .add("requestedAt", epochSeconds(job.getRequestedAt()))
+                .add("updatedAt", epochSeconds(job.getUpdatedAt()));
+        if (job.getStep() == null) {
+            jobJson.addNull("step");
+        } else {
+            jobJson.add("step", job.getStep());
+        }
+        if (job.getFinishedAt() == null) {
+            jobJson.addNull("finishedAt");
+        } else {
+            jobJson.add("finishedAt", epochSeconds(job.getFinishedAt()));
+        }
+        if (job.getLastError() == null) {
+            jobJson.addNull("lastError");
+        } else {
+            jobJson.add("lastError", job.getLastError());
+        }
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("job", jobJson)
+                .build());
+    }
+
+    private static long epochSeconds(Timestamp timestamp) {
+        return timestamp == null ? 0 : timestamp.toInstant().getEpochSecond();
+    }
+}
@@ -0,0 +1,95 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.ILoginHistoryDao;
+import aloui.bilal.userauthservice.dao.ITransparencyLogDao;
+import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+import aloui.bilal.userauthservice.transparency.LoginLeaf;
+import aloui.bilal.userauthservice.transparency.MerkleTree;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Proves that a login event is in the log at a checkpoint, and whether its row still matches what was logged.
+ */
+public class InclusionProofHandler implements Handler {
+
+    private final ITransparencyLogDao transparencyLogDao;
+    private final ILoginHistoryDao loginHistoryDao;
+
+    public InclusionProofHandler(ITransparencyLogDao transparencyLogDao, ILoginHistoryDao loginHistoryDao) {
+        this.transparencyLogDao = transparencyLogDao;
+        this.loginHistoryDao = loginHistoryDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        long loginId;
+        Optional<Long> treeSize;
+        try {
+            loginId = Long.parseLong(req.query().first("loginId").asOptional().orElseThrow(() -> new NumberFormatException("missing")));
+            treeSize = req.query().first("treeSize").asOptional().map(Long::parseLong);
+        } catch (NumberFormatException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "loginId is required and must be a number")
+                    .build());
+            return;
+        }
+
+        Optional<Checkpoint> checkpoint = treeSize.isPresent()
+                ? transparencyLogDao.findCheckpoint(treeSize.get())
+                : transparencyLogDao.latestCheckpoint();
+        OptionalLong leafIndex = transparencyLogDao.findLeafIndex(loginId);
+        if (checkpoint.isEmpty() || leafIndex.isEmpty() || leafIndex.getAsLong() >= checkpoint.get().treeSize()) {
+            res.status(404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", checkpoint.isEmpty() ? "No checkpoint at that tree size" : "Login event not logged at that tree size")
+                    .build());
+            return;
+        }
+
+        long index = leafIndex.getAsLong();
+        long size = checkpoint.get().treeSize();
+        List<byte[]> path = MerkleTree.withPrefetch(transparencyLogDao::findNodes, source -> {
+            List<byte[]> proof = MerkleTree.inclusionProof(source, index, size);
+            proof.add(0, source.node(0, index));
+            return proof;
+        });
+        byte[] loggedLeafHash = path.remove(0);
+
+        Base64.Encoder base64 = Base64.getEncoder();
+        JsonArrayBuilder auditPath = Json.createArrayBuilder();
+        path.forEach(hash -> auditPath.add(base64.encodeToString(hash)));
+
+        JsonObjectBuilder responseJson = Json.createObjectBuilder()
+                .add("status", "success")
+                .add("loginId", loginId)
+                .add("leafIndex", index)
+                .add("leafHash", base64.encodeToString(loggedLeafHash))
+                .add("auditPath", auditPath)
+                .add("checkpoint", TransparencyCheckpointHandler.toJson(checkpoint.get()));
+
+        // Recompute the leaf from the row as it is now; a mismatch or a missing row means it was altered
+        Optional<LoginHistory> row = loginHistoryDao.findById(loginId);
+        if (row.isPresent()) {
+            responseJson.add("leaf", LoginLeaf.encode(row.get()))
+                    .add("recordMatches", MerkleTree.verifyInclusion(LoginLeaf.hash(row.get()), index, size, path,
+                            checkpoint.get().rootHash()));
+        } else {
+            responseJson.addNull("leaf")
+                    .add("recordMatches", false);
+        }
+
+        res.send(responseJson.build());
+    }
+}
@@ -0,0 +1,68 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.diagnostics.ContinuousRecording;
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Cuts the last N minutes out of the continuous recording. The file is kept in the dump directory
+ * and streamed back so it can be opened in JDK Mission Control.
+ */
+public class JfrDumpHandler implements Handler {
+
+    private static final long DEFAULT_MINUTES = 5;
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        if (!ContinuousRecording.isRunning()) {
+            unavailable(res);
+            return;
+        }
+        Duration window;
+        try {
+            window = window(req);
+        } catch (IllegalArgumentException e) {
+            badWindow(res, e);
+            return;
+        }
+
+        Path file = ContinuousRecording.dump(window);
+        res.header(HeaderNames.CONTENT_TYPE, "application/octet-stream");
+        res.header(HeaderNames.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"");
+        res.contentLength(Files.size(file));
+        try (OutputStream out = res.outputStream()) {
+            Files.copy(file, out);
+        }
+    }
+
+    static Duration window(ServerRequest req) {
+        long minutes = req.query().first("minutes").asOptional().map(Long::parseLong).orElse(DEFAULT_MINUTES);
+        long max = ContinuousRecording.maxAge().toMinutes();
+        if (minutes < 1 || minutes > max) {
+            throw new IllegalArgumentException("minutes must be between 1 and " + max);
+        }
+        return Duration.ofMinutes(minutes);
+    }
+
+    static void badWindow(ServerResponse res, IllegalArgumentException e) {
+        res.status(400).send(Json.createObjectBuilder()
+                .add("status", "error")
+                .add("message", "Invalid query: " + e.getMessage())
+                .build());
+    }
+
+    static void unavailable(ServerResponse res) {
+        res.status(503).send(Json.createObjectBuilder()
+                .add("status", "error")
+                .add("message", "Continuous recording is not running")
+                .build());
+    }
+}
@@ -0,0 +1,32 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.diagnostics.ContinuousRecording;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+import java.time.Duration;
+
+public class JfrSummaryHandler implements Handler {
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        if (!ContinuousRecording.isRunning()) {
+            JfrDumpHandler.unavailable(res);
+            return;
+        }
+        Duration window;
+        try {
+            window = JfrDumpHandler.window(req);
+        } catch (IllegalArgumentException e) {
+            JfrDumpHandler.badWindow(res, e);
+            return;
+        }
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("summary", ContinuousRecording.summary(window))
+                .build());
+    }
+}
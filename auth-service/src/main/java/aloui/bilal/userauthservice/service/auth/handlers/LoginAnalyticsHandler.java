@@ -0,0 +1,103 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.analytics.LoginAnalytics;
+import aloui.bilal.userauthservice.analytics.LoginStats;
+import io.helidon.common.parameters.Parameters;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * Login statistics for one user ({@code userId}) or organization ({@code organization}), served from memory.
+ */
+public class LoginAnalyticsHandler implements Handler {
+
+    private static final int DEFAULT_DAYS = 7;
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        if (!LoginAnalytics.isEnabled()) {
+            res.status(503).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Login analytics are disabled")
+                    .build());
+            return;
+        }
+
+        Parameters params = req.query();
+        Optional<String> userParam = param(params, "userId");
+        Optional<String> organization = param(params, "organization");
+        Long userId;
+        int days;
+        try {
+            if (userParam.isPresent() == organization.isPresent()) {
+                throw new IllegalArgumentException("exactly one of userId and organization is required");
+            }
+            userId = userParam.map(Long::valueOf).orElse(null);
+            days = param(params, "days").map(Integer::parseInt).orElse(Math.min(DEFAULT_DAYS, LoginAnalytics.windowDays()));
+            if (days < 1 || days > LoginAnalytics.windowDays()) {
+                throw new IllegalArgumentException("days must be between 1 and " + LoginAnalytics.windowDays());
+            }
+        } catch (IllegalArgumentException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid query: " + e.getMessage())
+                    .build());
+            return;
+        }
+
+        Optional<LoginStats> statsOpt = userId != null
+                ? LoginAnalytics.forUser(userId)
+                : LoginAnalytics.forOrganization(organization.get());
+        if (statsOpt.isEmpty()) {
+            res.status(404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "No logins recorded")
+                    .build());
+            return;
+        }
+
+        LoginStats stats = statsOpt.get();
+        long today = LocalDate.now(ZoneOffset.UTC).toEpochDay();
+        int[] perDay = stats.perDay(today, days);
+        JsonArrayBuilder daily = Json.createArrayBuilder();
+        for (int i = 0; i < perDay.length; i++) {
+            daily.add(Json.createObjectBuilder()
+                    .add("date", LocalDate.ofEpochDay(today - (perDay.length - 1 - i)).toString())
+                    .add("logins", perDay[i]));
+        }
+
+        JsonObjectBuilder responseJson = Json.createObjectBuilder()
+                .add("status", "success");
+        if (userId != null) {
+            responseJson.add("userId", userId);
+        } else {
+            responseJson.add("organization", organization.get());
+        }
+        responseJson.add("loginsPerDay", daily)
+                .add("totalLogins", stats.total())
+                .add("distinctIps", stats.distinctIps())
+                .add("distinctUserAgents", stats.distinctUserAgents());
+        if (stats.distinctUsers() >= 0) {
+            responseJson.add("distinctUsers", stats.distinctUsers());
+        }
+        if (stats.lastSeenMs() > 0) {
+            responseJson.add("lastSeenAt", stats.lastSeenMs() / 1000);
+        } else {
+            responseJson.addNull("lastSeenAt");
+        }
+
+        res.send(responseJson.build());
+    }
+
+    private static Optional<String> param(Parameters params, String name) {
+        return params.first(name).asOptional().map(String::trim).filter(v -> !v.isEmpty());
+    }
+}
@@ -1,9 +1,15 @@
 package aloui.bilal.userauthservice.service.auth.handlers;
 
 import aloui.bilal.userauthservice.dao.IUserDao;
+import aloui.bilal.userauthservice.logging.RequestContext;
+import aloui.bilal.userauthservice.model.Account;
 import aloui.bilal.userauthservice.model.LoginHistory;
+import aloui.bilal.userauthservice.model.LoginResult;
 import aloui.bilal.userauthservice.model.User;
 import aloui.bilal.userauthservice.security.JwtUtil;
+import aloui.bilal.userauthservice.security.PasswordUtil;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
 import io.helidon.http.HeaderNames;
 import io.helidon.webserver.http.Handler;
 import io.helidon.webserver.http.ServerRequest;
@@ -23,7 +29,10 @@ public class LoginHandler implements Handler {
 
     @Override
     public void handle(ServerRequest req, ServerResponse res) throws Exception {
-        JsonObject reqJson = req.content().as(JsonObject.class);
+        JsonObject reqJson;
+        try (Span span = Tracer.start("json.parse")) {
+            reqJson = req.content().as(JsonObject.class);
+        }
 
         String email = reqJson.getString("email");
         String password = reqJson.getString("password");
@@ -41,9 +50,10 @@ public class LoginHandler implements Handler {
                 .ipAddress(ipAddress)
                 .build();
 
-        Optional<User> userOpt = userDao.login(email, password, history);
+        // bcrypt runs between the two DAO calls, so it never holds a database permit
+        Optional<Account> account = userDao.findAccount(email);
 
-        if (userOpt.isEmpty()) {
+        if (account.isEmpty() || !PasswordUtil.verifyPassword(password, account.get().getHashedPassword())) {
             JsonObject errorJson = Json.createObjectBuilder()
                     .add("status", "error")
                     .add("message", "Invalid email or password")
@@ -52,7 +62,9 @@ public class LoginHandler implements Handler {
             return;
         }
 
-        User user = userOpt.get();
+        LoginResult result = userDao.recordLogin(account.get().getUser(), history);
+        User user = result.getUser();
+        RequestContext.userId(user.getId());
 
         JsonObject userInfo = Json.createObjectBuilder()
                 .add("id", user.getId())
@@ -69,6 +81,7 @@ public class LoginHandler implements Handler {
         JsonObject responseJson = Json.createObjectBuilder()
                 .add("status", "success")
                 .add("token", token)
+                .add("newDevice", result.getLoginHistory().isNewDevice())
                 .add("userInfo", userInfo)
                 .build();
 
@@ -4,6 +4,7 @@ import aloui.bilal.userauthservice.dao.ILoginHistoryDao;
 import aloui.bilal.userauthservice.model.LoginHistory;
 import aloui.bilal.userauthservice.security.JwtUtil;
 import com.nimbusds.jwt.JWTClaimsSet;
+import io.helidon.common.parameters.Parameters;
 import io.helidon.http.HeaderNames;
 import io.helidon.webserver.http.Handler;
 import io.helidon.webserver.http.ServerRequest;
@@ -11,11 +12,20 @@ import io.helidon.webserver.http.ServerResponse;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
 
 public class LoginHistoryHandler implements Handler {
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 200;
+    private static final String CURSOR_PREFIX = "v1:";
+
     private final ILoginHistoryDao loginHistoryDao;
 
     public LoginHistoryHandler(ILoginHistoryDao loginHistoryDao) {
@@ -53,22 +63,82 @@ public class LoginHistoryHandler implements Handler {
 
         long userId = Long.parseLong(claims.getSubject());
 
-        List<LoginHistory> histories = loginHistoryDao.findByUserId(userId);
+        Parameters params = req.query();
+        int limit;
+        Timestamp beforeLoginAt = null;
+        Long beforeId = null;
+        try {
+            limit = param(params, "limit").map(Integer::parseInt).orElse(DEFAULT_LIMIT);
+            if (limit < 1 || limit > MAX_LIMIT) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+            }
+            Optional<String> cursor = param(params, "cursor");
+            if (cursor.isPresent()) {
+                String[] parts = decodeCursor(cursor.get());
+                beforeLoginAt = fromEpochMicros(Long.parseLong(parts[0]));
+                beforeId = Long.parseLong(parts[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid query: " + e.getMessage())
+                    .build());
+            return;
+        }
+
+        // One extra row tells whether there is a next page
+        List<LoginHistory> histories = loginHistoryDao.findByUserId(userId, beforeLoginAt, beforeId, limit + 1);
+        boolean hasMore = histories.size() > limit;
+        if (hasMore) {
+            histories = histories.subList(0, limit);
+        }
 
         JsonArrayBuilder jsonArray = Json.createArrayBuilder();
         for (LoginHistory history : histories) {
             jsonArray.add(Json.createObjectBuilder()
                     .add("ipAddress", history.getIpAddress())
-                    .add("userAgent", history.getUserAgent())
+                    .add("userAgent", history.getUserAgent() == null ? "Unknown" : history.getUserAgent())
                     .add("loginAt", history.getLoginAt().toInstant().getEpochSecond())
+                    .add("newDevice", history.isNewDevice())
             );
         }
 
-        JsonObject responseJson = Json.createObjectBuilder()
+        JsonObjectBuilder responseJson = Json.createObjectBuilder()
                 .add("status", "success")
-                .add("history", jsonArray)
-                .build();
+                .add("history", jsonArray);
+        if (hasMore) {
+            responseJson.add("nextCursor", encodeCursor(histories.get(histories.size() - 1)));
+        } else {
+            responseJson.addNull("nextCursor");
+        }
+
+        res.send(responseJson.build());
+    }
+
+    private static Optional<String> param(Parameters params, String name) {
+        return params.first(name).asOptional().map(String::trim).filter(v -> !v.isEmpty());
+    }
+
+    // login_at has microsecond precision, which the cursor keeps so no row is skipped or repeated
+    private static String encodeCursor(LoginHistory last) {
+        Timestamp at = last.getLoginAt();
+        long micros = Math.floorDiv(at.getTime(), 1000L) * 1_000_000L + at.getNanos() / 1000;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + micros + ":" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        String[] parts = decoded.startsWith(CURSOR_PREFIX) ? decoded.substring(CURSOR_PREFIX.length()).split(":") : null;
+        if (parts == null || parts.length != 2) {
+            throw new IllegalArgumentException("bad cursor");
+        }
+        return parts;
+    }
 
-        res.send(responseJson);
+    private static Timestamp fromEpochMicros(long micros) {
+        Timestamp at = new Timestamp(Math.floorDiv(micros, 1_000_000L) * 1000);
+        at.setNanos((int) Math.floorMod(micros, 1_000_000L) * 1000);
+        return at;
     }
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.security.JwtUtil;
+import aloui.bilal.userauthservice.security.Permission;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+/**
+ * Lets the request through only if the token grants the permission. Must run after {@link AuthMiddleware}.
+ */
+public class PermissionGuard implements Handler {
+
+    private final Permission permission;
+
+    private PermissionGuard(Permission permission) {
+        this.permission = permission;
+    }
+
+    public static PermissionGuard requires(Permission permission) {
+        return new PermissionGuard(permission);
+    }
+
+    /**
+     * For handlers whose required permission depends on the request, e.g. a flag that makes a read also write.
+     */
+    public static boolean granted(ServerRequest req, Permission permission) {
+        long granted = JwtUtil.getTokenFromRequest(req)
+                .map(JwtUtil::permissionsOf)
+                .orElse(0L);
+        return (granted & permission.mask()) != 0;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        if (!granted(req, permission)) {
+            res.status(403).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Forbidden")
+                    .build());
+            return;
+        }
+
+        res.next();
+    }
+}
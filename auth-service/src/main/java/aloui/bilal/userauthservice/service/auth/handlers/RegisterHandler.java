@@ -1,7 +1,10 @@
 package aloui.bilal.userauthservice.service.auth.handlers;
 
+import aloui.bilal.userauthservice.dao.DataAccessException;
 import aloui.bilal.userauthservice.dao.IUserDao;
+import aloui.bilal.userauthservice.logging.EventLog;
 import aloui.bilal.userauthservice.model.User;
+import aloui.bilal.userauthservice.security.BreachedPasswords;
 import aloui.bilal.userauthservice.security.PasswordUtil;
 import io.helidon.webserver.http.Handler;
 import io.helidon.webserver.http.ServerRequest;
@@ -47,6 +50,14 @@ public class RegisterHandler implements Handler {
                 return;
             }
 
+            if (BreachedPasswords.isBreached(password)) {
+                res.status(400).send(Json.createObjectBuilder()
+                        .add("status", "error")
+                        .add("message", "This password appears in a known data breach. Please choose a different one.")
+                        .build());
+                return;
+            }
+
             // All good: return success for now
             JsonObject success = Json.createObjectBuilder()
                     .add("status", "success")
@@ -60,7 +71,7 @@ public class RegisterHandler implements Handler {
                     .organizationName(organization.isEmpty() ? null : organization)
                     .build();
 
-            if (userDao.register(user, password)) {
+            if (userDao.register(user, PasswordUtil.hashPassword(password))) {
                 res.status(200).send(success);
             } else {
                 res.status(500).send(Json.createObjectBuilder()
@@ -68,8 +79,10 @@ public class RegisterHandler implements Handler {
                         .add("message", "Internal server error.")
                         .build());
             }
+        } catch (DataAccessException e) {
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
+            EventLog.error("RegisterHandler", e);
             JsonObject error = Json.createObjectBuilder()
                     .add("status", "error")
                     .add("message", "Error parsing request: " + e.getMessage())
@@ -0,0 +1,152 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.IUserDao;
+import aloui.bilal.userauthservice.dao.UserShards;
+import aloui.bilal.userauthservice.model.User;
+import aloui.bilal.userauthservice.security.JwtUtil;
+import aloui.bilal.userauthservice.security.Permission;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves many emails and ids to compact profiles in one call. Emails are open to any signed-in user,
+ * who already knows them; ids need USERS_READ so the endpoint cannot be used to enumerate the directory.
+ */
+public class ResolveUsersHandler implements Handler {
+
+    private static final int MAX_KEYS = 5000;
+
+    private final IUserDao userDao;
+
+    public ResolveUsersHandler(IUserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        Set<String> emails = new LinkedHashSet<>();
+        Set<Long> ids = new LinkedHashSet<>();
+        try {
+            JsonObject body = req.content().as(JsonObject.class);
+            for (JsonValue value : array(body, "emails")) {
+                if (!(value instanceof JsonString email) || email.getString().isBlank()) {
+                    throw new IllegalArgumentException("emails must be non-empty strings");
+                }
+                emails.add(email.getString().trim());
+            }
+            for (JsonValue value : array(body, "ids")) {
+                if (!(value instanceof JsonNumber id) || !id.isIntegral()) {
+                    throw new IllegalArgumentException("ids must be integers");
+                }
+                ids.add(id.longValueExact());
+            }
+        } catch (IllegalArgumentException | ClassCastException | ArithmeticException e) {
+            badRequest(res, "Invalid request: " + e.getMessage());
+            return;
+        }
+        if (emails.isEmpty() && ids.isEmpty()) {
+            badRequest(res, "emails or ids is required");
+            return;
+        }
+        if (emails.size() + ids.size() > MAX_KEYS) {
+            badRequest(res, "At most " + MAX_KEYS + " emails and ids per request");
+            return;
+        }
+        if (!ids.isEmpty() && !granted(req, Permission.USERS_READ)) {
+            res.status(403).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Resolving ids requires USERS_READ")
+                    .build());
+            return;
+        }
+
+        Map<String, User> byEmail = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (User user : userDao.findByEmails(emails)) {
+                byEmail.put(UserShards.normalize(user.getEmail()), user);
+            }
+        }
+        Map<Long, User> byId = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (User user : userDao.findByIds(ids)) {
+                byId.put(user.getId(), user);
+            }
+        }
+
+        // Input order, each user once
+        Map<Long, User> resolved = new LinkedHashMap<>();
+        JsonArrayBuilder unresolvedEmails = Json.createArrayBuilder();
+        for (String email : emails) {
+            User user = byEmail.get(UserShards.normalize(email));
+            if (user == null) {
+                unresolvedEmails.add(email);
+            } else {
+                resolved.putIfAbsent(user.getId(), user);
+            }
+        }
+        JsonArrayBuilder unresolvedIds = Json.createArrayBuilder();
+        for (Long id : ids) {
+            User user = byId.get(id);
+            if (user == null) {
+                unresolvedIds.add(id);
+            } else {
+                resolved.putIfAbsent(id, user);
+            }
+        }
+
+        JsonArrayBuilder users = Json.createArrayBuilder();
+        for (User user : resolved.values()) {
+            users.add(Json.createObjectBuilder()
+                    .add("id", user.getId())
+                    .add("email", user.getEmail())
+                    .add("fullName", user.getFullName())
+                    .add("organization", user.getOrganizationName() == null ? "" : user.getOrganizationName()));
+        }
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("users", users)
+                .add("unresolvedEmails", unresolvedEmails)
+                .add("unresolvedIds", unresolvedIds)
+                .build());
+    }
+
+    private static JsonArray array(JsonObject body, String name) {
+        JsonValue value = body.get(name);
+        if (value == null || value == JsonValue.NULL) {
+            return JsonValue.EMPTY_JSON_ARRAY;
+        }
+        if (!(value instanceof JsonArray array)) {
+            throw new IllegalArgumentException(name + " must be an array");
+        }
+        return array;
+    }
+
+    private static boolean granted(ServerRequest req, Permission permission) {
+        long granted = JwtUtil.getTokenFromRequest(req)
+                .map(JwtUtil::permissionsOf)
+                .orElse(0L);
+        return (granted & permission.mask()) != 0;
+    }
+
+    private static void badRequest(ServerResponse res, String message) {
+        res.status(400).send(Json.createObjectBuilder()
+                .add("status", "error")
+                .add("message", message)
+                .build());
+    }
+}
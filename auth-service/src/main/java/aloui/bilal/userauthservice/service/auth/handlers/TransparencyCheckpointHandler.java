@@ -0,0 +1,56 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.dao.ITransparencyLogDao;
+import aloui.bilal.userauthservice.transparency.Checkpoint;
+import aloui.bilal.userauthservice.transparency.CheckpointSigner;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.Base64;
+import java.util.Optional;
+
+public class TransparencyCheckpointHandler implements Handler {
+
+    private final ITransparencyLogDao transparencyLogDao;
+
+    public TransparencyCheckpointHandler(ITransparencyLogDao transparencyLogDao) {
+        this.transparencyLogDao = transparencyLogDao;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        Optional<Checkpoint> checkpoint = transparencyLogDao.latestCheckpoint();
+        if (checkpoint.isEmpty()) {
+            res.status(404).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "No checkpoint yet")
+                    .build());
+            return;
+        }
+
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("status", "success")
+                .add("checkpoint", toJson(checkpoint.get()));
+        String publicKey = CheckpointSigner.publicKeyBase64();
+        if (publicKey != null) {
+            json.add("publicKey", publicKey);
+        } else {
+            json.addNull("publicKey");
+        }
+        res.send(json.build());
+    }
+
+    static JsonObjectBuilder toJson(Checkpoint checkpoint) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return Json.createObjectBuilder()
+                .add("origin", Checkpoint.ORIGIN)
+                .add("treeSize", checkpoint.treeSize())
+                .add("rootHash", base64.encodeToString(checkpoint.rootHash()))
+                .add("timestamp", checkpoint.timestampMs())
+                .add("keyId", checkpoint.keyId())
+                .add("signature", base64.encodeToString(checkpoint.signature()));
+    }
+}
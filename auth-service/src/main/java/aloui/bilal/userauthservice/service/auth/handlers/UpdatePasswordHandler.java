@@ -2,6 +2,7 @@ package aloui.bilal.userauthservice.service.auth.handlers;
 
 import aloui.bilal.userauthservice.dao.IUserDao;
 import aloui.bilal.userauthservice.model.User;
+import aloui.bilal.userauthservice.security.BreachedPasswords;
 import aloui.bilal.userauthservice.security.JwtUtil;
 import aloui.bilal.userauthservice.security.PasswordUtil;
 import com.nimbusds.jwt.JWTClaimsSet;
@@ -97,6 +98,13 @@ public class UpdatePasswordHandler implements Handler {
             return;
         }
 
+        if (BreachedPasswords.isBreached(newPassword)) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "This password appears in a known data breach. Please choose a different one.")
+                    .build());
+            return;
+        }
 
         boolean updated = userDao.updatePassword(user.getId(), PasswordUtil.hashPassword(newPassword));
         if (updated) {
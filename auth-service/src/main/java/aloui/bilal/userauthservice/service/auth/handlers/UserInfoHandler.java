@@ -1,9 +1,12 @@
 package aloui.bilal.userauthservice.service.auth.handlers;
 
+import aloui.bilal.userauthservice.cache.UserCache;
+import aloui.bilal.userauthservice.dao.DataAccessException;
 import aloui.bilal.userauthservice.dao.IUserDao;
 import aloui.bilal.userauthservice.model.User;
 import aloui.bilal.userauthservice.security.JwtUtil;
 import com.nimbusds.jwt.JWTClaimsSet;
+import io.helidon.http.HeaderNames;
 import io.helidon.webserver.http.Handler;
 import io.helidon.webserver.http.ServerRequest;
 import io.helidon.webserver.http.ServerResponse;
@@ -48,7 +51,18 @@ public class UserInfoHandler implements Handler {
             return;
         }
 
-        Optional<User> userOpt = userDao.findById(Long.valueOf(claims.getSubject()));
+        long userId = Long.parseLong(claims.getSubject());
+        Optional<User> userOpt;
+        try {
+            userOpt = userDao.findById(userId);
+        } catch (DataAccessException e) {
+            // Database unavailable: answer from a recently cached copy if there is one
+            userOpt = UserCache.getStaleById(userId);
+            if (userOpt.isEmpty()) {
+                throw e;
+            }
+            res.header(HeaderNames.WARNING, "110 - \"Response is Stale\"");
+        }
 
         if (userOpt.isEmpty()) {
             // return erreur
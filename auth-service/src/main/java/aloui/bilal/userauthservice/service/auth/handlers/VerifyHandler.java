@@ -0,0 +1,59 @@
+package aloui.bilal.userauthservice.service.auth.handlers;
+
+import aloui.bilal.userauthservice.cache.TokenCache;
+import aloui.bilal.userauthservice.security.JwtUtil;
+import io.helidon.config.Config;
+import io.helidon.http.HeaderNames;
+import io.helidon.http.Status;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+
+import java.util.Optional;
+
+/**
+ * Bodyless token check for nginx {@code auth_request}: 204 with identity headers or 401. Both answers carry a
+ * max-age so the gateway can cache the decision per Authorization header; a valid token is never cached
+ * past its expiry, and never longer than the configured bound so revocations still take effect.
+ */
+public class VerifyHandler implements Handler {
+
+    private static final long MAX_AGE_SECONDS;
+    private static final long NEGATIVE_MAX_AGE_SECONDS;
+
+    static {
+        Config config = Config.create().get("verify");
+        MAX_AGE_SECONDS = config.get("max-age-seconds").asLong().orElse(30L);
+        NEGATIVE_MAX_AGE_SECONDS = config.get("negative-max-age-seconds").asLong().orElse(10L);
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        res.header(HeaderNames.VARY, "Authorization");
+
+        Optional<String> token = JwtUtil.getTokenFromRequest(req);
+        if (token.isEmpty()) {
+            // Nothing to key a cache entry on
+            res.header(HeaderNames.CACHE_CONTROL, "no-store");
+            res.status(Status.UNAUTHORIZED_401).send();
+            return;
+        }
+
+        Optional<TokenCache.VerifiedToken> verified = JwtUtil.verify(token.get());
+        if (verified.isEmpty()) {
+            res.header(HeaderNames.CACHE_CONTROL, "max-age=" + NEGATIVE_MAX_AGE_SECONDS);
+            res.status(Status.UNAUTHORIZED_401).send();
+            return;
+        }
+
+        TokenCache.VerifiedToken identity = verified.get();
+        long remainingSeconds = (identity.expiresAtMs() - System.currentTimeMillis()) / 1000;
+        long maxAge = Math.max(0, Math.min(MAX_AGE_SECONDS, remainingSeconds));
+
+        res.header(HeaderNames.CACHE_CONTROL, maxAge == 0 ? "no-store" : "max-age=" + maxAge);
+        res.header("X-User-Id", String.valueOf(identity.userId()));
+        res.header("X-User-Role", String.valueOf(identity.role()));
+        res.header("X-User-Permissions", Long.toHexString(JwtUtil.permissionsOf(identity)));
+        res.status(Status.NO_CONTENT_204).send();
+    }
+}
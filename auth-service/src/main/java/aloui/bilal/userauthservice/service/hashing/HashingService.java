@@ -0,0 +1,25 @@
+package aloui.bilal.userauthservice.service.hashing;
+
+import aloui.bilal.userauthservice.security.Permission;
+import aloui.bilal.userauthservice.service.auth.handlers.AuthMiddleware;
+import aloui.bilal.userauthservice.service.hashing.handlers.ChunkTreeHandler;
+import aloui.bilal.userauthservice.service.hashing.handlers.FileHashHandler;
+import aloui.bilal.userauthservice.service.hashing.handlers.StreamHashHandler;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+
+import static aloui.bilal.userauthservice.service.auth.handlers.PermissionGuard.requires;
+
+/**
+ * SHA-256 of uploads and stored documents, the values kept in {@code documents.document_hash} / {@code content_hash}.
+ */
+public class HashingService implements HttpService {
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules
+                .post("/stream", new AuthMiddleware(), new StreamHashHandler())
+                .post("/files", new AuthMiddleware(), requires(Permission.AUDIT_READ), new FileHashHandler())
+                .get("/files/chunks", new AuthMiddleware(), requires(Permission.AUDIT_READ), new ChunkTreeHandler());
+    }
+}
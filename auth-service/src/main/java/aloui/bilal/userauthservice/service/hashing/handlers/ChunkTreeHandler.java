@@ -0,0 +1,60 @@
+package aloui.bilal.userauthservice.service.hashing.handlers;
+
+import aloui.bilal.userauthservice.hashing.ChunkTree;
+import aloui.bilal.userauthservice.hashing.FileHasher;
+import io.helidon.common.parameters.Parameters;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Chunked Merkle root of a stored document and, with {@code chunk}, that chunk's leaf hash and audit path.
+ * A client re-verifies one region by hashing {@code 0x00 || bytes} and checking the path against the root.
+ */
+public class ChunkTreeHandler implements Handler {
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        Parameters params = req.query();
+        ChunkTree tree;
+        Optional<Integer> chunk;
+        try {
+            String path = params.first("path").asOptional().orElseThrow(() -> new IllegalArgumentException("path is required"));
+            int chunkBytes = params.first("chunkSize").asOptional().map(Integer::parseInt).orElse(FileHasher.defaultChunkBytes());
+            chunk = params.first("chunk").asOptional().map(Integer::valueOf);
+            tree = FileHasher.chunkTree(FileHasher.resolve(path), chunkBytes);
+            if (chunk.isPresent() && (chunk.get() < 0 || chunk.get() >= tree.chunks())) {
+                throw new IllegalArgumentException("chunk must be below " + tree.chunks());
+            }
+        } catch (IllegalArgumentException e) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "Invalid query: " + e.getMessage())
+                    .build());
+            return;
+        }
+
+        HexFormat hex = HexFormat.of();
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("status", "success")
+                .add("size", tree.size())
+                .add("chunkSize", tree.chunkBytes())
+                .add("chunks", tree.chunks())
+                .add("root", hex.formatHex(tree.root()));
+        chunk.ifPresent(index -> {
+            JsonArrayBuilder proof = Json.createArrayBuilder();
+            tree.proof(index).forEach(node -> proof.add(hex.formatHex(node)));
+            json.add("chunk", index)
+                    .add("offset", (long) index * tree.chunkBytes())
+                    .add("leaf", hex.formatHex(tree.leaf(index)))
+                    .add("proof", proof);
+        });
+        res.send(json.build());
+    }
+}
@@ -0,0 +1,67 @@
+package aloui.bilal.userauthservice.service.hashing.handlers;
+
+import aloui.bilal.userauthservice.hashing.FileHasher;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashes a batch of stored documents in parallel. Paths are as in {@code documents.file_path}.
+ */
+public class FileHashHandler implements Handler {
+
+    private static final int MAX_FILES = 1000;
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        JsonArray requested = req.content().as(JsonObject.class).getJsonArray("paths");
+        if (requested == null || requested.isEmpty() || requested.size() > MAX_FILES) {
+            res.status(400).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "paths must list 1 to " + MAX_FILES + " files")
+                    .build());
+            return;
+        }
+
+        List<String> names = new ArrayList<>(requested.size());
+        List<Path> paths = new ArrayList<>(requested.size());
+        JsonArrayBuilder files = Json.createArrayBuilder();
+        List<JsonObjectBuilder> rejected = new ArrayList<>();
+        for (int i = 0; i < requested.size(); i++) {
+            String name = requested.getString(i, "");
+            try {
+                paths.add(FileHasher.resolve(name));
+                names.add(name);
+            } catch (IllegalArgumentException e) {
+                rejected.add(Json.createObjectBuilder().add("path", name).add("error", e.getMessage()));
+            }
+        }
+
+        List<FileHasher.Result> results = FileHasher.hashFiles(paths);
+        for (int i = 0; i < results.size(); i++) {
+            FileHasher.Result result = results.get(i);
+            JsonObjectBuilder file = Json.createObjectBuilder().add("path", names.get(i));
+            if (result.error() == null) {
+                file.add("sha256", result.digest().sha256()).add("size", result.digest().size());
+            } else {
+                file.add("error", "Unreadable: " + result.error().getMessage());
+            }
+            files.add(file);
+        }
+        rejected.forEach(files::add);
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("files", files)
+                .build());
+    }
+}
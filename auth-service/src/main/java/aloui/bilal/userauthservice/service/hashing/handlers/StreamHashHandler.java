@@ -0,0 +1,28 @@
+package aloui.bilal.userauthservice.service.hashing.handlers;
+
+import aloui.bilal.userauthservice.hashing.FileHasher;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+import java.io.InputStream;
+
+/**
+ * Digests the raw request body as it arrives; nothing is buffered beyond one read.
+ */
+public class StreamHashHandler implements Handler {
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        FileHasher.Digest digest;
+        try (InputStream in = req.content().inputStream()) {
+            digest = FileHasher.hashStream(in);
+        }
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("sha256", digest.sha256())
+                .add("size", digest.size())
+                .build());
+    }
+}
@@ -0,0 +1,23 @@
+package aloui.bilal.userauthservice.service.ledger;
+
+import aloui.bilal.userauthservice.security.Permission;
+import aloui.bilal.userauthservice.service.auth.handlers.AuthMiddleware;
+import aloui.bilal.userauthservice.service.ledger.handlers.LedgerStatusHandler;
+import aloui.bilal.userauthservice.service.ledger.handlers.LedgerVerifyHandler;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+
+import static aloui.bilal.userauthservice.service.auth.handlers.PermissionGuard.requires;
+
+/**
+ * Integrity checks of the blockchain service's ledger, run from checkpoints instead of from the genesis block.
+ */
+public class LedgerService implements HttpService {
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules
+                .get("/status", new AuthMiddleware(), requires(Permission.AUDIT_READ), new LedgerStatusHandler())
+                .post("/verify", new AuthMiddleware(), requires(Permission.AUDIT_READ), new LedgerVerifyHandler());
+    }
+}
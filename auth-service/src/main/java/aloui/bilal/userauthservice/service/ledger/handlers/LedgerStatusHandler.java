@@ -0,0 +1,51 @@
+package aloui.bilal.userauthservice.service.ledger.handlers;
+
+import aloui.bilal.userauthservice.ledger.LedgerCheckpoint;
+import aloui.bilal.userauthservice.ledger.LedgerReport;
+import aloui.bilal.userauthservice.ledger.LedgerVerifier;
+import aloui.bilal.userauthservice.transparency.CheckpointSigner;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.Base64;
+import java.util.Optional;
+
+public class LedgerStatusHandler implements Handler {
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        JsonObjectBuilder json = Json.createObjectBuilder().add("status", "success");
+
+        Optional<LedgerCheckpoint> checkpoint = LedgerVerifier.latestCheckpoint();
+        if (checkpoint.isPresent()) {
+            LedgerCheckpoint c = checkpoint.get();
+            json.add("checkpoint", Json.createObjectBuilder()
+                    .add("origin", LedgerCheckpoint.ORIGIN)
+                    .add("height", c.height())
+                    .add("blockHash", c.blockHash())
+                    .add("verifiedAt", c.verifiedAtMs())
+                    .add("keyId", c.keyId())
+                    .add("signature", Base64.getEncoder().encodeToString(c.signature())));
+        } else {
+            json.addNull("checkpoint");
+        }
+
+        Optional<LedgerReport> report = LedgerVerifier.lastReport();
+        if (report.isPresent()) {
+            json.add("lastReport", report.get().toJson());
+        } else {
+            json.addNull("lastReport");
+        }
+
+        String publicKey = CheckpointSigner.publicKeyBase64();
+        if (publicKey != null) {
+            json.add("publicKey", publicKey);
+        } else {
+            json.addNull("publicKey");
+        }
+        res.send(json.build());
+    }
+}
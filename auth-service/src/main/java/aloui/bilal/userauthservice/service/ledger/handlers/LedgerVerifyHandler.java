@@ -0,0 +1,37 @@
+package aloui.bilal.userauthservice.service.ledger.handlers;
+
+import aloui.bilal.userauthservice.ledger.LedgerReport;
+import aloui.bilal.userauthservice.ledger.LedgerVerifier;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+
+/**
+ * Runs a pass now. {@code mode=full} re-verifies from the genesis block; the default only checks blocks
+ * appended since the last checkpoint.
+ */
+public class LedgerVerifyHandler implements Handler {
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        String mode = req.query().first("mode").asOptional().orElse("incremental");
+        LedgerReport report;
+        switch (mode) {
+            case "incremental" -> report = LedgerVerifier.verifyIncremental();
+            case "full" -> report = LedgerVerifier.verifyFull();
+            default -> {
+                res.status(400).send(Json.createObjectBuilder()
+                        .add("status", "error")
+                        .add("message", "mode must be incremental or full")
+                        .build());
+                return;
+            }
+        }
+
+        res.send(Json.createObjectBuilder()
+                .add("status", "success")
+                .add("report", report.toJson())
+                .build());
+    }
+}
@@ -0,0 +1,29 @@
+package aloui.bilal.userauthservice.service.signature;
+
+import aloui.bilal.userauthservice.dao.DaoInstrumentation;
+import aloui.bilal.userauthservice.dao.ISignatureDao;
+import aloui.bilal.userauthservice.dao.SignatureDaoImpl;
+import aloui.bilal.userauthservice.security.Permission;
+import aloui.bilal.userauthservice.service.auth.handlers.AuthMiddleware;
+import aloui.bilal.userauthservice.service.signature.handlers.BatchVerifyHandler;
+import aloui.bilal.userauthservice.signature.BatchVerifier;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+
+import static aloui.bilal.userauthservice.service.auth.handlers.PermissionGuard.requires;
+
+/**
+ * Bulk verification of stored document signatures, e.g. re-checking an organization's archive after a key
+ * incident. Single-document verification stays in the signature app.
+ */
+public class SignatureService implements HttpService {
+
+    private final BatchVerifier batchVerifier =
+            new BatchVerifier(DaoInstrumentation.instrument(ISignatureDao.class, new SignatureDaoImpl()));
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules.post("/verify/batch", new AuthMiddleware(), requires(Permission.AUDIT_READ),
+                new BatchVerifyHandler(batchVerifier));
+    }
+}
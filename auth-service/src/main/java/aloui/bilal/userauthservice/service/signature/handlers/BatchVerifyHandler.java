@@ -0,0 +1,90 @@
+package aloui.bilal.userauthservice.service.signature.handlers;
+
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.security.Permission;
+import aloui.bilal.userauthservice.service.auth.handlers.PermissionGuard;
+import aloui.bilal.userauthservice.signature.BatchVerifier;
+import aloui.bilal.userauthservice.signature.VerificationResult;
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.Handler;
+import io.helidon.webserver.http.ServerRequest;
+import io.helidon.webserver.http.ServerResponse;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams one JSON line per signature as pages complete, then a summary line, so a client sees progress on
+ * archives that take minutes.
+ */
+public class BatchVerifyHandler implements Handler {
+
+    private final BatchVerifier batchVerifier;
+
+    public BatchVerifyHandler(BatchVerifier batchVerifier) {
+        this.batchVerifier = batchVerifier;
+    }
+
+    @Override
+    public void handle(ServerRequest req, ServerResponse res) throws Exception {
+        JsonObject reqJson = req.content().hasEntity() ? req.content().as(JsonObject.class) : JsonObject.EMPTY_JSON_OBJECT;
+        String organization = reqJson.getString("organization", "").trim();
+        boolean record = reqJson.getBoolean("record", false);
+        if (record && !PermissionGuard.granted(req, Permission.AUDIT_WRITE)) {
+            res.status(403).send(Json.createObjectBuilder()
+                    .add("status", "error")
+                    .add("message", "record requires AUDIT_WRITE")
+                    .build());
+            return;
+        }
+
+        res.header(HeaderNames.CONTENT_TYPE, "application/x-ndjson");
+        try (OutputStream out = res.outputStream()) {
+            try {
+                BatchVerifier.Totals totals = batchVerifier.verifyAll(organization.isEmpty() ? null : organization, record,
+                        results -> {
+                            for (VerificationResult result : results) {
+                                writeLine(out, result.toJson());
+                            }
+                            flush(out);
+                        });
+                writeLine(out, Json.createObjectBuilder()
+                        .add("status", "success")
+                        .add("total", totals.total())
+                        .add("invalid", totals.invalid())
+                        .add("unknown", totals.unknown())
+                        .build());
+            } catch (UncheckedIOException e) {
+                // Client went away
+                throw e;
+            } catch (RuntimeException e) {
+                // Headers are already sent, so the failure is reported in-band
+                EventLog.error("BatchVerifyHandler", e);
+                writeLine(out, Json.createObjectBuilder()
+                        .add("status", "error")
+                        .add("message", "Verification aborted: " + e.getMessage())
+                        .build());
+            }
+        }
+    }
+
+    private static void writeLine(OutputStream out, JsonObject json) {
+        try {
+            out.write((json.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void flush(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package aloui.bilal.userauthservice.signature;
+
+import aloui.bilal.userauthservice.dao.ISignatureDao;
+import aloui.bilal.userauthservice.logging.EventLog;
+import aloui.bilal.userauthservice.metrics.Metrics;
+import aloui.bilal.userauthservice.model.DocumentSignature;
+import aloui.bilal.userauthservice.tracing.Span;
+import aloui.bilal.userauthservice.tracing.Tracer;
+import io.helidon.config.Config;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Re-verifies stored document signatures in pages. Each page is split across a dedicated fork-join pool while
+ * the next page is read, and results are handed to the caller page by page so they can be streamed.
+ */
+public class BatchVerifier {
+
+    private static final int PAGE_SIZE;
+    private static final int SPLIT_THRESHOLD = 16;
+    private static final int KEY_CACHE_SIZE;
+    private static final ForkJoinPool POOL;
+
+    // Parsed keys by user_keys.id; a key id never changes its key material, so entries need no expiry.
+    // Pages verify against their own copy of the keys they need, so evicting here never pulls a key from under one.
+    private static final Map<Long, PublicKey> KEYS = new ConcurrentHashMap<>();
+
+    private static final LongAdder VERIFIED = Metrics.counter("auth_signatures_verified_total");
+    private static final LongAdder INVALID = Metrics.counter("auth_signatures_invalid_total");
+    private static final LongAdder UNKNOWN = Metrics.counter("auth_signatures_unverifiable_total");
+    private static final LongAdder KEY_MISSES = Metrics.counter("auth_signature_key_cache_misses_total");
+
+    static {
+        Config config = Config.create().get("signatures");
+        PAGE_SIZE = config.get("page-size").asInt().orElse(512);
+        KEY_CACHE_SIZE = config.get("key-cache-size").asInt().orElse(10_000);
+        int parallelism = config.get("parallelism").asInt().orElse(Runtime.getRuntime().availableProcessors());
+        AtomicInteger threads = new AtomicInteger();
+        POOL = new ForkJoinPool(parallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("signature-verify-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    private final ISignatureDao signatureDao;
+
+    public BatchVerifier(ISignatureDao signatureDao) {
+        this.signatureDao = signatureDao;
+    }
+
+    /**
+     * Verifies every signature of the organization (all organizations when null), optionally writing definite
+     * outcomes back to {@code document_signatures.verified}. Signatures that cannot be checked are left as they are.
+     */
+    public Totals verifyAll(String organizationName, boolean record, Consumer<List<VerificationResult>> sink) {
+        long total = 0;
+        long invalid = 0;
+        long unknown = 0;
+        List<DocumentSignature> page = signatureDao.findPage(organizationName, 0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            Map<Long, PublicKey> keys = keysFor(page);
+            ForkJoinTask<List<VerificationResult>> task = POOL.submit(new VerifyRange(page, keys, 0, page.size()));
+
+            // Read the next page while this one is being verified
+            List<DocumentSignature> next = page.size() < PAGE_SIZE
+                    ? List.of()
+                    : signatureDao.findPage(organizationName, page.get(page.size() - 1).getId(), PAGE_SIZE);
+
+            List<VerificationResult> results = task.join();
+            Map<Long, Boolean> outcomes = new HashMap<>();
+            for (VerificationResult result : results) {
+                if (result.isUnknown()) {
+                    unknown++;
+                    continue;
+                }
+                outcomes.put(result.signatureId(), result.valid());
+                if (!result.valid()) {
+                    invalid++;
+                }
+            }
+            total += results.size();
+            if (record) {
+                signatureDao.recordVerified(outcomes);
+            }
+            sink.accept(results);
+            page = next;
+        }
+        VERIFIED.add(total);
+        INVALID.add(invalid);
+        UNKNOWN.add(unknown);
+        return new Totals(total, invalid, unknown);
+    }
+
+    /**
+     * The parsed keys a page needs, from the cache or, for the rest, fetched and parsed in one query.
+     */
+    private Map<Long, PublicKey> keysFor(List<DocumentSignature> page) {
+        Map<Long, PublicKey> keys = new HashMap<>();
+        Map<Long, SignatureAlgorithm> missing = new HashMap<>();
+        for (DocumentSignature signature : page) {
+            Long keyId = signature.getKeyId();
+            if (keyId == null || keys.containsKey(keyId)) {
+                continue;
+            }
+            PublicKey cached = KEYS.get(keyId);
+            if (cached != null) {
+                keys.put(keyId, cached);
+            } else {
+                SignatureAlgorithm.of(signature.getAlgorithm()).ifPresent(a -> missing.putIfAbsent(keyId, a));
+            }
+        }
+        if (missing.isEmpty()) {
+            return keys;
+        }
+        KEY_MISSES.add(missing.size());
+        evict(missing.size());
+        try (Span span = Tracer.start("signature.load_keys")) {
+            signatureDao.findPublicKeys(missing.keySet()).forEach((keyId, pem) -> {
+                try {
+                    PublicKey key = parse(pem, missing.get(keyId));
+                    keys.put(keyId, key);
+                    KEYS.put(keyId, key);
+                } catch (GeneralSecurityException | IllegalArgumentException e) {
+                    EventLog.error("BatchVerifier.parseKey", e);
+                }
+            });
+        }
+        return keys;
+    }
+
+    /**
+     * Makes room for {@code incoming} keys by dropping arbitrary entries; batches hold their own copies.
+     */
+    private static void evict(int incoming) {
+        Iterator<Long> ids = KEYS.keySet().iterator();
+        while (KEYS.size() + incoming > KEY_CACHE_SIZE && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    static PublicKey parse(String pem, SignatureAlgorithm algorithm) throws GeneralSecurityException {
+        String base64 = pem.replaceAll("-----(BEGIN|END) PUBLIC KEY-----", "").replaceAll("\\s", "");
+        return KeyFactory.getInstance(algorithm.keyAlgorithm())
+                .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(base64)));
+    }
+
+    /**
+     * The signer signs the 32-byte SHA-256 of its JSON envelope (hashing it once more inside the scheme), so the
+     * message is the stored {@code signed_digest}. Anything that keeps the check from running is unknown, not false.
+     */
+    static VerificationResult verify(DocumentSignature signature, Map<Long, PublicKey> keys) {
+        Optional<SignatureAlgorithm> algorithm = SignatureAlgorithm.of(signature.getAlgorithm());
+        if (algorithm.isEmpty()) {
+            return result(signature, null, "Unsupported algorithm: " + signature.getAlgorithm());
+        }
+        if (signature.getSignedDigest() == null) {
+            return result(signature, null, "No signed digest stored");
+        }
+        PublicKey key = signature.getKeyId() == null ? null : keys.get(signature.getKeyId());
+        if (key == null) {
+            return result(signature, null, "No usable public key");
+        }
+        byte[] message;
+        byte[] bytes;
+        try {
+            message = HexFormat.of().parseHex(signature.getSignedDigest());
+            bytes = Base64.getDecoder().decode(signature.getSignature().trim());
+        } catch (IllegalArgumentException e) {
+            return result(signature, null, "Malformed digest or signature: " + e.getMessage());
+        }
+        try {
+            return result(signature, algorithm.get().verify(key, message, bytes), null);
+        } catch (GeneralSecurityException | ClassCastException e) {
+            return result(signature, null, "Key does not fit the algorithm: " + e.getMessage());
+        }
+    }
+
+    private static VerificationResult result(DocumentSignature signature, Boolean valid, String error) {
+        return new VerificationResult(signature.getId(), signature.getDocumentId(), signature.getUserId(),
+                signature.getKeyId(), signature.getKeyStatus(), valid, error);
+    }
+
+    public record Totals(long total, long invalid, long unknown) {
+    }
+
+    /**
+     * Halves the range until it is small enough to verify inline; results keep the page order.
+     */
+    private static final class VerifyRange extends RecursiveTask<List<VerificationResult>> {
+        private final List<DocumentSignature> page;
+        private final Map<Long, PublicKey> keys;
+        private final int from;
+        private final int to;
+
+        private VerifyRange(List<DocumentSignature> page, Map<Long, PublicKey> keys, int from, int to) {
+            this.page = page;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<VerificationResult> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                List<VerificationResult> results = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    results.add(verify(page.get(i), keys));
+                }
+                return results;
+            }
+            int mid = (from + to) >>> 1;
+            VerifyRange left = new VerifyRange(page, keys, from, mid);
+            left.fork();
+            List<VerificationResult> results = new VerifyRange(page, keys, mid, to).compute();
+            List<VerificationResult> merged = new ArrayList<>(left.join());
+            merged.addAll(results);
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package aloui.bilal.userauthservice.signature;
+
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PSSParameterSpec;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Signature schemes accepted in {@code document_signatures.algorithm}. RSA-PSS uses the maximum salt length,
+ * which is what the Python signer's {@code PSS.MAX_LENGTH} produces.
+ */
+public enum SignatureAlgorithm {
+
+    RSA_PSS_SHA256("RSA"),
+    RSA_PKCS1_SHA256("RSA"),
+    ECDSA_SHA256("EC"),
+    ED25519("Ed25519");
+
+    private final String keyAlgorithm;
+
+    SignatureAlgorithm(String keyAlgorithm) {
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    /**
+     * {@link java.security.KeyFactory} algorithm for this scheme's public keys.
+     */
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public static Optional<SignatureAlgorithm> of(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        return switch (name.trim().toUpperCase(Locale.ROOT)) {
+            case "RSA-PSS", "RSASSA-PSS", "PS256", "RSA-PSS-SHA256", "SHA256WITHRSA/PSS" -> Optional.of(RSA_PSS_SHA256);
+            case "RS256", "SHA256WITHRSA", "RSA-SHA256" -> Optional.of(RSA_PKCS1_SHA256);
+            case "ES256", "ECDSA", "SHA256WITHECDSA", "ECDSA-SHA256" -> Optional.of(ECDSA_SHA256);
+            case "ED25519", "EDDSA" -> Optional.of(ED25519);
+            default -> Optional.empty();
+        };
+    }
+
+    public boolean verify(PublicKey key, byte[] message, byte[] signature) throws GeneralSecurityException {
+        Signature verifier = switch (this) {
+            case RSA_PSS_SHA256 -> {
+                Signature pss = Signature.getInstance("RSASSA-PSS");
+                pss.initVerify(key);
+                pss.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256,
+                        maxSaltLength((RSAPublicKey) key), PSSParameterSpec.TRAILER_FIELD_BC));
+                yield pss;
+            }
+            case RSA_PKCS1_SHA256 -> init(Signature.getInstance("SHA256withRSA"), key);
+            // DER as produced by most libraries; raw r||s (JOSE) when it is exactly two P-256 coordinates
+            case ECDSA_SHA256 -> init(Signature.getInstance(signature.length == 64
+                    ? "SHA256withECDSAinP1363Format" : "SHA256withECDSA"), key);
+            case ED25519 -> init(Signature.getInstance("Ed25519"), key);
+        };
+        verifier.update(message);
+        return verifier.verify(signature);
+    }
+
+    private static Signature init(Signature signature, PublicKey key) throws GeneralSecurityException {
+        signature.initVerify(key);
+        return signature;
+    }
+
+    private static int maxSaltLength(RSAPublicKey key) {
+        int emLen = (key.getModulus().bitLength() - 1 + 7) / 8;
+        return emLen - 32 - 2;
+    }
+}
@@ -0,0 +1,45 @@
+package aloui.bilal.userauthservice.signature;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+/**
+ * Outcome for one signature. {@code valid} is null when it could not be checked (no digest or key, unsupported
+ * algorithm, unparseable data), and {@code error} then says why; a signature that simply did not match is false.
+ */
+public record VerificationResult(long signatureId, long documentId, long userId, Long keyId, String keyStatus,
+                                 Boolean valid, String error) {
+
+    public boolean isUnknown() {
+        return valid == null;
+    }
+
+    public JsonObject toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("signatureId", signatureId)
+                .add("documentId", documentId)
+                .add("userId", userId);
+        if (valid == null) {
+            json.addNull("valid");
+        } else {
+            json.add("valid", valid);
+        }
+        if (keyId == null) {
+            json.addNull("keyId");
+        } else {
+            json.add("keyId", keyId);
+        }
+        if (keyStatus == null) {
+            json.addNull("keyStatus");
+        } else {
+            json.add("keyStatus", keyStatus);
+        }
+        if (error == null) {
+            json.addNull("error");
+        } else {
+            json.add("error", error);
+        }
+        return json.build();
+    }
+}
@@ -0,0 +1,121 @@
+package aloui.bilal.userauthservice.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A timed unit of work. Use with try-with-resources; closing ends the span and restores its parent.
+ * Unsampled work gets {@link #NOOP}, which records nothing.
+ */
+public class Span implements AutoCloseable {
+
+    static final Span NOOP = new Span(null, null, null, null, false);
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final boolean sampled;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private long endEpochNanos;
+    private List<String[]> attributes;
+    private boolean error;
+    private Span restore;
+
+    Span(String traceId, String spanId, String parentSpanId, String name, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.sampled = sampled;
+        this.startNanos = System.nanoTime();
+        this.startEpochNanos = sampled ? System.currentTimeMillis() * 1_000_000 : 0;
+    }
+
+    public Span attribute(String key, Object value) {
+        if (sampled && value != null) {
+            if (attributes == null) {
+                attributes = new ArrayList<>(4);
+            }
+            attributes.add(new String[]{key, String.valueOf(value)});
+        }
+        return this;
+    }
+
+    public Span error(Throwable throwable) {
+        if (sampled) {
+            error = true;
+            attribute("exception.type", throwable.getClass().getName());
+        }
+        return this;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    void restoreOnClose(Span previous) {
+        this.restore = previous;
+    }
+
+    @Override
+    public void close() {
+        if (this == NOOP) {
+            return;
+        }
+        Tracer.restore(restore);
+        if (sampled) {
+            endEpochNanos = startEpochNanos + (System.nanoTime() - startNanos);
+            SpanExporter.export(this);
+        }
+    }
+
+    void appendOtlpJson(StringBuilder out) {
+        out.append("{\"traceId\":\"").append(traceId)
+                .append("\",\"spanId\":\"").append(spanId).append('"');
+        if (parentSpanId != null) {
+            out.append(",\"parentSpanId\":\"").append(parentSpanId).append('"');
+        }
+        out.append(",\"name\":\"").append(escape(name))
+                .append("\",\"kind\":").append(parentSpanId == null ? 2 : 1)
+                .append(",\"startTimeUnixNano\":\"").append(startEpochNanos)
+                .append("\",\"endTimeUnixNano\":\"").append(endEpochNanos).append('"');
+        if (attributes != null) {
+            out.append(",\"attributes\":[");
+            for (int i = 0; i < attributes.size(); i++) {
+                String[] attribute = attributes.get(i);
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append("{\"key\":\"").append(escape(attribute[0]))
+                        .append("\",\"value\":{\"stringValue\":\"").append(escape(attribute[1])).append("\"}}");
+            }
+            out.append(']');
+        }
+        out.append(",\"status\":{\"code\":").append(error ? 2 : 1).append("}}");
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package aloui.bilal.userauthservice.tracing;
+
+import aloui.bilal.userauthservice.metrics.Metrics;
+import io.helidon.config.Config;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects finished spans. The most recent ones stay in memory for {@link TracingService};
+ * when {@code tracing.file} is set they are also appended to that file as OTLP/JSON lines
+ * (one ExportTraceServiceRequest per line, as written by the collector's file exporter).
+ */
+public class SpanExporter {
+
+    private static final String SERVICE_NAME = "auth-service";
+    private static final int BATCH_SIZE = 256;
+
+    private static final int BUFFER_SIZE;
+    private static final Path FILE;
+
+    private static final Span[] RECENT;
+    private static int recentNext;
+    private static final BlockingQueue<Span> PENDING;
+    private static final LongAdder DROPPED = Metrics.counter("auth_trace_spans_dropped_total");
+
+    static {
+        Config config = Config.create().get("tracing");
+        BUFFER_SIZE = config.get("buffer-size").asInt().orElse(2048);
+        FILE = config.get("file").asString().filter(f -> !f.isBlank()).map(Path::of).orElse(null);
+        RECENT = new Span[BUFFER_SIZE];
+        PENDING = FILE == null ? null : new ArrayBlockingQueue<>(BUFFER_SIZE * 4);
+        if (FILE != null) {
+            Thread.ofPlatform().daemon().name("span-exporter").start(SpanExporter::writeLoop);
+        }
+    }
+
+    private SpanExporter() {
+    }
+
+    static void export(Span span) {
+        synchronized (RECENT) {
+            RECENT[recentNext] = span;
+            recentNext = (recentNext + 1) % BUFFER_SIZE;
+        }
+        if (PENDING != null && !PENDING.offer(span)) {
+            DROPPED.increment();
+        }
+    }
+
+    /**
+     * Recent spans, oldest first, as one OTLP/JSON ExportTraceServiceRequest document.
+     */
+    public static String recentAsOtlpJson() {
+        List<Span> spans = new ArrayList<>(BUFFER_SIZE);
+        synchronized (RECENT) {
+            for (int i = 0; i < BUFFER_SIZE; i++) {
+                Span span = RECENT[(recentNext + i) % BUFFER_SIZE];
+                if (span != null) {
+                    spans.add(span);
+                }
+            }
+        }
+        return toOtlpJson(spans);
+    }
+
+    private static String toOtlpJson(List<Span> spans) {
+        StringBuilder out = new StringBuilder(128 + spans.size() * 256);
+        out.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[{\"key\":\"service.name\",\"value\":{\"stringValue\":\"")
+                .append(SERVICE_NAME)
+                .append("\"}}]},\"scopeSpans\":[{\"scope\":{\"name\":\"aloui.bilal.userauthservice\"},\"spans\":[");
+        for (int i = 0; i < spans.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            spans.get(i).appendOtlpJson(out);
+        }
+        out.append("]}]}]}");
+        return out.toString();
+    }
+
+    private static void writeLoop() {
+        List<Span> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                Span first = PENDING.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                PENDING.drainTo(batch, BATCH_SIZE - 1);
+                try (BufferedWriter writer = Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    writer.write(toOtlpJson(batch));
+                    writer.newLine();
+                } catch (IOException e) {
+                    DROPPED.add(batch.size());
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
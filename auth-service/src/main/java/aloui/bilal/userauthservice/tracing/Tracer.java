@@ -0,0 +1,138 @@
+package aloui.bilal.userauthservice.tracing;
+
+import io.helidon.config.Config;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-confined tracing in the style of W3C Trace Context. A request's root span decides
+ * sampling once (following a valid caller's sampled flag, up to a per-second cap); every
+ * child span of an unsampled request is the shared no-op span, so the off path costs one
+ * thread-local read.
+ */
+public class Tracer {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static final double SAMPLE_RATE;
+    private static final int MAX_CALLER_SAMPLED_PER_SECOND;
+
+    // Callers are not trusted to decide our tracing volume: their sampled flag is honoured this often per second
+    private static final AtomicLong CALLER_WINDOW = new AtomicLong();
+    private static final AtomicInteger CALLER_SAMPLED = new AtomicInteger();
+
+    static {
+        Config config = Config.create().get("tracing");
+        SAMPLE_RATE = config.get("sample-rate").asDouble().orElse(0.01);
+        MAX_CALLER_SAMPLED_PER_SECOND = config.get("max-caller-sampled-per-second").asInt().orElse(10);
+    }
+
+    private Tracer() {
+    }
+
+    /**
+     * Starts the root span of a request.
+     *
+     * @param traceparent incoming W3C traceparent header, or null
+     * @param requestId   gateway request id (32 hex chars) used as trace id when no traceparent is given
+     */
+    public static Span startRoot(String name, String traceparent, String requestId) {
+        String traceId = null;
+        String parentSpanId = null;
+        boolean sampled;
+
+        // traceparent: version-traceid-parentid-flags; anything malformed is ignored as if absent
+        if (isValidTraceparent(traceparent)) {
+            traceId = traceparent.substring(3, 35);
+            parentSpanId = traceparent.substring(36, 52);
+            sampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1 && callerSampleAllowed();
+        } else {
+            if (requestId != null && requestId.length() == 32) {
+                String candidate = requestId.toLowerCase(Locale.ROOT);
+                if (isLowerHex(candidate, 0, 32, true)) {
+                    traceId = candidate;
+                }
+            }
+            sampled = ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE;
+        }
+
+        if (!sampled) {
+            return Span.NOOP;
+        }
+        Span span = new Span(traceId != null ? traceId : randomHex(16), randomHex(8), parentSpanId, name, true);
+        span.restoreOnClose(CURRENT.get());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Starts a child of the current span, or returns the no-op span when not sampled.
+     */
+    public static Span start(String name) {
+        Span parent = CURRENT.get();
+        if (parent == null || !parent.isSampled()) {
+            return Span.NOOP;
+        }
+        Span span = new Span(parent.getTraceId(), randomHex(8), parent.getSpanId(), name, true);
+        span.restoreOnClose(parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    static void restore(Span previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Version 00 only: lowercase hex fields of the right length, with non-zero trace and parent ids.
+     */
+    static boolean isValidTraceparent(String value) {
+        if (value == null || value.length() != 55 || !value.startsWith("00-")
+                || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return false;
+        }
+        return isLowerHex(value, 3, 35, true) && isLowerHex(value, 36, 52, true) && isLowerHex(value, 53, 55, false);
+    }
+
+    private static boolean isLowerHex(String value, int from, int to, boolean nonZero) {
+        boolean allZero = true;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+            allZero &= c == '0';
+        }
+        return !(nonZero && allZero);
+    }
+
+    private static boolean callerSampleAllowed() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long window = CALLER_WINDOW.get();
+        if (window != second && CALLER_WINDOW.compareAndSet(window, second)) {
+            CALLER_SAMPLED.set(0);
+        }
+        return CALLER_SAMPLED.incrementAndGet() <= MAX_CALLER_SAMPLED_PER_SECOND;
+    }
+
+    private static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i += 8) {
+            long value = random.nextLong();
+            if (value == 0) {
+                value = 1; // all-zero ids are invalid
+            }
+            String part = Long.toHexString(value);
+            hex.append("0".repeat(16 - part.length())).append(part);
+        }
+        return hex.substring(0, bytes * 2);
+    }
+}
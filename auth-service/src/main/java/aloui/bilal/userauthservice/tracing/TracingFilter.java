@@ -0,0 +1,34 @@
+package aloui.bilal.userauthservice.tracing;
+
+import io.helidon.http.HeaderName;
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.Filter;
+import io.helidon.webserver.http.FilterChain;
+import io.helidon.webserver.http.RoutingRequest;
+import io.helidon.webserver.http.RoutingResponse;
+
+/**
+ * Opens the root span of each request, continuing the caller's trace when the gateway forwards one.
+ */
+public class TracingFilter implements Filter {
+
+    private static final HeaderName TRACEPARENT = HeaderNames.create("traceparent");
+    private static final HeaderName REQUEST_ID = HeaderNames.create("X-Request-ID");
+
+    @Override
+    public void filter(FilterChain chain, RoutingRequest req, RoutingResponse res) {
+        String method = req.prologue().method().text();
+        String path = req.path().path();
+        try (Span span = Tracer.startRoot(method + " " + path,
+                req.headers().first(TRACEPARENT).orElse(null),
+                req.headers().first(REQUEST_ID).orElse(null))) {
+            if (span.isSampled()) {
+                span.attribute("http.request.method", method)
+                        .attribute("url.path", path);
+                res.header(TRACEPARENT, "00-" + span.getTraceId() + "-" + span.getSpanId() + "-01");
+            }
+            chain.proceed();
+            span.attribute("http.response.status_code", res.status().code());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package aloui.bilal.userauthservice.tracing;
+
+import io.helidon.http.HeaderNames;
+import io.helidon.webserver.http.HttpRules;
+import io.helidon.webserver.http.HttpService;
+
+/**
+ * Serves the in-memory span buffer. Served only on the unpublished management socket.
+ */
+public class TracingService implements HttpService {
+
+    @Override
+    public void routing(HttpRules rules) {
+        rules.get("/", (req, res) -> res
+                .header(HeaderNames.CONTENT_TYPE, "application/json")
+                .send(SpanExporter.recentAsOtlpJson()));
+    }
+}
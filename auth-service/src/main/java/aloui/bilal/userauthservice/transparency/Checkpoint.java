@@ -0,0 +1,24 @@
+package aloui.bilal.userauthservice.transparency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Signed tree head: the log's root hash at a given size, signed with the service's Ed25519 key.
+ */
+public record Checkpoint(long treeSize, byte[] rootHash, long timestampMs, String keyId, byte[] signature) {
+
+    public static final String ORIGIN = "auth-service/login-log";
+
+    /**
+     * The exact bytes that are signed; auditors rebuild this text to verify a checkpoint.
+     */
+    public byte[] signedPayload() {
+        return payload(treeSize, rootHash, timestampMs);
+    }
+
+    static byte[] payload(long treeSize, byte[] rootHash, long timestampMs) {
+        String text = ORIGIN + "\n" + treeSize + "\n" + Base64.getEncoder().encodeToString(rootHash) + "\n" + timestampMs + "\n";
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
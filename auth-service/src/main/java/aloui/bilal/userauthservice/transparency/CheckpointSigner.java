@@ -0,0 +1,115 @@
+package aloui.bilal.userauthservice.transparency;
+
+import io.helidon.config.Config;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Signs checkpoints with Ed25519 under the configured key pair. There is no ephemeral fallback: each replica
+ * would sign with a key of its own, and nothing it signed could be checked anywhere else or after a restart.
+ * Features that publish signatures call {@link #requireKey(String)} when they start.
+ */
+public class CheckpointSigner {
+
+    private static final PrivateKey PRIVATE_KEY;
+    private static final PublicKey PUBLIC_KEY;
+    private static final String KEY_ID;
+
+    static {
+        Config config = Config.create().get("transparency");
+        String privateKey = config.get("signing-key").asString().orElse("");
+        String publicKey = config.get("public-key").asString().orElse("");
+        if (privateKey.isBlank() || publicKey.isBlank()) {
+            PRIVATE_KEY = null;
+            PUBLIC_KEY = null;
+            KEY_ID = null;
+        } else {
+            try {
+                KeyFactory factory = KeyFactory.getInstance("Ed25519");
+                PRIVATE_KEY = factory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKey)));
+                PUBLIC_KEY = factory.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey)));
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(PUBLIC_KEY.getEncoded());
+                KEY_ID = HexFormat.of().formatHex(digest, 0, 8);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid transparency signing key", e);
+            }
+        }
+    }
+
+    private CheckpointSigner() {
+    }
+
+    public static boolean isConfigured() {
+        return PRIVATE_KEY != null;
+    }
+
+    /**
+     * Fails startup of {@code feature} when no key pair is configured.
+     */
+    public static void requireKey(String feature) {
+        if (!isConfigured()) {
+            throw new IllegalStateException(feature + " is enabled but transparency.signing-key and "
+                    + "transparency.public-key are not set");
+        }
+    }
+
+    public static Checkpoint sign(long treeSize, byte[] rootHash, long timestampMs) {
+        return new Checkpoint(treeSize, rootHash, timestampMs, KEY_ID,
+                signBytes(Checkpoint.payload(treeSize, rootHash, timestampMs)));
+    }
+
+    /**
+     * Ed25519 signature over an arbitrary payload with the service key; the caller owns the payload format.
+     */
+    public static byte[] signBytes(byte[] payload) {
+        requireKey("Checkpoint signing");
+        try {
+            Signature signature = Signature.getInstance("Ed25519");
+            signature.initSign(PRIVATE_KEY);
+            signature.update(payload);
+            return signature.sign();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign checkpoint", e);
+        }
+    }
+
+    /**
+     * True only for a signature by the current key; anything signed under another key id is not trusted.
+     */
+    public static boolean verify(byte[] payload, String keyId, byte[] signature) {
+        if (KEY_ID == null || !KEY_ID.equals(keyId)) {
+            return false;
+        }
+        try {
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(PUBLIC_KEY);
+            verifier.update(payload);
+            return verifier.verify(signature);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Null when no key pair is configured.
+     */
+    public static String keyId() {
+        return KEY_ID;
+    }
+
+    /**
+     * X.509 SubjectPublicKeyInfo, base64; null when no key pair is configured.
+     */
+    public static String publicKeyBase64() {
+        return PUBLIC_KEY == null ? null : Base64.getEncoder().encodeToString(PUBLIC_KEY.getEncoded());
+    }
+}
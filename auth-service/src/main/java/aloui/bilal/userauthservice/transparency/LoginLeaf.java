@@ -0,0 +1,33 @@
+package aloui.bilal.userauthservice.transparency;
+
+import aloui.bilal.userauthservice.model.LoginHistory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Canonical leaf encoding of a login event. Any later edit of the row changes these bytes,
+ * so it no longer matches the leaf hash committed to the log.
+ */
+public final class LoginLeaf {
+
+    private LoginLeaf() {
+    }
+
+    public static String encode(LoginHistory login) {
+        // login_at is a TIMESTAMP without zone: encode its wall-clock value so the JVM time zone cannot matter
+        LocalDateTime at = login.getLoginAt().toLocalDateTime();
+        long epochMicros = at.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + at.getNano() / 1_000;
+        return "v1|" + login.getId()
+                + "|" + login.getUserId()
+                + "|" + login.getUserAgentId()
+                + "|" + (login.getIpAddress() == null ? "" : login.getIpAddress())
+                + "|" + epochMicros
+                + "|" + (login.isNewDevice() ? 1 : 0);
+    }
+
+    public static byte[] hash(LoginHistory login) {
+        return MerkleTree.leafHash(encode(login).getBytes(StandardCharsets.UTF_8));
+    }
+}
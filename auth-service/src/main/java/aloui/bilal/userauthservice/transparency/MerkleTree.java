@@ -0,0 +1,213 @@
+package aloui.bilal.userauthservice.transparency;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * RFC 6962 Merkle tree arithmetic over a log whose nodes are stored per perfect subtree:
+ * node (level, index) covers leaves [index * 2^level, (index + 1) * 2^level). Such nodes never change
+ * once written, so proofs for any past tree size are assembled from O(log n) of them.
+ */
+public final class MerkleTree {
+
+    public static final int HASH_BYTES = 32;
+
+    /**
+     * Supplies stored nodes; proofs are computed twice, first to learn which nodes are needed.
+     */
+    public interface NodeSource {
+        byte[] node(int level, long index);
+    }
+
+    private MerkleTree() {
+    }
+
+    public static byte[] leafHash(byte[] leaf) {
+        MessageDigest sha = sha256();
+        sha.update((byte) 0x00);
+        sha.update(leaf);
+        return sha.digest();
+    }
+
+    public static byte[] nodeHash(byte[] left, byte[] right) {
+        MessageDigest sha = sha256();
+        sha.update((byte) 0x01);
+        sha.update(left);
+        sha.update(right);
+        return sha.digest();
+    }
+
+    public static byte[] emptyRoot() {
+        return sha256().digest();
+    }
+
+    /**
+     * Perfect subtrees that make up the first {@code size} leaves, largest first, as {level, index} pairs.
+     */
+    public static List<long[]> frontierOf(long size) {
+        List<long[]> frontier = new ArrayList<>();
+        long offset = 0;
+        for (int level = 63 - Long.numberOfLeadingZeros(Math.max(size, 1)); level >= 0 && size > 0; level--) {
+            if ((size & (1L << level)) != 0) {
+                frontier.add(new long[]{level, offset >> level});
+                offset += 1L << level;
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * Root of the first {@code size} leaves.
+     */
+    public static byte[] root(NodeSource source, long size) {
+        return size == 0 ? emptyRoot() : rangeHash(source, 0, size);
+    }
+
+    /**
+     * Audit path for leaf {@code leafIndex} in the tree of {@code size} leaves (RFC 6962 section 2.1.1).
+     */
+    public static List<byte[]> inclusionProof(NodeSource source, long leafIndex, long size) {
+        if (leafIndex < 0 || leafIndex >= size) {
+            throw new IllegalArgumentException("Leaf " + leafIndex + " is not in a tree of size " + size);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        path(source, leafIndex, 0, size, proof);
+        return proof;
+    }
+
+    /**
+     * Proof that the tree of size {@code first} is a prefix of the tree of size {@code second} (section 2.1.2).
+     */
+    public static List<byte[]> consistencyProof(NodeSource source, long first, long second) {
+        if (first < 0 || first > second) {
+            throw new IllegalArgumentException("Cannot prove " + first + " consistent with " + second);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        if (first > 0 && first < second) {
+            subproof(source, first, 0, second, true, proof);
+        }
+        return proof;
+    }
+
+    /**
+     * Runs a proof computation against a source that records requests, then against the real nodes fetched
+     * in one batch. Keeps proof assembly to a single round trip.
+     */
+    public static <T> T withPrefetch(Function<List<long[]>, Map<String, byte[]>> fetch,
+                                     Function<NodeSource, T> computation) {
+        List<long[]> wanted = new ArrayList<>();
+        byte[] placeholder = new byte[HASH_BYTES];
+        computation.apply((level, index) -> {
+            wanted.add(new long[]{level, index});
+            return placeholder;
+        });
+        Map<String, byte[]> nodes = wanted.isEmpty() ? new HashMap<>() : fetch.apply(wanted);
+        return computation.apply((level, index) -> {
+            byte[] hash = nodes.get(key(level, index));
+            if (hash == null) {
+                throw new IllegalStateException("Missing Merkle node " + key(level, index));
+            }
+            return hash;
+        });
+    }
+
+    public static String key(long level, long index) {
+        return level + ":" + index;
+    }
+
+    /**
+     * Recomputes the root from a leaf and its audit path (RFC 9162 section 2.1.3.2).
+     */
+    public static boolean verifyInclusion(byte[] leafHash, long leafIndex, long size, List<byte[]> proof, byte[] root) {
+        if (leafIndex < 0 || leafIndex >= size) {
+            return false;
+        }
+        long fn = leafIndex;
+        long sn = size - 1;
+        byte[] r = leafHash;
+        for (byte[] p : proof) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                r = nodeHash(p, r);
+                if ((fn & 1) == 0) {
+                    while ((fn & 1) == 0 && fn != 0) {
+                        fn >>= 1;
+                        sn >>= 1;
+                    }
+                }
+            } else {
+                r = nodeHash(r, p);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && MessageDigest.isEqual(r, root);
+    }
+
+    private static void path(NodeSource source, long m, long start, long n, List<byte[]> proof) {
+        if (n == 1) {
+            return;
+        }
+        long k = Long.highestOneBit(n - 1);
+        if (m < k) {
+            path(source, m, start, k, proof);
+            proof.add(rangeHash(source, start + k, start + n));
+        } else {
+            path(source, m - k, start + k, n - k, proof);
+            proof.add(rangeHash(source, start, start + k));
+        }
+    }
+
+    private static void subproof(NodeSource source, long m, long start, long n, boolean complete, List<byte[]> proof) {
+        if (m == n) {
+            if (!complete) {
+                proof.add(rangeHash(source, start, start + n));
+            }
+            return;
+        }
+        long k = Long.highestOneBit(n - 1);
+        if (m <= k) {
+            subproof(source, m, start, k, complete, proof);
+            proof.add(rangeHash(source, start + k, start + n));
+        } else {
+            subproof(source, m - k, start + k, n - k, false, proof);
+            proof.add(rangeHash(source, start, start + k));
+        }
+    }
+
+    /**
+     * MTH of leaves [from, to): the stored perfect subtrees covering the range, folded right to left.
+     */
+    private static byte[] rangeHash(NodeSource source, long from, long to) {
+        List<byte[]> parts = new ArrayList<>();
+        long offset = from;
+        while (offset < to) {
+            int level = 63 - Long.numberOfLeadingZeros(to - offset);
+            while (level > 0 && (offset & ((1L << level) - 1)) != 0) {
+                level--;
+            }
+            parts.add(source.node(level, offset >> level));
+            offset += 1L << level;
+        }
+        byte[] hash = parts.get(parts.size() - 1);
+        for (int i = parts.size() - 2; i >= 0; i--) {
+            hash = nodeHash(parts.get(i), hash);
+        }
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package aloui.bilal.userauthservice.media;
+
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReaderFactory;
+import jakarta.json.JsonValue;
+import jakarta.json.JsonWriter;
+import jakarta.json.JsonWriterFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares JSON-P and CBOR for the auth service's hot responses: bytes on the wire and encode/decode time.
+ * Not part of the server or the jar; run after {@code mvn test-compile} with
+ * {@code java -cp "target/test-classes:target/classes:target/libs/*" aloui.bilal.userauthservice.media.CborBenchmark [iterations]}.
+ */
+public final class CborBenchmark {
+
+    private static final JsonWriterFactory JSON_WRITERS = Json.createWriterFactory(Map.of());
+    private static final JsonReaderFactory JSON_READERS = Json.createReaderFactory(Map.of());
+
+    private static volatile Object sink;
+
+    private CborBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        Map<String, JsonObject> payloads = new LinkedHashMap<>();
+        payloads.put("check-token", Json.createObjectBuilder()
+                .add("status", "success")
+                .add("valid", true)
+                .build());
+        payloads.put("me", Json.createObjectBuilder()
+                .add("status", "success")
+                .add("userInfo", user(42))
+                .build());
+        JsonArrayBuilder users = Json.createArrayBuilder();
+        for (int i = 0; i < 50; i++) {
+            users.add(user(1000 + i));
+        }
+        payloads.put("admin/users (50)", Json.createObjectBuilder()
+                .add("status", "success")
+                .add("users", users)
+                .add("nextCursor", "djE6MTAwMA")
+                .build());
+
+        System.out.printf("%-18s %10s %10s %7s %12s %12s %12s %12s%n",
+                "payload", "json B", "cbor B", "ratio", "json enc ns", "cbor enc ns", "json dec ns", "cbor dec ns");
+        for (Map.Entry<String, JsonObject> payload : payloads.entrySet()) {
+            JsonObject value = payload.getValue();
+            byte[] json = json(value);
+            byte[] cbor = Cbor.encode(value);
+            if (!Cbor.decode(cbor).equals(value)) {
+                throw new IllegalStateException("CBOR round trip changed " + payload.getKey());
+            }
+
+            // Warm both paths up before timing
+            for (int round = 0; round < 2; round++) {
+                long jsonEncode = time(iterations, () -> sink = json(value));
+                long cborEncode = time(iterations, () -> sink = Cbor.encode(value));
+                long jsonDecode = time(iterations, () -> sink = JSON_READERS.createReader(new ByteArrayInputStream(json)).readValue());
+                long cborDecode = time(iterations, () -> sink = Cbor.decode(cbor));
+                if (round == 1) {
+                    System.out.printf("%-18s %10d %10d %7.2f %12d %12d %12d %12d%n",
+                            payload.getKey(), json.length, cbor.length, (double) cbor.length / json.length,
+                            jsonEncode, cborEncode, jsonDecode, cborDecode);
+                }
+            }
+        }
+    }
+
+    private static JsonObject user(long id) {
+        return Json.createObjectBuilder()
+                .add("id", id)
+                .add("email", "user" + id + "@example.com")
+                .add("fullName", "User Number " + id)
+                .add("organization", "Example Org")
+                .add("role", 2)
+                .add("createdAt", 1714598312L + id)
+                .build();
+    }
+
+    private static byte[] json(JsonValue value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonWriter writer = JSON_WRITERS.createWriter(out)) {
+            writer.write(value);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Average nanoseconds per call.
+     */
+    private static long time(int iterations, Action action) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            action.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws IOException;
+    }
+}
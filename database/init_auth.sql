@@ -4,9 +4,13 @@ CREATE TABLE roles (
     role VARCHAR(255) NOT NULL UNIQUE
 );
 
+-- Ids are nextval('users_id_seq') * 1024 + bucket, so an id names its bucket and, through
+-- user_shard_buckets, the shard holding the user (see UserShards in auth-service)
+CREATE SEQUENCE users_id_seq;
+
 -- Create users table with timestamps and password change tracking
 CREATE TABLE users (
-    id SERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     full_name VARCHAR(255) NOT NULL,
     email VARCHAR(255) NOT NULL UNIQUE,
     hashed_password VARCHAR(255) NOT NULL,
@@ -14,25 +18,304 @@ CREATE TABLE users (
     organization_name VARCHAR(255),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Set when deletion is requested; the row itself goes once the deletion job has removed its dependents
+    deleted_at TIMESTAMP,
+    -- Tokens issued before this instant are rejected; set on password change
+    tokens_valid_after TIMESTAMPTZ,
     CONSTRAINT fk_role
         FOREIGN KEY (role_id) REFERENCES roles(id)
         ON DELETE SET NULL
 );
 
--- Create login_history table to track login attempts
-CREATE TABLE login_history (
+-- Admin user directory: keyset pages ordered by id, filters served from these indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_users_org_id ON users (organization_name, id);
+CREATE INDEX idx_users_role_id ON users (role_id, id);
+CREATE INDEX idx_users_created_at_id ON users (created_at, id);
+CREATE INDEX idx_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX idx_users_full_name_trgm ON users USING gin (lower(full_name) gin_trgm_ops);
+
+-- Bucket walks of the shard mover
+CREATE INDEX idx_users_bucket ON users ((id % 1024), id);
+
+-- Email directory: normalized email -> user, on the shard the email hashes to. Keeps emails unique across
+-- user shards and finds a user whose email changed after registration put it in another bucket.
+CREATE TABLE user_emails (
+    email VARCHAR(255) PRIMARY KEY,
+    bucket INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_user_emails_bucket ON user_emails (bucket, email);
+
+-- Buckets this shard must not write: being moved off, or already moved. Written by the shard mover.
+CREATE TABLE user_bucket_fences (
+    bucket INTEGER PRIMARY KEY,
+    moving_to INTEGER NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE OR REPLACE FUNCTION user_bucket_fence() RETURNS trigger AS $$
+DECLARE
+    b INTEGER;
+BEGIN
+    IF current_setting('auth.user_fence_bypass', true) = 'on' THEN
+        IF TG_OP = 'DELETE' THEN
+            RETURN OLD;
+        END IF;
+        RETURN NEW;
+    END IF;
+    IF TG_TABLE_NAME = 'users' THEN
+        IF TG_OP = 'DELETE' THEN
+            b := OLD.id % 1024;
+        ELSE
+            b := NEW.id % 1024;
+        END IF;
+    ELSIF TG_OP = 'DELETE' THEN
+        b := OLD.bucket;
+    ELSE
+        b := NEW.bucket;
+    END IF;
+    -- The mover takes this lock exclusively to put up a fence, so writes already under way finish first
+    PERFORM pg_advisory_xact_lock_shared(1431521348, b);
+    IF EXISTS (SELECT 1 FROM user_bucket_fences WHERE bucket = b) THEN
+        RAISE EXCEPTION 'user bucket % is not writable on this shard', b
+            USING ERRCODE = 'object_not_in_prerequisite_state';
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_bucket_fence BEFORE INSERT OR UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION user_bucket_fence();
+CREATE TRIGGER user_emails_bucket_fence BEFORE INSERT OR UPDATE OR DELETE ON user_emails
+    FOR EACH ROW EXECUTE FUNCTION user_bucket_fence();
+
+-- Shard of each bucket; buckets without a row are on this database, shard 0. Only kept here.
+CREATE TABLE user_shard_buckets (
+    bucket INTEGER PRIMARY KEY,
+    shard INTEGER NOT NULL,
+    moved_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Dictionary of distinct User-Agent strings, referenced by id from login_history
+CREATE TABLE user_agents (
     id SERIAL PRIMARY KEY,
-    user_id INTEGER NOT NULL,
-    login_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    user_agent TEXT,
+    user_agent TEXT NOT NULL
+);
+
+-- Hash index keeps uniqueness enforceable for long strings
+CREATE UNIQUE INDEX idx_user_agents_md5 ON user_agents (md5(user_agent));
+
+-- Tables below that store a user id have no foreign key to users: the user may live on another shard.
+-- The user deletion job removes their rows instead of ON DELETE CASCADE.
+
+-- Create login_history table to track login attempts, range-partitioned by month on login_at.
+-- Partitions are created ahead of time and retired by the auth-service maintenance job.
+CREATE TABLE login_history (
+    id BIGSERIAL,
+    user_id BIGINT NOT NULL,
+    login_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    user_agent_id INTEGER,
     ip_address VARCHAR(45),
-    CONSTRAINT fk_login_user
-        FOREIGN KEY (user_id) REFERENCES users(id)
-        ON DELETE CASCADE
+    new_device BOOLEAN NOT NULL DEFAULT FALSE,
+    -- Inserting transaction, so readers can tail rows in commit-safe order
+    txid XID8 NOT NULL DEFAULT pg_current_xact_id(),
+    PRIMARY KEY (id, login_at),
+    CONSTRAINT fk_login_user_agent
+        FOREIGN KEY (user_agent_id) REFERENCES user_agents(id)
+) PARTITION BY RANGE (login_at);
+
+CREATE INDEX idx_login_history_user_login_at ON login_history (user_id, login_at DESC);
+CREATE INDEX idx_login_history_txid ON login_history (txid, id);
+
+-- Catches rows outside any monthly partition; should stay empty
+CREATE TABLE login_history_default PARTITION OF login_history DEFAULT;
+
+-- Current month and the next two
+DO $$
+DECLARE
+    month_start DATE := date_trunc('month', LOCALTIMESTAMP)::date;
+BEGIN
+    FOR i IN 0..2 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF login_history FOR VALUES FROM (%L) TO (%L)',
+                       'login_history_' || to_char(month_start + make_interval(months => i), 'YYYY_MM'),
+                       month_start + make_interval(months => i),
+                       month_start + make_interval(months => i + 1));
+    END LOOP;
+END $$;
+
+-- Per-user daily aggregates of login_history, kept after the raw partitions are dropped
+CREATE TABLE login_daily_rollups (
+    user_id BIGINT NOT NULL,
+    day DATE NOT NULL,
+    login_count INTEGER NOT NULL,
+    distinct_ips INTEGER NOT NULL,
+    distinct_user_agents INTEGER NOT NULL,
+    new_devices INTEGER NOT NULL,
+    PRIMARY KEY (user_id, day)
+);
+
+-- Per-user Bloom filter of seen (IP prefix, user-agent family) pairs, used for new-device detection
+CREATE TABLE device_sketches (
+    user_id BIGINT PRIMARY KEY,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Upserts OR the stored Bloom bits into the incoming ones, so concurrent replicas never drop each other's devices.
+-- Layout matches DeviceSketch: version byte, big-endian count, then the bits. A different layout is replaced.
+CREATE OR REPLACE FUNCTION merge_device_sketch(stored BYTEA, incoming BYTEA) RETURNS BYTEA AS $$
+DECLARE
+    merged BYTEA := incoming;
+BEGIN
+    IF length(stored) <> length(incoming) OR get_byte(stored, 0) <> get_byte(incoming, 0) THEN
+        RETURN incoming;
+    END IF;
+    IF substring(stored FROM 2 FOR 2) > substring(incoming FROM 2 FOR 2) THEN
+        merged := overlay(merged PLACING substring(stored FROM 2 FOR 2) FROM 2 FOR 2);
+    END IF;
+    FOR i IN 3 .. length(incoming) - 1 LOOP
+        merged := set_byte(merged, i, get_byte(stored, i) | get_byte(incoming, i));
+    END LOOP;
+    RETURN merged;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+
+-- Permissions granted to each role; names match the Permission enum in auth-service
+CREATE TABLE role_permissions (
+    role_id INT NOT NULL REFERENCES roles(id) ON DELETE CASCADE,
+    permission VARCHAR(64) NOT NULL,
+    PRIMARY KEY (role_id, permission)
+);
+
+-- Any change to roles makes every auth-service replica reload its permission snapshot
+CREATE OR REPLACE FUNCTION notify_roles_changed() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('auth_invalidation',
+        'db|R|0|' || (extract(epoch FROM clock_timestamp()) * 1000)::bigint);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER roles_changed AFTER INSERT OR UPDATE OR DELETE ON roles
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_roles_changed();
+CREATE TRIGGER role_permissions_changed AFTER INSERT OR UPDATE OR DELETE ON role_permissions
+    FOR EACH STATEMENT EXECUTE FUNCTION notify_roles_changed();
 
 -- Insert sample roles
 INSERT INTO roles (id, role) VALUES (1, 'admin');
 INSERT INTO roles (id, role) VALUES (2, 'user');
 
+INSERT INTO role_permissions (role_id, permission) VALUES
+    (1, 'PROFILE_READ'), (1, 'PROFILE_WRITE'), (1, 'USERS_READ'), (1, 'USERS_WRITE'),
+    (1, 'AUDIT_READ'), (1, 'AUDIT_WRITE'), (1, 'DIAGNOSTICS'),
+    (2, 'PROFILE_READ'), (2, 'PROFILE_WRITE');
+
+-- Append-only Merkle log over login events (RFC 6962 hashing), maintained by auth-service.
+-- Leaf i is login event login_id; nodes hold every perfect subtree, so proofs need O(log n) lookups.
+CREATE TABLE transparency_leaves (
+    leaf_index BIGINT PRIMARY KEY,
+    login_id BIGINT NOT NULL UNIQUE,
+    -- login_history.txid of the event; (login_txid, login_id) of the last leaf is where the appender resumes
+    login_txid XID8 NOT NULL
+);
+
+CREATE TABLE transparency_nodes (
+    level SMALLINT NOT NULL,
+    idx BIGINT NOT NULL,
+    hash BYTEA NOT NULL,
+    PRIMARY KEY (level, idx)
+);
+
+-- Signed tree heads
+CREATE TABLE transparency_checkpoints (
+    tree_size BIGINT PRIMARY KEY,
+    root_hash BYTEA NOT NULL,
+    signed_at_ms BIGINT NOT NULL,
+    key_id VARCHAR(16) NOT NULL,
+    signature BYTEA NOT NULL
+);
+
+-- The log only grows: refuse edits and deletes even from the service's own role
+CREATE OR REPLACE FUNCTION transparency_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION '% is append-only', TG_TABLE_NAME;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER transparency_leaves_append_only BEFORE UPDATE OR DELETE ON transparency_leaves
+    FOR EACH ROW EXECUTE FUNCTION transparency_append_only();
+CREATE TRIGGER transparency_nodes_append_only BEFORE UPDATE OR DELETE ON transparency_nodes
+    FOR EACH ROW EXECUTE FUNCTION transparency_append_only();
+CREATE TRIGGER transparency_checkpoints_append_only BEFORE UPDATE OR DELETE ON transparency_checkpoints
+    FOR EACH ROW EXECUTE FUNCTION transparency_append_only();
+
+-- Signed high-water marks of the blockchain service's verified ledger
+CREATE TABLE ledger_checkpoints (
+    key_id VARCHAR(16) NOT NULL,
+    height BIGINT NOT NULL,
+    block_hash VARCHAR(64) NOT NULL,
+    verified_at_ms BIGINT NOT NULL,
+    signature BYTEA NOT NULL,
+    PRIMARY KEY (key_id, height)
+);
+
+CREATE TRIGGER ledger_checkpoints_append_only BEFORE UPDATE OR DELETE ON ledger_checkpoints
+    FOR EACH ROW EXECUTE FUNCTION transparency_append_only();
+
+-- User lifecycle events, written in the same statement as the change and relayed in id order by auth-service.
+-- Rows stay for a while after publishing so a consumer can be replayed from a known id.
+CREATE TABLE user_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    user_id BIGINT NOT NULL,
+    payload JSONB NOT NULL,
+    occurred_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    published_at TIMESTAMPTZ
+);
+
+CREATE INDEX idx_user_outbox_unpublished ON user_outbox (id) WHERE published_at IS NULL;
+CREATE INDEX idx_user_outbox_published_at ON user_outbox (published_at) WHERE published_at IS NOT NULL;
+
+-- Background deletion of an account: dependents go first in small batches, the users row last
+CREATE TABLE user_deletion_jobs (
+    user_id BIGINT PRIMARY KEY,
+    state VARCHAR(16) NOT NULL DEFAULT 'PENDING', -- 'PENDING', 'RUNNING', 'DONE'
+    step VARCHAR(64),
+    step_index INTEGER NOT NULL DEFAULT 0,
+    rows_deleted BIGINT NOT NULL DEFAULT 0,
+    requested_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    finished_at TIMESTAMPTZ,
+    -- Replica working on the job; another one takes over once the lease runs out
+    lease_owner VARCHAR(16),
+    lease_until TIMESTAMPTZ,
+    last_error TEXT
+);
+
+CREATE INDEX idx_user_deletion_jobs_open ON user_deletion_jobs (requested_at) WHERE state <> 'DONE';
+
+-- Checkpointed login statistics (daily counts and HyperLogLog sketches), maintained incrementally by auth-service.
+-- No foreign key: users may live on other shards; the deletion job removes a deleted user's row.
+CREATE TABLE login_analytics_users (
+    user_id BIGINT PRIMARY KEY,
+    stats BYTEA NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_login_analytics_users_updated_at ON login_analytics_users (updated_at);
+
+CREATE TABLE login_analytics_organizations (
+    organization_name VARCHAR(255) PRIMARY KEY,
+    stats BYTEA NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX idx_login_analytics_organizations_updated_at ON login_analytics_organizations (updated_at);
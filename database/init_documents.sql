@@ -1,3 +1,6 @@
+-- User ids here have no foreign key to users: users may live on other auth-service shards,
+-- and the user deletion job removes or clears these references itself.
+
 -- Create documents table to store document metadata and hashes
 CREATE TABLE documents (
     id SERIAL PRIMARY KEY,
@@ -7,7 +10,7 @@ CREATE TABLE documents (
     file_size BIGINT NOT NULL,
     document_hash VARCHAR(64) NOT NULL UNIQUE, -- SHA-256 hash
     content_hash VARCHAR(64) NOT NULL, -- Hash of actual file content
-    uploaded_by INTEGER NOT NULL,
+    uploaded_by BIGINT NOT NULL,
     upload_timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(50) DEFAULT 'UPLOADED',
     security_level VARCHAR(20) DEFAULT 'MEDIUM',
@@ -15,17 +18,14 @@ CREATE TABLE documents (
     file_path TEXT, -- Path where file is stored on disk
     metadata JSONB, -- Additional metadata as JSON
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    CONSTRAINT fk_uploaded_by
-        FOREIGN KEY (uploaded_by) REFERENCES users(id)
-        ON DELETE CASCADE
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
 -- Create document_signatures table to track signatures
 CREATE TABLE document_signatures (
     id SERIAL PRIMARY KEY,
     document_id INTEGER NOT NULL,
-    user_id INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
     signature_type VARCHAR(50) NOT NULL, -- 'ELECTRONIC', 'DIGITAL', 'BIOMETRIC'
     signature_data TEXT, -- Base64 encoded signature image
     crypto_signature TEXT, -- Cryptographic signature
@@ -37,11 +37,10 @@ CREATE TABLE document_signatures (
     verified BOOLEAN DEFAULT FALSE,
     blockchain_tx_id VARCHAR(100), -- Reference to blockchain transaction
     metadata JSONB,
+    key_id INTEGER, -- user_keys.id of the signing key; NULL means the signer's current key
+    signed_digest VARCHAR(64), -- SHA-256 of json.dumps(signed_data, sort_keys=True), the bytes the signer signed
     CONSTRAINT fk_doc_signature_document
         FOREIGN KEY (document_id) REFERENCES documents(id)
-        ON DELETE CASCADE,
-    CONSTRAINT fk_doc_signature_user
-        FOREIGN KEY (user_id) REFERENCES users(id)
         ON DELETE CASCADE
 );
 
@@ -49,7 +48,7 @@ CREATE TABLE document_signatures (
 CREATE TABLE document_actions (
     id SERIAL PRIMARY KEY,
     document_id INTEGER NOT NULL,
-    user_id INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
     action_type VARCHAR(50) NOT NULL, -- 'UPLOAD', 'SIGN', 'SEND', 'VERIFY', 'REVOKE'
     action_data JSONB, -- Additional action-specific data
     ip_address VARCHAR(45),
@@ -60,9 +59,6 @@ CREATE TABLE document_actions (
     error_message TEXT,
     CONSTRAINT fk_doc_action_document
         FOREIGN KEY (document_id) REFERENCES documents(id)
-        ON DELETE CASCADE,
-    CONSTRAINT fk_doc_action_user
-        FOREIGN KEY (user_id) REFERENCES users(id)
         ON DELETE CASCADE
 );
 
@@ -70,9 +66,9 @@ CREATE TABLE document_actions (
 CREATE TABLE document_shares (
     id SERIAL PRIMARY KEY,
     document_id INTEGER NOT NULL,
-    shared_by INTEGER NOT NULL,
+    shared_by BIGINT NOT NULL,
     shared_with_email VARCHAR(255) NOT NULL,
-    shared_with_user INTEGER, -- NULL if shared with external user
+    shared_with_user BIGINT, -- NULL if shared with external user
     permission_level VARCHAR(50) DEFAULT 'VIEW', -- 'VIEW', 'SIGN', 'EDIT'
     share_token VARCHAR(100) UNIQUE, -- Unique token for accessing shared document
     expires_at TIMESTAMP,
@@ -83,20 +79,14 @@ CREATE TABLE document_shares (
     status VARCHAR(50) DEFAULT 'ACTIVE', -- 'ACTIVE', 'REVOKED', 'EXPIRED'
     CONSTRAINT fk_doc_share_document
         FOREIGN KEY (document_id) REFERENCES documents(id)
-        ON DELETE CASCADE,
-    CONSTRAINT fk_doc_share_shared_by
-        FOREIGN KEY (shared_by) REFERENCES users(id)
-        ON DELETE CASCADE,
-    CONSTRAINT fk_doc_share_shared_with
-        FOREIGN KEY (shared_with_user) REFERENCES users(id)
-        ON DELETE SET NULL
+        ON DELETE CASCADE
 );
 
 -- Create document_verification table to track verification attempts
 CREATE TABLE document_verification (
     id SERIAL PRIMARY KEY,
     document_id INTEGER NOT NULL,
-    verified_by INTEGER,
+    verified_by BIGINT,
     verification_method VARCHAR(50) NOT NULL, -- 'HASH', 'SIGNATURE', 'BLOCKCHAIN'
     verification_result BOOLEAN NOT NULL,
     verification_data JSONB, -- Detailed verification results
@@ -105,26 +95,21 @@ CREATE TABLE document_verification (
     blockchain_tx_id VARCHAR(100),
     CONSTRAINT fk_doc_verification_document
         FOREIGN KEY (document_id) REFERENCES documents(id)
-        ON DELETE CASCADE,
-    CONSTRAINT fk_doc_verification_user
-        FOREIGN KEY (verified_by) REFERENCES users(id)
-        ON DELETE SET NULL
+        ON DELETE CASCADE
 );
 
 -- Create user_keys table to track cryptographic keys
 CREATE TABLE user_keys (
     id SERIAL PRIMARY KEY,
-    user_id INTEGER NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL UNIQUE,
     public_key_path TEXT NOT NULL,
     private_key_path TEXT NOT NULL,
+    public_key TEXT, -- PEM SubjectPublicKeyInfo, read by batch signature verification
     key_algorithm VARCHAR(50) DEFAULT 'RSA',
     key_size INTEGER DEFAULT 2048,
     generated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     last_used_at TIMESTAMP,
-    status VARCHAR(50) DEFAULT 'ACTIVE', -- 'ACTIVE', 'REVOKED', 'EXPIRED'
-    CONSTRAINT fk_user_keys_user
-        FOREIGN KEY (user_id) REFERENCES users(id)
-        ON DELETE CASCADE
+    status VARCHAR(50) DEFAULT 'ACTIVE' -- 'ACTIVE', 'REVOKED', 'EXPIRED'
 );
 
 -- Create indexes for better performance
@@ -0,0 +1,113 @@
+-- Schema of an additional user shard (db.shards in auth-service). Shard 0 is the main database, set up by
+-- init_auth.sql; the other shards only hold users, their email directory entries, outbox and deletion jobs.
+-- Roles and everything else stay on shard 0, so role_id is not a foreign key here.
+-- After loading this, run UserShardMover prepare <shard> once.
+
+CREATE SEQUENCE users_id_seq;
+
+CREATE TABLE users (
+    id BIGINT PRIMARY KEY,
+    full_name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    hashed_password VARCHAR(255) NOT NULL,
+    role_id INTEGER NOT NULL,
+    organization_name VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    deleted_at TIMESTAMP,
+    tokens_valid_after TIMESTAMPTZ
+);
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_users_org_id ON users (organization_name, id);
+CREATE INDEX idx_users_role_id ON users (role_id, id);
+CREATE INDEX idx_users_created_at_id ON users (created_at, id);
+CREATE INDEX idx_users_email_prefix ON users (lower(email) text_pattern_ops);
+CREATE INDEX idx_users_email_trgm ON users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX idx_users_full_name_trgm ON users USING gin (lower(full_name) gin_trgm_ops);
+CREATE INDEX idx_users_bucket ON users ((id % 1024), id);
+
+CREATE TABLE user_emails (
+    email VARCHAR(255) PRIMARY KEY,
+    bucket INTEGER NOT NULL,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX idx_user_emails_bucket ON user_emails (bucket, email);
+
+CREATE TABLE user_bucket_fences (
+    bucket INTEGER PRIMARY KEY,
+    moving_to INTEGER NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Same as in init_auth.sql
+CREATE OR REPLACE FUNCTION user_bucket_fence() RETURNS trigger AS $$
+DECLARE
+    b INTEGER;
+BEGIN
+    IF current_setting('auth.user_fence_bypass', true) = 'on' THEN
+        IF TG_OP = 'DELETE' THEN
+            RETURN OLD;
+        END IF;
+        RETURN NEW;
+    END IF;
+    IF TG_TABLE_NAME = 'users' THEN
+        IF TG_OP = 'DELETE' THEN
+            b := OLD.id % 1024;
+        ELSE
+            b := NEW.id % 1024;
+        END IF;
+    ELSIF TG_OP = 'DELETE' THEN
+        b := OLD.bucket;
+    ELSE
+        b := NEW.bucket;
+    END IF;
+    PERFORM pg_advisory_xact_lock_shared(1431521348, b);
+    IF EXISTS (SELECT 1 FROM user_bucket_fences WHERE bucket = b) THEN
+        RAISE EXCEPTION 'user bucket % is not writable on this shard', b
+            USING ERRCODE = 'object_not_in_prerequisite_state';
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        RETURN OLD;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER users_bucket_fence BEFORE INSERT OR UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION user_bucket_fence();
+CREATE TRIGGER user_emails_bucket_fence BEFORE INSERT OR UPDATE OR DELETE ON user_emails
+    FOR EACH ROW EXECUTE FUNCTION user_bucket_fence();
+
+-- A new shard owns nothing until buckets are moved to it
+INSERT INTO user_bucket_fences (bucket, moving_to) SELECT b, 0 FROM generate_series(0, 1023) AS b;
+
+CREATE TABLE user_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    event_type VARCHAR(32) NOT NULL,
+    user_id BIGINT NOT NULL,
+    payload JSONB NOT NULL,
+    occurred_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    published_at TIMESTAMPTZ
+);
+
+CREATE INDEX idx_user_outbox_unpublished ON user_outbox (id) WHERE published_at IS NULL;
+CREATE INDEX idx_user_outbox_published_at ON user_outbox (published_at) WHERE published_at IS NOT NULL;
+
+CREATE TABLE user_deletion_jobs (
+    user_id BIGINT PRIMARY KEY,
+    state VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    step VARCHAR(64),
+    step_index INTEGER NOT NULL DEFAULT 0,
+    rows_deleted BIGINT NOT NULL DEFAULT 0,
+    requested_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    finished_at TIMESTAMPTZ,
+    lease_owner VARCHAR(16),
+    lease_until TIMESTAMPTZ,
+    last_error TEXT
+);
+
+CREATE INDEX idx_user_deletion_jobs_open ON user_deletion_jobs (requested_at) WHERE state <> 'DONE';
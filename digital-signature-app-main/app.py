@@ -49,6 +49,15 @@ async def generate_user_keys(user_id: str):
     except Exception as e:
         raise HTTPException(status_code=500, detail=str(e))
 
+@app.get("/users/{user_id}/public-key")
+async def get_user_public_key(user_id: str):
+    """PEM public key of a user, for services that re-verify stored signatures"""
+    if not key_manager.user_exists(user_id):
+        raise HTTPException(status_code=404, detail=f"User {user_id} has no keys")
+    _, public_key_path = key_manager.get_user_keys(user_id)
+    with open(public_key_path, 'r') as f:
+        return {"user_id": user_id, "public_key": f.read()}
+
 @app.post("/sign")
 async def sign_document(
     document: UploadFile = File(...),
@@ -84,11 +93,11 @@ async def sign_document(
             "document_hash": document_hash,
             "timestamp": timestamp,
             "signing_info": {
-                "algorithm": "SHA-256",
+                "algorithm": "RSA-PSS",
                 "signature_type": "Digital Signature",
                 "key_type": "RSA",
                 "key_size": 2048,  # Assuming 2048-bit keys
-                "signature_format": "PKCS#1 v1.5"
+                "signature_format": "RSASSA-PSS, MGF1-SHA256, max salt, over sha256(signed_data)"
             },
             "metadata": {
                 "original_filename": document.filename,
@@ -31,6 +31,9 @@ DB_CONFIG = {
 # Blockchain service configuration
 BLOCKCHAIN_SERVICE_URL = os.getenv('BLOCKCHAIN_SERVICE_URL', 'http://localhost:5000')
 
+# Crypto service, which holds the users' key pairs
+CRYPTO_SERVICE_URL = os.getenv('CRYPTO_SERVICE_URL', 'http://localhost:8000')
+
 # Ensure upload directory exists
 os.makedirs(UPLOAD_FOLDER, exist_ok=True)
 
@@ -76,6 +79,36 @@ def record_blockchain_action(action_type, user_id, document_id=None, action_data
         print(f"Error recording blockchain action: {e}")
         return None
 
+def signing_key_id(cur, user_id):
+    """user_keys.id of the user's active key, registering the public key from the crypto service the first time"""
+    cur.execute("SELECT id FROM user_keys WHERE user_id = %s AND status = 'ACTIVE'", (user_id,))
+    key = cur.fetchone()
+    if key:
+        return key['id']
+    try:
+        response = requests.get(f"{CRYPTO_SERVICE_URL}/users/{user_id}/public-key", timeout=10)
+        if response.status_code != 200:
+            print(f"No public key for user {user_id}: {response.text}")
+            return None
+        public_key = response.json()['public_key']
+    except Exception as e:
+        print(f"Error fetching public key: {e}")
+        return None
+    cur.execute("""
+        INSERT INTO user_keys (user_id, public_key_path, private_key_path, public_key)
+        VALUES (%s, %s, %s, %s)
+        ON CONFLICT (user_id) DO NOTHING
+        RETURNING id
+    """, (
+        user_id, f"keys/users/{user_id}/public_key.pem", f"keys/users/{user_id}/private_key.pem", public_key
+    ))
+    key = cur.fetchone()
+    if key:
+        return key['id']
+    cur.execute("SELECT id FROM user_keys WHERE user_id = %s AND status = 'ACTIVE'", (user_id,))
+    key = cur.fetchone()
+    return key['id'] if key else None
+
 @app.route('/health', methods=['GET'])
 def health_check():
     """Health check endpoint"""
@@ -299,22 +332,41 @@ def sign_document(document_id):
         cur = conn.cursor(cursor_factory=psycopg2.extras.RealDictCursor)
 
         # Check if document exists
-        cur.execute("SELECT id, status FROM documents WHERE id = %s", (document_id,))
+        cur.execute("SELECT id, status, content_hash FROM documents WHERE id = %s", (document_id,))
         document = cur.fetchone()
         if not document:
             return jsonify({"error": "Document not found"}), 404
 
+        # The signer signs sha256(json.dumps(signed_data, sort_keys=True)); keep that digest so the
+        # signature can be re-verified later, once we know it covers this document and this user
+        signed_digest = None
+        signed_data = data.get('signed_data')
+        if crypto_signature and signed_data:
+            try:
+                signed_document = base64.b64decode(signed_data.get('document', ''), validate=True)
+            except ValueError:
+                return jsonify({"error": "signed_data.document is not base64"}), 400
+            if hashlib.sha256(signed_document).hexdigest() != document['content_hash']:
+                return jsonify({"error": "signed_data does not cover this document"}), 400
+            if str(signed_data.get('user_id')) != str(user_id):
+                return jsonify({"error": "signed_data was signed for another user"}), 400
+            signed_digest = hashlib.sha256(json.dumps(signed_data, sort_keys=True).encode()).hexdigest()
+
+        # Pin the key in use now, so a later key rotation does not change what this signature is checked against
+        key_id = signing_key_id(cur, user_id) if crypto_signature else None
+
         # Record signature
         cur.execute("""
             INSERT INTO document_signatures
             (document_id, user_id, signature_type, signature_data, crypto_signature,
-             algorithm, key_type, ip_address, device_info, metadata)
-            VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+             algorithm, key_type, ip_address, device_info, metadata, key_id, signed_digest)
+            VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
             RETURNING id, timestamp
         """, (
             document_id, user_id, signature_type, signature_data, crypto_signature,
             algorithm, key_type, request.remote_addr,
-            request.headers.get('User-Agent'), json.dumps(data.get('metadata', {}))
+            request.headers.get('User-Agent'), json.dumps(data.get('metadata', {})),
+            key_id, signed_digest
         ))
 
         signature_result = cur.fetchone()
@@ -287,6 +287,7 @@ export const DocumentProvider: React.FC<{ children: React.ReactNode }> = ({ chil
         crypto_signature: signedPackage.signature,
         algorithm: signedPackage.signing_info.algorithm,
         key_type: signedPackage.signing_info.key_type,
+        signed_data: signedPackage.signed_data,
         metadata: signatureMetadata
       });
 
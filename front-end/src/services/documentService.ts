@@ -59,6 +59,13 @@ export interface DocumentSignRequest {
   crypto_signature: string;
   algorithm: string;
   key_type: string;
+  // What crypto_signature was computed over; the document service keeps its digest for re-verification
+  signed_data?: {
+    document: string;
+    signature_image: string;
+    timestamp: string;
+    user_id: string;
+  };
   metadata?: any;
 }
 